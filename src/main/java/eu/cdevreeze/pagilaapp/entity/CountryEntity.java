@@ -17,13 +17,19 @@
 package eu.cdevreeze.pagilaapp.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Country JPA entity. Each instance represents a row in the corresponding table.
+ * <p>
+ * This is (near-)static reference data, so it is stored in the (read-only) second-level cache.
  *
  * @author Chris de Vreeze
  */
 @Entity(name = "Country")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "pagila.country")
 public class CountryEntity {
 
     @Id
@@ -17,6 +17,8 @@
 package eu.cdevreeze.pagilaapp.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 import java.math.BigDecimal;
 import java.time.Year;
@@ -67,7 +69,10 @@ public class FilmEntity {
     )
     private Set<CategoryEntity> categories = new HashSet<>();
 
+    // Not fetched in the same query as the categories, which would return the Cartesian product of the categories
+    // and actors of each film. Instead, the actors of all films of a query are fetched by one extra query.
     @ManyToMany
+    @Fetch(FetchMode.SUBSELECT)
     @JoinTable(
             name = "FilmActor",
             joinColumns = {@JoinColumn(name = "film_id")},
@@ -58,8 +58,7 @@ public class StaffEntity {
     @Column(name = "password")
     private String password;
 
-    @Column(name = "picture")
-    private byte[] picture;
+    // The picture is mapped by StaffPictureEntity, so that staff members can be queried without reading pictures
 
     public Integer getId() {
         return id;
@@ -132,12 +131,4 @@ public class StaffEntity {
     public void setPassword(String password) {
         this.password = password;
     }
-
-    public byte[] getPicture() {
-        return picture;
-    }
-
-    public void setPicture(byte[] picture) {
-        this.picture = picture;
-    }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Staff picture JPA entity, mapping only the ID and picture columns of the staff table.
+ * <p>
+ * Pictures are potentially large, and they are only needed when a picture itself is requested. Hence, they are
+ * not mapped by StaffEntity, but by this separate (read-only) entity, which is only loaded on demand. Without
+ * bytecode enhancement, a lazily fetched basic attribute of StaffEntity would still be read eagerly.
+ *
+ * @author Chris de Vreeze
+ */
+@Entity(name = "StaffPicture")
+@Table(name = "staff")
+@Immutable
+public class StaffPictureEntity {
+
+    @Id
+    @Column(name = "staff_id", nullable = false)
+    private Integer id;
+
+    @Column(name = "picture")
+    private byte[] picture;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public byte[] getPicture() {
+        return picture;
+    }
+
+    public void setPicture(byte[] picture) {
+        this.picture = picture;
+    }
+}
@@ -17,13 +17,11 @@
 package eu.cdevreeze.pagilaapp.entity.conversions;
 
 import com.google.common.collect.ImmutableSet;
-import com.google.common.primitives.ImmutableIntArray;
 import eu.cdevreeze.pagilaapp.entity.*;
 import eu.cdevreeze.pagilaapp.model.*;
 
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -42,83 +40,102 @@ public class EntityConversions {
     }
 
     public static Customer convertCustomerEntityToModel(CustomerEntity customerEntity) {
+        return convertCustomerEntityToModel(customerEntity, new Canonicalizer());
+    }
+
+    public static Customer convertCustomerEntityToModel(CustomerEntity customerEntity, Canonicalizer canonicalizer) {
         return new Customer(
                 Stream.ofNullable(customerEntity.getId()).mapToInt(i -> i).findFirst(),
-                convertStoreEntityToModel(customerEntity.getStore()),
+                convertStoreEntityToModel(customerEntity.getStore(), canonicalizer),
                 customerEntity.getFirstName(),
                 customerEntity.getLastName(),
                 Optional.ofNullable(customerEntity.getEmail()),
-                convertAddressEntityToModel(customerEntity.getAddress()),
+                convertAddressEntityToModel(customerEntity.getAddress(), canonicalizer),
                 Optional.ofNullable(customerEntity.getActive()).stream().anyMatch(v -> v == 1),
                 customerEntity.getCreateDate()
         );
     }
 
     public static Staff convertStaffEntityToModel(StaffEntity staffEntity) {
-        Optional<byte[]> pictureByteArrayOption = Optional.ofNullable(staffEntity.getPicture());
-        Optional<ImmutableIntArray> pictureOption = pictureByteArrayOption.map(pic ->
-                ImmutableIntArray
-                        .builder()
-                        .addAll(IntStream.range(0, pic.length).map(idx -> pic[idx]))
-                        .build()
-        );
+        return convertStaffEntityToModel(staffEntity, new Canonicalizer());
+    }
 
+    public static Staff convertStaffEntityToModel(StaffEntity staffEntity, Canonicalizer canonicalizer) {
         return new Staff(
                 Stream.ofNullable(staffEntity.getId()).mapToInt(i -> i).findFirst(),
                 staffEntity.getFirstName(),
                 staffEntity.getLastName(),
-                convertAddressEntityToModel(staffEntity.getAddress()),
+                convertAddressEntityToModel(staffEntity.getAddress(), canonicalizer),
                 Optional.ofNullable(staffEntity.getEmail()),
-                convertStoreEntityToModel(staffEntity.getStore()),
+                convertStoreEntityToModel(staffEntity.getStore(), canonicalizer),
                 staffEntity.getActive(),
                 staffEntity.getUserName(),
-                Optional.ofNullable(staffEntity.getPassword()),
-                pictureOption
+                Optional.ofNullable(staffEntity.getPassword())
         );
     }
 
     public static Store convertStoreEntityToModel(StoreEntity storeEntity) {
-        return new Store(
+        return convertStoreEntityToModel(storeEntity, new Canonicalizer());
+    }
+
+    public static Store convertStoreEntityToModel(StoreEntity storeEntity, Canonicalizer canonicalizer) {
+        return canonicalizer.canonicalize(new Store(
                 Stream.ofNullable(storeEntity.getId()).mapToInt(i -> i).findFirst(),
-                convertAddressEntityToModel(storeEntity.getAddress())
-        );
+                convertAddressEntityToModel(storeEntity.getAddress(), canonicalizer)
+        ));
     }
 
     public static Address convertAddressEntityToModel(AddressEntity addressEntity) {
-        return new Address(
+        return convertAddressEntityToModel(addressEntity, new Canonicalizer());
+    }
+
+    public static Address convertAddressEntityToModel(AddressEntity addressEntity, Canonicalizer canonicalizer) {
+        return canonicalizer.canonicalize(new Address(
                 Stream.ofNullable(addressEntity.getId()).mapToInt(i -> i).findFirst(),
                 addressEntity.getAddress(),
                 Optional.ofNullable(addressEntity.getAddress2()),
                 addressEntity.getDistrict(),
-                convertCityEntityToModel(addressEntity.getCity()),
+                convertCityEntityToModel(addressEntity.getCity(), canonicalizer),
                 Optional.ofNullable(addressEntity.getPostalCode()),
                 addressEntity.getPhone()
-        );
+        ));
     }
 
     public static City convertCityEntityToModel(CityEntity cityEntity) {
-        return new City(
+        return convertCityEntityToModel(cityEntity, new Canonicalizer());
+    }
+
+    public static City convertCityEntityToModel(CityEntity cityEntity, Canonicalizer canonicalizer) {
+        return canonicalizer.canonicalize(new City(
                 Stream.ofNullable(cityEntity.getId()).mapToInt(i -> i).findFirst(),
                 cityEntity.getCity(),
                 cityEntity.getCountry().getCountry()
-        );
+        ));
     }
 
     public static Film convertFilmEntityToModel(FilmEntity filmEntity) {
+        return convertFilmEntityToModel(filmEntity, new Canonicalizer());
+    }
+
+    public static Film convertFilmEntityToModel(FilmEntity filmEntity, Canonicalizer canonicalizer) {
+        // Stripping the (fixed length) language names creates new strings, so we canonicalize them as well
         return new Film(
                 Stream.ofNullable(filmEntity.getId()).mapToInt(i -> i).findFirst(),
                 filmEntity.getTitle(),
                 Optional.ofNullable(filmEntity.getDescription()),
                 Optional.ofNullable(filmEntity.getReleaseYear()),
-                filmEntity.getLanguage().getRawName().strip(),
-                Optional.ofNullable(filmEntity.getOriginalLanguage()).map(LanguageEntity::getRawName).map(String::strip),
+                canonicalizer.canonicalize(filmEntity.getLanguage().getRawName().strip()),
+                Optional.ofNullable(filmEntity.getOriginalLanguage())
+                        .map(LanguageEntity::getRawName)
+                        .map(String::strip)
+                        .map(canonicalizer::canonicalize),
                 filmEntity.getCategories()
                         .stream()
-                        .map(EntityConversions::convertCategoryEntityToModel)
+                        .map(categoryEntity -> convertCategoryEntityToModel(categoryEntity, canonicalizer))
                         .collect(ImmutableSet.toImmutableSet()),
                 Optional.ofNullable(filmEntity.getActors()).orElse(Set.of())
                         .stream()
-                        .map(EntityConversions::convertActorEntityToModel)
+                        .map(actorEntity -> convertActorEntityToModel(actorEntity, canonicalizer))
                         .collect(ImmutableSet.toImmutableSet()),
                 filmEntity.getRentalDuration(),
                 filmEntity.getRentalRate(),
@@ -133,17 +150,25 @@ public class EntityConversions {
     }
 
     public static Actor convertActorEntityToModel(ActorEntity actorEntity) {
-        return new Actor(
+        return convertActorEntityToModel(actorEntity, new Canonicalizer());
+    }
+
+    public static Actor convertActorEntityToModel(ActorEntity actorEntity, Canonicalizer canonicalizer) {
+        return canonicalizer.canonicalize(new Actor(
                 Stream.ofNullable(actorEntity.getId()).mapToInt(i -> i).findFirst(),
                 actorEntity.getFirstName(),
                 actorEntity.getLastName()
-        );
+        ));
     }
 
     public static Category convertCategoryEntityToModel(CategoryEntity categoryEntity) {
-        return new Category(
+        return convertCategoryEntityToModel(categoryEntity, new Canonicalizer());
+    }
+
+    public static Category convertCategoryEntityToModel(CategoryEntity categoryEntity, Canonicalizer canonicalizer) {
+        return canonicalizer.canonicalize(new Category(
                 Stream.ofNullable(categoryEntity.getId()).mapToInt(i -> i).findFirst(),
                 categoryEntity.getName()
-        );
+        ));
     }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.model;
+
+/**
+ * Immutable actor name record, used as query key. Actor names are matched case-insensitively.
+ *
+ * @author Chris de Vreeze
+ */
+public record ActorName(
+        String firstName,
+        String lastName
+) {
+
+    public String name() {
+        return String.format("%s %s", firstName(), lastName());
+    }
+
+    /**
+     * Returns true if the given actor has this name, ignoring case.
+     */
+    public boolean matches(Actor actor) {
+        return actor.firstName().equalsIgnoreCase(firstName()) && actor.lastName().equalsIgnoreCase(lastName());
+    }
+}
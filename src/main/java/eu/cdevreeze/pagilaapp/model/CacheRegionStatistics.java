@@ -0,0 +1,39 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.model;
+
+/**
+ * Immutable record holding the statistics of one cache region (since application startup).
+ *
+ * @author Chris de Vreeze
+ */
+public record CacheRegionStatistics(
+        String regionName,
+        long hitCount,
+        long missCount,
+        long putCount,
+        long elementCount
+) {
+
+    /**
+     * Returns the hit ratio, as a number between 0 and 1. Returns 0 if the cache region has not been used yet.
+     */
+    public double hitRatio() {
+        long requestCount = hitCount() + missCount();
+        return (requestCount == 0) ? 0.0 : ((double) hitCount()) / requestCount;
+    }
+}
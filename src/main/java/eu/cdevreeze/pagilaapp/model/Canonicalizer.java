@@ -0,0 +1,73 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.model;
+
+import com.google.common.base.Preconditions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Canonicalizing ("interning") cache of immutable model objects, meant to be used during one conversion of
+ * query results to model objects. Equal values (such as the same actor or store occurring in many query
+ * result rows) are then represented by one shared instance, instead of by many equal copies.
+ * <p>
+ * Unlike the model record classes, this class is mutable and not thread-safe. An instance should therefore
+ * not outlive the conversion of one query result, and should not be shared across threads. To bound the
+ * memory footprint when streaming large query results, the cache is cleared once it reaches its maximum size.
+ *
+ * @author Chris de Vreeze
+ */
+public final class Canonicalizer {
+
+    private static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final int maximumSize;
+
+    private final Map<Object, Object> canonicalInstances = new HashMap<>();
+
+    public Canonicalizer(int maximumSize) {
+        Preconditions.checkArgument(maximumSize > 0);
+        this.maximumSize = maximumSize;
+    }
+
+    public Canonicalizer() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Returns the canonical instance equal to the given value. If there is no such instance yet, the given
+     * value becomes the canonical instance. The value must be immutable, with value-based equality.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T canonicalize(T value) {
+        Object canonicalInstance = canonicalInstances.get(value);
+
+        if (canonicalInstance != null) {
+            return (T) canonicalInstance;
+        }
+        if (canonicalInstances.size() >= maximumSize) {
+            canonicalInstances.clear();
+        }
+        canonicalInstances.put(value, value);
+        return value;
+    }
+
+    public int size() {
+        return canonicalInstances.size();
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.model;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Immutable "data version" record, summarizing the state of a group of tables. It holds the maximum
+ * "last_update" timestamp of those tables (if any) and their total row count. The row count is needed
+ * to also detect deletions, which do not move the maximum "last_update" timestamp.
+ * <p>
+ * If the data version does not change, the data in those tables has (almost certainly) not changed either.
+ *
+ * @author Chris de Vreeze
+ */
+public record DataVersion(
+        Optional<Instant> lastUpdateOption,
+        long rowCount
+) {
+}
@@ -45,6 +45,10 @@ public record Film(
         Optional<ImmutableSet<String>> specialFeaturesOption
 ) {
 
+    public ImmutableSet<String> categoryNames() {
+        return categories().stream().map(Category::name).collect(ImmutableSet.toImmutableSet());
+    }
+
     public ImmutableSet<String> actorNames() {
         return actors().stream().map(Actor::name).collect(ImmutableSet.toImmutableSet());
     }
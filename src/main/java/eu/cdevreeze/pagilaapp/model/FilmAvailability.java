@@ -0,0 +1,36 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.model;
+
+/**
+ * Immutable film availability record, holding the number of inventory items (copies) of a film in a store,
+ * and how many of them are in stock. An inventory item is in stock if it is not currently rented out,
+ * that is, if it has no rental without return date.
+ *
+ * @author Chris de Vreeze
+ */
+public record FilmAvailability(
+        int filmId,
+        int storeId,
+        int inventoryCount,
+        int inStockCount
+) {
+
+    public boolean inStock() {
+        return inStockCount() > 0;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable film filter record, combining filters on multiple film attributes. All filters must hold
+ * for a film to match. String comparisons are case-insensitive.
+ * <p>
+ * Within the categories, languages, ratings and actor names (first name, space, last name) at least one
+ * of them must match (unless empty, meaning that there is no restriction). All given special features
+ * must be present. Films without length do not match unless the length range is unrestricted.
+ *
+ * @author Chris de Vreeze
+ */
+public record FilmFilter(
+        ImmutableSet<String> categories,
+        ImmutableSet<String> languages,
+        ImmutableSet<String> ratings,
+        ImmutableSet<String> actorNames,
+        ImmutableSet<String> specialFeatures,
+        Range<Integer> lengthRange,
+        Range<BigDecimal> rentalRateRange
+) {
+
+    public static FilmFilter matchingAll() {
+        return new FilmFilter(
+                ImmutableSet.of(),
+                ImmutableSet.of(),
+                ImmutableSet.of(),
+                ImmutableSet.of(),
+                ImmutableSet.of(),
+                Range.all(),
+                Range.all()
+        );
+    }
+
+    public FilmFilter withCategories(ImmutableSet<String> categories) {
+        return new FilmFilter(
+                categories,
+                languages(),
+                ratings(),
+                actorNames(),
+                specialFeatures(),
+                lengthRange(),
+                rentalRateRange()
+        );
+    }
+
+    public FilmFilter withLanguages(ImmutableSet<String> languages) {
+        return new FilmFilter(
+                categories(),
+                languages,
+                ratings(),
+                actorNames(),
+                specialFeatures(),
+                lengthRange(),
+                rentalRateRange()
+        );
+    }
+
+    public FilmFilter withActorNames(ImmutableSet<String> actorNames) {
+        return new FilmFilter(
+                categories(),
+                languages(),
+                ratings(),
+                actorNames,
+                specialFeatures(),
+                lengthRange(),
+                rentalRateRange()
+        );
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.model;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Immutable array of bytes, such as a picture. Unlike Guava's ImmutableIntArray, it takes one byte per element.
+ * <p>
+ * The bytes can be read without copying them, through {@link #openStream()} or {@link #writeTo(OutputStream)}.
+ *
+ * @author Chris de Vreeze
+ */
+public final class ImmutableByteArray {
+
+    private final byte[] bytes;
+
+    private ImmutableByteArray(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public static ImmutableByteArray copyOf(byte[] bytes) {
+        return new ImmutableByteArray(bytes.clone());
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    public byte get(int index) {
+        return bytes[index];
+    }
+
+    public byte[] toArray() {
+        return bytes.clone();
+    }
+
+    public InputStream openStream() {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(bytes);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+        return other instanceof ImmutableByteArray that && Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "ImmutableByteArray[length=" + bytes.length + "]";
+    }
+}
@@ -16,14 +16,13 @@
 
 package eu.cdevreeze.pagilaapp.model;
 
-import com.google.common.primitives.ImmutableIntArray;
-
 import java.util.Optional;
 import java.util.OptionalInt;
-import java.util.stream.IntStream;
 
 /**
  * Immutable staff record. The ID, if any, is the technical primary key.
+ * <p>
+ * The picture of a staff member is not part of this record. It is fetched separately, and only when needed.
  *
  * @author Chris de Vreeze
  */
@@ -36,15 +35,6 @@ public record Staff(
         Store store,
         boolean isActive,
         String userName,
-        Optional<String> passwordOption,
-        Optional<ImmutableIntArray> pictureOption // immutable, but not memory-efficient compared to byte[]
+        Optional<String> passwordOption
 ) {
-
-    public Optional<byte[]> pictureAsOptionalByteArray() {
-        return pictureOption().map(pic -> {
-            byte[] result = new byte[pic.length()];
-            IntStream.range(0, pic.length()).forEach(idx -> result[idx] = (byte) pic.get(idx));
-            return result;
-        });
-    }
 }
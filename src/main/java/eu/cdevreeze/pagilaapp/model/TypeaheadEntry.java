@@ -0,0 +1,75 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Immutable typeahead (autocomplete) entry record, being a film title or actor name. The ID is the
+ * technical primary key of the film or actor, respectively.
+ * <p>
+ * The search keys are the strings a typeahead prefix is matched against. For a film this is the title,
+ * and for an actor it is the name, as well as the name with the last name first.
+ *
+ * @author Chris de Vreeze
+ */
+public record TypeaheadEntry(
+        Kind kind,
+        int id,
+        String text,
+        ImmutableList<String> searchKeys
+) {
+
+    public enum Kind {FILM_TITLE, ACTOR_NAME}
+
+    public static TypeaheadEntry forFilm(int filmId, String title) {
+        return new TypeaheadEntry(Kind.FILM_TITLE, filmId, title, ImmutableList.of(title));
+    }
+
+    public static TypeaheadEntry forActor(int actorId, String firstName, String lastName) {
+        return new TypeaheadEntry(
+                Kind.ACTOR_NAME,
+                actorId,
+                String.format("%s %s", firstName, lastName),
+                ImmutableList.of(
+                        String.format("%s %s", firstName, lastName),
+                        String.format("%s %s", lastName, firstName)
+                )
+        );
+    }
+
+    /**
+     * Returns the first search key starting with the given prefix, ignoring case. The returned search key
+     * is case-folded (lower case, in the root locale), and so must be the prefix.
+     */
+    public Optional<String> matchingSearchKey(String foldedPrefix) {
+        return searchKeys().stream()
+                .map(TypeaheadEntry::fold)
+                .filter(key -> key.startsWith(foldedPrefix))
+                .findFirst();
+    }
+
+    /**
+     * Case-folds the given string, for case-insensitive prefix matching.
+     */
+    public static String fold(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.monitoring;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.Query;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * jOOQ ExecuteListener profiling each query execution, per phase (render, prepare, execute and fetch).
+ * The timings are accumulated per SQL fingerprint, which is the SQL string (with bind variables) with
+ * whitespace normalized, and lists of bind variables (e.g. in padded IN lists) collapsed. Only a bounded
+ * number of fingerprints is kept; if full, the least often executed fingerprint is evicted.
+ * <p>
+ * Executions that take longer than the slow query threshold are logged (at level WARN), along with their
+ * bind values and phase timings.
+ * <p>
+ * Note that for lazy fetching (cursors and streams), the fetch phase includes the time spent by the
+ * consumer of the results.
+ *
+ * @author Chris de Vreeze
+ */
+public final class JooqQueryProfiler implements ExecuteListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(JooqQueryProfiler.class);
+
+    private static final String TIMINGS_KEY = JooqQueryProfiler.class.getName() + ".timings";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern BIND_VARIABLE_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+
+    private static final int MAX_LOGGED_BIND_VALUE_LENGTH = 100;
+
+    private final Duration slowQueryThreshold;
+    private final int maxFingerprints;
+
+    private final ConcurrentMap<String, Accumulator> accumulators = new ConcurrentHashMap<>();
+
+    public JooqQueryProfiler(Duration slowQueryThreshold, int maxFingerprints) {
+        Preconditions.checkArgument(!slowQueryThreshold.isNegative());
+        Preconditions.checkArgument(maxFingerprints > 0);
+
+        this.slowQueryThreshold = slowQueryThreshold;
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    /**
+     * Returns the profiles of the queries with the highest total time, at most the given number of them.
+     */
+    public ImmutableList<QueryProfile> findTopQueries(int limit) {
+        return accumulators.entrySet()
+                .stream()
+                .map(e -> e.getValue().toQueryProfile(e.getKey()))
+                .sorted(Comparator.comparingDouble(QueryProfile::totalMillis).reversed())
+                .limit(limit)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    public void reset() {
+        accumulators.clear();
+    }
+
+    @Override
+    public void start(ExecuteContext ctx) {
+        ctx.data(TIMINGS_KEY, new Timings(System.nanoTime()));
+    }
+
+    @Override
+    public void renderStart(ExecuteContext ctx) {
+        timings(ctx).ifPresent(t -> t.phaseStart = System.nanoTime());
+    }
+
+    @Override
+    public void renderEnd(ExecuteContext ctx) {
+        timings(ctx).ifPresent(t -> t.renderNanos += System.nanoTime() - t.phaseStart);
+    }
+
+    @Override
+    public void prepareStart(ExecuteContext ctx) {
+        timings(ctx).ifPresent(t -> t.phaseStart = System.nanoTime());
+    }
+
+    @Override
+    public void prepareEnd(ExecuteContext ctx) {
+        timings(ctx).ifPresent(t -> t.prepareNanos += System.nanoTime() - t.phaseStart);
+    }
+
+    @Override
+    public void bindStart(ExecuteContext ctx) {
+        timings(ctx).ifPresent(t -> t.phaseStart = System.nanoTime());
+    }
+
+    @Override
+    public void bindEnd(ExecuteContext ctx) {
+        timings(ctx).ifPresent(t -> t.prepareNanos += System.nanoTime() - t.phaseStart);
+    }
+
+    @Override
+    public void executeStart(ExecuteContext ctx) {
+        timings(ctx).ifPresent(t -> t.phaseStart = System.nanoTime());
+    }
+
+    @Override
+    public void executeEnd(ExecuteContext ctx) {
+        timings(ctx).ifPresent(t -> t.executeNanos += System.nanoTime() - t.phaseStart);
+    }
+
+    @Override
+    public void fetchStart(ExecuteContext ctx) {
+        timings(ctx).ifPresent(t -> t.phaseStart = System.nanoTime());
+    }
+
+    @Override
+    public void recordEnd(ExecuteContext ctx) {
+        timings(ctx).ifPresent(t -> t.rows++);
+    }
+
+    @Override
+    public void fetchEnd(ExecuteContext ctx) {
+        timings(ctx).ifPresent(t -> t.fetchNanos += System.nanoTime() - t.phaseStart);
+    }
+
+    @Override
+    public void end(ExecuteContext ctx) {
+        Timings timings = timings(ctx).orElse(null);
+        String sql = (ctx.sql() != null) ? ctx.sql() : String.join(";\n", ctx.batchSQL());
+
+        if (timings == null || sql.isBlank()) {
+            return;
+        }
+        long totalNanos = System.nanoTime() - timings.start;
+        String fingerprint = fingerprint(sql);
+
+        accumulator(fingerprint).add(timings, totalNanos);
+
+        if (totalNanos >= slowQueryThreshold.toNanos()) {
+            logSlowQuery(fingerprint, bindValues(ctx.query()), timings, totalNanos);
+        }
+    }
+
+    private Accumulator accumulator(String fingerprint) {
+        Accumulator accumulator = accumulators.get(fingerprint);
+
+        if (accumulator == null) {
+            if (accumulators.size() >= maxFingerprints) {
+                // Like pg_stat_statements, evict the least often executed query (races only cause minor overshoot)
+                accumulators.entrySet()
+                        .stream()
+                        .min(Comparator.comparingLong(e -> e.getValue().calls.sum()))
+                        .map(Map.Entry::getKey)
+                        .ifPresent(accumulators::remove);
+            }
+            accumulator = accumulators.computeIfAbsent(fingerprint, k -> new Accumulator());
+        }
+        return accumulator;
+    }
+
+    private void logSlowQuery(String fingerprint, List<String> bindValues, Timings timings, long totalNanos) {
+        logger.warn(
+                "Slow query: totalMs={} renderMs={} prepareMs={} executeMs={} fetchMs={} rows={} bindValues={} sql=\"{}\"",
+                toMillis(totalNanos),
+                toMillis(timings.renderNanos),
+                toMillis(timings.prepareNanos),
+                toMillis(timings.executeNanos),
+                toMillis(timings.fetchNanos),
+                timings.rows,
+                bindValues,
+                fingerprint
+        );
+    }
+
+    private static List<String> bindValues(@Nullable Query query) {
+        if (query == null) {
+            return List.of();
+        }
+        return query.getBindValues()
+                .stream()
+                .map(JooqQueryProfiler::formatBindValue)
+                .collect(Collectors.toList());
+    }
+
+    private static String formatBindValue(@Nullable Object value) {
+        String s = (value instanceof Object[] array) ? Arrays.deepToString(array) : String.valueOf(value);
+        return (s.length() <= MAX_LOGGED_BIND_VALUE_LENGTH) ? s : s.substring(0, MAX_LOGGED_BIND_VALUE_LENGTH) + "...";
+    }
+
+    private static String fingerprint(String sql) {
+        String normalizedSql = WHITESPACE.matcher(sql.strip()).replaceAll(" ");
+        return BIND_VARIABLE_LIST.matcher(normalizedSql).replaceAll("?, ...");
+    }
+
+    private static Optional<Timings> timings(ExecuteContext ctx) {
+        return (ctx.data(TIMINGS_KEY) instanceof Timings timings)
+                ? Optional.of(timings)
+                : Optional.empty();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Mutable timings of one query execution. Used by one thread at a time only.
+     */
+    private static final class Timings {
+
+        private final long start;
+        private long phaseStart;
+        private long renderNanos;
+        private long prepareNanos;
+        private long executeNanos;
+        private long fetchNanos;
+        private long rows;
+
+        Timings(long start) {
+            this.start = start;
+        }
+    }
+
+    private static final class Accumulator {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder renderNanos = new LongAdder();
+        private final LongAdder prepareNanos = new LongAdder();
+        private final LongAdder executeNanos = new LongAdder();
+        private final LongAdder fetchNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void add(Timings timings, long total) {
+            calls.increment();
+            rows.add(timings.rows);
+            totalNanos.add(total);
+            renderNanos.add(timings.renderNanos);
+            prepareNanos.add(timings.prepareNanos);
+            executeNanos.add(timings.executeNanos);
+            fetchNanos.add(timings.fetchNanos);
+            maxNanos.accumulateAndGet(total, Math::max);
+        }
+
+        QueryProfile toQueryProfile(String sql) {
+            long callCount = calls.sum();
+            long total = totalNanos.sum();
+
+            return new QueryProfile(
+                    sql,
+                    callCount,
+                    rows.sum(),
+                    toMillis(total),
+                    (callCount == 0) ? 0 : toMillis(total) / callCount,
+                    toMillis(maxNanos.get()),
+                    toMillis(renderNanos.sum()),
+                    toMillis(prepareNanos.sum()),
+                    toMillis(executeNanos.sum()),
+                    toMillis(fetchNanos.sum())
+            );
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.monitoring;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Actuator endpoint ("/actuator/queries") showing the jOOQ query profiles with the highest total time.
+ * A DELETE request resets the profiles.
+ *
+ * @author Chris de Vreeze
+ */
+@Endpoint(id = "queries")
+public final class JooqQueryProfilerEndpoint {
+
+    private final JooqQueryProfiler queryProfiler;
+    private final int limit;
+
+    public JooqQueryProfilerEndpoint(JooqQueryProfiler queryProfiler, int limit) {
+        Preconditions.checkArgument(limit > 0);
+
+        this.queryProfiler = queryProfiler;
+        this.limit = limit;
+    }
+
+    @ReadOperation
+    public ImmutableList<QueryProfile> topQueries() {
+        return queryProfiler.findTopQueries(limit);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        queryProfiler.reset();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.monitoring;
+
+/**
+ * Accumulated statistics of all executions of one SQL query (fingerprint), like a row in PostgreSQL's
+ * pg_stat_statements view, but measured on the client side. The times are split into the phases of
+ * query execution in jOOQ: rendering the SQL string, preparing the statement (including binding the
+ * bind values), executing it in the database, and fetching the results (including mapping them to
+ * jOOQ records, which for MULTISET fields includes parsing the nested JSON). The remaining time
+ * (total minus the phases) is spent elsewhere, e.g. in obtaining a connection.
+ *
+ * @author Chris de Vreeze
+ */
+public record QueryProfile(
+        String sql,
+        long calls,
+        long rows,
+        double totalMillis,
+        double meanMillis,
+        double maxMillis,
+        double renderMillis,
+        double prepareMillis,
+        double executeMillis,
+        double fetchMillis
+) {
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.monitoring;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.jspecify.annotations.Nullable;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BeanPostProcessor that times each call of a service interface method, in Micrometer timer "pagila.service".
+ * The timers are tagged by service interface, method, implementation (e.g. "jpa" or "jooq") and exception
+ * (or "none"), and publish percentiles (p50, p95 and p99) as well as a percentile histogram.
+ * <p>
+ * Services are recognized by package name: the bean class must reside in one of the given implementation
+ * packages, and the timed methods are those declared in interfaces residing in the given service package.
+ * If the bean already is a Spring AOP proxy (e.g. a transactional proxy), the timing advice is added to that
+ * proxy, in front of the existing advice, so the timings include transaction handling. Otherwise, an interface
+ * proxy is created.
+ *
+ * @author Chris de Vreeze
+ */
+public final class ServiceTimingPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    public static final String TIMER_NAME = "pagila.service";
+
+    private final String servicePackageName;
+    private final ImmutableMap<String, String> implementationTagsByPackageName;
+
+    public ServiceTimingPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistryProvider,
+            String servicePackageName,
+            ImmutableMap<String, String> implementationTagsByPackageName
+    ) {
+        Preconditions.checkArgument(!implementationTagsByPackageName.isEmpty());
+
+        this.servicePackageName = servicePackageName;
+        this.implementationTagsByPackageName = implementationTagsByPackageName;
+
+        // The MeterRegistry is looked up lazily, to avoid it being created too early
+        Supplier<MeterRegistry> meterRegistrySupplier = Suppliers.memoize(meterRegistryProvider::getObject);
+
+        ServiceMethodPointcut pointcut = new ServiceMethodPointcut();
+        this.advisor = new DefaultPointcutAdvisor(pointcut, new TimingInterceptor(meterRegistrySupplier));
+        setBeforeExistingAdvisors(true);
+    }
+
+    private Optional<String> findImplementationTag(Class<?> targetClass) {
+        return Optional.ofNullable(implementationTagsByPackageName.get(targetClass.getPackageName()));
+    }
+
+    private Optional<Class<?>> findServiceInterface(Method method, Class<?> targetClass) {
+        return ClassUtils.getAllInterfacesForClassAsSet(targetClass)
+                .stream()
+                .filter(itf -> itf.getPackageName().equals(servicePackageName))
+                .filter(itf -> ClassUtils.hasMethod(itf, method.getName(), method.getParameterTypes()))
+                .findFirst();
+    }
+
+    private final class ServiceMethodPointcut extends StaticMethodMatcherPointcut {
+
+        ServiceMethodPointcut() {
+            setClassFilter(clazz -> findImplementationTag(clazz).isPresent());
+        }
+
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            return findServiceInterface(method, targetClass).isPresent();
+        }
+    }
+
+    private record TimerKey(Class<?> targetClass, Method method) {
+    }
+
+    private final class TimingInterceptor implements MethodInterceptor {
+
+        private final Supplier<MeterRegistry> meterRegistrySupplier;
+
+        // Timers of successful calls, so the hot path needs no timer lookup in the MeterRegistry
+        private final ConcurrentMap<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+        TimingInterceptor(Supplier<MeterRegistry> meterRegistrySupplier) {
+            this.meterRegistrySupplier = meterRegistrySupplier;
+        }
+
+        @Override
+        public @Nullable Object invoke(MethodInvocation invocation) throws Throwable {
+            TimerKey key = new TimerKey(
+                    AopUtils.getTargetClass(Objects.requireNonNull(invocation.getThis())),
+                    invocation.getMethod()
+            );
+            long start = System.nanoTime();
+            try {
+                Object result = invocation.proceed();
+                timers.computeIfAbsent(key, k -> createTimer(k, "none"))
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (Throwable e) {
+                createTimer(key, e.getClass().getSimpleName())
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        }
+
+        private Timer createTimer(TimerKey key, String exception) {
+            Class<?> serviceInterface = findServiceInterface(key.method(), key.targetClass()).orElseThrow();
+
+            return Timer.builder(TIMER_NAME)
+                    .description("Service method calls")
+                    .tag("service", serviceInterface.getSimpleName())
+                    .tag("method", key.method().getName())
+                    .tag("implementation", findImplementationTag(key.targetClass()).orElseThrow())
+                    .tag("exception", exception)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistrySupplier.get());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jspecify.annotations.Nullable;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HandlerInterceptor that times the rendering of (Thymeleaf) views, in Micrometer timer "pagila.view.render",
+ * tagged by view name and exception (or "none"). Method postHandle is called after the controller method has
+ * returned and before the view is rendered, and method afterCompletion is called after rendering, so the time
+ * in between is the render time. Controller methods are timed by Spring MVC itself ("http.server.requests").
+ *
+ * @author Chris de Vreeze
+ */
+public final class ViewRenderTimingInterceptor implements HandlerInterceptor {
+
+    public static final String TIMER_NAME = "pagila.view.render";
+
+    private static final String START_ATTRIBUTE = ViewRenderTimingInterceptor.class.getName() + ".start";
+    private static final String VIEW_NAME_ATTRIBUTE = ViewRenderTimingInterceptor.class.getName() + ".viewName";
+
+    private final MeterRegistry meterRegistry;
+
+    public ViewRenderTimingInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void postHandle(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Object handler,
+            @Nullable ModelAndView modelAndView
+    ) {
+        // No ModelAndView if the response has been handled already (e.g. "304 Not Modified" or a JSON response)
+        if (modelAndView != null && modelAndView.getViewName() != null) {
+            request.setAttribute(VIEW_NAME_ATTRIBUTE, modelAndView.getViewName());
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterCompletion(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Object handler,
+            @Nullable Exception ex
+    ) {
+        if (request.getAttribute(START_ATTRIBUTE) instanceof Long start
+                && request.getAttribute(VIEW_NAME_ATTRIBUTE) instanceof String viewName) {
+            Timer.builder(TIMER_NAME)
+                    .description("Rendering of views")
+                    .tag("view", viewName)
+                    .tag("exception", (ex == null) ? "none" : ex.getClass().getSimpleName())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.monitoring;
+
+import com.google.common.base.Preconditions;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that are pinned to their carrier thread for longer than a given threshold, using
+ * JFR event "jdk.VirtualThreadPinned" in an in-process JFR recording stream. In Java 21, a virtual thread
+ * is pinned if it blocks inside a synchronized block or method (for example in JDBC driver or connection
+ * pool code), which makes the carrier thread unavailable to other virtual threads.
+ * <p>
+ * Each report contains the top stack frames of the pinned thread, so the synchronized code can be found.
+ * Alternatively, JVM option "-Djdk.tracePinnedThreads=full" prints the stack trace whenever a pinned
+ * virtual thread blocks, but without any threshold.
+ *
+ * @author Chris de Vreeze
+ */
+public final class VirtualThreadPinningMonitor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_REPORTED_FRAMES = 25;
+
+    private final Duration threshold;
+
+    private final AtomicLong pinnedEventCount = new AtomicLong();
+
+    private volatile @Nullable RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(Duration threshold) {
+        Preconditions.checkArgument(!threshold.isNegative());
+        this.threshold = threshold;
+    }
+
+    public synchronized void start() {
+        Preconditions.checkState(recordingStream == null, "Already started");
+
+        RecordingStream stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::report);
+        stream.startAsync();
+        recordingStream = stream;
+    }
+
+    public long pinnedEventCount() {
+        return pinnedEventCount.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        RecordingStream stream = recordingStream;
+        if (stream != null) {
+            stream.close();
+            recordingStream = null;
+        }
+    }
+
+    private void report(RecordedEvent event) {
+        pinnedEventCount.incrementAndGet();
+
+        List<RecordedFrame> frames = (event.getStackTrace() == null) ? List.of() : event.getStackTrace().getFrames();
+        String stackTrace = frames.stream()
+                .limit(MAX_REPORTED_FRAMES)
+                .map(frame -> String.format(
+                        "\tat %s.%s(line %d)",
+                        frame.getMethod().getType().getName(),
+                        frame.getMethod().getName(),
+                        frame.getLineNumber()
+                ))
+                .collect(Collectors.joining(System.lineSeparator()));
+
+        logger.warn(
+                "Virtual thread pinned for {} ms (thread {}):{}{}",
+                event.getDuration().toMillis(),
+                (event.getThread() == null) ? "unknown" : event.getThread().getJavaName(),
+                System.lineSeparator(),
+                stackTrace
+        );
+    }
+}
@@ -19,6 +19,8 @@ package eu.cdevreeze.pagilaapp.service;
 import com.google.common.collect.ImmutableList;
 import eu.cdevreeze.pagilaapp.model.Address;
 
+import java.util.function.Consumer;
+
 /**
  * API contract of a service for querying and managing addresses.
  *
@@ -27,4 +29,20 @@ import eu.cdevreeze.pagilaapp.model.Address;
 public interface AddressService {
 
     ImmutableList<Address> findAllAddresses();
+
+    /**
+     * Returns at most {@code limit} addresses with a address ID greater than {@code afterAddressId}, ordered by address ID.
+     * <p>
+     * This is keyset ("seek") pagination. The first page is obtained by passing 0, and each next page
+     * by passing the address ID of the last element of the previous page. Unlike OFFSET pagination, the cost
+     * of fetching a page does not depend on how deep we page.
+     */
+    ImmutableList<Address> findAddressesAfter(int afterAddressId, int limit);
+
+    /**
+     * Passes all addresses to the given action, one at a time and ordered by address ID, without first
+     * collecting them all in memory. The action is called within the (read-only) transaction of this method,
+     * while the underlying database cursor (if any) is open, so it should not block for long.
+     */
+    void forEachAddress(Consumer<? super Address> action);
 }
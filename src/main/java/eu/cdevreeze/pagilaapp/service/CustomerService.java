@@ -18,6 +18,10 @@ package eu.cdevreeze.pagilaapp.service;
 
 import com.google.common.collect.ImmutableList;
 import eu.cdevreeze.pagilaapp.model.Customer;
+import eu.cdevreeze.pagilaapp.model.CustomerSummary;
+
+import java.util.OptionalInt;
+import java.util.function.Consumer;
 
 /**
  * API contract of a service for querying and managing customers.
@@ -27,4 +31,43 @@ import eu.cdevreeze.pagilaapp.model.Customer;
 public interface CustomerService {
 
     ImmutableList<Customer> findAllCustomers();
+
+    /**
+     * Returns at most {@code limit} customers with a customer ID greater than {@code afterCustomerId}, ordered by customer ID.
+     * <p>
+     * This is keyset ("seek") pagination. The first page is obtained by passing 0, and each next page
+     * by passing the customer ID of the last element of the previous page. Unlike OFFSET pagination, the cost
+     * of fetching a page does not depend on how deep we page.
+     */
+    ImmutableList<Customer> findCustomersAfter(int afterCustomerId, int limit);
+
+    /**
+     * Like {@link #findCustomersAfter(int, int)}, but only returning customer summaries. Only the data needed
+     * for the summaries is queried.
+     */
+    ImmutableList<CustomerSummary> findCustomerSummariesAfter(int afterCustomerId, int limit);
+
+    /**
+     * Returns at most {@code limit} customers whose last name matches the given (non-blank) last name, either
+     * exactly or as a prefix, ordered by customer ID. The match is case-insensitive (see {@link NameMatch}).
+     * If a store ID is given, only customers of that store are returned.
+     * <p>
+     * Like {@link #findCustomersAfter(int, int)}, this uses keyset pagination, starting after the given customer ID.
+     * The last name condition is a range on the indexed last name column, so a typical front desk lookup reads
+     * only a handful of index entries and rows.
+     */
+    ImmutableList<Customer> findCustomersByLastName(
+            String lastName,
+            NameMatch nameMatch,
+            OptionalInt storeIdOption,
+            int afterCustomerId,
+            int limit
+    );
+
+    /**
+     * Passes all customers to the given action, one at a time and ordered by customer ID, without first
+     * collecting them all in memory. The action is called within the (read-only) transaction of this method,
+     * while the underlying database cursor (if any) is open, so it should not block for long.
+     */
+    void forEachCustomer(Consumer<? super Customer> action);
 }
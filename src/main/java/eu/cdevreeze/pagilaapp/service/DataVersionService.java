@@ -0,0 +1,40 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service;
+
+import eu.cdevreeze.pagilaapp.model.DataVersion;
+
+/**
+ * API contract of a service for cheaply detecting data changes, without querying the data itself.
+ *
+ * @author Chris de Vreeze
+ */
+public interface DataVersionService {
+
+    /**
+     * Returns the data version of the film catalog, that is, of tables "film", "film_actor", "film_category"
+     * and "actor". The actor table is included because actor names are part of the film catalog.
+     */
+    DataVersion findFilmCatalogVersion();
+
+    /**
+     * Returns the data version of the given group of tables, computed from the maximum "last_update" timestamp
+     * and the row count of each table in the group. This requires one query, which is much cheaper than
+     * querying the data itself.
+     */
+    DataVersion findDataVersion(TableGroup tableGroup);
+}
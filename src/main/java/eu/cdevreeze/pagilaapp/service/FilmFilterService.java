@@ -0,0 +1,34 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.model.FilmFilter;
+
+/**
+ * API contract of a service for filtering films on combinations of film attributes.
+ *
+ * @author Chris de Vreeze
+ */
+public interface FilmFilterService {
+
+    /**
+     * Returns the films matching the given filter, ordered by film ID.
+     */
+    ImmutableList<Film> filterFilms(FilmFilter filter);
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service;
+
+/**
+ * Query plan used by FilmService implementations for film queries filtering on associated data,
+ * such as categories or actors. Configured by property "filmQueryStrategy".
+ *
+ * @author Chris de Vreeze
+ */
+public enum FilmQueryStrategy {
+
+    /**
+     * Single query, joining the associated tables to filter on them, and removing duplicate films afterward.
+     * The (nested) film data is therefore built for duplicate rows before these duplicates are removed.
+     */
+    JOIN,
+
+    /**
+     * Two-phase query plan. First only the IDs of the matching films are selected, using a semi-join (EXISTS),
+     * and then the films with those IDs are retrieved in one batched query. The JPA implementation keeps the
+     * IDs in the database, as subquery, and the jOOQ implementation binds them as one array parameter, so the
+     * number of matching films is not limited by the maximum number of bind parameters of a statement.
+     */
+    IDS_FIRST
+}
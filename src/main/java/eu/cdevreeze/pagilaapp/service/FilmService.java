@@ -17,8 +17,15 @@
 package eu.cdevreeze.pagilaapp.service;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.pagilaapp.model.ActorName;
 import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.model.FilmSummary;
+
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * API contract of a service for querying and managing films.
@@ -29,6 +36,28 @@ public interface FilmService {
 
     ImmutableList<Film> findAllFilms();
 
+    /**
+     * Returns at most {@code limit} films with a film ID greater than {@code afterFilmId}, ordered by film ID.
+     * <p>
+     * This is keyset ("seek") pagination. The first page is obtained by passing 0, and each next page
+     * by passing the film ID of the last element of the previous page. Unlike OFFSET pagination, the cost
+     * of fetching a page does not depend on how deep we page.
+     */
+    ImmutableList<Film> findFilmsAfter(int afterFilmId, int limit);
+
+    /**
+     * Like {@link #findFilmsAfter(int, int)}, but only returning film summaries. Only the data needed
+     * for the summaries is queried.
+     */
+    ImmutableList<FilmSummary> findFilmSummariesAfter(int afterFilmId, int limit);
+
+    /**
+     * Passes all films to the given action, one at a time and ordered by film ID, without first
+     * collecting them all in memory. The action is called within the (read-only) transaction of this method,
+     * while the underlying database cursor (if any) is open, so it should not block for long.
+     */
+    void forEachFilm(Consumer<? super Film> action);
+
     ImmutableList<Film> findFilmsByLanguage(String language);
 
     ImmutableList<Film> findFilmsByCategory(String category);
@@ -37,5 +66,32 @@ public interface FilmService {
 
     ImmutableList<Film> findFilmsByActor(String firstName, String lastName);
 
+    /**
+     * Returns the films featuring any of the given actors, grouped by (requested) actor name, in one query
+     * instead of one query per actor. Actor names are matched case-insensitively. The keys are in the order
+     * of the given actor names, and actor names without any films are absent. Per actor, the films are
+     * ordered by film ID.
+     */
+    ImmutableListMultimap<ActorName, Film> findFilmsByActors(ImmutableSet<ActorName> actorNames);
+
+    /**
+     * Returns the films with the given film IDs, keyed by film ID, in one query. The entries are ordered
+     * by film ID, and film IDs of non-existing films are absent.
+     */
+    ImmutableMap<Integer, Film> findFilmsByIds(ImmutableSet<Integer> filmIds);
+
     ImmutableSet<String> findAllFilmCategories();
+
+    /**
+     * Full-text search for films, using the "fulltext" tsvector column of the film table (title and description).
+     * At most {@code limit} films are returned, ordered by descending rank (ts_rank). The search text is
+     * interpreted like a web search (websearch_to_tsquery), and can optionally be combined with a category
+     * and/or language filter (case-insensitive).
+     */
+    ImmutableList<Film> searchFilms(
+            String searchText,
+            Optional<String> categoryOption,
+            Optional<String> languageOption,
+            int limit
+    );
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The way a name given in a search is matched against names in the database: exactly, or as a prefix.
+ * <p>
+ * Names in the Pagila database are in upper case, so searches are made case-insensitive by converting the
+ * search term to upper case, rather than the database column. That keeps plain btree indexes on name columns
+ * usable. Prefix searches are expressed as a range on the name column (for an index range scan), combined
+ * with a LIKE filter. The LIKE filter guarantees that only names with the prefix are returned, and the range
+ * must not exclude any of them under the collation of the name column (which is not the "C" collation, so
+ * the range cannot be computed by code point; see {@link #prefixUpperBound(String)}).
+ *
+ * @author Chris de Vreeze
+ */
+public enum NameMatch {
+
+    EXACT,
+    PREFIX;
+
+    /**
+     * Converts the given search term to the form in which names are stored, namely trimmed and in upper case.
+     */
+    public static String normalize(String name) {
+        return name.strip().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns an exclusive upper bound of all strings starting with the given non-empty upper-case prefix, under
+     * a linguistic collation such as en_US. The bound is found by dropping the trailing 'Z' characters of the
+     * prefix and replacing the last remaining letter by its successor in the alphabet, so "LOPEZ" yields "LOPF",
+     * and not "LOPE[", which sorts before "LOPEZ" in such a collation. The bound is absent if that last
+     * character is not a letter from 'A' to 'Y', or if nothing remains, in which case the LIKE filter alone
+     * must do the work.
+     */
+    public static Optional<String> prefixUpperBound(String prefix) {
+        Preconditions.checkArgument(!prefix.isEmpty());
+
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == 'Z') {
+            end -= 1;
+        }
+        if (end == 0) {
+            return Optional.empty();
+        }
+        char lastChar = prefix.charAt(end - 1);
+        return (lastChar >= 'A' && lastChar < 'Z') ?
+                Optional.of(prefix.substring(0, end - 1) + (char) (lastChar + 1)) :
+                Optional.empty();
+    }
+
+    /**
+     * Returns a LIKE pattern matching all strings starting with the given prefix, escaping the LIKE wildcards
+     * in the prefix with a backslash.
+     */
+    public static String likePatternForPrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
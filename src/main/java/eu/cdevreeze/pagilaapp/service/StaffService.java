@@ -17,8 +17,12 @@
 package eu.cdevreeze.pagilaapp.service;
 
 import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.ImmutableByteArray;
 import eu.cdevreeze.pagilaapp.model.Staff;
 
+import java.util.Optional;
+import java.util.function.Consumer;
+
 /**
  * API contract of a service for querying and managing staff members.
  *
@@ -27,4 +31,33 @@ import eu.cdevreeze.pagilaapp.model.Staff;
 public interface StaffService {
 
     ImmutableList<Staff> findAllStaffMembers();
+
+    /**
+     * Returns at most {@code limit} staff members with a staff ID greater than {@code afterStaffId}, ordered by staff ID.
+     * <p>
+     * This is keyset ("seek") pagination. The first page is obtained by passing 0, and each next page
+     * by passing the staff ID of the last element of the previous page. Unlike OFFSET pagination, the cost
+     * of fetching a page does not depend on how deep we page.
+     */
+    ImmutableList<Staff> findStaffMembersAfter(int afterStaffId, int limit);
+
+    /**
+     * Passes all staff members to the given action, one at a time and ordered by staff ID, without first
+     * collecting them all in memory. The action is called within the (read-only) transaction of this method,
+     * while the underlying database cursor (if any) is open, so it should not block for long.
+     */
+    void forEachStaffMember(Consumer<? super Staff> action);
+
+    /**
+     * Returns the picture of the staff member with the given staff ID, if that staff member exists and has a picture.
+     * <p>
+     * Pictures are not part of {@link Staff}, so the other methods of this service never read them.
+     */
+    Optional<ImmutableByteArray> findStaffPicture(int staffId);
+
+    /**
+     * Returns true if the staff member with the given staff ID exists and has a picture. This is much cheaper
+     * than method {@link #findStaffPicture(int)}, because the picture itself is not read.
+     */
+    boolean hasStaffPicture(int staffId);
 }
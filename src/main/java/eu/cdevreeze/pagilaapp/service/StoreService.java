@@ -17,8 +17,12 @@
 package eu.cdevreeze.pagilaapp.service;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.pagilaapp.model.FilmAvailability;
 import eu.cdevreeze.pagilaapp.model.Store;
 
+import java.util.function.Consumer;
+
 /**
  * API contract of a service for querying and managing stores.
  *
@@ -27,4 +31,29 @@ import eu.cdevreeze.pagilaapp.model.Store;
 public interface StoreService {
 
     ImmutableList<Store> findAllStores();
+
+    /**
+     * Returns at most {@code limit} stores with a store ID greater than {@code afterStoreId}, ordered by store ID.
+     * <p>
+     * This is keyset ("seek") pagination. The first page is obtained by passing 0, and each next page
+     * by passing the store ID of the last element of the previous page. Unlike OFFSET pagination, the cost
+     * of fetching a page does not depend on how deep we page.
+     */
+    ImmutableList<Store> findStoresAfter(int afterStoreId, int limit);
+
+    /**
+     * Passes all stores to the given action, one at a time and ordered by store ID, without first
+     * collecting them all in memory. The action is called within the (read-only) transaction of this method,
+     * while the underlying database cursor (if any) is open, so it should not block for long.
+     */
+    void forEachStore(Consumer<? super Store> action);
+
+    /**
+     * Returns the availability of the given films in all stores that have the film in their inventory,
+     * ordered by film ID and store ID. Films that are in no store's inventory are absent from the result.
+     * <p>
+     * The availability of all given films is computed in one set-based query, instead of calling the
+     * database function "film_in_stock" for each combination of film and store.
+     */
+    ImmutableList<FilmAvailability> findFilmAvailability(ImmutableSet<Integer> filmIds);
 }
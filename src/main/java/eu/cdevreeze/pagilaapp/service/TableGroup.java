@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Groups of database tables, each group holding the tables that feed one kind of query result (such as a
+ * web page). The data version of such a group is a cheap validator for those query results.
+ *
+ * @author Chris de Vreeze
+ */
+public enum TableGroup {
+
+    // The film catalog only, without the (large and volatile) inventory and rental tables, so film availability
+    // is not covered by this validator, and must be fetched separately
+    FILMS(ImmutableList.of("film", "film_actor", "film_category", "actor", "category", "language")),
+    CUSTOMERS(ImmutableList.of("customer", "store", "address", "city", "country")),
+    ADDRESSES(ImmutableList.of("address", "city", "country")),
+    STORES(ImmutableList.of("store", "address", "city", "country")),
+    STAFF(ImmutableList.of("staff", "store", "address", "city", "country"));
+
+    private final ImmutableList<String> tableNames;
+
+    TableGroup(ImmutableList<String> tableNames) {
+        this.tableNames = tableNames;
+    }
+
+    public ImmutableList<String> tableNames() {
+        return tableNames;
+    }
+}
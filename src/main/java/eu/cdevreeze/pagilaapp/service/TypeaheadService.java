@@ -0,0 +1,40 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.TypeaheadEntry;
+
+/**
+ * API contract of a service for typeahead (autocomplete) of film titles and actor names.
+ *
+ * @author Chris de Vreeze
+ */
+public interface TypeaheadService {
+
+    /**
+     * Returns all typeahead entries, i.e. all film titles and actor names, ordered by text (case-insensitive).
+     */
+    ImmutableList<TypeaheadEntry> findAllTypeaheadEntries();
+
+    /**
+     * Returns at most {@code limit} typeahead entries having a search key starting with the given prefix
+     * (case-insensitive), ordered by that search key (case-insensitive). Actor names can therefore be
+     * looked up by first name as well as by last name.
+     */
+    ImmutableList<TypeaheadEntry> findTypeaheadEntries(String prefix, int limit);
+}
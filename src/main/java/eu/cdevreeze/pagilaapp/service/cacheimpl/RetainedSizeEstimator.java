@@ -0,0 +1,113 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.cacheimpl;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import eu.cdevreeze.pagilaapp.model.ImmutableByteArray;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Cache weigher, estimating the retained heap size (in bytes) of a cached service result.
+ * <p>
+ * This is a rough estimate, assuming compressed object pointers and compact strings, and ignoring sharing
+ * of objects (such as interned strings) between cached results. It walks the (immutable) model records
+ * and collections; other objects are counted as small objects without any outgoing references.
+ *
+ * @author Chris de Vreeze
+ */
+final class RetainedSizeEstimator implements Weigher<Object, Object> {
+
+    private static final int OBJECT_HEADER_SIZE = 12;
+    private static final int REFERENCE_SIZE = 4;
+    private static final int SMALL_OBJECT_SIZE = 16;
+
+    private static final ClassValue<ImmutableList<Method>> RECORD_ACCESSORS = new ClassValue<>() {
+        @Override
+        protected ImmutableList<Method> computeValue(Class<?> type) {
+            return Arrays.stream(type.getRecordComponents())
+                    .map(RecordComponent::getAccessor)
+                    .collect(ImmutableList.toImmutableList());
+        }
+    };
+
+    @Override
+    public int weigh(Object key, Object value) {
+        return (int) Math.min(Integer.MAX_VALUE, estimateSize(value));
+    }
+
+    long estimateSize(Object value) {
+        return switch (value) {
+            case String s -> align(OBJECT_HEADER_SIZE + 12) + align(OBJECT_HEADER_SIZE + 4 + s.length());
+            // Small BigDecimals (such as rental rates) keep their unscaled value in a long field
+            case BigDecimal ignored -> align(OBJECT_HEADER_SIZE + 4 + 4 + 4 + 8);
+            case Optional<?> opt -> SMALL_OBJECT_SIZE + opt.map(this::estimateSize).orElse(0L);
+            case OptionalInt ignored -> SMALL_OBJECT_SIZE;
+            case ImmutableByteArray arr -> SMALL_OBJECT_SIZE + align(OBJECT_HEADER_SIZE + 4 + (long) arr.length());
+            case Collection<?> coll -> estimateCollectionSize(coll);
+            case Map<?, ?> map -> estimateCollectionSize(map.keySet()) + estimateCollectionSize(map.values());
+            case Multimap<?, ?> map -> estimateCollectionSize(map.keySet()) + estimateCollectionSize(map.values());
+            case Record rec -> estimateRecordSize(rec);
+            default -> SMALL_OBJECT_SIZE;
+        };
+    }
+
+    private long estimateCollectionSize(Collection<?> collection) {
+        // The collection object itself, its backing array, and the elements
+        long size = SMALL_OBJECT_SIZE + align(OBJECT_HEADER_SIZE + 4 + (long) REFERENCE_SIZE * collection.size());
+        for (Object element : collection) {
+            size += estimateSize(element);
+        }
+        return size;
+    }
+
+    private long estimateRecordSize(Record rec) {
+        ImmutableList<Method> accessors = RECORD_ACCESSORS.get(rec.getClass());
+        // Overestimating primitive fields a bit, by treating them as 8 bytes
+        long size = align(OBJECT_HEADER_SIZE + 8L * accessors.size());
+        for (Method accessor : accessors) {
+            if (!accessor.getReturnType().isPrimitive()) {
+                Object componentValue = invokeAccessor(accessor, rec);
+                size += (componentValue == null) ? 0 : estimateSize(componentValue);
+            }
+        }
+        return size;
+    }
+
+    private static @Nullable Object invokeAccessor(Method accessor, Record rec) {
+        try {
+            return accessor.invoke(rec);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long align(long size) {
+        return (size + 7) / 8 * 8;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.cacheimpl;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+import eu.cdevreeze.pagilaapp.model.CacheRegionStatistics;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cache of the query results of one service, along with the dynamic proxy serving these cached results.
+ * <p>
+ * Only the "find" methods returning collections (or maps) are cached, keyed by method and arguments. Other methods
+ * (such as the streaming "forEach" methods) are passed through to the wrapped service, as are the "find" methods
+ * explicitly excluded from caching (such as methods whose results depend on rapidly changing data). The cache is bounded
+ * by the estimated retained size of the cached results, entries expire after a fixed time, and entries that
+ * are read some time after they were loaded are refreshed asynchronously ("refresh-ahead"), so that popular
+ * entries rarely expire.
+ *
+ * @author Chris de Vreeze
+ */
+public final class ServiceResultCache<T> implements InvocationHandler {
+
+    private record CacheKey(Method method, ImmutableList<Object> arguments) {
+    }
+
+    private final Class<T> serviceInterface;
+    private final T target;
+    private final ImmutableSet<String> dependedOnTables;
+    private final ImmutableSet<String> uncachedMethodNames;
+    private final LoadingCache<CacheKey, Object> cache;
+    private final T proxy;
+
+    ServiceResultCache(
+            Class<T> serviceInterface,
+            T target,
+            ImmutableSet<String> dependedOnTables,
+            ImmutableSet<String> uncachedMethodNames,
+            long maximumWeightInBytes,
+            Duration timeToLive,
+            Duration refreshAfter
+    ) {
+        Preconditions.checkArgument(serviceInterface.isInterface());
+        Preconditions.checkArgument(refreshAfter.compareTo(timeToLive) < 0);
+
+        this.serviceInterface = serviceInterface;
+        this.target = target;
+        this.dependedOnTables = dependedOnTables;
+        this.uncachedMethodNames = uncachedMethodNames;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightInBytes)
+                .weigher(new RetainedSizeEstimator())
+                .expireAfterWrite(timeToLive)
+                .refreshAfterWrite(refreshAfter)
+                .recordStats()
+                .build(key -> Objects.requireNonNull(invokeTarget(key)));
+        this.proxy = serviceInterface.cast(
+                Proxy.newProxyInstance(serviceInterface.getClassLoader(), new Class<?>[]{serviceInterface}, this)
+        );
+    }
+
+    /**
+     * Returns the caching proxy, implementing the service interface.
+     */
+    public T proxy() {
+        return proxy;
+    }
+
+    public String name() {
+        return serviceInterface.getSimpleName();
+    }
+
+    /**
+     * Returns true if the cached results may depend on the given database table (case-insensitive).
+     */
+    public boolean dependsOn(String tableName) {
+        return dependedOnTables.stream().anyMatch(t -> t.equalsIgnoreCase(tableName));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheRegionStatistics statistics() {
+        CacheStats stats = cache.stats();
+        return new CacheRegionStatistics(
+                name(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.loadSuccessCount(),
+                cache.estimatedSize()
+        );
+    }
+
+    @Override
+    public @Nullable Object invoke(Object proxy, Method method, Object @Nullable [] args) throws Throwable {
+        if (method.getDeclaringClass().equals(Object.class)) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == Objects.requireNonNull(args)[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "toString" -> "ServiceResultCache proxy of " + target;
+                default -> throw new IllegalStateException("Unexpected method: " + method);
+            };
+        }
+
+        CacheKey key = new CacheKey(method, (args == null) ? ImmutableList.of() : ImmutableList.copyOf(args));
+
+        if (isCacheable(method)) {
+            return cache.get(key);
+        } else {
+            return invokeTarget(key);
+        }
+    }
+
+    private boolean isCacheable(Method method) {
+        Class<?> returnType = method.getReturnType();
+        boolean returnsCollection = Collection.class.isAssignableFrom(returnType) ||
+                Map.class.isAssignableFrom(returnType) ||
+                Multimap.class.isAssignableFrom(returnType);
+        return method.getName().startsWith("find") && returnsCollection &&
+                !uncachedMethodNames.contains(method.getName());
+    }
+
+    private @Nullable Object invokeTarget(CacheKey key) {
+        try {
+            return key.method().invoke(target, key.arguments().toArray());
+        } catch (InvocationTargetException e) {
+            // Rethrowing the exception thrown by the service method itself
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (e.getCause() instanceof Error error) {
+                throw error;
+            } else {
+                throw new RuntimeException(e.getCause());
+            }
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceResultCache[" + name() + ", dependedOnTables=" + dependedOnTables + "]";
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.cacheimpl;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.pagilaapp.model.CacheRegionStatistics;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of service result caches, one per decorated service. It creates the caching service proxies,
+ * and is the entry point for cache invalidation and cache statistics.
+ * <p>
+ * Each cache knows the database tables its results depend on. A write path can therefore purge the
+ * dependent cached results by calling {@link #invalidate(String)} after a committed database update.
+ *
+ * @author Chris de Vreeze
+ */
+public final class ServiceResultCaches {
+
+    private final long maximumWeightInBytesPerCache;
+    private final Duration timeToLive;
+    private final Duration refreshAfter;
+    private final CopyOnWriteArrayList<ServiceResultCache<?>> caches = new CopyOnWriteArrayList<>();
+
+    public ServiceResultCaches(long maximumWeightInBytesPerCache, Duration timeToLive, Duration refreshAfter) {
+        Preconditions.checkArgument(maximumWeightInBytesPerCache > 0);
+        Preconditions.checkArgument(refreshAfter.isPositive());
+        Preconditions.checkArgument(refreshAfter.compareTo(timeToLive) < 0);
+
+        this.maximumWeightInBytesPerCache = maximumWeightInBytesPerCache;
+        this.timeToLive = timeToLive;
+        this.refreshAfter = refreshAfter;
+    }
+
+    /**
+     * Returns a caching proxy of the given service, whose cached results may depend on the given database tables.
+     */
+    public <T> T decorate(Class<T> serviceInterface, T service, ImmutableSet<String> dependedOnTables) {
+        return decorate(serviceInterface, service, dependedOnTables, ImmutableSet.of());
+    }
+
+    /**
+     * Returns a caching proxy of the given service, whose cached results may depend on the given database tables.
+     * The results of the methods with the given names are never cached.
+     */
+    public <T> T decorate(
+            Class<T> serviceInterface,
+            T service,
+            ImmutableSet<String> dependedOnTables,
+            ImmutableSet<String> uncachedMethodNames
+    ) {
+        ServiceResultCache<T> cache = new ServiceResultCache<>(
+                serviceInterface,
+                service,
+                dependedOnTables,
+                uncachedMethodNames,
+                maximumWeightInBytesPerCache,
+                timeToLive,
+                refreshAfter
+        );
+        caches.add(cache);
+        return cache.proxy();
+    }
+
+    /**
+     * Invalidates all cached results that may depend on the given database table.
+     * <p>
+     * Note that the invalidation is coarse-grained: the entire cache of each dependent service is purged.
+     */
+    public void invalidate(String tableName) {
+        caches.stream().filter(cache -> cache.dependsOn(tableName)).forEach(ServiceResultCache::invalidateAll);
+    }
+
+    public void invalidateAll() {
+        caches.forEach(ServiceResultCache::invalidateAll);
+    }
+
+    /**
+     * Returns the statistics of all caches, ordered by cache name.
+     */
+    public ImmutableList<CacheRegionStatistics> statistics() {
+        return caches.stream()
+                .map(ServiceResultCache::statistics)
+                .sorted(Comparator.comparing(CacheRegionStatistics::regionName))
+                .collect(ImmutableList.toImmutableList());
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.datasource;
+
+import com.google.common.base.Preconditions;
+import org.jspecify.annotations.Nullable;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * DataSource decorator acting as "bulkhead", limiting the number of connections that are in use at the same
+ * time. Each obtained connection holds a permit of a (fair) semaphore, until the connection is closed.
+ * <p>
+ * With virtual threads, there is no request thread pool that limits concurrency. If the number of permits
+ * equals the maximum size of the connection pool, threads wanting a connection queue on the semaphore
+ * instead of on the connection pool. Waiting on a semaphore is cheap for virtual threads (they unmount from
+ * their carrier thread), and, unlike the connection timeout of the pool, the maximum wait time can be chosen
+ * generously without tying up platform threads.
+ * <p>
+ * This DataSource is AutoCloseable, closing the target DataSource (typically the connection pool). After all,
+ * if it replaces the pool as Spring bean, Spring infers the destroy method from this object, and not from the pool.
+ *
+ * @author Chris de Vreeze
+ */
+public final class BulkheadDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final Semaphore permits;
+
+    private final Duration maxWait;
+
+    public BulkheadDataSource(DataSource targetDataSource, int permitCount, Duration maxWait) {
+        super(targetDataSource);
+        Preconditions.checkArgument(permitCount > 0);
+        Preconditions.checkArgument(maxWait.isPositive());
+
+        this.permits = new Semaphore(permitCount, true);
+        this.maxWait = maxWait;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquirePermit();
+        try {
+            return releasingPermitOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquirePermit();
+        try {
+            return releasingPermitOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the target DataSource, if it is AutoCloseable (like a HikariDataSource), and does nothing otherwise.
+     */
+    @Override
+    public void close() throws Exception {
+        if (obtainTargetDataSource() instanceof AutoCloseable closeableDataSource) {
+            closeableDataSource.close();
+        }
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int queueLength() {
+        return permits.getQueueLength();
+    }
+
+    private void acquirePermit() throws SQLException {
+        try {
+            if (!permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException(
+                        String.format("No database connection permit obtained within %s (%d waiting)", maxWait, queueLength())
+                );
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection permit", e);
+        }
+    }
+
+    private Connection releasingPermitOnClose(Connection connection) {
+        AtomicBoolean closed = new AtomicBoolean(false);
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    // Releasing the permit only once, even if the connection is closed more than once
+                    if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                        try {
+                            return invoke(connection, method, args);
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                    return invoke(connection, method, args);
+                }
+        );
+    }
+
+    private static @Nullable Object invoke(
+            Connection connection,
+            Method method,
+            @Nullable Object @Nullable [] args
+    ) throws Throwable {
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
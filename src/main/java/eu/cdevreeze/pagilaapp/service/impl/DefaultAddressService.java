@@ -20,25 +20,30 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import eu.cdevreeze.pagilaapp.entity.AddressEntity;
 import eu.cdevreeze.pagilaapp.entity.AddressEntity_;
-import eu.cdevreeze.pagilaapp.entity.CityEntity;
-import eu.cdevreeze.pagilaapp.entity.CityEntity_;
 import eu.cdevreeze.pagilaapp.entity.conversions.EntityConversions;
 import eu.cdevreeze.pagilaapp.model.Address;
+import eu.cdevreeze.pagilaapp.model.Canonicalizer;
 import eu.cdevreeze.pagilaapp.service.AddressService;
 import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.Subgraph;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Root;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.internal.SessionImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Comparator;
+import java.util.function.Consumer;
 
 /**
  * Default AddressService implementation.
@@ -49,6 +54,8 @@ import java.util.Comparator;
 @ConditionalOnBooleanProperty(name = "useJooq", havingValue = false, matchIfMissing = true)
 public class DefaultAddressService implements AddressService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DefaultAddressService.class);
+
     // See https://thorben-janssen.com/hibernate-tips-how-to-bootstrap-hibernate-with-spring-boot/
 
     private static final String LOAD_GRAPH_KEY = "jakarta.persistence.loadgraph";
@@ -57,15 +64,21 @@ public class DefaultAddressService implements AddressService {
     @PersistenceContext
     private final EntityManager entityManager;
 
-    public DefaultAddressService(EntityManager entityManager) {
+    private final int streamingFetchSize;
+
+    public DefaultAddressService(
+            EntityManager entityManager,
+            @Value("${streamingFetchSize:500}") int streamingFetchSize
+    ) {
         this.entityManager = entityManager;
+        this.streamingFetchSize = streamingFetchSize;
     }
 
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Address> findAllAddresses() {
         Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
-        System.out.println("Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
 
         // First build up the query (without worrying about the load/fetch graph)
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
@@ -76,10 +89,9 @@ public class DefaultAddressService implements AddressService {
 
         // Next build up the entity graph, to specify which associated data should be fetched
         // At the same time, this helps achieve good performance, by solving the N + 1 problem
-        EntityGraph<AddressEntity> addressGraph = entityManager.createEntityGraph(AddressEntity.class);
-        addressGraph.addAttributeNode(AddressEntity_.city);
-        Subgraph<CityEntity> citySubgraph = addressGraph.addSubgraph(AddressEntity_.city);
-        citySubgraph.addAttributeNode(CityEntity_.country);
+        EntityGraph<AddressEntity> addressGraph = createEntityGraph();
+
+        Canonicalizer canonicalizer = new Canonicalizer();
 
         // Run the query, providing the load graph as query hint
         // Note that JPA entities do not escape the persistence context
@@ -89,8 +101,83 @@ public class DefaultAddressService implements AddressService {
                 .setHint(LOAD_GRAPH_KEY, addressGraph)
                 .getResultList()
                 .stream()
-                .map(EntityConversions::convertAddressEntityToModel)
+                .map(v -> EntityConversions.convertAddressEntityToModel(v, canonicalizer))
                 .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
                 .collect(ImmutableList.toImmutableList());
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Address> findAddressesAfter(int afterAddressId, int limit) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        Preconditions.checkArgument(limit > 0);
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        // First build up the query (without worrying about the load/fetch graph)
+        // This is keyset pagination ("seek method"), so the ordering must be done in the database
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AddressEntity> cq = cb.createQuery(AddressEntity.class);
+
+        Root<AddressEntity> addressRoot = cq.from(AddressEntity.class);
+        cq.where(cb.greaterThan(addressRoot.get(AddressEntity_.id), afterAddressId));
+        cq.orderBy(cb.asc(addressRoot.get(AddressEntity_.id)));
+        cq.select(addressRoot);
+
+        // Next build up the entity graph, to specify which associated data should be fetched
+        // The graph only contains to-one associations, so the limit can safely be applied in the database
+        EntityGraph<AddressEntity> addressGraph = createEntityGraph();
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        return entityManager.createQuery(cq)
+                .setHint(LOAD_GRAPH_KEY, addressGraph)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(v -> EntityConversions.convertAddressEntityToModel(v, canonicalizer))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachAddress(Consumer<? super Address> action) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AddressEntity> cq = cb.createQuery(AddressEntity.class);
+
+        Root<AddressEntity> addressRoot = cq.from(AddressEntity.class);
+        cq.orderBy(cb.asc(addressRoot.get(AddressEntity_.id)));
+        cq.select(addressRoot);
+
+        // The graph only contains to-one associations, so each result row holds exactly one address
+        EntityGraph<AddressEntity> addressGraph = createEntityGraph();
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        // Scrolling through the results with a JDBC cursor, streamingFetchSize rows at a time
+        // The persistence context is cleared regularly, so it does not grow with the number of addresses
+        try (ScrollableResults<AddressEntity> addresses = entityManager.unwrap(Session.class)
+                .createSelectionQuery(cq)
+                .setHint(LOAD_GRAPH_KEY, addressGraph)
+                .setFetchSize(streamingFetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            int count = 0;
+            while (addresses.next()) {
+                action.accept(EntityConversions.convertAddressEntityToModel(addresses.get(), canonicalizer));
+                count += 1;
+
+                if (count % streamingFetchSize == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    private EntityGraph<AddressEntity> createEntityGraph() {
+        // Cities (and their countries) are deliberately left out of the entity graph
+        // They are near-static reference data, resolved through their foreign keys from the second-level cache
+        return entityManager.createEntityGraph(AddressEntity.class);
+    }
 }
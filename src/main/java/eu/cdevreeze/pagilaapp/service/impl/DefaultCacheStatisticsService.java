@@ -0,0 +1,82 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.impl;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.CacheRegionStatistics;
+import eu.cdevreeze.pagilaapp.service.CacheStatisticsService;
+import eu.cdevreeze.pagilaapp.service.cacheimpl.ServiceResultCaches;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Default CacheStatisticsService implementation, reading the Hibernate statistics and the statistics
+ * of the service result caches (if any).
+ * <p>
+ * The JPA EntityManagerFactory is also there if jOOQ service implementations are used, so this service
+ * implementation is always available. Of course, the second-level cache is then not used much.
+ *
+ * @author Chris de Vreeze
+ */
+@Service
+public class DefaultCacheStatisticsService implements CacheStatisticsService {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectProvider<ServiceResultCaches> serviceResultCachesProvider;
+
+    public DefaultCacheStatisticsService(
+            EntityManagerFactory entityManagerFactory,
+            ObjectProvider<ServiceResultCaches> serviceResultCachesProvider
+    ) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.serviceResultCachesProvider = serviceResultCachesProvider;
+    }
+
+    @Override
+    public ImmutableList<CacheRegionStatistics> findSecondLevelCacheStatistics() {
+        // Note that statistics must be enabled (hibernate.generate_statistics), or else all counts are 0
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(regionName -> {
+                    org.hibernate.stat.CacheRegionStatistics regionStatistics =
+                            Objects.requireNonNull(statistics.getDomainDataRegionStatistics(regionName));
+
+                    return new CacheRegionStatistics(
+                            regionName,
+                            regionStatistics.getHitCount(),
+                            regionStatistics.getMissCount(),
+                            regionStatistics.getPutCount(),
+                            regionStatistics.getElementCountInMemory()
+                    );
+                })
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    public ImmutableList<CacheRegionStatistics> findServiceResultCacheStatistics() {
+        ServiceResultCaches serviceResultCaches = serviceResultCachesProvider.getIfAvailable();
+        return (serviceResultCaches == null) ? ImmutableList.of() : serviceResultCaches.statistics();
+    }
+}
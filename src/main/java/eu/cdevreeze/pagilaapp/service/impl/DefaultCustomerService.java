@@ -20,22 +20,43 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import eu.cdevreeze.pagilaapp.entity.*;
 import eu.cdevreeze.pagilaapp.entity.conversions.EntityConversions;
+import eu.cdevreeze.pagilaapp.model.Address;
+import eu.cdevreeze.pagilaapp.model.Canonicalizer;
+import eu.cdevreeze.pagilaapp.model.City;
 import eu.cdevreeze.pagilaapp.model.Customer;
+import eu.cdevreeze.pagilaapp.model.CustomerSummary;
 import eu.cdevreeze.pagilaapp.service.CustomerService;
+import eu.cdevreeze.pagilaapp.service.NameMatch;
 import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Subgraph;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.internal.SessionImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
 
 /**
  * Default CustomerService implementation.
@@ -46,23 +67,33 @@ import java.util.Comparator;
 @ConditionalOnBooleanProperty(name = "useJooq", havingValue = false, matchIfMissing = true)
 public class DefaultCustomerService implements CustomerService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DefaultCustomerService.class);
+
     // See https://thorben-janssen.com/hibernate-tips-how-to-bootstrap-hibernate-with-spring-boot/
 
     private static final String LOAD_GRAPH_KEY = "jakarta.persistence.loadgraph";
 
+    private static final int ADDRESS_SELECTION_COUNT = 9;
+
     // Shared thread-safe proxy for the actual transactional EntityManager that differs for each transaction
     @PersistenceContext
     private final EntityManager entityManager;
 
-    public DefaultCustomerService(EntityManager entityManager) {
+    private final int streamingFetchSize;
+
+    public DefaultCustomerService(
+            EntityManager entityManager,
+            @Value("${streamingFetchSize:500}") int streamingFetchSize
+    ) {
         this.entityManager = entityManager;
+        this.streamingFetchSize = streamingFetchSize;
     }
 
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Customer> findAllCustomers() {
         Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
-        System.out.println("Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
 
         // First build up the query (without worrying about the load/fetch graph)
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
@@ -75,6 +106,9 @@ public class DefaultCustomerService implements CustomerService {
         // At the same time, this helps achieve good performance, by solving the N + 1 problem
         EntityGraph<CustomerEntity> customerGraph = createEntityGraph();
 
+        // All customers share the same few store instances (and city instances), instead of equal copies
+        Canonicalizer canonicalizer = new Canonicalizer();
+
         // Run the query, providing the load graph as query hint
         // Note that JPA entities do not escape the persistence context
         // It is not efficient to first retrieve entities and then convert them to DTOs, but it is practical
@@ -83,11 +117,212 @@ public class DefaultCustomerService implements CustomerService {
                 .setHint(LOAD_GRAPH_KEY, customerGraph)
                 .getResultList()
                 .stream()
-                .map(EntityConversions::convertCustomerEntityToModel)
+                .map(v -> EntityConversions.convertCustomerEntityToModel(v, canonicalizer))
                 .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
                 .collect(ImmutableList.toImmutableList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Customer> findCustomersAfter(int afterCustomerId, int limit) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        Preconditions.checkArgument(limit > 0);
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        // First build up the query (without worrying about the load/fetch graph)
+        // This is keyset pagination ("seek method"), so the ordering must be done in the database
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CustomerEntity> cq = cb.createQuery(CustomerEntity.class);
+
+        Root<CustomerEntity> customerRoot = cq.from(CustomerEntity.class);
+        cq.where(cb.greaterThan(customerRoot.get(CustomerEntity_.id), afterCustomerId));
+        cq.orderBy(cb.asc(customerRoot.get(CustomerEntity_.id)));
+        cq.select(customerRoot);
+
+        // Next build up the entity graph, to specify which associated data should be fetched
+        // The graph only contains to-one associations, so the limit can safely be applied in the database
+        EntityGraph<CustomerEntity> customerGraph = createEntityGraph();
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        return entityManager.createQuery(cq)
+                .setHint(LOAD_GRAPH_KEY, customerGraph)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(v -> EntityConversions.convertCustomerEntityToModel(v, canonicalizer))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<CustomerSummary> findCustomerSummariesAfter(int afterCustomerId, int limit) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        Preconditions.checkArgument(limit > 0);
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        // A DTO projection (as tuples) instead of entities, so only the needed columns are selected,
+        // and nothing is added to the persistence context
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+
+        Root<CustomerEntity> customerRoot = cq.from(CustomerEntity.class);
+        Join<CustomerEntity, AddressEntity> addressJoin = customerRoot.join(CustomerEntity_.address);
+        Join<StoreEntity, AddressEntity> storeAddressJoin =
+                customerRoot.join(CustomerEntity_.store).join(StoreEntity_.address);
+
+        cq.where(cb.greaterThan(customerRoot.get(CustomerEntity_.id), afterCustomerId));
+        cq.orderBy(cb.asc(customerRoot.get(CustomerEntity_.id)));
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(customerRoot.get(CustomerEntity_.id));
+        selections.addAll(createAddressSelections(addressJoin));
+        selections.addAll(createAddressSelections(storeAddressJoin));
+        cq.multiselect(selections);
+
+        // The store addresses of all customers are then shared instances, as in the other query methods
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        return entityManager.createQuery(cq)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(t -> new CustomerSummary(
+                        OptionalInt.of(t.get(0, Integer.class)),
+                        convertTupleToAddress(t, 1, canonicalizer),
+                        convertTupleToAddress(t, 1 + ADDRESS_SELECTION_COUNT, canonicalizer)
+                ))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Customer> findCustomersByLastName(
+            String lastName,
+            NameMatch nameMatch,
+            OptionalInt storeIdOption,
+            int afterCustomerId,
+            int limit
+    ) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        String normalizedLastName = NameMatch.normalize(lastName);
+        Preconditions.checkArgument(!normalizedLastName.isEmpty());
+        Preconditions.checkArgument(limit > 0);
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        // First build up the query (without worrying about the load/fetch graph)
+        // This is keyset pagination ("seek method"), so the ordering must be done in the database
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CustomerEntity> cq = cb.createQuery(CustomerEntity.class);
+
+        Root<CustomerEntity> customerRoot = cq.from(CustomerEntity.class);
+        Path<String> lastNamePath = customerRoot.get(CustomerEntity_.lastName);
+
+        // No function is applied to column last_name, so its btree index can be used for an index range scan
+        List<Predicate> predicates = new ArrayList<>();
+        switch (nameMatch) {
+            case EXACT -> predicates.add(cb.equal(lastNamePath, normalizedLastName));
+            case PREFIX -> {
+                predicates.add(cb.greaterThanOrEqualTo(lastNamePath, normalizedLastName));
+                NameMatch.prefixUpperBound(normalizedLastName)
+                        .ifPresent(upperBound -> predicates.add(cb.lessThan(lastNamePath, upperBound)));
+                predicates.add(cb.like(lastNamePath, NameMatch.likePatternForPrefix(normalizedLastName), '\\'));
+            }
+        }
+        // The store ID is the foreign key column of the customer table, so this needs no join
+        storeIdOption.ifPresent(storeId ->
+                predicates.add(cb.equal(customerRoot.get(CustomerEntity_.store).get(StoreEntity_.id), storeId)));
+        predicates.add(cb.greaterThan(customerRoot.get(CustomerEntity_.id), afterCustomerId));
+
+        cq.where(predicates.toArray(Predicate[]::new));
+        cq.orderBy(cb.asc(customerRoot.get(CustomerEntity_.id)));
+        cq.select(customerRoot);
+
+        // The graph only contains to-one associations, so the limit can safely be applied in the database
+        EntityGraph<CustomerEntity> customerGraph = createEntityGraph();
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        return entityManager.createQuery(cq)
+                .setHint(LOAD_GRAPH_KEY, customerGraph)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(v -> EntityConversions.convertCustomerEntityToModel(v, canonicalizer))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachCustomer(Consumer<? super Customer> action) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CustomerEntity> cq = cb.createQuery(CustomerEntity.class);
+
+        Root<CustomerEntity> customerRoot = cq.from(CustomerEntity.class);
+        cq.orderBy(cb.asc(customerRoot.get(CustomerEntity_.id)));
+        cq.select(customerRoot);
+
+        // The graph only contains to-one associations, so each result row holds exactly one customer
+        EntityGraph<CustomerEntity> customerGraph = createEntityGraph();
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        // Scrolling through the results with a JDBC cursor, streamingFetchSize rows at a time
+        // The persistence context is cleared regularly, so it does not grow with the number of customers
+        try (ScrollableResults<CustomerEntity> customers = entityManager.unwrap(Session.class)
+                .createSelectionQuery(cq)
+                .setHint(LOAD_GRAPH_KEY, customerGraph)
+                .setFetchSize(streamingFetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            int count = 0;
+            while (customers.next()) {
+                action.accept(EntityConversions.convertCustomerEntityToModel(customers.get(), canonicalizer));
+                count += 1;
+
+                if (count % streamingFetchSize == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    private static List<Selection<?>> createAddressSelections(Join<?, AddressEntity> addressJoin) {
+        Join<AddressEntity, CityEntity> cityJoin = addressJoin.join(AddressEntity_.city);
+        Join<CityEntity, CountryEntity> countryJoin = cityJoin.join(CityEntity_.country);
+
+        // The order must match method convertTupleToAddress
+        return List.of(
+                addressJoin.get(AddressEntity_.id),
+                addressJoin.get(AddressEntity_.address),
+                addressJoin.get(AddressEntity_.address2),
+                addressJoin.get(AddressEntity_.district),
+                cityJoin.get(CityEntity_.id),
+                cityJoin.get(CityEntity_.city),
+                countryJoin.get(CountryEntity_.country),
+                addressJoin.get(AddressEntity_.postalCode),
+                addressJoin.get(AddressEntity_.phone)
+        );
+    }
+
+    private static Address convertTupleToAddress(Tuple tuple, int offset, Canonicalizer canonicalizer) {
+        return canonicalizer.canonicalize(new Address(
+                OptionalInt.of(tuple.get(offset, Integer.class)),
+                tuple.get(offset + 1, String.class),
+                Optional.ofNullable(tuple.get(offset + 2, String.class)),
+                tuple.get(offset + 3, String.class),
+                canonicalizer.canonicalize(new City(
+                        OptionalInt.of(tuple.get(offset + 4, Integer.class)),
+                        tuple.get(offset + 5, String.class),
+                        tuple.get(offset + 6, String.class)
+                )),
+                Optional.ofNullable(tuple.get(offset + 7, String.class)),
+                tuple.get(offset + 8, String.class)
+        ));
+    }
+
     private EntityGraph<CustomerEntity> createEntityGraph() {
         EntityGraph<CustomerEntity> customerGraph = entityManager.createEntityGraph(CustomerEntity.class);
 
@@ -95,20 +330,11 @@ public class DefaultCustomerService implements CustomerService {
         Subgraph<StoreEntity> storeSubgraph = customerGraph.addSubgraph(CustomerEntity_.store);
 
         storeSubgraph.addAttributeNode(StoreEntity_.address);
-        Subgraph<AddressEntity> storeAddressSubgraph = storeSubgraph.addSubgraph(StoreEntity_.address);
-
-        storeAddressSubgraph.addAttributeNode(AddressEntity_.city);
-        Subgraph<CityEntity> storeCitySubgraph = storeAddressSubgraph.addSubgraph(AddressEntity_.city);
-
-        storeCitySubgraph.addAttributeNode(CityEntity_.country);
 
         customerGraph.addAttributeNode(CustomerEntity_.address);
-        Subgraph<AddressEntity> addressSubgraph = customerGraph.addSubgraph(CustomerEntity_.address);
-
-        addressSubgraph.addAttributeNode(AddressEntity_.city);
-        Subgraph<CityEntity> citySubgraph = addressSubgraph.addSubgraph(AddressEntity_.city);
 
-        citySubgraph.addAttributeNode(CityEntity_.country);
+        // Cities (and their countries) are deliberately left out of the entity graph
+        // They are near-static reference data, resolved through their foreign keys from the second-level cache
 
         return customerGraph;
     }
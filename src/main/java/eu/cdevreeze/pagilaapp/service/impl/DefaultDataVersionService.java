@@ -0,0 +1,127 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.impl;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import eu.cdevreeze.pagilaapp.model.DataVersion;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.TableGroup;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.internal.SessionImpl;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Default DataVersionService implementation.
+ *
+ * @author Chris de Vreeze
+ */
+@Service
+@ConditionalOnBooleanProperty(name = "useJooq", havingValue = false, matchIfMissing = true)
+public class DefaultDataVersionService implements DataVersionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultDataVersionService.class);
+
+    // Tables film_actor and film_category are not mapped as entities, so we use native SQL
+    // Each aggregation can be answered by a single scan, and the tables in the film catalog are small
+
+    private static final String FILM_CATALOG_VERSION_SQL = """
+            select max(v.last_update) as last_update, sum(v.row_count) as row_count
+              from (select max(f.last_update) as last_update, count(*) as row_count from film f
+                    union all
+                    select max(fa.last_update), count(*) from film_actor fa
+                    union all
+                    select max(fc.last_update), count(*) from film_category fc
+                    union all
+                    select max(a.last_update), count(*) from actor a) v
+            """;
+
+    // The table names are constants, so it is safe to generate the SQL from them
+    private static final ImmutableMap<TableGroup, String> DATA_VERSION_SQL = Maps.immutableEnumMap(
+            Arrays.stream(TableGroup.values())
+                    .collect(Collectors.toMap(tableGroup -> tableGroup, DefaultDataVersionService::dataVersionSql))
+    );
+
+    // Shared thread-safe proxy for the actual transactional EntityManager that differs for each transaction
+    @PersistenceContext
+    private final EntityManager entityManager;
+
+    public DefaultDataVersionService(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DataVersion findFilmCatalogVersion() {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        return queryDataVersion(FILM_CATALOG_VERSION_SQL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DataVersion findDataVersion(TableGroup tableGroup) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        return queryDataVersion(DATA_VERSION_SQL.get(tableGroup));
+    }
+
+    private DataVersion queryDataVersion(String sql) {
+        // Explicitly typed scalars, so we do not depend on the default JDBC type mappings of native query results
+        Object[] result = (Object[]) entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addScalar("last_update", StandardBasicTypes.INSTANT)
+                .addScalar("row_count", StandardBasicTypes.LONG)
+                .getSingleResult();
+
+        return new DataVersion(
+                Optional.ofNullable((Instant) result[0]),
+                Optional.ofNullable((Long) result[1]).orElse(0L)
+        );
+    }
+
+    private static String dataVersionSql(TableGroup tableGroup) {
+        String versions = tableGroup.tableNames()
+                .stream()
+                .map(tableName -> String.format(
+                        "select max(last_update) as last_update, count(*) as row_count from %s",
+                        tableName
+                ))
+                .collect(Collectors.joining("\n union all\n"));
+
+        return String.format(
+                "select max(v.last_update) as last_update, sum(v.row_count) as row_count from (%s) v",
+                versions
+        );
+    }
+}
@@ -18,22 +18,43 @@ package eu.cdevreeze.pagilaapp.service.impl;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import eu.cdevreeze.pagilaapp.entity.*;
 import eu.cdevreeze.pagilaapp.entity.conversions.EntityConversions;
+import eu.cdevreeze.pagilaapp.model.ActorName;
+import eu.cdevreeze.pagilaapp.model.Canonicalizer;
 import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.model.FilmSummary;
+import eu.cdevreeze.pagilaapp.service.FilmQueryStrategy;
 import eu.cdevreeze.pagilaapp.service.FilmService;
 import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.criteria.*;
 import org.hibernate.internal.SessionImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Year;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -45,23 +66,37 @@ import java.util.stream.Collectors;
 @ConditionalOnBooleanProperty(name = "useJooq", havingValue = false, matchIfMissing = true)
 public class DefaultFilmService implements FilmService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DefaultFilmService.class);
+
     // See https://thorben-janssen.com/hibernate-tips-how-to-bootstrap-hibernate-with-spring-boot/
 
     private static final String LOAD_GRAPH_KEY = "jakarta.persistence.loadgraph";
 
+    private static final int MAX_FILM_IDS_PER_QUERY = 10_000;
+
     // Shared thread-safe proxy for the actual transactional EntityManager that differs for each transaction
     @PersistenceContext
     private final EntityManager entityManager;
 
-    public DefaultFilmService(EntityManager entityManager) {
+    private final FilmQueryStrategy filmQueryStrategy;
+
+    private final int streamingFetchSize;
+
+    public DefaultFilmService(
+            EntityManager entityManager,
+            @Value("${filmQueryStrategy:IDS_FIRST}") FilmQueryStrategy filmQueryStrategy,
+            @Value("${streamingFetchSize:500}") int streamingFetchSize
+    ) {
         this.entityManager = entityManager;
+        this.filmQueryStrategy = filmQueryStrategy;
+        this.streamingFetchSize = streamingFetchSize;
     }
 
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Film> findAllFilms() {
         Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
-        System.out.println("Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
 
         // First build up the query (without worrying about the load/fetch graph)
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
@@ -74,6 +109,9 @@ public class DefaultFilmService implements FilmService {
         // At the same time, this helps achieve good performance, by solving the N + 1 problem
         EntityGraph<FilmEntity> filmGraph = createEntityGraph();
 
+        // All films share the same actor and category instances, instead of equal copies
+        Canonicalizer canonicalizer = new Canonicalizer();
+
         // Run the query, providing the load graph as query hint
         // Note that JPA entities do not escape the persistence context
         // It is not efficient to first retrieve entities and then convert them to DTOs, but it is practical
@@ -82,16 +120,137 @@ public class DefaultFilmService implements FilmService {
                 .setHint(LOAD_GRAPH_KEY, filmGraph)
                 .getResultList()
                 .stream()
-                .map(EntityConversions::convertFilmEntityToModel)
+                .map(v -> EntityConversions.convertFilmEntityToModel(v, canonicalizer))
                 .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
                 .collect(ImmutableList.toImmutableList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Film> findFilmsAfter(int afterFilmId, int limit) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        Preconditions.checkArgument(limit > 0);
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        // First query only the IDs of the films on the page, using keyset pagination ("seek method")
+        // Limiting the film query below would not work, due to the collections in the entity graph
+        // In that case Hibernate would fetch all films, and apply the limit in memory
+        CriteriaQuery<Integer> idQuery = cb.createQuery(Integer.class);
+
+        Root<FilmEntity> idRoot = idQuery.from(FilmEntity.class);
+        idQuery.where(cb.greaterThan(idRoot.get(FilmEntity_.id), afterFilmId));
+        idQuery.orderBy(cb.asc(idRoot.get(FilmEntity_.id)));
+        idQuery.select(idRoot.get(FilmEntity_.id));
+
+        List<Integer> filmIds = entityManager.createQuery(idQuery)
+                .setMaxResults(limit)
+                .getResultList();
+
+        // Next query the films on the page
+        return findFilmsByIdList(filmIds)
+                .stream()
+                .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<FilmSummary> findFilmSummariesAfter(int afterFilmId, int limit) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        Preconditions.checkArgument(limit > 0);
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        // DTO projections (as tuples) instead of entities, so only the needed columns are selected,
+        // and nothing is added to the persistence context
+        // First query the scalar data of the films on the page, using keyset pagination ("seek method")
+        CriteriaQuery<Tuple> filmQuery = cb.createTupleQuery();
+
+        Root<FilmEntity> filmRoot = filmQuery.from(FilmEntity.class);
+        Join<FilmEntity, LanguageEntity> languageJoin = filmRoot.join(FilmEntity_.language);
+        filmQuery.where(cb.greaterThan(filmRoot.get(FilmEntity_.id), afterFilmId));
+        filmQuery.orderBy(cb.asc(filmRoot.get(FilmEntity_.id)));
+        filmQuery.multiselect(
+                filmRoot.get(FilmEntity_.id),
+                filmRoot.get(FilmEntity_.title),
+                filmRoot.get(FilmEntity_.releaseYear),
+                languageJoin.get(LanguageEntity_.rawName)
+        );
+
+        List<Tuple> filmTuples = entityManager.createQuery(filmQuery)
+                .setMaxResults(limit)
+                .getResultList();
+
+        if (filmTuples.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        List<Integer> filmIds = filmTuples.stream().map(t -> t.get(0, Integer.class)).toList();
+
+        // Next query the category names and actor names of these films, one query each
+        CriteriaQuery<Tuple> categoryQuery = cb.createTupleQuery();
+
+        Root<FilmEntity> categoryFilmRoot = categoryQuery.from(FilmEntity.class);
+        Join<FilmEntity, CategoryEntity> categoryJoin = categoryFilmRoot.join(FilmEntity_.categories);
+        categoryQuery.where(categoryFilmRoot.get(FilmEntity_.id).in(filmIds));
+        categoryQuery.multiselect(categoryFilmRoot.get(FilmEntity_.id), categoryJoin.get(CategoryEntity_.name));
+        // A deterministic order of the names per film, like in the jOOQ implementation
+        categoryQuery.orderBy(
+                cb.asc(categoryFilmRoot.get(FilmEntity_.id)),
+                cb.asc(categoryJoin.get(CategoryEntity_.id))
+        );
+
+        ImmutableListMultimap<Integer, String> categoryNamesByFilmId = entityManager.createQuery(categoryQuery)
+                .getResultList()
+                .stream()
+                .collect(ImmutableListMultimap.toImmutableListMultimap(
+                        t -> t.get(0, Integer.class),
+                        t -> t.get(1, String.class)
+                ));
+
+        CriteriaQuery<Tuple> actorQuery = cb.createTupleQuery();
+
+        Root<FilmEntity> actorFilmRoot = actorQuery.from(FilmEntity.class);
+        Join<FilmEntity, ActorEntity> actorJoin = actorFilmRoot.join(FilmEntity_.actors);
+        actorQuery.where(actorFilmRoot.get(FilmEntity_.id).in(filmIds));
+        actorQuery.multiselect(
+                actorFilmRoot.get(FilmEntity_.id),
+                actorJoin.get(ActorEntity_.firstName),
+                actorJoin.get(ActorEntity_.lastName)
+        );
+        actorQuery.orderBy(cb.asc(actorFilmRoot.get(FilmEntity_.id)), cb.asc(actorJoin.get(ActorEntity_.id)));
+
+        ImmutableListMultimap<Integer, String> actorNamesByFilmId = entityManager.createQuery(actorQuery)
+                .getResultList()
+                .stream()
+                .collect(ImmutableListMultimap.toImmutableListMultimap(
+                        t -> t.get(0, Integer.class),
+                        t -> String.format("%s %s", t.get(1, String.class), t.get(2, String.class))
+                ));
+
+        return filmTuples.stream()
+                .map(t -> {
+                    int filmId = t.get(0, Integer.class);
+                    return new FilmSummary(
+                            OptionalInt.of(filmId),
+                            t.get(1, String.class),
+                            Optional.ofNullable(t.get(2, Year.class)),
+                            t.get(3, String.class).strip(),
+                            ImmutableSet.copyOf(categoryNamesByFilmId.get(filmId)),
+                            ImmutableSet.copyOf(actorNamesByFilmId.get(filmId))
+                    );
+                })
+                .collect(ImmutableList.toImmutableList());
+    }
+
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Film> findFilmsByLanguage(String language) {
         Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
-        System.out.println("Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
 
         // First build up the query (without worrying about the load/fetch graph)
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
@@ -113,6 +272,8 @@ public class DefaultFilmService implements FilmService {
         // At the same time, this helps achieve good performance, by solving the N + 1 problem
         EntityGraph<FilmEntity> filmGraph = createEntityGraph();
 
+        Canonicalizer canonicalizer = new Canonicalizer();
+
         // Run the query, providing the load graph as query hint
         // Note that JPA entities do not escape the persistence context
         // It is not efficient to first retrieve entities and then convert them to DTOs, but it is practical
@@ -121,7 +282,7 @@ public class DefaultFilmService implements FilmService {
                 .setHint(LOAD_GRAPH_KEY, filmGraph)
                 .getResultList()
                 .stream()
-                .map(EntityConversions::convertFilmEntityToModel)
+                .map(v -> EntityConversions.convertFilmEntityToModel(v, canonicalizer))
                 .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
                 .collect(ImmutableList.toImmutableList());
     }
@@ -136,8 +297,156 @@ public class DefaultFilmService implements FilmService {
     @Transactional(readOnly = true)
     public ImmutableList<Film> findFilmsByCategories(ImmutableSet<String> categories) {
         Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
-        System.out.println("Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        return switch (filmQueryStrategy) {
+            case JOIN -> findFilmsByCategoriesUsingJoin(categories);
+            case IDS_FIRST -> findFilmsByCategoriesIdsFirst(categories);
+        };
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Film> findFilmsByActor(String firstName, String lastName) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        return findFilmsByActorNames(ImmutableSet.of(new ActorName(firstName, lastName)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableListMultimap<ActorName, Film> findFilmsByActors(ImmutableSet<ActorName> actorNames) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        if (actorNames.isEmpty()) {
+            return ImmutableListMultimap.of();
+        }
+
+        // One query for the films of all actors, after which the films are grouped by actor in Java
+        ImmutableList<Film> films = findFilmsByActorNames(actorNames);
+
+        ImmutableListMultimap.Builder<ActorName, Film> result = ImmutableListMultimap.builder();
+        for (ActorName actorName : actorNames) {
+            result.putAll(actorName, films.stream().filter(f -> f.actors().stream().anyMatch(actorName::matches)).toList());
+        }
+        return result.build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableMap<Integer, Film> findFilmsByIds(ImmutableSet<Integer> filmIds) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
 
+        return findFilmsByIdList(filmIds.asList())
+                .stream()
+                .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
+                .collect(ImmutableMap.toImmutableMap(v -> v.idOption().orElseThrow(), Function.identity()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableSet<String> findAllFilmCategories() {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<String> cq = cb.createQuery(String.class);
+
+        Root<CategoryEntity> categoryRoot = cq.from(CategoryEntity.class);
+        cq.select(categoryRoot.get(CategoryEntity_.name));
+
+        return entityManager.createQuery(cq)
+                .getResultStream()
+                .collect(ImmutableSet.toImmutableSet());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Film> searchFilms(
+            String searchText,
+            Optional<String> categoryOption,
+            Optional<String> languageOption,
+            int limit
+    ) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        Preconditions.checkArgument(limit > 0);
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        // JPQL knows nothing about tsvector columns, so the ranking query is a native SQL query
+        // Only the IDs of the best matching films are selected, using the GiST index on the "fulltext" column
+        // The text search configuration must match the one used by the "fulltext" trigger, i.e. "english"
+        StringBuilder sql = new StringBuilder("""
+                select f.film_id
+                  from film f
+                 where f.fulltext @@ websearch_to_tsquery('english', :searchText)
+                """);
+        categoryOption.ifPresent(ignored -> sql.append("""
+                   and exists (
+                       select 1
+                         from film_category fc
+                         join category c on c.category_id = fc.category_id
+                        where fc.film_id = f.film_id
+                          and upper(c.name) = :category
+                   )
+                """));
+        languageOption.ifPresent(ignored -> sql.append("""
+                   and f.language_id in (select l.language_id from language l where upper(trim(l.name)) = :language)
+                """));
+        sql.append("""
+                 order by ts_rank(f.fulltext, websearch_to_tsquery('english', :searchText)) desc, f.film_id
+                 limit :limit
+                """);
+
+        Query idQuery = entityManager.createNativeQuery(sql.toString(), Integer.class)
+                .setParameter("searchText", searchText)
+                .setParameter("limit", limit);
+        categoryOption.ifPresent(category -> idQuery.setParameter("category", category.toUpperCase().strip()));
+        languageOption.ifPresent(language -> idQuery.setParameter("language", language.toUpperCase().strip()));
+
+        List<Integer> filmIds = ((List<?>) idQuery.getResultList())
+                .stream()
+                .map(id -> ((Number) id).intValue())
+                .toList();
+
+        // Next query the films themselves, restoring the rank order of the film IDs
+        Map<Integer, Film> filmsById = findFilmsByIdList(filmIds)
+                .stream()
+                .collect(Collectors.toMap(v -> v.idOption().orElseThrow(), Function.identity()));
+
+        return filmIds.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachFilm(Consumer<? super Film> action) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        // Films have collection-valued associations in the entity graph, and scrolling through the results of
+        // such a query is not a good idea (each film spans many result rows)
+        // Hence we fetch the films in chunks of streamingFetchSize films, using keyset pagination
+        // The persistence context is cleared after each chunk, so it does not grow with the number of films
+        int afterFilmId = 0;
+        ImmutableList<Film> films;
+
+        do {
+            films = findFilmsAfter(afterFilmId, streamingFetchSize);
+            films.forEach(action);
+            entityManager.clear();
+
+            if (!films.isEmpty()) {
+                afterFilmId = films.getLast().idOption().orElseThrow();
+            }
+        } while (films.size() == streamingFetchSize);
+    }
+
+    private ImmutableList<Film> findFilmsByCategoriesUsingJoin(ImmutableSet<String> categories) {
         // First build up the query (without worrying about the load/fetch graph)
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<FilmEntity> cq = cb.createQuery(FilmEntity.class);
@@ -157,6 +466,8 @@ public class DefaultFilmService implements FilmService {
         // At the same time, this helps achieve good performance, by solving the N + 1 problem
         EntityGraph<FilmEntity> filmGraph = createEntityGraph();
 
+        Canonicalizer canonicalizer = new Canonicalizer();
+
         // Run the query, providing the load graph as query hint
         // Note that JPA entities do not escape the persistence context
         // It is not efficient to first retrieve entities and then convert them to DTOs, but it is practical
@@ -165,17 +476,19 @@ public class DefaultFilmService implements FilmService {
                 .setHint(LOAD_GRAPH_KEY, filmGraph)
                 .getResultList()
                 .stream()
-                .map(EntityConversions::convertFilmEntityToModel)
+                .map(v -> EntityConversions.convertFilmEntityToModel(v, canonicalizer))
                 .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
                 .collect(ImmutableList.toImmutableList());
     }
 
-    @Override
-    @Transactional(readOnly = true)
-    public ImmutableList<Film> findFilmsByActor(String firstName, String lastName) {
-        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
-        System.out.println("Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+    private ImmutableList<Film> findFilmsByActorNames(ImmutableSet<ActorName> actorNames) {
+        return switch (filmQueryStrategy) {
+            case JOIN -> findFilmsByActorNamesUsingJoin(actorNames);
+            case IDS_FIRST -> findFilmsByActorNamesIdsFirst(actorNames);
+        };
+    }
 
+    private ImmutableList<Film> findFilmsByActorNamesUsingJoin(ImmutableSet<ActorName> actorNames) {
         // First build up the query (without worrying about the load/fetch graph)
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<FilmEntity> cq = cb.createQuery(FilmEntity.class);
@@ -184,24 +497,15 @@ public class DefaultFilmService implements FilmService {
         Join<FilmEntity, ActorEntity> actorJoin = filmRoot.join(FilmEntity_.actors, JoinType.LEFT);
         // No need to explicitly set a query parameter when using the Criteria API.
         // SQL injection is prevented, and the generated SQL is parameterized and the database can reuse the query plan for it.
-        cq.where(
-                cb.and(
-                        cb.equal(
-                                cb.upper(actorJoin.get(ActorEntity_.firstName)),
-                                firstName.toUpperCase()
-                        ),
-                        cb.equal(
-                                cb.upper(actorJoin.get(ActorEntity_.lastName)),
-                                lastName.toUpperCase()
-                        )
-                )
-        );
+        cq.where(createActorNamePredicate(cb, actorJoin, actorNames));
         cq.select(filmRoot);
 
         // Next build up the entity graph, to specify which associated data should be fetched
         // At the same time, this helps achieve good performance, by solving the N + 1 problem
         EntityGraph<FilmEntity> filmGraph = createEntityGraph();
 
+        Canonicalizer canonicalizer = new Canonicalizer();
+
         // Run the query, providing the load graph as query hint
         // Note that JPA entities do not escape the persistence context
         // It is not efficient to first retrieve entities and then convert them to DTOs, but it is practical
@@ -210,36 +514,143 @@ public class DefaultFilmService implements FilmService {
                 .setHint(LOAD_GRAPH_KEY, filmGraph)
                 .getResultList()
                 .stream()
-                .map(EntityConversions::convertFilmEntityToModel)
+                .distinct() // A film featuring more than one of the actors occurs more than once (as same entity)
+                .map(v -> EntityConversions.convertFilmEntityToModel(v, canonicalizer))
                 .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
                 .collect(ImmutableList.toImmutableList());
     }
 
-    @Override
-    @Transactional(readOnly = true)
-    public ImmutableSet<String> findAllFilmCategories() {
-        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
-        System.out.println("Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+    private ImmutableList<Film> findFilmsByCategoriesIdsFirst(ImmutableSet<String> categories) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<FilmEntity> cq = cb.createQuery(FilmEntity.class);
+
+        // First select only the IDs of the matching films, using a correlated EXISTS subquery (semi-join)
+        // Unlike a join, a semi-join never duplicates film rows, so no DISTINCT is needed
+        Subquery<Integer> idSubquery = cq.subquery(Integer.class);
+
+        Root<FilmEntity> idRoot = idSubquery.from(FilmEntity.class);
+
+        Subquery<Integer> categorySubquery = idSubquery.subquery(Integer.class);
+        Join<FilmEntity, CategoryEntity> categoryJoin =
+                categorySubquery.correlate(idRoot).join(FilmEntity_.categories);
+        categorySubquery.select(cb.literal(1));
+        categorySubquery.where(
+                cb.upper(categoryJoin.get(CategoryEntity_.name)).in(
+                        categories.stream().map(String::toUpperCase).collect(Collectors.toSet())
+                )
+        );
 
+        idSubquery.where(cb.exists(categorySubquery));
+        idSubquery.select(idRoot.get(FilmEntity_.id));
+
+        // Next fetch the films with those IDs
+        // The IDs are not materialized in Java, so their number is not limited by the maximum number of bind parameters
+        Root<FilmEntity> filmRoot = cq.from(FilmEntity.class);
+        cq.where(filmRoot.get(FilmEntity_.id).in(idSubquery));
+        cq.select(filmRoot);
+
+        return findFilms(cq, new Canonicalizer())
+                .stream()
+                .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    private ImmutableList<Film> findFilmsByActorNamesIdsFirst(ImmutableSet<ActorName> actorNames) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<String> cq = cb.createQuery(String.class);
+        CriteriaQuery<FilmEntity> cq = cb.createQuery(FilmEntity.class);
 
-        Root<CategoryEntity> categoryRoot = cq.from(CategoryEntity.class);
-        cq.select(categoryRoot.get(CategoryEntity_.name));
+        // First select only the IDs of the matching films, using a correlated EXISTS subquery (semi-join)
+        // Unlike a join, a semi-join never duplicates film rows, so no DISTINCT is needed
+        Subquery<Integer> idSubquery = cq.subquery(Integer.class);
+
+        Root<FilmEntity> idRoot = idSubquery.from(FilmEntity.class);
+
+        Subquery<Integer> actorSubquery = idSubquery.subquery(Integer.class);
+        Join<FilmEntity, ActorEntity> actorJoin = actorSubquery.correlate(idRoot).join(FilmEntity_.actors);
+        actorSubquery.select(cb.literal(1));
+        actorSubquery.where(createActorNamePredicate(cb, actorJoin, actorNames));
+
+        idSubquery.where(cb.exists(actorSubquery));
+        idSubquery.select(idRoot.get(FilmEntity_.id));
+
+        // Next fetch the films with those IDs, without materializing the IDs in Java
+        Root<FilmEntity> filmRoot = cq.from(FilmEntity.class);
+        cq.where(filmRoot.get(FilmEntity_.id).in(idSubquery));
+        cq.select(filmRoot);
+
+        return findFilms(cq, new Canonicalizer())
+                .stream()
+                .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    private ImmutableList<Film> findFilmsByIdList(List<Integer> filmIds) {
+        // All chunks share one Canonicalizer, so they share the same actor and category instances
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        // Each ID is a bind parameter of the IN list, and PostgreSQL accepts at most 32767 of them per statement
+        // Hence very long ID lists are fetched in chunks
+        return Lists.partition(filmIds, MAX_FILM_IDS_PER_QUERY)
+                .stream()
+                .flatMap(filmIdChunk -> {
+                    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+                    CriteriaQuery<FilmEntity> cq = cb.createQuery(FilmEntity.class);
+
+                    Root<FilmEntity> filmRoot = cq.from(FilmEntity.class);
+                    cq.where(filmRoot.get(FilmEntity_.id).in(filmIdChunk));
+                    cq.select(filmRoot);
+
+                    return findFilms(cq, canonicalizer).stream();
+                })
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    private ImmutableList<Film> findFilms(CriteriaQuery<FilmEntity> cq, Canonicalizer canonicalizer) {
+        // Build up the entity graph, to specify which associated data should be fetched
+        EntityGraph<FilmEntity> filmGraph = createEntityGraph();
 
         return entityManager.createQuery(cq)
-                .getResultStream()
-                .collect(ImmutableSet.toImmutableSet());
+                .setHint(LOAD_GRAPH_KEY, filmGraph)
+                .getResultList()
+                .stream()
+                .map(v -> EntityConversions.convertFilmEntityToModel(v, canonicalizer))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    private Predicate createActorNamePredicate(
+            CriteriaBuilder cb,
+            Join<FilmEntity, ActorEntity> actorJoin,
+            ImmutableSet<ActorName> actorNames
+    ) {
+        // A disjunction of (first name, last name) pairs, compared case-insensitively by upper-casing both sides
+        // The plain index on the actor last name cannot serve "upper(last_name)", but the actor table is small
+        return cb.or(
+                actorNames.stream()
+                        .map(actorName -> cb.and(
+                                cb.equal(
+                                        cb.upper(actorJoin.get(ActorEntity_.firstName)),
+                                        actorName.firstName().toUpperCase(Locale.ROOT)
+                                ),
+                                cb.equal(
+                                        cb.upper(actorJoin.get(ActorEntity_.lastName)),
+                                        actorName.lastName().toUpperCase(Locale.ROOT)
+                                )
+                        ))
+                        .toArray(Predicate[]::new)
+        );
     }
 
     private EntityGraph<FilmEntity> createEntityGraph() {
         EntityGraph<FilmEntity> filmGraph = entityManager.createEntityGraph(FilmEntity.class);
-        filmGraph.addAttributeNode(FilmEntity_.language);
-        filmGraph.addAttributeNode(FilmEntity_.originalLanguage);
+
+        // Languages are deliberately left out of the entity graph
+        // They are near-static reference data, resolved through their foreign keys from the second-level cache
 
         filmGraph.addAttributeNode(FilmEntity_.categories);
 
-        filmGraph.addAttributeNode(FilmEntity_.actors);
+        // Actors are deliberately left out of the entity graph as well
+        // Fetching them in the same query as the categories would return the Cartesian product of both per film
+        // Instead, the actors of all films of the query are fetched by one subselect query (see FilmEntity)
         return filmGraph;
     }
 }
@@ -20,6 +20,8 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import eu.cdevreeze.pagilaapp.entity.*;
 import eu.cdevreeze.pagilaapp.entity.conversions.EntityConversions;
+import eu.cdevreeze.pagilaapp.model.Canonicalizer;
+import eu.cdevreeze.pagilaapp.model.ImmutableByteArray;
 import eu.cdevreeze.pagilaapp.model.Staff;
 import eu.cdevreeze.pagilaapp.service.StaffService;
 import jakarta.persistence.EntityGraph;
@@ -29,13 +31,21 @@ import jakarta.persistence.Subgraph;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Root;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.internal.SessionImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Comparator;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Default StaffService implementation.
@@ -46,6 +56,8 @@ import java.util.Comparator;
 @ConditionalOnBooleanProperty(name = "useJooq", havingValue = false, matchIfMissing = true)
 public class DefaultStaffService implements StaffService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DefaultStaffService.class);
+
     // See https://thorben-janssen.com/hibernate-tips-how-to-bootstrap-hibernate-with-spring-boot/
 
     private static final String LOAD_GRAPH_KEY = "jakarta.persistence.loadgraph";
@@ -54,15 +66,21 @@ public class DefaultStaffService implements StaffService {
     @PersistenceContext
     private final EntityManager entityManager;
 
-    public DefaultStaffService(EntityManager entityManager) {
+    private final int streamingFetchSize;
+
+    public DefaultStaffService(
+            EntityManager entityManager,
+            @Value("${streamingFetchSize:500}") int streamingFetchSize
+    ) {
         this.entityManager = entityManager;
+        this.streamingFetchSize = streamingFetchSize;
     }
 
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Staff> findAllStaffMembers() {
         Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
-        System.out.println("Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
 
         // First build up the query (without worrying about the load/fetch graph)
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
@@ -75,6 +93,8 @@ public class DefaultStaffService implements StaffService {
         // At the same time, this helps achieve good performance, by solving the N + 1 problem
         EntityGraph<StaffEntity> staffGraph = createEntityGraph();
 
+        Canonicalizer canonicalizer = new Canonicalizer();
+
         // Run the query, providing the load graph as query hint
         // Note that JPA entities do not escape the persistence context
         // It is not efficient to first retrieve entities and then convert them to DTOs, but it is practical
@@ -83,11 +103,112 @@ public class DefaultStaffService implements StaffService {
                 .setHint(LOAD_GRAPH_KEY, staffGraph)
                 .getResultList()
                 .stream()
-                .map(EntityConversions::convertStaffEntityToModel)
+                .map(v -> EntityConversions.convertStaffEntityToModel(v, canonicalizer))
                 .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
                 .collect(ImmutableList.toImmutableList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Staff> findStaffMembersAfter(int afterStaffId, int limit) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        Preconditions.checkArgument(limit > 0);
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        // First build up the query (without worrying about the load/fetch graph)
+        // This is keyset pagination ("seek method"), so the ordering must be done in the database
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<StaffEntity> cq = cb.createQuery(StaffEntity.class);
+
+        Root<StaffEntity> staffRoot = cq.from(StaffEntity.class);
+        cq.where(cb.greaterThan(staffRoot.get(StaffEntity_.id), afterStaffId));
+        cq.orderBy(cb.asc(staffRoot.get(StaffEntity_.id)));
+        cq.select(staffRoot);
+
+        // Next build up the entity graph, to specify which associated data should be fetched
+        // The graph only contains to-one associations, so the limit can safely be applied in the database
+        EntityGraph<StaffEntity> staffGraph = createEntityGraph();
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        return entityManager.createQuery(cq)
+                .setHint(LOAD_GRAPH_KEY, staffGraph)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(v -> EntityConversions.convertStaffEntityToModel(v, canonicalizer))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachStaffMember(Consumer<? super Staff> action) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<StaffEntity> cq = cb.createQuery(StaffEntity.class);
+
+        Root<StaffEntity> staffRoot = cq.from(StaffEntity.class);
+        cq.orderBy(cb.asc(staffRoot.get(StaffEntity_.id)));
+        cq.select(staffRoot);
+
+        // The graph only contains to-one associations, so each result row holds exactly one staff
+        EntityGraph<StaffEntity> staffGraph = createEntityGraph();
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        // Scrolling through the results with a JDBC cursor, streamingFetchSize rows at a time
+        // The persistence context is cleared regularly, so it does not grow with the number of staff members
+        try (ScrollableResults<StaffEntity> staffMembers = entityManager.unwrap(Session.class)
+                .createSelectionQuery(cq)
+                .setHint(LOAD_GRAPH_KEY, staffGraph)
+                .setFetchSize(streamingFetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            int count = 0;
+            while (staffMembers.next()) {
+                action.accept(EntityConversions.convertStaffEntityToModel(staffMembers.get(), canonicalizer));
+                count += 1;
+
+                if (count % streamingFetchSize == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ImmutableByteArray> findStaffPicture(int staffId) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        // Only the picture entity is loaded, and not the staff member with its associations
+        return Optional.ofNullable(entityManager.find(StaffPictureEntity.class, staffId))
+                .flatMap(v -> Optional.ofNullable(v.getPicture()))
+                .map(ImmutableByteArray::copyOf);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean hasStaffPicture(int staffId) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        // Only the ID is selected, so the (potentially large) picture is not read
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Integer> cq = cb.createQuery(Integer.class);
+
+        Root<StaffPictureEntity> pictureRoot = cq.from(StaffPictureEntity.class);
+        cq.select(pictureRoot.get(StaffPictureEntity_.id));
+        cq.where(
+                cb.equal(pictureRoot.get(StaffPictureEntity_.id), staffId),
+                cb.isNotNull(pictureRoot.get(StaffPictureEntity_.picture))
+        );
+
+        return !entityManager.createQuery(cq).getResultList().isEmpty();
+    }
+
     private EntityGraph<StaffEntity> createEntityGraph() {
         EntityGraph<StaffEntity> staffGraph = entityManager.createEntityGraph(StaffEntity.class);
 
@@ -95,20 +216,11 @@ public class DefaultStaffService implements StaffService {
         Subgraph<StoreEntity> storeSubgraph = staffGraph.addSubgraph(StaffEntity_.store);
 
         storeSubgraph.addAttributeNode(StoreEntity_.address);
-        Subgraph<AddressEntity> storeAddressSubgraph = storeSubgraph.addSubgraph(StoreEntity_.address);
-
-        storeAddressSubgraph.addAttributeNode(AddressEntity_.city);
-        Subgraph<CityEntity> storeCitySubgraph = storeAddressSubgraph.addSubgraph(AddressEntity_.city);
-
-        storeCitySubgraph.addAttributeNode(CityEntity_.country);
 
         staffGraph.addAttributeNode(StaffEntity_.address);
-        Subgraph<AddressEntity> addressSubgraph = staffGraph.addSubgraph(StaffEntity_.address);
-
-        addressSubgraph.addAttributeNode(AddressEntity_.city);
-        Subgraph<CityEntity> citySubgraph = addressSubgraph.addSubgraph(AddressEntity_.city);
 
-        citySubgraph.addAttributeNode(CityEntity_.country);
+        // Cities (and their countries) are deliberately left out of the entity graph
+        // They are near-static reference data, resolved through their foreign keys from the second-level cache
 
         return staffGraph;
     }
@@ -18,24 +18,36 @@ package eu.cdevreeze.pagilaapp.service.impl;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import eu.cdevreeze.pagilaapp.entity.*;
 import eu.cdevreeze.pagilaapp.entity.conversions.EntityConversions;
+import eu.cdevreeze.pagilaapp.model.Canonicalizer;
+import eu.cdevreeze.pagilaapp.model.FilmAvailability;
 import eu.cdevreeze.pagilaapp.model.Store;
 import eu.cdevreeze.pagilaapp.service.StoreService;
 import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.Subgraph;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Root;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.internal.SessionImpl;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Default StoreService implementation.
@@ -46,23 +58,49 @@ import java.util.Comparator;
 @ConditionalOnBooleanProperty(name = "useJooq", havingValue = false, matchIfMissing = true)
 public class DefaultStoreService implements StoreService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DefaultStoreService.class);
+
     // See https://thorben-janssen.com/hibernate-tips-how-to-bootstrap-hibernate-with-spring-boot/
 
     private static final String LOAD_GRAPH_KEY = "jakarta.persistence.loadgraph";
 
+    // Tables inventory and rental are not mapped as entities, so we use native SQL
+    // An inventory item is in stock if it has no open rental (i.e. no rental without return date), which is
+    // what database function inventory_in_stock checks for one item at a time
+    // The joins can use indexes idx_store_id_film_id (on inventory) and idx_fk_inventory_id (on rental)
+
+    private static final String FILM_AVAILABILITY_SQL = """
+            select i.film_id as film_id,
+                   i.store_id as store_id,
+                   count(distinct i.inventory_id) as inventory_count,
+                   count(distinct i.inventory_id) filter (where r.rental_id is null) as in_stock_count
+              from store s
+              join inventory i on i.store_id = s.store_id
+              left join rental r on r.inventory_id = i.inventory_id and r.return_date is null
+             where i.film_id in (:filmIds)
+             group by i.film_id, i.store_id
+             order by i.film_id, i.store_id
+            """;
+
     // Shared thread-safe proxy for the actual transactional EntityManager that differs for each transaction
     @PersistenceContext
     private final EntityManager entityManager;
 
-    public DefaultStoreService(EntityManager entityManager) {
+    private final int streamingFetchSize;
+
+    public DefaultStoreService(
+            EntityManager entityManager,
+            @Value("${streamingFetchSize:500}") int streamingFetchSize
+    ) {
         this.entityManager = entityManager;
+        this.streamingFetchSize = streamingFetchSize;
     }
 
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Store> findAllStores() {
         Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
-        System.out.println("Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
 
         // First build up the query (without worrying about the load/fetch graph)
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
@@ -75,6 +113,8 @@ public class DefaultStoreService implements StoreService {
         // At the same time, this helps achieve good performance, by solving the N + 1 problem
         EntityGraph<StoreEntity> storeGraph = createEntityGraph();
 
+        Canonicalizer canonicalizer = new Canonicalizer();
+
         // Run the query, providing the load graph as query hint
         // Note that JPA entities do not escape the persistence context
         // It is not efficient to first retrieve entities and then convert them to DTOs, but it is practical
@@ -83,21 +123,113 @@ public class DefaultStoreService implements StoreService {
                 .setHint(LOAD_GRAPH_KEY, storeGraph)
                 .getResultList()
                 .stream()
-                .map(EntityConversions::convertStoreEntityToModel)
+                .map(v -> EntityConversions.convertStoreEntityToModel(v, canonicalizer))
                 .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
                 .collect(ImmutableList.toImmutableList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Store> findStoresAfter(int afterStoreId, int limit) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        Preconditions.checkArgument(limit > 0);
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        // First build up the query (without worrying about the load/fetch graph)
+        // This is keyset pagination ("seek method"), so the ordering must be done in the database
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<StoreEntity> cq = cb.createQuery(StoreEntity.class);
+
+        Root<StoreEntity> storeRoot = cq.from(StoreEntity.class);
+        cq.where(cb.greaterThan(storeRoot.get(StoreEntity_.id), afterStoreId));
+        cq.orderBy(cb.asc(storeRoot.get(StoreEntity_.id)));
+        cq.select(storeRoot);
+
+        // Next build up the entity graph, to specify which associated data should be fetched
+        // The graph only contains to-one associations, so the limit can safely be applied in the database
+        EntityGraph<StoreEntity> storeGraph = createEntityGraph();
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        return entityManager.createQuery(cq)
+                .setHint(LOAD_GRAPH_KEY, storeGraph)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(v -> EntityConversions.convertStoreEntityToModel(v, canonicalizer))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachStore(Consumer<? super Store> action) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<StoreEntity> cq = cb.createQuery(StoreEntity.class);
+
+        Root<StoreEntity> storeRoot = cq.from(StoreEntity.class);
+        cq.orderBy(cb.asc(storeRoot.get(StoreEntity_.id)));
+        cq.select(storeRoot);
+
+        // The graph only contains to-one associations, so each result row holds exactly one store
+        EntityGraph<StoreEntity> storeGraph = createEntityGraph();
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        // Scrolling through the results with a JDBC cursor, streamingFetchSize rows at a time
+        // The persistence context is cleared regularly, so it does not grow with the number of stores
+        try (ScrollableResults<StoreEntity> stores = entityManager.unwrap(Session.class)
+                .createSelectionQuery(cq)
+                .setHint(LOAD_GRAPH_KEY, storeGraph)
+                .setFetchSize(streamingFetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            int count = 0;
+            while (stores.next()) {
+                action.accept(EntityConversions.convertStoreEntityToModel(stores.get(), canonicalizer));
+                count += 1;
+
+                if (count % streamingFetchSize == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<FilmAvailability> findFilmAvailability(ImmutableSet<Integer> filmIds) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        if (filmIds.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        // Explicitly typed scalars, so we do not depend on the default JDBC type mappings of native query results
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(FILM_AVAILABILITY_SQL)
+                .setParameter("filmIds", filmIds)
+                .unwrap(NativeQuery.class)
+                .addScalar("film_id", StandardBasicTypes.INTEGER)
+                .addScalar("store_id", StandardBasicTypes.INTEGER)
+                .addScalar("inventory_count", StandardBasicTypes.INTEGER)
+                .addScalar("in_stock_count", StandardBasicTypes.INTEGER)
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> new FilmAvailability((Integer) row[0], (Integer) row[1], (Integer) row[2], (Integer) row[3]))
+                .collect(ImmutableList.toImmutableList());
+    }
+
     private EntityGraph<StoreEntity> createEntityGraph() {
         EntityGraph<StoreEntity> storeGraph = entityManager.createEntityGraph(StoreEntity.class);
 
         storeGraph.addAttributeNode(StoreEntity_.address);
-        Subgraph<AddressEntity> addressSubgraph = storeGraph.addSubgraph(StoreEntity_.address);
-
-        addressSubgraph.addAttributeNode(AddressEntity_.city);
-        Subgraph<CityEntity> citySubgraph = addressSubgraph.addSubgraph(AddressEntity_.city);
 
-        citySubgraph.addAttributeNode(CityEntity_.country);
+        // Cities (and their countries) are deliberately left out of the entity graph
+        // They are near-static reference data, resolved through their foreign keys from the second-level cache
 
         return storeGraph;
     }
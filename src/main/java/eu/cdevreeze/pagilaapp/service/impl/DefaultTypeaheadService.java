@@ -0,0 +1,156 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.impl;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.entity.ActorEntity;
+import eu.cdevreeze.pagilaapp.entity.ActorEntity_;
+import eu.cdevreeze.pagilaapp.entity.FilmEntity;
+import eu.cdevreeze.pagilaapp.entity.FilmEntity_;
+import eu.cdevreeze.pagilaapp.model.TypeaheadEntry;
+import eu.cdevreeze.pagilaapp.service.TypeaheadService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.internal.SessionImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Default TypeaheadService implementation.
+ * <p>
+ * Prefix queries use "LIKE" predicates on upper-cased columns, so they are too slow to run at typing speed.
+ * See the in-memory SnapshotTypeaheadService for the alternative.
+ *
+ * @author Chris de Vreeze
+ */
+@Service
+@ConditionalOnBooleanProperty(name = "useJooq", havingValue = false, matchIfMissing = true)
+public class DefaultTypeaheadService implements TypeaheadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultTypeaheadService.class);
+
+    // Shared thread-safe proxy for the actual transactional EntityManager that differs for each transaction
+    @PersistenceContext
+    private final EntityManager entityManager;
+
+    public DefaultTypeaheadService(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<TypeaheadEntry> findAllTypeaheadEntries() {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        return findTypeaheadEntries(Optional.empty())
+                .stream()
+                .sorted(Comparator.comparing(e -> TypeaheadEntry.fold(e.text())))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<TypeaheadEntry> findTypeaheadEntries(String prefix, int limit) {
+        Preconditions.checkArgument(TransactionSynchronizationManager.isActualTransactionActive());
+        Preconditions.checkArgument(limit > 0);
+        logger.atDebug().log(() -> "Hibernate SessionImpl: " + entityManager.unwrap(SessionImpl.class));
+
+        String foldedPrefix = TypeaheadEntry.fold(prefix);
+
+        // Ordering by the matched name, like the in-memory implementation does
+        return findTypeaheadEntries(Optional.of(prefix))
+                .stream()
+                .sorted(Comparator.comparing(e -> e.matchingSearchKey(foldedPrefix).orElse("")))
+                .limit(limit)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    private ImmutableList<TypeaheadEntry> findTypeaheadEntries(Optional<String> prefixOption) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        // Escaping LIKE wildcards is ignored here, since the prefix is only used for typeahead
+        Optional<String> patternOption = prefixOption.map(prefix -> prefix.toUpperCase(Locale.ROOT) + "%");
+
+        CriteriaQuery<Tuple> filmQuery = cb.createTupleQuery();
+        Root<FilmEntity> filmRoot = filmQuery.from(FilmEntity.class);
+        patternOption.ifPresent(pattern ->
+                filmQuery.where(cb.like(cb.upper(filmRoot.get(FilmEntity_.title)), pattern))
+        );
+        filmQuery.multiselect(filmRoot.get(FilmEntity_.id), filmRoot.get(FilmEntity_.title));
+
+        CriteriaQuery<Tuple> actorQuery = cb.createTupleQuery();
+        Root<ActorEntity> actorRoot = actorQuery.from(ActorEntity.class);
+        patternOption.ifPresent(pattern ->
+                actorQuery.where(
+                        cb.or(
+                                cb.like(
+                                        cb.upper(cb.concat(List.of(
+                                                actorRoot.get(ActorEntity_.firstName),
+                                                cb.literal(" "),
+                                                actorRoot.get(ActorEntity_.lastName)
+                                        ))),
+                                        pattern
+                                ),
+                                cb.like(
+                                        cb.upper(cb.concat(List.of(
+                                                actorRoot.get(ActorEntity_.lastName),
+                                                cb.literal(" "),
+                                                actorRoot.get(ActorEntity_.firstName)
+                                        ))),
+                                        pattern
+                                )
+                        )
+                )
+        );
+        actorQuery.multiselect(
+                actorRoot.get(ActorEntity_.id),
+                actorRoot.get(ActorEntity_.firstName),
+                actorRoot.get(ActorEntity_.lastName)
+        );
+
+        Stream<TypeaheadEntry> filmEntries = entityManager.createQuery(filmQuery)
+                .getResultList()
+                .stream()
+                .map(t -> TypeaheadEntry.forFilm(t.get(0, Integer.class), t.get(1, String.class)));
+        Stream<TypeaheadEntry> actorEntries = entityManager.createQuery(actorQuery)
+                .getResultList()
+                .stream()
+                .map(t -> TypeaheadEntry.forActor(
+                        t.get(0, Integer.class),
+                        t.get(1, String.class),
+                        t.get(2, String.class)
+                ));
+
+        return Stream.concat(filmEntries, actorEntries).collect(ImmutableList.toImmutableList());
+    }
+}
@@ -16,20 +16,28 @@
 
 package eu.cdevreeze.pagilaapp.service.jooqimpl;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import eu.cdevreeze.pagilaapp.model.Address;
+import eu.cdevreeze.pagilaapp.model.Canonicalizer;
 import eu.cdevreeze.pagilaapp.service.AddressService;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Records;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static eu.cdevreeze.pagilaapp.jooq.tables.Address.ADDRESS;
 import static eu.cdevreeze.pagilaapp.jooq.tables.City.CITY;
 import static eu.cdevreeze.pagilaapp.jooq.tables.Country.COUNTRY;
+import static org.jooq.impl.DSL.noCondition;
 import static org.jooq.impl.DSL.row;
 
 /**
@@ -43,14 +51,46 @@ public class JooqAddressService implements AddressService {
 
     private final DSLContext dsl;
 
-    public JooqAddressService(DSLContext dsl) {
+    private final int streamingFetchSize;
+
+    public JooqAddressService(DSLContext dsl, @Value("${streamingFetchSize:500}") int streamingFetchSize) {
         this.dsl = dsl;
+        this.streamingFetchSize = streamingFetchSize;
     }
 
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Address> findAllAddresses() {
-        return dsl
+        return findAddresses(noCondition(), OptionalInt.empty());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Address> findAddressesAfter(int afterAddressId, int limit) {
+        Preconditions.checkArgument(limit > 0);
+
+        // Keyset pagination ("seek method"), using the ordering of method findAddresses
+        return findAddresses(ADDRESS.ADDRESS_ID.gt(afterAddressId), OptionalInt.of(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachAddress(Consumer<? super Address> action) {
+        // Lazily fetching the addresses through a cursor, streamingFetchSize rows at a time
+        // Note that PostgreSQL only honours the fetch size within a transaction (i.e. without auto-commit)
+        try (Stream<Address> addresses = streamAddresses(noCondition(), OptionalInt.empty(), streamingFetchSize)) {
+            addresses.forEach(action);
+        }
+    }
+
+    private ImmutableList<Address> findAddresses(Condition whereCondition, OptionalInt limitOption) {
+        try (Stream<Address> addresses = streamAddresses(whereCondition, limitOption, 0)) {
+            return addresses.collect(ImmutableList.toImmutableList());
+        }
+    }
+
+    private Stream<Address> streamAddresses(Condition whereCondition, OptionalInt limitOption, int fetchSize) {
+        var query = dsl
                 .selectDistinct(
                         ADDRESS.ADDRESS_ID,
                         ADDRESS.ADDRESS_,
@@ -69,11 +109,18 @@ public class JooqAddressService implements AddressService {
                 .on(ADDRESS.CITY_ID.eq(CITY.CITY_ID))
                 .leftJoin(COUNTRY)
                 .on(CITY.COUNTRY_ID.eq(COUNTRY.COUNTRY_ID))
-                .orderBy(ADDRESS.ADDRESS_ID)
+                .where(whereCondition)
+                .orderBy(ADDRESS.ADDRESS_ID);
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        // A fetch size of 0 means that the JDBC driver default is used
+        // The returned Stream is backed by an open JDBC ResultSet, so it must be closed after use
+        return (limitOption.isPresent() ? query.limit(limitOption.getAsInt()) : query)
+                .fetchSize(fetchSize)
                 .fetchStream()
                 .map(Records.mapping(ResultRows.AddressRow::new))
                 .filter(Objects::nonNull)
-                .map(ResultRows.AddressRow::toModel)
-                .collect(ImmutableList.toImmutableList());
+                .map(row -> row.toModel(canonicalizer));
     }
 }
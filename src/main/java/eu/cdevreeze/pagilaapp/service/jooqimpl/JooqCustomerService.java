@@ -16,12 +16,18 @@
 
 package eu.cdevreeze.pagilaapp.service.jooqimpl;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.Canonicalizer;
 import eu.cdevreeze.pagilaapp.model.Customer;
+import eu.cdevreeze.pagilaapp.model.CustomerSummary;
 import eu.cdevreeze.pagilaapp.service.CustomerService;
+import eu.cdevreeze.pagilaapp.service.NameMatch;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Records;
 import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,12 +35,16 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static eu.cdevreeze.pagilaapp.jooq.Tables.CUSTOMER;
 import static eu.cdevreeze.pagilaapp.jooq.Tables.STORE;
 import static eu.cdevreeze.pagilaapp.jooq.tables.Address.ADDRESS;
 import static eu.cdevreeze.pagilaapp.jooq.tables.City.CITY;
 import static eu.cdevreeze.pagilaapp.jooq.tables.Country.COUNTRY;
+import static org.jooq.impl.DSL.noCondition;
 import static org.jooq.impl.DSL.row;
 
 /**
@@ -57,14 +67,14 @@ public class JooqCustomerService implements CustomerService {
             LocalDate createDate
     ) {
 
-        public Customer toModel() {
+        public Customer toModel(Canonicalizer canonicalizer) {
             return new Customer(
                     Optional.ofNullable(id).stream().mapToInt(i -> i).findFirst(),
-                    store.toModel(),
+                    store.toModel(canonicalizer),
                     firstName,
                     lastName,
                     Optional.ofNullable(email),
-                    address.toModel(),
+                    address.toModel(canonicalizer),
                     Optional.ofNullable(isActive).stream().anyMatch(b -> b == 1),
                     createDate
             );
@@ -73,18 +83,154 @@ public class JooqCustomerService implements CustomerService {
 
     private final DSLContext dsl;
 
-    public JooqCustomerService(DSLContext dsl) {
+    private final int streamingFetchSize;
+
+    public JooqCustomerService(DSLContext dsl, @Value("${streamingFetchSize:500}") int streamingFetchSize) {
         this.dsl = dsl;
+        this.streamingFetchSize = streamingFetchSize;
     }
 
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Customer> findAllCustomers() {
+        return findCustomers(noCondition(), OptionalInt.empty());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Customer> findCustomersAfter(int afterCustomerId, int limit) {
+        Preconditions.checkArgument(limit > 0);
+
+        // Keyset pagination ("seek method"), using the ordering of method findCustomers
+        return findCustomers(CUSTOMER.CUSTOMER_ID.gt(afterCustomerId), OptionalInt.of(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<CustomerSummary> findCustomerSummariesAfter(int afterCustomerId, int limit) {
+        Preconditions.checkArgument(limit > 0);
+
         var storeAddress = ADDRESS.as("STORE_ADDRESS");
         var storeCity = CITY.as("STORE_CITY");
         var storeCountry = COUNTRY.as("STORE_COUNTRY");
 
+        // The store addresses of all customers are then shared instances
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        // A narrow select, only for the data needed for the summaries
+        // Keyset pagination ("seek method"), like method findCustomersAfter
         return dsl
+                .select(
+                        CUSTOMER.CUSTOMER_ID,
+                        row(
+                                ADDRESS.ADDRESS_ID,
+                                ADDRESS.ADDRESS_,
+                                ADDRESS.ADDRESS2,
+                                ADDRESS.DISTRICT,
+                                row(
+                                        ADDRESS.CITY_ID,
+                                        CITY.CITY_,
+                                        COUNTRY.COUNTRY_
+                                ).convertFrom(Records.mapping(ResultRows.CityRow::new)),
+                                ADDRESS.POSTAL_CODE,
+                                ADDRESS.PHONE
+                        ).convertFrom(Records.mapping(ResultRows.AddressRow::new)),
+                        row(
+                                storeAddress.ADDRESS_ID,
+                                storeAddress.ADDRESS_,
+                                storeAddress.ADDRESS2,
+                                storeAddress.DISTRICT,
+                                row(
+                                        storeAddress.CITY_ID,
+                                        storeCity.CITY_,
+                                        storeCountry.COUNTRY_
+                                ).convertFrom(Records.mapping(ResultRows.CityRow::new)),
+                                storeAddress.POSTAL_CODE,
+                                storeAddress.PHONE
+                        ).convertFrom(Records.mapping(ResultRows.AddressRow::new))
+                )
+                .from(CUSTOMER)
+                .join(ADDRESS)
+                .on(CUSTOMER.ADDRESS_ID.eq(ADDRESS.ADDRESS_ID))
+                .join(CITY)
+                .on(ADDRESS.CITY_ID.eq(CITY.CITY_ID))
+                .join(COUNTRY)
+                .on(CITY.COUNTRY_ID.eq(COUNTRY.COUNTRY_ID))
+                .join(STORE)
+                .on(CUSTOMER.STORE_ID.eq(STORE.STORE_ID))
+                .join(storeAddress)
+                .on(STORE.ADDRESS_ID.eq(storeAddress.ADDRESS_ID))
+                .join(storeCity)
+                .on(storeAddress.CITY_ID.eq(storeCity.CITY_ID))
+                .join(storeCountry)
+                .on(storeCity.COUNTRY_ID.eq(storeCountry.COUNTRY_ID))
+                .where(CUSTOMER.CUSTOMER_ID.gt(afterCustomerId))
+                .orderBy(CUSTOMER.CUSTOMER_ID)
+                .limit(limit)
+                .fetch(r -> new CustomerSummary(
+                        OptionalInt.of(r.value1()),
+                        r.value2().toModel(canonicalizer),
+                        r.value3().toModel(canonicalizer)
+                ))
+                .stream()
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Customer> findCustomersByLastName(
+            String lastName,
+            NameMatch nameMatch,
+            OptionalInt storeIdOption,
+            int afterCustomerId,
+            int limit
+    ) {
+        String normalizedLastName = NameMatch.normalize(lastName);
+        Preconditions.checkArgument(!normalizedLastName.isEmpty());
+        Preconditions.checkArgument(limit > 0);
+
+        // No function is applied to column last_name, so its btree index can be used for an index range scan
+        Condition lastNameCondition = switch (nameMatch) {
+            case EXACT -> CUSTOMER.LAST_NAME.eq(normalizedLastName);
+            case PREFIX -> CUSTOMER.LAST_NAME.ge(normalizedLastName)
+                    .and(NameMatch.prefixUpperBound(normalizedLastName)
+                            .map(upperBound -> CUSTOMER.LAST_NAME.lt(upperBound))
+                            .orElse(noCondition()))
+                    .and(CUSTOMER.LAST_NAME.like(NameMatch.likePatternForPrefix(normalizedLastName), '\\'));
+        };
+        Condition storeCondition = storeIdOption.isPresent() ?
+                CUSTOMER.STORE_ID.eq(storeIdOption.getAsInt()) :
+                noCondition();
+
+        // Keyset pagination ("seek method"), using the ordering of method findCustomers
+        return findCustomers(
+                lastNameCondition.and(storeCondition).and(CUSTOMER.CUSTOMER_ID.gt(afterCustomerId)),
+                OptionalInt.of(limit)
+        );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachCustomer(Consumer<? super Customer> action) {
+        // Lazily fetching the customers through a cursor, streamingFetchSize rows at a time
+        // Note that PostgreSQL only honours the fetch size within a transaction (i.e. without auto-commit)
+        try (Stream<Customer> customers = streamCustomers(noCondition(), OptionalInt.empty(), streamingFetchSize)) {
+            customers.forEach(action);
+        }
+    }
+
+    private ImmutableList<Customer> findCustomers(Condition whereCondition, OptionalInt limitOption) {
+        try (Stream<Customer> customers = streamCustomers(whereCondition, limitOption, 0)) {
+            return customers.collect(ImmutableList.toImmutableList());
+        }
+    }
+
+    private Stream<Customer> streamCustomers(Condition whereCondition, OptionalInt limitOption, int fetchSize) {
+        var storeAddress = ADDRESS.as("STORE_ADDRESS");
+        var storeCity = CITY.as("STORE_CITY");
+        var storeCountry = COUNTRY.as("STORE_COUNTRY");
+
+        var query = dsl
                 .selectDistinct(
                         CUSTOMER.CUSTOMER_ID,
                         row(
@@ -137,11 +283,18 @@ public class JooqCustomerService implements CustomerService {
                 .on(ADDRESS.CITY_ID.eq(CITY.CITY_ID))
                 .leftJoin(COUNTRY)
                 .on(CITY.COUNTRY_ID.eq(COUNTRY.COUNTRY_ID))
-                .orderBy(CUSTOMER.CUSTOMER_ID)
+                .where(whereCondition)
+                .orderBy(CUSTOMER.CUSTOMER_ID);
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        // A fetch size of 0 means that the JDBC driver default is used
+        // The returned Stream is backed by an open JDBC ResultSet, so it must be closed after use
+        return (limitOption.isPresent() ? query.limit(limitOption.getAsInt()) : query)
+                .fetchSize(fetchSize)
                 .fetchStream()
                 .map(Records.mapping(CustomerRow::new))
                 .filter(Objects::nonNull)
-                .map(CustomerRow::toModel)
-                .collect(ImmutableList.toImmutableList());
+                .map(row -> row.toModel(canonicalizer));
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.jooqimpl;
+
+import eu.cdevreeze.pagilaapp.model.DataVersion;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.TableGroup;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record2;
+import org.jooq.Select;
+import org.jooq.Table;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+import java.util.Optional;
+
+import static eu.cdevreeze.pagilaapp.jooq.Public.PUBLIC;
+import static eu.cdevreeze.pagilaapp.jooq.Tables.*;
+import static org.jooq.impl.DSL.*;
+
+/**
+ * jOOQ DataVersionService implementation.
+ *
+ * @author Chris de Vreeze
+ */
+@Service
+@ConditionalOnBooleanProperty(name = "useJooq")
+public class JooqDataVersionService implements DataVersionService {
+
+    private final DSLContext dsl;
+
+    public JooqDataVersionService(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DataVersion findFilmCatalogVersion() {
+        Table<Record2<OffsetDateTime, Integer>> versions =
+                select(max(FILM.LAST_UPDATE).as("last_update"), count().as("row_count"))
+                        .from(FILM)
+                        .unionAll(select(max(FILM_ACTOR.LAST_UPDATE), count()).from(FILM_ACTOR))
+                        .unionAll(select(max(FILM_CATEGORY.LAST_UPDATE), count()).from(FILM_CATEGORY))
+                        .unionAll(select(max(ACTOR.LAST_UPDATE), count()).from(ACTOR))
+                        .asTable("v");
+
+        return queryDataVersion(versions);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DataVersion findDataVersion(TableGroup tableGroup) {
+        // Looking up the generated table classes by table name, so the table names are checked against the schema
+        Table<Record2<OffsetDateTime, Integer>> versions = tableGroup.tableNames()
+                .stream()
+                .map(tableName -> Objects.requireNonNull(PUBLIC.getTable(tableName), tableName))
+                .map(JooqDataVersionService::selectTableVersion)
+                .reduce(Select::unionAll)
+                .orElseThrow()
+                .asTable("v", "last_update", "row_count");
+
+        return queryDataVersion(versions);
+    }
+
+    private DataVersion queryDataVersion(Table<Record2<OffsetDateTime, Integer>> versions) {
+        Record2<OffsetDateTime, BigDecimal> result = dsl
+                .select(
+                        max(versions.field("last_update", OffsetDateTime.class)),
+                        sum(versions.field("row_count", Integer.class))
+                )
+                .from(versions)
+                .fetchSingle();
+
+        return new DataVersion(
+                Optional.ofNullable(result.value1()).map(OffsetDateTime::toInstant),
+                Optional.ofNullable(result.value2()).map(BigDecimal::longValueExact).orElse(0L)
+        );
+    }
+
+    private static Select<Record2<OffsetDateTime, Integer>> selectTableVersion(Table<?> table) {
+        Field<OffsetDateTime> lastUpdate =
+                Objects.requireNonNull(table.field("last_update", OffsetDateTime.class), table.getName());
+
+        return select(max(lastUpdate), count()).from(table);
+    }
+}
@@ -18,18 +18,34 @@ package eu.cdevreeze.pagilaapp.service.jooqimpl;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Streams;
 import eu.cdevreeze.pagilaapp.jooq.enums.MpaaRating;
 import eu.cdevreeze.pagilaapp.jooq.tables.Language;
 import eu.cdevreeze.pagilaapp.model.Actor;
+import eu.cdevreeze.pagilaapp.model.ActorName;
+import eu.cdevreeze.pagilaapp.model.Canonicalizer;
 import eu.cdevreeze.pagilaapp.model.Category;
 import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.model.FilmSummary;
+import eu.cdevreeze.pagilaapp.service.FilmQueryStrategy;
 import eu.cdevreeze.pagilaapp.service.FilmService;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Record2;
+import org.jooq.Record3;
+import org.jooq.Record4;
 import org.jooq.Records;
+import org.jooq.SelectField;
 import org.jooq.Table;
+import org.jooq.conf.NestedCollectionEmulation;
 import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -38,8 +54,14 @@ import java.math.BigDecimal;
 import java.time.Year;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static eu.cdevreeze.pagilaapp.jooq.Tables.*;
 import static org.jooq.impl.DSL.*;
@@ -49,6 +71,9 @@ import static org.jooq.impl.DSL.*;
  * <p>
  * See <a href="https://blog.jooq.org/create-empty-optional-sql-clauses-with-jooq/">create empty optional SQL clauses with jOOQ</a>
  * for the approach followed to reuse queries in a way that works well in jOOQ.
+ * <p>
+ * The nested collections of films (categories and actors) are fetched according to the configured
+ * {@link NestedCollectionStrategy}.
  *
  * @author Chris de Vreeze
  */
@@ -61,41 +86,42 @@ public class JooqFilmService implements FilmService {
     // On the other hand, the jOOQ Record types become a bit unwieldy with more than a few columns
     // Moreover, we lose type-safe with over 22 columns
     // Yet we can combine columns into a "row" to mitigate this, should we need explicit jOOQ Record (sub)types
+    // The film, category and actor rows are package-private, so their mapping can be benchmarked
 
-    private record CategoryRow(@Nullable Integer id, String name) {
+    record CategoryRow(@Nullable Integer id, String name) {
 
-        public Category toModel() {
-            return new Category(
+        public Category toModel(Canonicalizer canonicalizer) {
+            return canonicalizer.canonicalize(new Category(
                     Optional.ofNullable(id).stream().mapToInt(i -> i).findFirst(),
                     name
-            );
+            ));
         }
     }
 
-    private record ActorRow(
+    record ActorRow(
             @Nullable Integer id,
             String firstName,
             String lastName
     ) {
 
-        public Actor toModel() {
-            return new Actor(
+        public Actor toModel(Canonicalizer canonicalizer) {
+            return canonicalizer.canonicalize(new Actor(
                     Optional.ofNullable(id).stream().mapToInt(i -> i).findFirst(),
                     firstName,
                     lastName
-            );
+            ));
         }
     }
 
-    private record FilmRow(
+    // The film row without its nested collections, which are fetched according to the NestedCollectionStrategy
+
+    record FilmRow(
             @Nullable Integer id,
             String title,
             @Nullable String description,
             @Nullable Integer releaseYear,
             String language,
             @Nullable String originalLanguage,
-            List<CategoryRow> categories,
-            List<ActorRow> actors,
             short rentalDuration,
             BigDecimal rentalRate,
             @Nullable Short length,
@@ -104,16 +130,26 @@ public class JooqFilmService implements FilmService {
             @Nullable String[] specialFeatures
     ) {
 
-        public Film toModel() {
+        public Film toModel(
+                @Nullable List<CategoryRow> categories,
+                @Nullable List<ActorRow> actors,
+                Canonicalizer canonicalizer
+        ) {
             return new Film(
                     Optional.ofNullable(id).stream().mapToInt(i -> i).findFirst(),
                     title,
                     Optional.ofNullable(description),
                     Optional.ofNullable(releaseYear).map(Year::of),
-                    language,
-                    Optional.ofNullable(originalLanguage),
-                    categories.stream().map(CategoryRow::toModel).collect(ImmutableSet.toImmutableSet()),
-                    actors.stream().map(ActorRow::toModel).collect(ImmutableSet.toImmutableSet()),
+                    canonicalizer.canonicalize(language),
+                    Optional.ofNullable(originalLanguage).map(canonicalizer::canonicalize),
+                    Objects.requireNonNullElse(categories, List.<CategoryRow>of())
+                            .stream()
+                            .map(categoryRow -> categoryRow.toModel(canonicalizer))
+                            .collect(ImmutableSet.toImmutableSet()),
+                    Objects.requireNonNullElse(actors, List.<ActorRow>of())
+                            .stream()
+                            .map(actorRow -> actorRow.toModel(canonicalizer))
+                            .collect(ImmutableSet.toImmutableSet()),
                     rentalDuration,
                     rentalRate,
                     Optional.ofNullable(length).stream().mapToInt(i -> i).findFirst(),
@@ -124,16 +160,118 @@ public class JooqFilmService implements FilmService {
         }
     }
 
+    private record FilmSummaryRow(
+            Integer id,
+            String title,
+            @Nullable Integer releaseYear,
+            String language
+    ) {
+    }
+
+    private static final int NESTED_COLLECTION_BATCH_SIZE = 1000;
+
+    // Alias for the Language table, to be used for the original language join
+    private static final Language ORIGINAL_LANGUAGE = LANGUAGE.as("ORIGINAL_LANGUAGE");
+
     private final DSLContext dsl;
 
-    public JooqFilmService(DSLContext dsl) {
-        this.dsl = dsl;
+    private final FilmQueryStrategy filmQueryStrategy;
+
+    private final NestedCollectionStrategy nestedCollectionStrategy;
+
+    private final int streamingFetchSize;
+
+    public JooqFilmService(
+            DSLContext dsl,
+            @Value("${filmQueryStrategy:IDS_FIRST}") FilmQueryStrategy filmQueryStrategy,
+            @Value("${nestedCollectionStrategy:BATCHED}") NestedCollectionStrategy nestedCollectionStrategy,
+            @Value("${streamingFetchSize:500}") int streamingFetchSize
+    ) {
+        // Making the MULTISET emulation explicit, instead of relying on the dialect-specific default
+        // See https://www.jooq.org/doc/latest/manual/sql-building/dsl-context/custom-settings/settings-multiset-emulation/
+        this.dsl = dsl.configuration()
+                .deriveSettings(s -> s.withEmulateMultiset(NestedCollectionEmulation.JSONB))
+                .dsl();
+        this.filmQueryStrategy = filmQueryStrategy;
+        this.nestedCollectionStrategy = nestedCollectionStrategy;
+        this.streamingFetchSize = streamingFetchSize;
     }
 
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Film> findAllFilms() {
-        return findFilms(false, false, noCondition());
+        return findFilms(false, false, noCondition(), OptionalInt.empty());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Film> findFilmsAfter(int afterFilmId, int limit) {
+        Preconditions.checkArgument(limit > 0);
+
+        // Keyset pagination ("seek method"), using the FILM_ID ordering of method findFilms
+        // See https://www.jooq.org/doc/latest/manual/sql-building/sql-statements/select-statement/seek-clause/
+        return findFilms(false, false, FILM.FILM_ID.gt(afterFilmId), OptionalInt.of(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<FilmSummary> findFilmSummariesAfter(int afterFilmId, int limit) {
+        Preconditions.checkArgument(limit > 0);
+
+        // Narrow selects, only for the data needed for the summaries
+        // First query the scalar data of the films on the page, using keyset pagination ("seek method")
+        List<FilmSummaryRow> filmRows = dsl
+                .select(FILM.FILM_ID, FILM.TITLE, FILM.RELEASE_YEAR, rtrim(LANGUAGE.NAME))
+                .from(FILM)
+                .join(LANGUAGE)
+                .on(FILM.LANGUAGE_ID.eq(LANGUAGE.LANGUAGE_ID))
+                .where(FILM.FILM_ID.gt(afterFilmId))
+                .orderBy(FILM.FILM_ID)
+                .limit(limit)
+                .fetch(Records.mapping(FilmSummaryRow::new));
+
+        if (filmRows.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        Integer[] filmIds = filmRows.stream().map(FilmSummaryRow::id).toArray(Integer[]::new);
+
+        // Next query the category names and actor names of these films, one query each
+        ImmutableListMultimap<Integer, String> categoryNamesByFilmId = dsl
+                .select(FILM_CATEGORY.FILM_ID, CATEGORY.NAME)
+                .from(FILM_CATEGORY)
+                .join(CATEGORY)
+                .on(FILM_CATEGORY.CATEGORY_ID.eq(CATEGORY.CATEGORY_ID))
+                .where(FILM_CATEGORY.FILM_ID.eq(any(filmIds)))
+                .orderBy(FILM_CATEGORY.FILM_ID, CATEGORY.CATEGORY_ID)
+                .fetch()
+                .stream()
+                .collect(ImmutableListMultimap.toImmutableListMultimap(Record2::value1, Record2::value2));
+
+        ImmutableListMultimap<Integer, String> actorNamesByFilmId = dsl
+                .select(FILM_ACTOR.FILM_ID, ACTOR.FIRST_NAME, ACTOR.LAST_NAME)
+                .from(FILM_ACTOR)
+                .join(ACTOR)
+                .on(FILM_ACTOR.ACTOR_ID.eq(ACTOR.ACTOR_ID))
+                .where(FILM_ACTOR.FILM_ID.eq(any(filmIds)))
+                .orderBy(FILM_ACTOR.FILM_ID, ACTOR.ACTOR_ID)
+                .fetch()
+                .stream()
+                .collect(ImmutableListMultimap.toImmutableListMultimap(
+                        Record3::value1,
+                        r -> String.format("%s %s", r.value2(), r.value3())
+                ));
+
+        return filmRows.stream()
+                .map(filmRow -> new FilmSummary(
+                        OptionalInt.of(filmRow.id()),
+                        filmRow.title(),
+                        Optional.ofNullable(filmRow.releaseYear()).map(Year::of),
+                        filmRow.language(),
+                        ImmutableSet.copyOf(categoryNamesByFilmId.get(filmRow.id())),
+                        ImmutableSet.copyOf(actorNamesByFilmId.get(filmRow.id()))
+                ))
+                .collect(ImmutableList.toImmutableList());
     }
 
     @Override
@@ -145,7 +283,8 @@ public class JooqFilmService implements FilmService {
         return findFilms(
                 false,
                 false,
-                upper(LANGUAGE.NAME).eq(language.toUpperCase())
+                upper(LANGUAGE.NAME).eq(language.toUpperCase()),
+                OptionalInt.empty()
         );
     }
 
@@ -158,22 +297,53 @@ public class JooqFilmService implements FilmService {
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Film> findFilmsByCategories(ImmutableSet<String> categories) {
-        return findFilms(
-                true,
-                false,
-                upper(CATEGORY.NAME).in(categories.stream().map(String::toUpperCase).toList())
-        );
+        Condition categoryCondition = upper(CATEGORY.NAME).in(categories.stream().map(String::toUpperCase).toList());
+
+        return switch (filmQueryStrategy) {
+            case JOIN -> findFilms(true, false, categoryCondition, OptionalInt.empty());
+            case IDS_FIRST -> findFilmsIdsFirst(
+                    exists(
+                            selectOne()
+                                    .from(FILM_CATEGORY)
+                                    .join(CATEGORY)
+                                    .on(FILM_CATEGORY.CATEGORY_ID.eq(CATEGORY.CATEGORY_ID))
+                                    .where(FILM_CATEGORY.FILM_ID.eq(FILM.FILM_ID))
+                                    .and(categoryCondition)
+                    )
+            );
+        };
     }
 
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Film> findFilmsByActor(String firstName, String lastName) {
-        return findFilms(
-                false,
-                true,
-                upper(ACTOR.FIRST_NAME).eq(firstName.toUpperCase())
-                        .and(upper(ACTOR.LAST_NAME).eq(lastName.toUpperCase()))
-        );
+        return findFilmsByActorNames(ImmutableSet.of(new ActorName(firstName, lastName)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableListMultimap<ActorName, Film> findFilmsByActors(ImmutableSet<ActorName> actorNames) {
+        if (actorNames.isEmpty()) {
+            return ImmutableListMultimap.of();
+        }
+
+        // One query for the films of all actors, after which the films are grouped by actor in Java
+        ImmutableList<Film> films = findFilmsByActorNames(actorNames);
+
+        ImmutableListMultimap.Builder<ActorName, Film> result = ImmutableListMultimap.builder();
+        for (ActorName actorName : actorNames) {
+            result.putAll(actorName, films.stream().filter(f -> f.actors().stream().anyMatch(actorName::matches)).toList());
+        }
+        return result.build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableMap<Integer, Film> findFilmsByIds(ImmutableSet<Integer> filmIds) {
+        // The film IDs are bound as one array parameter, so the SQL string does not depend on the number of IDs
+        return findFilmsByIdList(filmIds.asList())
+                .stream()
+                .collect(ImmutableMap.toImmutableMap(v -> v.idOption().orElseThrow(), Function.identity()));
     }
 
     @Override
@@ -189,65 +359,375 @@ public class JooqFilmService implements FilmService {
                 .collect(ImmutableSet.toImmutableSet());
     }
 
-    private ImmutableList<Film> findFilms(boolean joinCategories, boolean joinActors, Condition whereCondition) {
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Film> searchFilms(
+            String searchText,
+            Optional<String> categoryOption,
+            Optional<String> languageOption,
+            int limit
+    ) {
+        Preconditions.checkArgument(limit > 0);
+
+        // jOOQ has no built-in support for PostgreSQL full-text search, so we use plain SQL templating
+        // See https://www.jooq.org/doc/latest/manual/sql-building/plain-sql-templating/
+        // The text search configuration must match the one used by the "fulltext" trigger, i.e. "english"
+        Field<Object> tsQuery = field("websearch_to_tsquery('english', {0})", val(searchText));
+        Field<Float> rank = field("ts_rank({0}, {1})", Float.class, FILM.FULLTEXT, tsQuery);
+
+        Condition categoryCondition = categoryOption
+                .map(category -> exists(
+                        selectOne()
+                                .from(FILM_CATEGORY)
+                                .join(CATEGORY)
+                                .on(FILM_CATEGORY.CATEGORY_ID.eq(CATEGORY.CATEGORY_ID))
+                                .where(FILM_CATEGORY.FILM_ID.eq(FILM.FILM_ID))
+                                .and(upper(CATEGORY.NAME).eq(category.toUpperCase().strip()))
+                ))
+                .orElse(noCondition());
+        Condition languageCondition = languageOption
+                .map(language -> FILM.LANGUAGE_ID.in(
+                        select(LANGUAGE.LANGUAGE_ID)
+                                .from(LANGUAGE)
+                                .where(upper(LANGUAGE.NAME).eq(language.toUpperCase().strip()))
+                ))
+                .orElse(noCondition());
+
+        // First find only the IDs of the best matching films, using the GiST index on the "fulltext" column
+        List<Integer> filmIds = dsl
+                .select(FILM.FILM_ID)
+                .from(FILM)
+                .where(condition("{0} @@ {1}", FILM.FULLTEXT, tsQuery))
+                .and(categoryCondition)
+                .and(languageCondition)
+                .orderBy(rank.desc(), FILM.FILM_ID)
+                .limit(limit)
+                .fetch(FILM.FILM_ID);
+
+        // Next query the films themselves, restoring the rank order of the film IDs
+        ImmutableMap<Integer, Film> filmsById =
+                findFilmsByIdList(filmIds)
+                        .stream()
+                        .collect(ImmutableMap.toImmutableMap(v -> v.idOption().orElseThrow(), Function.identity()));
+
+        return filmIds.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachFilm(Consumer<? super Film> action) {
+        // Lazily fetching the films through a cursor, streamingFetchSize rows at a time
+        // Note that PostgreSQL only honours the fetch size within a transaction (i.e. without auto-commit)
+        try (Stream<Film> films = streamFilms(false, false, noCondition(), OptionalInt.empty(), streamingFetchSize)) {
+            films.forEach(action);
+        }
+    }
+
+    private ImmutableList<Film> findFilmsByActorNames(ImmutableSet<ActorName> actorNames) {
+        // A row value IN list, which benefits from the IN list padding configured in JooqConfig
+        // Actor names are compared case-insensitively by upper-casing both sides
+        // The plain index on the actor last name cannot serve "upper(last_name)", but the actor table is small
+        Condition actorCondition = row(upper(ACTOR.FIRST_NAME), upper(ACTOR.LAST_NAME)).in(
+                actorNames.stream()
+                        .map(actorName -> row(
+                                actorName.firstName().toUpperCase(Locale.ROOT),
+                                actorName.lastName().toUpperCase(Locale.ROOT)
+                        ))
+                        .toList()
+        );
+
+        return switch (filmQueryStrategy) {
+            case JOIN -> findFilms(false, true, actorCondition, OptionalInt.empty());
+            case IDS_FIRST -> findFilmsIdsFirst(
+                    exists(
+                            selectOne()
+                                    .from(FILM_ACTOR)
+                                    .join(ACTOR)
+                                    .on(FILM_ACTOR.ACTOR_ID.eq(ACTOR.ACTOR_ID))
+                                    .where(FILM_ACTOR.FILM_ID.eq(FILM.FILM_ID))
+                                    .and(actorCondition)
+                    )
+            );
+        };
+    }
+
+    private ImmutableList<Film> findFilmsIdsFirst(Condition filmCondition) {
+        // First query only the IDs of the matching films, typically using a semi-join (EXISTS) as filmCondition
+        // Unlike a join, a semi-join never duplicates film rows, so no nested data is built for duplicate rows
+        List<Integer> filmIds = dsl
+                .select(FILM.FILM_ID)
+                .from(FILM)
+                .where(filmCondition)
+                .fetch(FILM.FILM_ID);
+
+        // Next query the films themselves, in one batched query
+        return findFilmsByIdList(filmIds);
+    }
+
+    private ImmutableList<Film> findFilmsByIdList(List<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        // Binding the IDs as one array parameter ("= any(?)") instead of as a (long) IN list
+        return findFilms(
+                false,
+                false,
+                FILM.FILM_ID.eq(any(filmIds.toArray(Integer[]::new))),
+                OptionalInt.empty()
+        );
+    }
+
+    private ImmutableList<Film> findFilms(
+            boolean joinCategories,
+            boolean joinActors,
+            Condition whereCondition,
+            OptionalInt limitOption
+    ) {
+        try (Stream<Film> films = streamFilms(joinCategories, joinActors, whereCondition, limitOption, 0)) {
+            return films.collect(ImmutableList.toImmutableList());
+        }
+    }
+
+    private Stream<Film> streamFilms(
+            boolean joinCategories,
+            boolean joinActors,
+            Condition whereCondition,
+            OptionalInt limitOption,
+            int fetchSize
+    ) {
         Preconditions.checkArgument(!joinCategories || !joinActors);
 
-        // Creating an alias for the Language table, to be used for the original language join
-        Language originalLanguage = LANGUAGE.as("ORIGINAL_LANGUAGE");
+        Table<?> from = createFrom(joinCategories, joinActors);
 
-        // Note that in theory we do not have to trim the fixed length "LANGUAGE.NAME" column
-        // That's because we configured jOOQ to trim those columns
-        // That works inside "where" clauses, but I do not see such trimming in the "select" clause
+        return switch (nestedCollectionStrategy) {
+            case MULTISET_JSONB -> streamFilms(
+                    from,
+                    multiset(
+                            select(CATEGORY.CATEGORY_ID, CATEGORY.NAME)
+                                    .from(CATEGORY)
+                                    .join(FILM_CATEGORY)
+                                    .on(CATEGORY.CATEGORY_ID.eq(FILM_CATEGORY.CATEGORY_ID))
+                                    .where(FILM_CATEGORY.FILM_ID.eq(FILM.FILM_ID))
+                                    .orderBy(CATEGORY.CATEGORY_ID)
+                    ).convertFrom(r -> r.map(Records.mapping(CategoryRow::new))),
+                    multiset(
+                            select(ACTOR.ACTOR_ID, ACTOR.FIRST_NAME, ACTOR.LAST_NAME)
+                                    .from(ACTOR)
+                                    .join(FILM_ACTOR)
+                                    .on(ACTOR.ACTOR_ID.eq(FILM_ACTOR.ACTOR_ID))
+                                    .where(FILM_ACTOR.FILM_ID.eq(FILM.FILM_ID))
+                                    .orderBy(ACTOR.ACTOR_ID)
+                    ).convertFrom(r -> r.map(Records.mapping(ActorRow::new))),
+                    whereCondition,
+                    limitOption,
+                    fetchSize
+            );
+            case ARRAY_AGG -> {
+                // Lateral (i.e. correlated) aggregation, so only the link table rows of the selected films are
+                // aggregated, instead of grouping the entire link tables by film ID and joining the result
+                // Without "group by", each lateral subquery returns exactly one row, with null arrays if empty
+                Field<Integer[]> categoryIds =
+                        arrayAgg(CATEGORY.CATEGORY_ID).orderBy(CATEGORY.CATEGORY_ID).as("category_ids");
+                Field<String[]> categoryNames =
+                        arrayAgg(CATEGORY.NAME).orderBy(CATEGORY.CATEGORY_ID).as("category_names");
+                Table<?> filmCategories = lateral(
+                        select(categoryIds, categoryNames)
+                                .from(FILM_CATEGORY)
+                                .join(CATEGORY)
+                                .on(FILM_CATEGORY.CATEGORY_ID.eq(CATEGORY.CATEGORY_ID))
+                                .where(FILM_CATEGORY.FILM_ID.eq(FILM.FILM_ID))
+                                .asTable("FILM_CATEGORIES")
+                );
+
+                Field<Integer[]> actorIds =
+                        arrayAgg(ACTOR.ACTOR_ID).orderBy(ACTOR.ACTOR_ID).as("actor_ids");
+                Field<String[]> actorFirstNames =
+                        arrayAgg(ACTOR.FIRST_NAME).orderBy(ACTOR.ACTOR_ID).as("actor_first_names");
+                Field<String[]> actorLastNames =
+                        arrayAgg(ACTOR.LAST_NAME).orderBy(ACTOR.ACTOR_ID).as("actor_last_names");
+                Table<?> filmActors = lateral(
+                        select(actorIds, actorFirstNames, actorLastNames)
+                                .from(FILM_ACTOR)
+                                .join(ACTOR)
+                                .on(FILM_ACTOR.ACTOR_ID.eq(ACTOR.ACTOR_ID))
+                                .where(FILM_ACTOR.FILM_ID.eq(FILM.FILM_ID))
+                                .asTable("FILM_ACTORS")
+                );
 
-        return dsl
-                .selectDistinct(
-                        FILM.FILM_ID,
-                        FILM.TITLE,
-                        FILM.DESCRIPTION,
-                        FILM.RELEASE_YEAR,
-                        rtrim(LANGUAGE.NAME),
-                        rtrim(originalLanguage.NAME),
-                        multiset(
-                                select(
-                                        CATEGORY.CATEGORY_ID,
-                                        CATEGORY.NAME
-                                ).from(CATEGORY)
-                                        .join(FILM_CATEGORY)
-                                        .on(CATEGORY.CATEGORY_ID.eq(FILM_CATEGORY.CATEGORY_ID))
-                                        .where(FILM_CATEGORY.FILM_ID.eq(FILM.FILM_ID))
-                        ).convertFrom(r -> r.map(Records.mapping(CategoryRow::new))),
-                        multiset(
-                                select(
-                                        ACTOR.ACTOR_ID,
-                                        ACTOR.FIRST_NAME,
-                                        ACTOR.LAST_NAME
-                                )
-                                        .from(ACTOR)
-                                        .join(FILM_ACTOR)
-                                        .on(ACTOR.ACTOR_ID.eq(FILM_ACTOR.ACTOR_ID))
-                                        .where(FILM_ACTOR.FILM_ID.eq(FILM.FILM_ID))
-                        ).convertFrom(r -> r.map(Records.mapping(ActorRow::new))),
-                        FILM.RENTAL_DURATION,
-                        FILM.RENTAL_RATE,
-                        FILM.LENGTH,
-                        FILM.REPLACEMENT_COST,
-                        FILM.RATING,
-                        FILM.SPECIAL_FEATURES
-                )
-                .from(createFrom(joinCategories, joinActors))
+                yield streamFilms(
+                        from.crossJoin(filmCategories).crossJoin(filmActors),
+                        row(
+                                Objects.requireNonNull(filmCategories.field(categoryIds)),
+                                Objects.requireNonNull(filmCategories.field(categoryNames))
+                        ).mapping(JooqFilmService::toCategoryRows),
+                        row(
+                                Objects.requireNonNull(filmActors.field(actorIds)),
+                                Objects.requireNonNull(filmActors.field(actorFirstNames)),
+                                Objects.requireNonNull(filmActors.field(actorLastNames))
+                        ).mapping(JooqFilmService::toActorRows),
+                        whereCondition,
+                        limitOption,
+                        fetchSize
+                );
+            }
+            case BATCHED -> {
+                Stream<FilmRow> filmRows = streamFilmRows(from, whereCondition, limitOption, fetchSize);
+                Canonicalizer canonicalizer = new Canonicalizer();
+
+                // Lazily stitching the nested collections to the film rows, one batch of film rows at a time
+                yield Streams.stream(Iterators.partition(filmRows.iterator(), NESTED_COLLECTION_BATCH_SIZE))
+                        .flatMap(batch -> stitchNestedCollections(batch, canonicalizer).stream())
+                        .onClose(filmRows::close);
+            }
+        };
+    }
+
+    private Stream<Film> streamFilms(
+            Table<?> from,
+            SelectField<List<CategoryRow>> categories,
+            SelectField<List<ActorRow>> actors,
+            Condition whereCondition,
+            OptionalInt limitOption,
+            int fetchSize
+    ) {
+        var query = dsl
+                .selectDistinct(filmRowField(), categories, actors)
+                .from(from)
                 .leftJoin(LANGUAGE)
                 .on(FILM.LANGUAGE_ID.eq(LANGUAGE.LANGUAGE_ID))
-                .leftJoin(originalLanguage)
-                .on(FILM.ORIGINAL_LANGUAGE_ID.eq(originalLanguage.LANGUAGE_ID))
+                .leftJoin(ORIGINAL_LANGUAGE)
+                .on(FILM.ORIGINAL_LANGUAGE_ID.eq(ORIGINAL_LANGUAGE.LANGUAGE_ID))
                 .where(whereCondition)
-                .orderBy(FILM.FILM_ID)
+                .orderBy(FILM.FILM_ID);
+
+        // All films share the same actor and category instances, instead of equal copies
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        // A fetch size of 0 means that the JDBC driver default is used
+        // The returned Stream is backed by an open JDBC ResultSet, so it must be closed after use
+        return (limitOption.isPresent() ? query.limit(limitOption.getAsInt()) : query)
+                .fetchSize(fetchSize)
                 .fetchStream()
-                .map(Records.mapping(FilmRow::new))
-                .filter(Objects::nonNull)
-                .map(FilmRow::toModel)
+                .map(r -> r.value1().toModel(r.value2(), r.value3(), canonicalizer));
+    }
+
+    private Stream<FilmRow> streamFilmRows(
+            Table<?> from,
+            Condition whereCondition,
+            OptionalInt limitOption,
+            int fetchSize
+    ) {
+        var query = dsl
+                .selectDistinct(filmRowField())
+                .from(from)
+                .leftJoin(LANGUAGE)
+                .on(FILM.LANGUAGE_ID.eq(LANGUAGE.LANGUAGE_ID))
+                .leftJoin(ORIGINAL_LANGUAGE)
+                .on(FILM.ORIGINAL_LANGUAGE_ID.eq(ORIGINAL_LANGUAGE.LANGUAGE_ID))
+                .where(whereCondition)
+                .orderBy(FILM.FILM_ID);
+
+        return (limitOption.isPresent() ? query.limit(limitOption.getAsInt()) : query)
+                .fetchSize(fetchSize)
+                .fetchStream()
+                .map(Record1::value1);
+    }
+
+    private ImmutableList<Film> stitchNestedCollections(List<FilmRow> filmRows, Canonicalizer canonicalizer) {
+        Integer[] filmIds = filmRows.stream().map(FilmRow::id).filter(Objects::nonNull).toArray(Integer[]::new);
+
+        // Note that the open film ResultSet (if any) does not stand in the way of running these queries
+        // on the same connection, because PostgreSQL supports multiple open portals within a transaction
+
+        ImmutableListMultimap<Integer, CategoryRow> categoriesByFilmId = dsl
+                .select(FILM_CATEGORY.FILM_ID, CATEGORY.CATEGORY_ID, CATEGORY.NAME)
+                .from(FILM_CATEGORY)
+                .join(CATEGORY)
+                .on(FILM_CATEGORY.CATEGORY_ID.eq(CATEGORY.CATEGORY_ID))
+                .where(FILM_CATEGORY.FILM_ID.eq(any(filmIds)))
+                .orderBy(FILM_CATEGORY.FILM_ID, CATEGORY.CATEGORY_ID)
+                .fetch()
+                .stream()
+                .collect(ImmutableListMultimap.toImmutableListMultimap(
+                        Record3::value1,
+                        r -> new CategoryRow(r.value2(), r.value3())
+                ));
+
+        ImmutableListMultimap<Integer, ActorRow> actorsByFilmId = dsl
+                .select(FILM_ACTOR.FILM_ID, ACTOR.ACTOR_ID, ACTOR.FIRST_NAME, ACTOR.LAST_NAME)
+                .from(FILM_ACTOR)
+                .join(ACTOR)
+                .on(FILM_ACTOR.ACTOR_ID.eq(ACTOR.ACTOR_ID))
+                .where(FILM_ACTOR.FILM_ID.eq(any(filmIds)))
+                .orderBy(FILM_ACTOR.FILM_ID, ACTOR.ACTOR_ID)
+                .fetch()
+                .stream()
+                .collect(ImmutableListMultimap.toImmutableListMultimap(
+                        Record4::value1,
+                        r -> new ActorRow(r.value2(), r.value3(), r.value4())
+                ));
+
+        return filmRows.stream()
+                .map(filmRow -> filmRow.toModel(
+                        (filmRow.id() == null) ? List.of() : categoriesByFilmId.get(filmRow.id()),
+                        (filmRow.id() == null) ? List.of() : actorsByFilmId.get(filmRow.id()),
+                        canonicalizer
+                ))
                 .collect(ImmutableList.toImmutableList());
     }
 
+    private static SelectField<FilmRow> filmRowField() {
+        // Note that in theory we do not have to trim the fixed length "LANGUAGE.NAME" column
+        // That's because we configured jOOQ to trim those columns
+        // That works inside "where" clauses, but I do not see such trimming in the "select" clause
+
+        // Nested rows are flattened by jOOQ into top-level columns, so they do not cost anything at runtime
+        return row(
+                FILM.FILM_ID,
+                FILM.TITLE,
+                FILM.DESCRIPTION,
+                FILM.RELEASE_YEAR,
+                rtrim(LANGUAGE.NAME),
+                rtrim(ORIGINAL_LANGUAGE.NAME),
+                FILM.RENTAL_DURATION,
+                FILM.RENTAL_RATE,
+                FILM.LENGTH,
+                FILM.REPLACEMENT_COST,
+                FILM.RATING,
+                FILM.SPECIAL_FEATURES
+        ).mapping(FilmRow::new);
+    }
+
+    private static List<CategoryRow> toCategoryRows(Integer @Nullable [] ids, String @Nullable [] names) {
+        if (ids == null || names == null) {
+            return List.of();
+        }
+        Preconditions.checkArgument(ids.length == names.length);
+
+        return IntStream.range(0, ids.length)
+                .mapToObj(i -> new CategoryRow(ids[i], names[i]))
+                .toList();
+    }
+
+    private static List<ActorRow> toActorRows(
+            Integer @Nullable [] ids,
+            String @Nullable [] firstNames,
+            String @Nullable [] lastNames
+    ) {
+        if (ids == null || firstNames == null || lastNames == null) {
+            return List.of();
+        }
+        Preconditions.checkArgument(ids.length == firstNames.length && ids.length == lastNames.length);
+
+        return IntStream.range(0, ids.length)
+                .mapToObj(i -> new ActorRow(ids[i], firstNames[i], lastNames[i]))
+                .toList();
+    }
+
     private Table<?> createFrom(boolean joinCategories, boolean joinActors) {
         Preconditions.checkArgument(!joinCategories || !joinActors);
 
@@ -16,26 +16,33 @@
 
 package eu.cdevreeze.pagilaapp.service.jooqimpl;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
-import com.google.common.primitives.ImmutableIntArray;
+import eu.cdevreeze.pagilaapp.model.Canonicalizer;
+import eu.cdevreeze.pagilaapp.model.ImmutableByteArray;
 import eu.cdevreeze.pagilaapp.model.Staff;
 import eu.cdevreeze.pagilaapp.service.StaffService;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Records;
 import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static eu.cdevreeze.pagilaapp.jooq.Tables.STAFF;
 import static eu.cdevreeze.pagilaapp.jooq.Tables.STORE;
 import static eu.cdevreeze.pagilaapp.jooq.tables.Address.ADDRESS;
 import static eu.cdevreeze.pagilaapp.jooq.tables.City.CITY;
 import static eu.cdevreeze.pagilaapp.jooq.tables.Country.COUNTRY;
+import static org.jooq.impl.DSL.noCondition;
 import static org.jooq.impl.DSL.row;
 
 /**
@@ -56,48 +63,89 @@ public class JooqStaffService implements StaffService {
             ResultRows.StoreRow store,
             boolean isActive,
             String userName,
-            @Nullable String password,
-            byte @Nullable [] picture
+            @Nullable String password
     ) {
 
-        public Staff toModel() {
-            Optional<byte[]> pictureByteArrayOption = Optional.ofNullable(picture);
-            Optional<ImmutableIntArray> pictureOption = pictureByteArrayOption.map(pic ->
-                    ImmutableIntArray
-                            .builder()
-                            .addAll(IntStream.range(0, pic.length).map(idx -> pic[idx]))
-                            .build()
-            );
-
+        public Staff toModel(Canonicalizer canonicalizer) {
             return new Staff(
                     Optional.ofNullable(id).stream().mapToInt(i -> i).findFirst(),
                     firstName,
                     lastName,
-                    address.toModel(),
+                    address.toModel(canonicalizer),
                     Optional.ofNullable(email),
-                    store.toModel(),
+                    store.toModel(canonicalizer),
                     isActive,
                     userName,
-                    Optional.ofNullable(password),
-                    pictureOption
+                    Optional.ofNullable(password)
             );
         }
     }
 
     private final DSLContext dsl;
 
-    public JooqStaffService(DSLContext dsl) {
+    private final int streamingFetchSize;
+
+    public JooqStaffService(DSLContext dsl, @Value("${streamingFetchSize:500}") int streamingFetchSize) {
         this.dsl = dsl;
+        this.streamingFetchSize = streamingFetchSize;
     }
 
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Staff> findAllStaffMembers() {
+        return findStaffMembers(noCondition(), OptionalInt.empty());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Staff> findStaffMembersAfter(int afterStaffId, int limit) {
+        Preconditions.checkArgument(limit > 0);
+
+        // Keyset pagination ("seek method"), using the ordering of method findStaffMembers
+        return findStaffMembers(STAFF.STAFF_ID.gt(afterStaffId), OptionalInt.of(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachStaffMember(Consumer<? super Staff> action) {
+        // Lazily fetching the staff members through a cursor, streamingFetchSize rows at a time
+        // Note that PostgreSQL only honours the fetch size within a transaction (i.e. without auto-commit)
+        try (Stream<Staff> staffMembers = streamStaffMembers(noCondition(), OptionalInt.empty(), streamingFetchSize)) {
+            staffMembers.forEach(action);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ImmutableByteArray> findStaffPicture(int staffId) {
+        // Only the picture column is read; a missing staff member and a missing picture both yield an empty result
+        return dsl
+                .select(STAFF.PICTURE)
+                .from(STAFF)
+                .where(STAFF.STAFF_ID.eq(staffId))
+                .fetchOptional(STAFF.PICTURE)
+                .map(ImmutableByteArray::copyOf);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean hasStaffPicture(int staffId) {
+        // An EXISTS query, so the (potentially large) picture is not read
+        return dsl.fetchExists(STAFF, STAFF.STAFF_ID.eq(staffId).and(STAFF.PICTURE.isNotNull()));
+    }
+
+    private ImmutableList<Staff> findStaffMembers(Condition whereCondition, OptionalInt limitOption) {
+        try (Stream<Staff> staffMembers = streamStaffMembers(whereCondition, limitOption, 0)) {
+            return staffMembers.collect(ImmutableList.toImmutableList());
+        }
+    }
+
+    private Stream<Staff> streamStaffMembers(Condition whereCondition, OptionalInt limitOption, int fetchSize) {
         var storeAddress = ADDRESS.as("STORE_ADDRESS");
         var storeCity = CITY.as("STORE_CITY");
         var storeCountry = COUNTRY.as("STORE_COUNTRY");
 
-        return dsl
+        var query = dsl
                 .selectDistinct(
                         STAFF.STAFF_ID,
                         STAFF.FIRST_NAME,
@@ -134,8 +182,7 @@ public class JooqStaffService implements StaffService {
                         ).convertFrom(Records.mapping(ResultRows.StoreRow::new)),
                         STAFF.ACTIVE,
                         STAFF.USERNAME,
-                        STAFF.PASSWORD,
-                        STAFF.PICTURE
+                        STAFF.PASSWORD
                 )
                 .from(STAFF)
                 .leftJoin(STORE)
@@ -152,11 +199,18 @@ public class JooqStaffService implements StaffService {
                 .on(ADDRESS.CITY_ID.eq(CITY.CITY_ID))
                 .leftJoin(COUNTRY)
                 .on(CITY.COUNTRY_ID.eq(COUNTRY.COUNTRY_ID))
-                .orderBy(STAFF.STAFF_ID)
+                .where(whereCondition)
+                .orderBy(STAFF.STAFF_ID);
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        // A fetch size of 0 means that the JDBC driver default is used
+        // The returned Stream is backed by an open JDBC ResultSet, so it must be closed after use
+        return (limitOption.isPresent() ? query.limit(limitOption.getAsInt()) : query)
+                .fetchSize(fetchSize)
                 .fetchStream()
                 .map(Records.mapping(StaffRow::new))
                 .filter(Objects::nonNull)
-                .map(StaffRow::toModel)
-                .collect(ImmutableList.toImmutableList());
+                .map(row -> row.toModel(canonicalizer));
     }
 }
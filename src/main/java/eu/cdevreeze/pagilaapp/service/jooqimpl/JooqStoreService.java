@@ -16,21 +16,35 @@
 
 package eu.cdevreeze.pagilaapp.service.jooqimpl;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.pagilaapp.model.Canonicalizer;
+import eu.cdevreeze.pagilaapp.model.FilmAvailability;
 import eu.cdevreeze.pagilaapp.model.Store;
 import eu.cdevreeze.pagilaapp.service.StoreService;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Records;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import static eu.cdevreeze.pagilaapp.jooq.Tables.INVENTORY;
+import static eu.cdevreeze.pagilaapp.jooq.Tables.RENTAL;
 import static eu.cdevreeze.pagilaapp.jooq.Tables.STORE;
 import static eu.cdevreeze.pagilaapp.jooq.tables.Address.ADDRESS;
 import static eu.cdevreeze.pagilaapp.jooq.tables.City.CITY;
 import static eu.cdevreeze.pagilaapp.jooq.tables.Country.COUNTRY;
+import static org.jooq.impl.DSL.any;
+import static org.jooq.impl.DSL.countDistinct;
+import static org.jooq.impl.DSL.noCondition;
 import static org.jooq.impl.DSL.row;
 
 /**
@@ -44,14 +58,76 @@ public class JooqStoreService implements StoreService {
 
     private final DSLContext dsl;
 
-    public JooqStoreService(DSLContext dsl) {
+    private final int streamingFetchSize;
+
+    public JooqStoreService(DSLContext dsl, @Value("${streamingFetchSize:500}") int streamingFetchSize) {
         this.dsl = dsl;
+        this.streamingFetchSize = streamingFetchSize;
     }
 
     @Override
     @Transactional(readOnly = true)
     public ImmutableList<Store> findAllStores() {
+        return findStores(noCondition(), OptionalInt.empty());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<Store> findStoresAfter(int afterStoreId, int limit) {
+        Preconditions.checkArgument(limit > 0);
+
+        // Keyset pagination ("seek method"), using the ordering of method findStores
+        return findStores(STORE.STORE_ID.gt(afterStoreId), OptionalInt.of(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachStore(Consumer<? super Store> action) {
+        // Lazily fetching the stores through a cursor, streamingFetchSize rows at a time
+        // Note that PostgreSQL only honours the fetch size within a transaction (i.e. without auto-commit)
+        try (Stream<Store> stores = streamStores(noCondition(), OptionalInt.empty(), streamingFetchSize)) {
+            stores.forEach(action);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<FilmAvailability> findFilmAvailability(ImmutableSet<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        // One set-based query, instead of calling database function film_in_stock per film and store
+        // An inventory item is in stock if it has no open rental (i.e. no rental without return date)
+        // The joins can use indexes idx_store_id_film_id (on inventory) and idx_fk_inventory_id (on rental)
         return dsl
+                .select(
+                        INVENTORY.FILM_ID,
+                        INVENTORY.STORE_ID,
+                        countDistinct(INVENTORY.INVENTORY_ID),
+                        countDistinct(INVENTORY.INVENTORY_ID).filterWhere(RENTAL.RENTAL_ID.isNull())
+                )
+                .from(STORE)
+                .join(INVENTORY)
+                .on(INVENTORY.STORE_ID.eq(STORE.STORE_ID))
+                .leftJoin(RENTAL)
+                .on(RENTAL.INVENTORY_ID.eq(INVENTORY.INVENTORY_ID).and(RENTAL.RETURN_DATE.isNull()))
+                .where(INVENTORY.FILM_ID.eq(any(filmIds.toArray(Integer[]::new))))
+                .groupBy(INVENTORY.FILM_ID, INVENTORY.STORE_ID)
+                .orderBy(INVENTORY.FILM_ID, INVENTORY.STORE_ID)
+                .fetch(Records.mapping(FilmAvailability::new))
+                .stream()
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    private ImmutableList<Store> findStores(Condition whereCondition, OptionalInt limitOption) {
+        try (Stream<Store> stores = streamStores(whereCondition, limitOption, 0)) {
+            return stores.collect(ImmutableList.toImmutableList());
+        }
+    }
+
+    private Stream<Store> streamStores(Condition whereCondition, OptionalInt limitOption, int fetchSize) {
+        var query = dsl
                 .selectDistinct(
                         STORE.STORE_ID,
                         row(
@@ -75,11 +151,18 @@ public class JooqStoreService implements StoreService {
                 .on(ADDRESS.CITY_ID.eq(CITY.CITY_ID))
                 .leftJoin(COUNTRY)
                 .on(CITY.COUNTRY_ID.eq(COUNTRY.COUNTRY_ID))
-                .orderBy(STORE.STORE_ID)
+                .where(whereCondition)
+                .orderBy(STORE.STORE_ID);
+
+        Canonicalizer canonicalizer = new Canonicalizer();
+
+        // A fetch size of 0 means that the JDBC driver default is used
+        // The returned Stream is backed by an open JDBC ResultSet, so it must be closed after use
+        return (limitOption.isPresent() ? query.limit(limitOption.getAsInt()) : query)
+                .fetchSize(fetchSize)
                 .fetchStream()
                 .map(Records.mapping(ResultRows.StoreRow::new))
                 .filter(Objects::nonNull)
-                .map(ResultRows.StoreRow::toModel)
-                .collect(ImmutableList.toImmutableList());
+                .map(row -> row.toModel(canonicalizer));
     }
 }
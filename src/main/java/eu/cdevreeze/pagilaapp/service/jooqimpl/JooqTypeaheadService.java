@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.jooqimpl;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.TypeaheadEntry;
+import eu.cdevreeze.pagilaapp.service.TypeaheadService;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static eu.cdevreeze.pagilaapp.jooq.Tables.ACTOR;
+import static eu.cdevreeze.pagilaapp.jooq.Tables.FILM;
+import static org.jooq.impl.DSL.*;
+
+/**
+ * jOOQ TypeaheadService implementation.
+ * <p>
+ * Prefix queries use "LIKE" predicates on upper-cased columns, so they are too slow to run at typing speed.
+ * See the in-memory SnapshotTypeaheadService for the alternative.
+ *
+ * @author Chris de Vreeze
+ */
+@Service
+@ConditionalOnBooleanProperty(name = "useJooq")
+public class JooqTypeaheadService implements TypeaheadService {
+
+    private final DSLContext dsl;
+
+    public JooqTypeaheadService(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<TypeaheadEntry> findAllTypeaheadEntries() {
+        return findTypeaheadEntries(Optional.empty())
+                .sorted(Comparator.comparing(e -> TypeaheadEntry.fold(e.text())))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ImmutableList<TypeaheadEntry> findTypeaheadEntries(String prefix, int limit) {
+        Preconditions.checkArgument(limit > 0);
+
+        String foldedPrefix = TypeaheadEntry.fold(prefix);
+
+        // Ordering by the matched name, like the in-memory implementation does
+        return findTypeaheadEntries(Optional.of(prefix))
+                .sorted(Comparator.comparing(e -> e.matchingSearchKey(foldedPrefix).orElse("")))
+                .limit(limit)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    private Stream<TypeaheadEntry> findTypeaheadEntries(Optional<String> prefixOption) {
+        // Escaping LIKE wildcards is ignored here, since the prefix is only used for typeahead
+        Optional<String> patternOption = prefixOption.map(prefix -> prefix.toUpperCase(Locale.ROOT) + "%");
+
+        Condition filmCondition = patternOption
+                .map(pattern -> upper(FILM.TITLE).like(pattern))
+                .orElse(noCondition());
+        Condition actorCondition = patternOption
+                .map(pattern -> upper(concat(ACTOR.FIRST_NAME, inline(" "), ACTOR.LAST_NAME)).like(pattern)
+                        .or(upper(concat(ACTOR.LAST_NAME, inline(" "), ACTOR.FIRST_NAME)).like(pattern)))
+                .orElse(noCondition());
+
+        Stream<TypeaheadEntry> filmEntries = dsl
+                .select(FILM.FILM_ID, FILM.TITLE)
+                .from(FILM)
+                .where(filmCondition)
+                .fetch(r -> TypeaheadEntry.forFilm(r.value1(), r.value2()))
+                .stream();
+        Stream<TypeaheadEntry> actorEntries = dsl
+                .select(ACTOR.ACTOR_ID, ACTOR.FIRST_NAME, ACTOR.LAST_NAME)
+                .from(ACTOR)
+                .where(actorCondition)
+                .fetch(r -> TypeaheadEntry.forActor(r.value1(), r.value2(), r.value3()))
+                .stream();
+
+        return Stream.concat(filmEntries, actorEntries);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.jooqimpl;
+
+/**
+ * Strategy used by the jOOQ FilmService implementation to fetch the nested collections of films, i.e. their
+ * categories and actors. Configured by property "nestedCollectionStrategy".
+ *
+ * @author Chris de Vreeze
+ */
+public enum NestedCollectionStrategy {
+
+    /**
+     * Correlated MULTISET subqueries per film row, emulated by jOOQ using JSONB on PostgreSQL.
+     * The database server builds a JSONB document per film row and nested collection, and the client parses it.
+     */
+    MULTISET_JSONB,
+
+    /**
+     * Lateral joins of the film rows with the link tables, with the nested collection data of each film row
+     * aggregated into (parallel) arrays using "array_agg". The aggregation is correlated with the film row, so
+     * only the link table rows of the selected films (after filtering and limiting) are aggregated.
+     * No JSON documents are built or parsed.
+     */
+    ARRAY_AGG,
+
+    /**
+     * Separate queries for the category and actor links of each batch of (at most 1000) film rows, by film ID.
+     * The nested collections are stitched to the film rows in Java, by film ID.
+     */
+    BATCHED
+}
@@ -17,6 +17,7 @@
 package eu.cdevreeze.pagilaapp.service.jooqimpl;
 
 import eu.cdevreeze.pagilaapp.model.Address;
+import eu.cdevreeze.pagilaapp.model.Canonicalizer;
 import eu.cdevreeze.pagilaapp.model.City;
 import eu.cdevreeze.pagilaapp.model.Store;
 import org.jspecify.annotations.Nullable;
@@ -25,6 +26,9 @@ import java.util.Optional;
 
 /**
  * Shared result set row classes.
+ * <p>
+ * The conversions to model objects take a {@link Canonicalizer}, so that equal cities, addresses and stores
+ * occurring in many rows of one query result are represented by shared instances.
  *
  * @author Chris de Vreeze
  */
@@ -39,12 +43,12 @@ class ResultRows {
             String country
     ) {
 
-        public City toModel() {
-            return new City(
+        public City toModel(Canonicalizer canonicalizer) {
+            return canonicalizer.canonicalize(new City(
                     Optional.ofNullable(id).stream().mapToInt(i -> i).findFirst(),
                     city,
                     country
-            );
+            ));
         }
     }
 
@@ -58,16 +62,16 @@ class ResultRows {
             String phone
     ) {
 
-        public Address toModel() {
-            return new Address(
+        public Address toModel(Canonicalizer canonicalizer) {
+            return canonicalizer.canonicalize(new Address(
                     Optional.ofNullable(id).stream().mapToInt(i -> i).findFirst(),
                     address,
                     Optional.ofNullable(address2),
                     district,
-                    city.toModel(),
+                    city.toModel(canonicalizer),
                     Optional.ofNullable(postalCode),
                     phone
-            );
+            ));
         }
     }
 
@@ -76,11 +80,11 @@ class ResultRows {
             ResultRows.AddressRow address
     ) {
 
-        public Store toModel() {
-            return new Store(
+        public Store toModel(Canonicalizer canonicalizer) {
+            return canonicalizer.canonicalize(new Store(
                     Optional.ofNullable(id).stream().mapToInt(i -> i).findFirst(),
-                    address.toModel()
-            );
+                    address.toModel(canonicalizer)
+            ));
         }
     }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.snapshotimpl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
+import eu.cdevreeze.pagilaapp.model.Actor;
+import eu.cdevreeze.pagilaapp.model.Category;
+import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.model.FilmFilter;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Immutable in-memory bitmap index over a film catalog. For each indexed attribute value there is one
+ * bitmap holding the IDs of the films having that attribute value. A combined film filter then becomes
+ * a series of bitmap AND/OR operations, after which the films are looked up by ID.
+ * <p>
+ * The bit positions are the film IDs themselves. The bitmaps are compressed (Roaring) bitmaps, so their size
+ * depends on the number of films in them rather than on the highest film ID. That matters for the sparse
+ * bitmaps, such as those per actor, of which there are many: an uncompressed bitmap per actor would take
+ * (highest film ID / 8) bytes, which for a catalog of a million films adds up to gigabytes.
+ * <p>
+ * The bitmaps are never mutated after construction; filtering works on copies.
+ *
+ * @author Chris de Vreeze
+ */
+final class FilmBitmapIndex {
+
+    private final ImmutableSortedMap<Integer, Film> filmsById;
+    private final RoaringBitmap allFilms;
+
+    // Keys are normalized (stripped and upper-case, see method normalizeKey), to support case-insensitive filtering
+    private final ImmutableMap<String, RoaringBitmap> filmsByCategory;
+    private final ImmutableMap<String, RoaringBitmap> filmsByLanguage;
+    private final ImmutableMap<String, RoaringBitmap> filmsByRating;
+    private final ImmutableMap<String, RoaringBitmap> filmsByActorName;
+    private final ImmutableMap<String, RoaringBitmap> filmsBySpecialFeature;
+
+    // One "bucket" per distinct value, so range queries are exact
+    private final ImmutableSortedMap<Integer, RoaringBitmap> filmsByLength;
+    private final ImmutableSortedMap<BigDecimal, RoaringBitmap> filmsByRentalRate;
+
+    private FilmBitmapIndex(ImmutableSortedMap<Integer, Film> filmsById) {
+        this.filmsById = filmsById;
+        this.allFilms = bitmapOf(filmsById.keySet());
+
+        this.filmsByCategory = indexBy(filmsById, film -> film.categories().stream().map(Category::name));
+        this.filmsByLanguage = indexBy(filmsById, film -> Stream.of(film.language()));
+        this.filmsByRating = indexBy(filmsById, film -> film.ratingOption().stream());
+        this.filmsByActorName = indexBy(filmsById, film -> film.actors().stream().map(Actor::name));
+        this.filmsBySpecialFeature = indexBy(
+                filmsById,
+                film -> film.specialFeaturesOption().stream().flatMap(Set::stream)
+        );
+
+        this.filmsByLength = indexByValue(
+                filmsById,
+                film -> film.lengthOption().stream().boxed()
+        );
+        this.filmsByRentalRate = indexByValue(
+                filmsById,
+                film -> Stream.of(film.rentalRate())
+        );
+    }
+
+    /**
+     * Builds the bitmap index. The films are passed in a map keyed by film ID.
+     */
+    static FilmBitmapIndex build(ImmutableSortedMap<Integer, Film> filmsById) {
+        return new FilmBitmapIndex(filmsById);
+    }
+
+    /**
+     * Returns the films matching the filter, ordered by film ID.
+     */
+    ImmutableList<Film> filter(FilmFilter filter) {
+        RoaringBitmap result = allFilms.clone();
+
+        if (!filter.categories().isEmpty()) {
+            result.and(anyOf(filmsByCategory, filter.categories()));
+        }
+        if (!filter.languages().isEmpty()) {
+            result.and(anyOf(filmsByLanguage, filter.languages()));
+        }
+        if (!filter.ratings().isEmpty()) {
+            result.and(anyOf(filmsByRating, filter.ratings()));
+        }
+        if (!filter.actorNames().isEmpty()) {
+            result.and(anyOf(filmsByActorName, filter.actorNames()));
+        }
+        for (String specialFeature : filter.specialFeatures()) {
+            result.and(filmsBySpecialFeature.getOrDefault(normalizeKey(specialFeature), new RoaringBitmap()));
+        }
+        if (!filter.lengthRange().equals(Range.all())) {
+            result.and(anyInRange(filmsByLength, filter.lengthRange()));
+        }
+        if (!filter.rentalRateRange().equals(Range.all())) {
+            result.and(anyInRange(filmsByRentalRate, filter.rentalRateRange()));
+        }
+
+        return result.stream()
+                .mapToObj(filmsById::get)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    private static RoaringBitmap anyOf(ImmutableMap<String, RoaringBitmap> index, ImmutableSet<String> keys) {
+        return union(keys.stream()
+                .map(key -> index.get(normalizeKey(key)))
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
+    private static <K extends Comparable<? super K>> RoaringBitmap anyInRange(
+            ImmutableSortedMap<K, RoaringBitmap> index,
+            Range<K> range
+    ) {
+        return union(Maps.subMap(index, range).values());
+    }
+
+    private static RoaringBitmap union(Collection<RoaringBitmap> bitmaps) {
+        // Returns a new bitmap, leaving the bitmaps of the index untouched
+        return FastAggregation.or(bitmaps.iterator());
+    }
+
+    private static RoaringBitmap bitmapOf(Set<Integer> filmIds) {
+        RoaringBitmap result = new RoaringBitmap();
+        filmIds.forEach(result::add);
+        result.runOptimize();
+        return result;
+    }
+
+    private static ImmutableMap<String, RoaringBitmap> indexBy(
+            ImmutableSortedMap<Integer, Film> filmsById,
+            Function<Film, Stream<String>> getKeys
+    ) {
+        Map<String, RoaringBitmap> result = new HashMap<>();
+        filmsById.forEach((filmId, film) ->
+                getKeys.apply(film).forEach(key ->
+                        result.computeIfAbsent(normalizeKey(key), k -> new RoaringBitmap()).add(filmId)));
+        result.values().forEach(RoaringBitmap::runOptimize);
+        return ImmutableMap.copyOf(result);
+    }
+
+    /**
+     * Normalizes both indexed values and filter values, so that they are compared the same way. For example,
+     * language names are blank-padded in the database (column type "character(20)").
+     */
+    private static String normalizeKey(String key) {
+        return key.strip().toUpperCase(Locale.ROOT);
+    }
+
+    private static <K extends Comparable<? super K>> ImmutableSortedMap<K, RoaringBitmap> indexByValue(
+            ImmutableSortedMap<Integer, Film> filmsById,
+            Function<Film, Stream<K>> getKeys
+    ) {
+        NavigableMap<K, RoaringBitmap> result = new TreeMap<>();
+        filmsById.forEach((filmId, film) ->
+                getKeys.apply(film).forEach(key ->
+                        result.computeIfAbsent(key, k -> new RoaringBitmap()).add(filmId)));
+        result.values().forEach(RoaringBitmap::runOptimize);
+        return ImmutableSortedMap.copyOfSorted(result);
+    }
+}
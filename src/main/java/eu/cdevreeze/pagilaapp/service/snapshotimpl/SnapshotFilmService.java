@@ -0,0 +1,247 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.snapshotimpl;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import eu.cdevreeze.pagilaapp.model.ActorName;
+import eu.cdevreeze.pagilaapp.model.DataVersion;
+import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.model.FilmFilter;
+import eu.cdevreeze.pagilaapp.model.FilmSummary;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.FilmFilterService;
+import eu.cdevreeze.pagilaapp.service.FilmService;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * FilmService implementation serving the film catalog from an immutable in-memory snapshot. The snapshot
+ * is loaded through another FilmService (the delegate), and it is only reloaded if the film catalog
+ * data version changes.
+ * <p>
+ * The data version is polled in a background thread, and a new snapshot is swapped in atomically.
+ * Hence, readers never block, and never see a partially loaded snapshot. They may see a slightly
+ * outdated snapshot, though, which is the price paid for serving queries from memory.
+ * <p>
+ * Filter queries are answered using a {@link FilmBitmapIndex} that is part of the snapshot.
+ * <p>
+ * Full-text search and the retrieval of all film categories (including those without any films) are
+ * delegated to the delegate FilmService.
+ *
+ * @author Chris de Vreeze
+ */
+public final class SnapshotFilmService implements FilmService, FilmFilterService, AutoCloseable {
+
+    private record Snapshot(
+            DataVersion dataVersion,
+            ImmutableSortedMap<Integer, Film> filmsById,
+            FilmBitmapIndex filmIndex
+    ) {
+
+        public ImmutableList<Film> films() {
+            return filmsById.values().asList();
+        }
+
+        public static Snapshot from(DataVersion dataVersion, ImmutableList<Film> films) {
+            ImmutableSortedMap<Integer, Film> filmsById =
+                    films.stream().collect(ImmutableSortedMap.toImmutableSortedMap(
+                            Comparator.naturalOrder(),
+                            v -> v.idOption().orElseThrow(),
+                            Function.identity()
+                    ));
+            return new Snapshot(dataVersion, filmsById, FilmBitmapIndex.build(filmsById));
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotFilmService.class);
+
+    private final FilmService delegate;
+    private final DataVersionService dataVersionService;
+    private final Duration pollInterval;
+
+    private final AtomicReference<@Nullable Snapshot> snapshot = new AtomicReference<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("film-catalog-snapshot").daemon().factory()
+    );
+
+    public SnapshotFilmService(FilmService delegate, DataVersionService dataVersionService, Duration pollInterval) {
+        Preconditions.checkArgument(pollInterval.isPositive());
+
+        this.delegate = delegate;
+        this.dataVersionService = dataVersionService;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Loads the initial snapshot, and then starts polling for changes in the background.
+     */
+    public void start() {
+        refreshIfChanged();
+
+        scheduler.scheduleWithFixedDelay(
+                this::tryRefreshIfChanged,
+                pollInterval.toMillis(),
+                pollInterval.toMillis(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public ImmutableList<Film> findAllFilms() {
+        return currentSnapshot().films();
+    }
+
+    @Override
+    public ImmutableList<Film> findFilmsAfter(int afterFilmId, int limit) {
+        Preconditions.checkArgument(limit > 0);
+
+        return currentSnapshot().filmsById()
+                .tailMap(afterFilmId, false)
+                .values()
+                .stream()
+                .limit(limit)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    public ImmutableList<FilmSummary> findFilmSummariesAfter(int afterFilmId, int limit) {
+        return findFilmsAfter(afterFilmId, limit)
+                .stream()
+                .map(FilmSummary::fromFilm)
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    public ImmutableList<Film> findFilmsByLanguage(String language) {
+        return filterFilms(FilmFilter.matchingAll().withLanguages(ImmutableSet.of(language)));
+    }
+
+    @Override
+    public ImmutableList<Film> findFilmsByCategory(String category) {
+        return findFilmsByCategories(ImmutableSet.of(category));
+    }
+
+    @Override
+    public ImmutableList<Film> findFilmsByCategories(ImmutableSet<String> categories) {
+        return filterFilms(FilmFilter.matchingAll().withCategories(categories));
+    }
+
+    @Override
+    public ImmutableList<Film> findFilmsByActor(String firstName, String lastName) {
+        // The index uses Actor.name() as actor name
+        String actorName = String.format("%s %s", firstName, lastName);
+        return filterFilms(FilmFilter.matchingAll().withActorNames(ImmutableSet.of(actorName)));
+    }
+
+    @Override
+    public ImmutableListMultimap<ActorName, Film> findFilmsByActors(ImmutableSet<ActorName> actorNames) {
+        // Using one and the same snapshot for all actors
+        FilmBitmapIndex filmIndex = currentSnapshot().filmIndex();
+
+        ImmutableListMultimap.Builder<ActorName, Film> result = ImmutableListMultimap.builder();
+        for (ActorName actorName : actorNames) {
+            // The index uses Actor.name() as actor name
+            result.putAll(
+                    actorName,
+                    filmIndex.filter(FilmFilter.matchingAll().withActorNames(ImmutableSet.of(actorName.name())))
+            );
+        }
+        return result.build();
+    }
+
+    @Override
+    public ImmutableMap<Integer, Film> findFilmsByIds(ImmutableSet<Integer> filmIds) {
+        ImmutableSortedMap<Integer, Film> filmsById = currentSnapshot().filmsById();
+        return filmIds.stream()
+                .filter(filmsById::containsKey)
+                .sorted()
+                .collect(ImmutableMap.toImmutableMap(Function.identity(), filmsById::get));
+    }
+
+    @Override
+    public ImmutableSet<String> findAllFilmCategories() {
+        return delegate.findAllFilmCategories();
+    }
+
+    @Override
+    public ImmutableList<Film> searchFilms(
+            String searchText,
+            Optional<String> categoryOption,
+            Optional<String> languageOption,
+            int limit
+    ) {
+        // Ranked full-text search is best left to the database
+        return delegate.searchFilms(searchText, categoryOption, languageOption, limit);
+    }
+
+    @Override
+    public void forEachFilm(Consumer<? super Film> action) {
+        currentSnapshot().films().forEach(action);
+    }
+
+    @Override
+    public ImmutableList<Film> filterFilms(FilmFilter filter) {
+        return currentSnapshot().filmIndex().filter(filter);
+    }
+
+    private Snapshot currentSnapshot() {
+        return Objects.requireNonNull(snapshot.get(), "Film catalog snapshot not loaded (yet)");
+    }
+
+    private void refreshIfChanged() {
+        // The data version is queried before the films themselves. If the catalog changes in between, the
+        // snapshot is newer than its data version, and it will be reloaded once more during the next poll.
+        DataVersion dataVersion = dataVersionService.findFilmCatalogVersion();
+        Snapshot currentSnapshot = snapshot.get();
+
+        if (currentSnapshot == null || !currentSnapshot.dataVersion().equals(dataVersion)) {
+            snapshot.set(Snapshot.from(dataVersion, delegate.findAllFilms()));
+        }
+    }
+
+    private void tryRefreshIfChanged() {
+        // An exception escaping from this method would cancel all subsequent polls
+        try {
+            refreshIfChanged();
+        } catch (RuntimeException e) {
+            logger.warn("Could not refresh film catalog snapshot (keeping the current one)", e);
+        }
+    }
+}
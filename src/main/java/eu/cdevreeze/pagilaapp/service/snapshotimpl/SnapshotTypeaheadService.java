@@ -0,0 +1,134 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.snapshotimpl;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.DataVersion;
+import eu.cdevreeze.pagilaapp.model.TypeaheadEntry;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.TypeaheadService;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * TypeaheadService implementation serving typeahead queries from an immutable in-memory {@link TypeaheadIndex}.
+ * The index is built from the entries returned by another TypeaheadService (the delegate), and it is only
+ * rebuilt if the film catalog data version changes.
+ * <p>
+ * Like for the SnapshotFilmService, the data version is polled in a background thread, and a new index is
+ * swapped in atomically. Prefix queries therefore never touch the database, and never block.
+ *
+ * @author Chris de Vreeze
+ */
+public final class SnapshotTypeaheadService implements TypeaheadService, AutoCloseable {
+
+    private record Snapshot(
+            DataVersion dataVersion,
+            ImmutableList<TypeaheadEntry> entries,
+            TypeaheadIndex index
+    ) {
+
+        public static Snapshot from(DataVersion dataVersion, ImmutableList<TypeaheadEntry> entries) {
+            return new Snapshot(dataVersion, entries, TypeaheadIndex.build(entries));
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotTypeaheadService.class);
+
+    private final TypeaheadService delegate;
+    private final DataVersionService dataVersionService;
+    private final Duration pollInterval;
+
+    private final AtomicReference<@Nullable Snapshot> snapshot = new AtomicReference<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("typeahead-snapshot").daemon().factory()
+    );
+
+    public SnapshotTypeaheadService(
+            TypeaheadService delegate,
+            DataVersionService dataVersionService,
+            Duration pollInterval
+    ) {
+        Preconditions.checkArgument(pollInterval.isPositive());
+
+        this.delegate = delegate;
+        this.dataVersionService = dataVersionService;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Builds the initial index, and then starts polling for changes in the background.
+     */
+    public void start() {
+        refreshIfChanged();
+
+        scheduler.scheduleWithFixedDelay(
+                this::tryRefreshIfChanged,
+                pollInterval.toMillis(),
+                pollInterval.toMillis(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public ImmutableList<TypeaheadEntry> findAllTypeaheadEntries() {
+        return currentSnapshot().entries();
+    }
+
+    @Override
+    public ImmutableList<TypeaheadEntry> findTypeaheadEntries(String prefix, int limit) {
+        return currentSnapshot().index().findByPrefix(prefix, limit);
+    }
+
+    private Snapshot currentSnapshot() {
+        return Objects.requireNonNull(snapshot.get(), "Typeahead index not built (yet)");
+    }
+
+    private void refreshIfChanged() {
+        // The data version is queried before the entries themselves (see SnapshotFilmService)
+        DataVersion dataVersion = dataVersionService.findFilmCatalogVersion();
+        Snapshot currentSnapshot = snapshot.get();
+
+        if (currentSnapshot == null || !currentSnapshot.dataVersion().equals(dataVersion)) {
+            snapshot.set(Snapshot.from(dataVersion, delegate.findAllTypeaheadEntries()));
+        }
+    }
+
+    private void tryRefreshIfChanged() {
+        // An exception escaping from this method would cancel all subsequent polls
+        try {
+            refreshIfChanged();
+        } catch (RuntimeException e) {
+            logger.warn("Could not refresh typeahead index (keeping the current one)", e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.snapshotimpl;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.TypeaheadEntry;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.SequencedSet;
+
+/**
+ * Immutable in-memory prefix index of typeahead entries. It is a sorted array of case-folded search keys,
+ * with a parallel array of the corresponding entries. A prefix query is a binary search for the first key
+ * not less than the prefix, followed by a scan of at most (about) {@code limit} keys.
+ * <p>
+ * Compared to a trie, sorted arrays are compact and cache-friendly, and the number of keys is small anyway.
+ *
+ * @author Chris de Vreeze
+ */
+final class TypeaheadIndex {
+
+    private final String[] keys;
+    private final TypeaheadEntry[] entries;
+
+    private TypeaheadIndex(String[] keys, TypeaheadEntry[] entries) {
+        Preconditions.checkArgument(keys.length == entries.length);
+
+        this.keys = keys;
+        this.entries = entries;
+    }
+
+    public static TypeaheadIndex build(ImmutableList<TypeaheadEntry> typeaheadEntries) {
+        ImmutableList<Map.Entry<String, TypeaheadEntry>> sortedKeys = typeaheadEntries.stream()
+                .flatMap(entry -> entry.searchKeys().stream().map(key -> Map.entry(TypeaheadEntry.fold(key), entry)))
+                .sorted(Map.Entry.<String, TypeaheadEntry>comparingByKey()
+                        .thenComparing(e -> e.getValue().kind())
+                        .thenComparing(e -> e.getValue().id()))
+                .collect(ImmutableList.toImmutableList());
+
+        return new TypeaheadIndex(
+                sortedKeys.stream().map(Map.Entry::getKey).toArray(String[]::new),
+                sortedKeys.stream().map(Map.Entry::getValue).toArray(TypeaheadEntry[]::new)
+        );
+    }
+
+    /**
+     * Returns at most {@code limit} entries having a search key starting with the given prefix (ignoring case),
+     * ordered by that (case-folded) search key.
+     */
+    public ImmutableList<TypeaheadEntry> findByPrefix(String prefix, int limit) {
+        Preconditions.checkArgument(limit > 0);
+
+        String foldedPrefix = TypeaheadEntry.fold(prefix);
+
+        // An entry may have more than one matching search key, so duplicates are removed
+        SequencedSet<TypeaheadEntry> result = new LinkedHashSet<>();
+
+        for (int i = lowerBound(foldedPrefix); i < keys.length && result.size() < limit; i++) {
+            if (!keys[i].startsWith(foldedPrefix)) {
+                break;
+            }
+            result.add(entries[i]);
+        }
+        return ImmutableList.copyOf(result);
+    }
+
+    private int lowerBound(String key) {
+        // Returns the index of the first key not less than the given key (or keys.length if there is none)
+        int low = 0;
+        int high = keys.length;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
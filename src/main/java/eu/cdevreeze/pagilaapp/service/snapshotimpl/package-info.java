@@ -0,0 +1,28 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Service layer implementation serving reads from immutable in-memory snapshots, kept up-to-date
+ * by another (database-backed) service implementation.
+ * <p>
+ * The classes in this package are not Spring components themselves. They are wired as decorators
+ * of the database-backed services, if so configured.
+ *
+ * @author Chris de Vreeze
+ */
+@NullMarked
+package eu.cdevreeze.pagilaapp.service.snapshotimpl;
+
+import org.jspecify.annotations.NullMarked;
@@ -16,10 +16,17 @@
 
 package eu.cdevreeze.pagilaapp.web.controller;
 
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.Address;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
 import eu.cdevreeze.pagilaapp.service.AddressService;
+import eu.cdevreeze.pagilaapp.service.TableGroup;
+import org.jspecify.annotations.Nullable;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
 
 /**
  * Web MVC controller for addresses.
@@ -31,15 +38,29 @@ public class AddressController {
 
     private final AddressService addressService;
 
-    public AddressController(AddressService addressService) {
+    private final DataVersionService dataVersionService;
+
+    public AddressController(AddressService addressService, DataVersionService dataVersionService) {
         this.addressService = addressService;
+        this.dataVersionService = dataVersionService;
     }
 
     @GetMapping(value = "/addresses")
-    public String findAllAddresses(
-            Model model
+    public @Nullable String findAddresses(
+            @RequestParam(name = "after", defaultValue = "0") int after,
+            @RequestParam(name = "size", defaultValue = KeysetPaging.DEFAULT_PAGE_SIZE) int size,
+            Model model,
+            ServletWebRequest webRequest
     ) {
-        model.addAttribute("addresses", addressService.findAllAddresses());
+        if (ConditionalRequests.checkNotModified(webRequest, dataVersionService, TableGroup.ADDRESSES)) {
+            return null;
+        }
+
+        int pageSize = KeysetPaging.pageSize(size);
+        ImmutableList<Address> addresses = addressService.findAddressesAfter(after, pageSize);
+
+        model.addAttribute("addresses", addresses);
+        KeysetPaging.addPageAttributes(model, addresses, v -> v.idOption().orElseThrow(), pageSize);
         model.addAttribute("title", "Addresses");
 
         return "addresses";
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.web.controller;
+
+import com.google.common.base.Preconditions;
+import eu.cdevreeze.pagilaapp.service.CacheStatisticsService;
+import org.springframework.stereotype.Controller;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+
+/**
+ * Web MVC controller for cache statistics.
+ *
+ * @author Chris de Vreeze
+ */
+@Controller
+public class CacheStatisticsController {
+
+    private final CacheStatisticsService cacheStatisticsService;
+
+    public CacheStatisticsController(CacheStatisticsService cacheStatisticsService) {
+        this.cacheStatisticsService = cacheStatisticsService;
+    }
+
+    @GetMapping(value = "/cache-statistics")
+    public String findCacheStatistics(Model model) {
+        Preconditions.checkArgument(!TransactionSynchronizationManager.isActualTransactionActive());
+
+        model.addAttribute("regions", cacheStatisticsService.findSecondLevelCacheStatistics());
+        model.addAttribute("serviceCaches", cacheStatisticsService.findServiceResultCacheStatistics());
+        model.addAttribute("title", "Second-level cache statistics");
+        model.addAttribute("serviceCachesTitle", "Service result cache statistics");
+
+        return "cacheStatistics";
+    }
+}
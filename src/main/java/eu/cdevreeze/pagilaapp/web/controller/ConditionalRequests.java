@@ -0,0 +1,109 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.web.controller;
+
+import eu.cdevreeze.pagilaapp.model.DataVersion;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.TableGroup;
+import eu.cdevreeze.pagilaapp.web.filter.PageCacheFilter;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Conditional GET support for the Web MVC controllers, using the data version of the tables feeding a page
+ * as ETag and Last-Modified validators.
+ * <p>
+ * Typical usage at the start of a controller method, before calling the (much more expensive) service
+ * methods that query the data itself:
+ * <pre>
+ * if (ConditionalRequests.checkNotModified(webRequest, dataVersionService, tableGroup)) {
+ *     return null;
+ * }
+ * </pre>
+ *
+ * @author Chris de Vreeze
+ */
+final class ConditionalRequests {
+
+    // Part of each ETag, so that pages cached by clients are not considered current after a redeployment
+    private static final long APPLICATION_START_MILLIS = Instant.now().toEpochMilli();
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Like {@link #checkNotModified(ServletWebRequest, DataVersion)}, for the data version of the given table group.
+     * If the {@link PageCacheFilter} already found that data version for this request, it is reused instead of
+     * being queried again.
+     */
+    static boolean checkNotModified(
+            ServletWebRequest webRequest,
+            DataVersionService dataVersionService,
+            TableGroup tableGroup
+    ) {
+        Object dataVersion = webRequest.getAttribute(
+                PageCacheFilter.dataVersionAttributeName(tableGroup),
+                RequestAttributes.SCOPE_REQUEST
+        );
+
+        return checkNotModified(
+                webRequest,
+                (dataVersion instanceof DataVersion foundDataVersion)
+                        ? foundDataVersion
+                        : dataVersionService.findDataVersion(tableGroup)
+        );
+    }
+
+    /**
+     * Checks the validators derived from the given data version against the "If-None-Match" and
+     * "If-Modified-Since" request headers. Returns true if the client's copy of the page is still current,
+     * in which case the response status has been set to 304 (Not Modified), and the controller method
+     * should return null without rendering anything.
+     * <p>
+     * In both cases the validators are set on the response, and clients are asked to always revalidate.
+     */
+    static boolean checkNotModified(ServletWebRequest webRequest, DataVersion dataVersion) {
+        return checkNotModified(webRequest, dataVersion, CacheControl.noCache());
+    }
+
+    /**
+     * Like {@link #checkNotModified(ServletWebRequest, DataVersion)}, but with the given Cache-Control directives
+     * instead of always asking clients to revalidate. This is meant for resources that may be somewhat stale,
+     * such as pictures.
+     */
+    static boolean checkNotModified(ServletWebRequest webRequest, DataVersion dataVersion, CacheControl cacheControl) {
+        Objects.requireNonNull(webRequest.getResponse())
+                .setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+
+        long lastUpdateMillis = dataVersion.lastUpdateOption().map(Instant::toEpochMilli).orElse(0L);
+        String etag = String.format(
+                "\"%x-%x-%x\"",
+                APPLICATION_START_MILLIS,
+                lastUpdateMillis,
+                dataVersion.rowCount()
+        );
+
+        return dataVersion.lastUpdateOption().isPresent()
+                ? webRequest.checkNotModified(etag, lastUpdateMillis)
+                : webRequest.checkNotModified(etag);
+    }
+}
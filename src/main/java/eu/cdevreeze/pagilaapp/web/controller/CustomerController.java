@@ -16,10 +16,23 @@
 
 package eu.cdevreeze.pagilaapp.web.controller;
 
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.Customer;
+import eu.cdevreeze.pagilaapp.model.CustomerSummary;
 import eu.cdevreeze.pagilaapp.service.CustomerService;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.NameMatch;
+import eu.cdevreeze.pagilaapp.service.TableGroup;
+import org.jspecify.annotations.Nullable;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Optional;
+import java.util.OptionalInt;
 
 /**
  * Web MVC controller for customers.
@@ -31,17 +44,83 @@ public class CustomerController {
 
     private final CustomerService customerService;
 
-    public CustomerController(CustomerService customerService) {
+    private final DataVersionService dataVersionService;
+
+    public CustomerController(CustomerService customerService, DataVersionService dataVersionService) {
         this.customerService = customerService;
+        this.dataVersionService = dataVersionService;
     }
 
     @GetMapping(value = "/customers")
-    public String findAllCustomers(
-            Model model
+    public @Nullable String findCustomers(
+            @RequestParam(name = "after", defaultValue = "0") int after,
+            @RequestParam(name = "size", defaultValue = KeysetPaging.DEFAULT_PAGE_SIZE) int size,
+            Model model,
+            ServletWebRequest webRequest
     ) {
-        model.addAttribute("customers", customerService.findAllCustomers());
+        if (ConditionalRequests.checkNotModified(webRequest, dataVersionService, TableGroup.CUSTOMERS)) {
+            return null;
+        }
+
+        // The list page only needs customer summaries, which are much cheaper to query than full customers
+        int pageSize = KeysetPaging.pageSize(size);
+        ImmutableList<CustomerSummary> customers = customerService.findCustomerSummariesAfter(after, pageSize);
+
+        model.addAttribute("customers", customers);
+        KeysetPaging.addPageAttributes(model, customers, v -> v.idOption().orElseThrow(), pageSize);
         model.addAttribute("title", "Customers");
 
         return "customers";
     }
+
+    /**
+     * Front desk lookup of customers by last name (case-insensitive), exactly or as prefix, optionally only
+     * for one store. A blank last name shows the search form without any results.
+     */
+    @GetMapping(value = "/customers", params = "lastName")
+    public @Nullable String findCustomersByLastName(
+            @RequestParam(name = "lastName") String lastName,
+            @RequestParam(name = "match", defaultValue = "PREFIX") NameMatch match,
+            @RequestParam(name = "storeId", required = false) @Nullable Integer storeId,
+            @RequestParam(name = "after", defaultValue = "0") int after,
+            @RequestParam(name = "size", defaultValue = KeysetPaging.DEFAULT_PAGE_SIZE) int size,
+            Model model,
+            ServletWebRequest webRequest
+    ) {
+        if (ConditionalRequests.checkNotModified(webRequest, dataVersionService, TableGroup.CUSTOMERS)) {
+            return null;
+        }
+
+        model.addAttribute("lastName", lastName);
+        model.addAttribute("match", match);
+        model.addAttribute("storeId", storeId);
+        model.addAttribute("title", "Customers by last name");
+
+        if (lastName.isBlank()) {
+            model.addAttribute("customers", ImmutableList.of());
+            return "customerSearch";
+        }
+
+        int pageSize = KeysetPaging.pageSize(size);
+        OptionalInt storeIdOption = (storeId == null) ? OptionalInt.empty() : OptionalInt.of(storeId);
+        ImmutableList<Customer> customers =
+                customerService.findCustomersByLastName(lastName, match, storeIdOption, after, pageSize);
+
+        model.addAttribute("customers", customers);
+        KeysetPaging.addPageAttributes(model, customers, v -> v.idOption().orElseThrow(), pageSize);
+
+        // The pager links must repeat the search parameters
+        model.addAttribute(
+                "pagerPath",
+                UriComponentsBuilder.fromPath("/customers")
+                        .queryParam("lastName", lastName)
+                        .queryParam("match", match)
+                        .queryParamIfPresent("storeId", Optional.ofNullable(storeId))
+                        .encode()
+                        .build()
+                        .toUriString()
+        );
+
+        return "customerSearch";
+    }
 }
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.web.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.*;
+import eu.cdevreeze.pagilaapp.service.*;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Web controller for bulk exports of the data, as NDJSON (newline-delimited JSON) or CSV.
+ * <p>
+ * The data is written straight to the response while it is being read from the database (using
+ * the "forEach" service methods), so memory usage does not depend on the size of the exported tables.
+ * Note that the service methods are called (and therefore the transactions run) in the thread that
+ * writes the response body, instead of in the request handling thread.
+ *
+ * @author Chris de Vreeze
+ */
+@Controller
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    // Separator of multiple values within one CSV field
+    private static final String MULTI_VALUE_SEPARATOR = "|";
+
+    private final FilmService filmService;
+    private final CustomerService customerService;
+    private final AddressService addressService;
+    private final StaffService staffService;
+    private final StoreService storeService;
+
+    // The JSON mapper supports Guava immutable collections, Optional (including OptionalInt) and java.time types
+    // Closing the target stream is left to the web container
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .addModule(new GuavaModule())
+            .addModule(new Jdk8Module())
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .build();
+
+    public ExportController(
+            FilmService filmService,
+            CustomerService customerService,
+            AddressService addressService,
+            StaffService staffService,
+            StoreService storeService
+    ) {
+        this.filmService = filmService;
+        this.customerService = customerService;
+        this.addressService = addressService;
+        this.staffService = staffService;
+        this.storeService = storeService;
+    }
+
+    @GetMapping(value = "/export/films.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportFilmsAsNdjson() {
+        return ndjson(filmService::forEachFilm);
+    }
+
+    @GetMapping(value = "/export/films.csv")
+    public ResponseEntity<StreamingResponseBody> exportFilmsAsCsv() {
+        return csv(
+                ImmutableList.of(
+                        "film_id", "title", "description", "release_year", "language", "original_language",
+                        "categories", "actors", "rental_duration", "rental_rate", "length", "replacement_cost",
+                        "rating", "special_features"
+                ),
+                (Film film) -> ImmutableList.of(
+                        format(film.idOption()),
+                        film.title(),
+                        film.descriptionOption().orElse(""),
+                        film.releaseYearOption().map(Objects::toString).orElse(""),
+                        film.language().strip(),
+                        film.originalLanguageOption().map(String::strip).orElse(""),
+                        join(film.categories().stream().map(Category::name)),
+                        join(film.actors().stream().map(Actor::name)),
+                        String.valueOf(film.rentalDuration()),
+                        film.rentalRate().toPlainString(),
+                        format(film.lengthOption()),
+                        film.replacementCost().toPlainString(),
+                        film.ratingOption().orElse(""),
+                        film.specialFeaturesOption().map(v -> join(v.stream())).orElse("")
+                ),
+                filmService::forEachFilm
+        );
+    }
+
+    @GetMapping(value = "/export/customers.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportCustomersAsNdjson() {
+        return ndjson(customerService::forEachCustomer);
+    }
+
+    @GetMapping(value = "/export/customers.csv")
+    public ResponseEntity<StreamingResponseBody> exportCustomersAsCsv() {
+        return csv(
+                ImmutableList.of(
+                        "customer_id", "store_id", "first_name", "last_name", "email", "address_id",
+                        "active", "create_date"
+                ),
+                (Customer customer) -> ImmutableList.of(
+                        format(customer.idOption()),
+                        format(customer.store().idOption()),
+                        customer.firstName(),
+                        customer.lastName(),
+                        customer.emailOption().orElse(""),
+                        format(customer.address().idOption()),
+                        String.valueOf(customer.isActive()),
+                        customer.createDate().toString()
+                ),
+                customerService::forEachCustomer
+        );
+    }
+
+    @GetMapping(value = "/export/addresses.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportAddressesAsNdjson() {
+        return ndjson(addressService::forEachAddress);
+    }
+
+    @GetMapping(value = "/export/addresses.csv")
+    public ResponseEntity<StreamingResponseBody> exportAddressesAsCsv() {
+        return csv(
+                ImmutableList.of(
+                        "address_id", "address", "address2", "district", "city", "country", "postal_code", "phone"
+                ),
+                (Address address) -> ImmutableList.of(
+                        format(address.idOption()),
+                        address.address(),
+                        address.address2Option().orElse(""),
+                        address.district(),
+                        address.city().city(),
+                        address.city().country(),
+                        address.postalCodeOption().orElse(""),
+                        address.phone()
+                ),
+                addressService::forEachAddress
+        );
+    }
+
+    @GetMapping(value = "/export/staff.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportStaffAsNdjson() {
+        // Passwords are not exported
+        return ndjson(action -> staffService.forEachStaffMember(staff -> action.accept(
+                new Staff(
+                        staff.idOption(),
+                        staff.firstName(),
+                        staff.lastName(),
+                        staff.address(),
+                        staff.emailOption(),
+                        staff.store(),
+                        staff.isActive(),
+                        staff.userName(),
+                        Optional.empty()
+                )
+        )));
+    }
+
+    @GetMapping(value = "/export/staff.csv")
+    public ResponseEntity<StreamingResponseBody> exportStaffAsCsv() {
+        // Passwords are not exported
+        return csv(
+                ImmutableList.of(
+                        "staff_id", "first_name", "last_name", "address_id", "email", "store_id", "active", "username"
+                ),
+                (Staff staff) -> ImmutableList.of(
+                        format(staff.idOption()),
+                        staff.firstName(),
+                        staff.lastName(),
+                        format(staff.address().idOption()),
+                        staff.emailOption().orElse(""),
+                        format(staff.store().idOption()),
+                        String.valueOf(staff.isActive()),
+                        staff.userName()
+                ),
+                staffService::forEachStaffMember
+        );
+    }
+
+    @GetMapping(value = "/export/stores.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportStoresAsNdjson() {
+        return ndjson(storeService::forEachStore);
+    }
+
+    @GetMapping(value = "/export/stores.csv")
+    public ResponseEntity<StreamingResponseBody> exportStoresAsCsv() {
+        return csv(
+                ImmutableList.of("store_id", "address_id"),
+                (Store store) -> ImmutableList.of(
+                        format(store.idOption()),
+                        format(store.address().idOption())
+                ),
+                storeService::forEachStore
+        );
+    }
+
+    private <T> ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<? super T>> forEach) {
+        Preconditions.checkArgument(!TransactionSynchronizationManager.isActualTransactionActive());
+
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.createGenerator(outputStream);
+
+            forEach.accept(value -> {
+                try {
+                    objectMapper.writeValue(generator, value);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+        };
+
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    private <T> ResponseEntity<StreamingResponseBody> csv(
+            ImmutableList<String> header,
+            Function<T, ImmutableList<String>> toRow,
+            Consumer<Consumer<? super T>> forEach
+    ) {
+        Preconditions.checkArgument(!TransactionSynchronizationManager.isActualTransactionActive());
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write(toCsvLine(header));
+
+            forEach.accept(value -> {
+                try {
+                    writer.write(toCsvLine(toRow.apply(value)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+
+        return ResponseEntity.ok().contentType(CSV).body(body);
+    }
+
+    // See RFC 4180: fields containing commas, double quotes or line breaks are enclosed in double quotes,
+    // and double quotes within fields are escaped by doubling them
+
+    private static String toCsvLine(ImmutableList<String> fields) {
+        return fields.stream().map(ExportController::toCsvField).collect(Collectors.joining(",", "", "\r\n"));
+    }
+
+    private static String toCsvField(String field) {
+        if (field.contains(",") || field.contains("\"") || field.contains("\r") || field.contains("\n")) {
+            return "\"" + field.replace("\"", "\"\"") + "\"";
+        } else {
+            return field;
+        }
+    }
+
+    private static String format(OptionalInt value) {
+        return value.stream().mapToObj(String::valueOf).findFirst().orElse("");
+    }
+
+    private static String join(Stream<String> values) {
+        return values.collect(Collectors.joining(MULTI_VALUE_SEPARATOR));
+    }
+}
@@ -18,12 +18,32 @@ package eu.cdevreeze.pagilaapp.web.controller;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.pagilaapp.model.ActorName;
 import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.model.FilmAvailability;
+import eu.cdevreeze.pagilaapp.model.FilmSummary;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
 import eu.cdevreeze.pagilaapp.service.FilmService;
+import eu.cdevreeze.pagilaapp.service.StoreService;
+import eu.cdevreeze.pagilaapp.service.TableGroup;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Web MVC controller for films.
@@ -35,20 +55,129 @@ public class FilmController {
 
     private final FilmService filmService;
 
-    public FilmController(FilmService filmService) {
+    private final StoreService storeService;
+
+    private final DataVersionService dataVersionService;
+
+    public FilmController(FilmService filmService, StoreService storeService, DataVersionService dataVersionService) {
         this.filmService = filmService;
+        this.storeService = storeService;
+        this.dataVersionService = dataVersionService;
     }
 
     @GetMapping(value = "/films")
-    public String findAllFilms(
-            Model model
+    public @Nullable String findFilms(
+            @RequestParam(name = "after", defaultValue = "0") int after,
+            @RequestParam(name = "size", defaultValue = KeysetPaging.DEFAULT_PAGE_SIZE) int size,
+            Model model,
+            ServletWebRequest webRequest
     ) {
         Preconditions.checkArgument(!TransactionSynchronizationManager.isActualTransactionActive());
 
-        ImmutableList<Film> films = filmService.findAllFilms();
+        if (ConditionalRequests.checkNotModified(webRequest, dataVersionService, TableGroup.FILMS)) {
+            return null;
+        }
+
+        // The list page only needs film summaries, which are much cheaper to query than full films
+        int pageSize = KeysetPaging.pageSize(size);
+        ImmutableList<FilmSummary> films = filmService.findFilmSummariesAfter(after, pageSize);
+
         model.addAttribute("films", films);
+        KeysetPaging.addPageAttributes(model, films, v -> v.idOption().orElseThrow(), pageSize);
         model.addAttribute("title", "Films");
 
         return "films";
     }
+
+    @GetMapping(value = "/films/search")
+    public @Nullable String searchFilms(
+            @RequestParam(name = "q") String searchText,
+            @RequestParam(name = "category") Optional<String> categoryOption,
+            @RequestParam(name = "language") Optional<String> languageOption,
+            @RequestParam(name = "limit", defaultValue = "25") int limit,
+            Model model,
+            ServletWebRequest webRequest
+    ) {
+        Preconditions.checkArgument(!TransactionSynchronizationManager.isActualTransactionActive());
+
+        if (searchText.isBlank()) {
+            return "redirect:/films";
+        }
+        if (ConditionalRequests.checkNotModified(webRequest, dataVersionService, TableGroup.FILMS)) {
+            return null;
+        }
+
+        ImmutableList<Film> films = filmService.searchFilms(
+                searchText,
+                categoryOption.filter(v -> !v.isBlank()),
+                languageOption.filter(v -> !v.isBlank()),
+                KeysetPaging.pageSize(limit)
+        );
+        model.addAttribute("films", films);
+        model.addAttribute("searchText", searchText);
+        model.addAttribute("title", String.format("Films matching \"%s\"", searchText));
+
+        return "films";
+    }
+
+    @GetMapping(value = "/films/actors")
+    public @Nullable String findFilmsByActors(
+            @RequestParam(name = "name") List<String> actorNames,
+            Model model,
+            ServletWebRequest webRequest
+    ) {
+        Preconditions.checkArgument(!TransactionSynchronizationManager.isActualTransactionActive());
+
+        if (ConditionalRequests.checkNotModified(webRequest, dataVersionService, TableGroup.FILMS)) {
+            return null;
+        }
+
+        // Actor names are given as first name and last name, separated by whitespace
+        ImmutableSet<ActorName> parsedActorNames = actorNames.stream()
+                .map(String::strip)
+                .map(name -> name.split("\\s+", 2))
+                .filter(parts -> parts.length == 2)
+                .map(parts -> new ActorName(parts[0], parts[1]))
+                .collect(ImmutableSet.toImmutableSet());
+
+        // One service call (and query) for all actors, instead of one per actor
+        ImmutableListMultimap<ActorName, Film> filmsByActor = filmService.findFilmsByActors(parsedActorNames);
+
+        ImmutableList<Film> films = filmsByActor.values()
+                .stream()
+                .distinct()
+                .sorted(Comparator.comparingInt(v -> v.idOption().orElse(-1)))
+                .collect(ImmutableList.toImmutableList());
+        model.addAttribute("films", films);
+        model.addAttribute(
+                "title",
+                String.format(
+                        "Films featuring any of %s",
+                        parsedActorNames.stream().map(ActorName::name).collect(Collectors.joining(", "))
+                )
+        );
+
+        return "films";
+    }
+
+    /**
+     * Returns the availability of the given films in the stores, as JSON. The film pages fetch it with a separate
+     * request, because the availability changes with each rental and return, whereas the film pages themselves are
+     * validated against (and cached for) the film catalog only. Hence the availability is never cached.
+     */
+    @GetMapping(value = "/films/availability", produces = "application/json")
+    public ResponseEntity<ImmutableList<FilmAvailability>> findFilmAvailability(
+            @RequestParam(name = "filmId") List<Integer> filmIds
+    ) {
+        Preconditions.checkArgument(!TransactionSynchronizationManager.isActualTransactionActive());
+
+        if (filmIds.size() > KeysetPaging.MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Too many film IDs");
+        }
+
+        // One service call (and query) for the availability of all films on the page, instead of one per film
+        ImmutableList<FilmAvailability> availability = storeService.findFilmAvailability(ImmutableSet.copyOf(filmIds));
+
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(availability);
+    }
 }
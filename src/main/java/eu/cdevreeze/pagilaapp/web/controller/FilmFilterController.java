@@ -0,0 +1,109 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.web.controller;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.model.FilmFilter;
+import eu.cdevreeze.pagilaapp.service.FilmFilterService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Web MVC controller for filtering films on combinations of film attributes. Multi-valued request
+ * parameters can be repeated, e.g. "/films/filter?category=Action&amp;category=Comedy&amp;rating=PG&amp;maxLength=90".
+ * <p>
+ * Film filtering is served from the in-memory film catalog snapshot, so this controller is only
+ * available if that snapshot is used.
+ *
+ * @author Chris de Vreeze
+ */
+@Controller
+@ConditionalOnBooleanProperty(name = "useFilmCatalogSnapshot")
+public class FilmFilterController {
+
+    private final FilmFilterService filmFilterService;
+
+    public FilmFilterController(FilmFilterService filmFilterService) {
+        this.filmFilterService = filmFilterService;
+    }
+
+    @GetMapping(value = "/films/filter")
+    public String filterFilms(
+            @RequestParam(name = "category", defaultValue = "") List<String> categories,
+            @RequestParam(name = "language", defaultValue = "") List<String> languages,
+            @RequestParam(name = "rating", defaultValue = "") List<String> ratings,
+            @RequestParam(name = "actor", defaultValue = "") List<String> actorNames,
+            @RequestParam(name = "feature", defaultValue = "") List<String> specialFeatures,
+            @RequestParam(name = "minLength") Optional<Integer> minLengthOption,
+            @RequestParam(name = "maxLength") Optional<Integer> maxLengthOption,
+            @RequestParam(name = "minRentalRate") Optional<BigDecimal> minRentalRateOption,
+            @RequestParam(name = "maxRentalRate") Optional<BigDecimal> maxRentalRateOption,
+            Model model
+    ) {
+        Preconditions.checkArgument(!TransactionSynchronizationManager.isActualTransactionActive());
+
+        FilmFilter filter = new FilmFilter(
+                nonBlank(categories),
+                nonBlank(languages),
+                nonBlank(ratings),
+                nonBlank(actorNames),
+                nonBlank(specialFeatures),
+                range(minLengthOption, maxLengthOption),
+                range(minRentalRateOption, maxRentalRateOption)
+        );
+
+        ImmutableList<Film> films = filmFilterService.filterFilms(filter);
+        model.addAttribute("films", films);
+        model.addAttribute("title", "Filtered films");
+
+        return "films";
+    }
+
+    private static ImmutableSet<String> nonBlank(List<String> values) {
+        return values.stream().filter(v -> !v.isBlank()).collect(ImmutableSet.toImmutableSet());
+    }
+
+    private static <C extends Comparable<? super C>> Range<C> range(Optional<C> minOption, Optional<C> maxOption) {
+        if (minOption.isPresent() && maxOption.isPresent()) {
+            // Range.closed would throw an IllegalArgumentException, leading to a server error instead of a client error
+            if (minOption.get().compareTo(maxOption.get()) > 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Minimum must not exceed maximum");
+            }
+            return Range.closed(minOption.get(), maxOption.get());
+        } else if (minOption.isPresent()) {
+            return Range.atLeast(minOption.get());
+        } else if (maxOption.isPresent()) {
+            return Range.atMost(maxOption.get());
+        } else {
+            return Range.all();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.web.controller;
+
+import com.google.common.collect.ImmutableList;
+import org.springframework.ui.Model;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Keyset pagination support for the Web MVC controllers, based on request parameters "after" and "size".
+ * <p>
+ * Parameter "after" holds the ID of the last element of the previous page (0 for the first page),
+ * and parameter "size" holds the (maximum) page size.
+ *
+ * @author Chris de Vreeze
+ */
+final class KeysetPaging {
+
+    static final String DEFAULT_PAGE_SIZE = "100";
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private KeysetPaging() {
+    }
+
+    static int pageSize(int requestedPageSize) {
+        return Math.clamp(requestedPageSize, 1, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Adds the model attributes used by the "pager" Thymeleaf fragment. Model attribute "nextAfter" is only
+     * added if the page is full, so there may be a next page.
+     */
+    static <T> void addPageAttributes(Model model, ImmutableList<T> page, ToIntFunction<T> getId, int pageSize) {
+        model.addAttribute("size", pageSize);
+
+        if (page.size() == pageSize) {
+            model.addAttribute("nextAfter", getId.applyAsInt(page.getLast()));
+        }
+    }
+}
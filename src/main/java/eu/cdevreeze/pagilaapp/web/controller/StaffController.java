@@ -16,10 +16,29 @@
 
 package eu.cdevreeze.pagilaapp.web.controller;
 
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.ImmutableByteArray;
+import eu.cdevreeze.pagilaapp.model.Staff;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
 import eu.cdevreeze.pagilaapp.service.StaffService;
+import eu.cdevreeze.pagilaapp.service.TableGroup;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.time.Duration;
+import java.util.Optional;
 
 /**
  * Web MVC controller for staff members.
@@ -29,19 +48,81 @@ import org.springframework.web.bind.annotation.GetMapping;
 @Controller
 public class StaffController {
 
+    // Pictures rarely change, so clients may use them for a while without revalidating them
+    private static final CacheControl PICTURE_CACHE_CONTROL = CacheControl.maxAge(Duration.ofHours(1)).cachePrivate();
+
     private final StaffService staffService;
 
-    public StaffController(StaffService staffService) {
+    private final DataVersionService dataVersionService;
+
+    public StaffController(StaffService staffService, DataVersionService dataVersionService) {
         this.staffService = staffService;
+        this.dataVersionService = dataVersionService;
     }
 
     @GetMapping(value = "/staff")
-    public String findAllStaffMembers(
-            Model model
+    public @Nullable String findStaffMembers(
+            @RequestParam(name = "after", defaultValue = "0") int after,
+            @RequestParam(name = "size", defaultValue = KeysetPaging.DEFAULT_PAGE_SIZE) int size,
+            Model model,
+            ServletWebRequest webRequest
     ) {
-        model.addAttribute("staffMembers", staffService.findAllStaffMembers());
+        if (ConditionalRequests.checkNotModified(webRequest, dataVersionService, TableGroup.STAFF)) {
+            return null;
+        }
+
+        int pageSize = KeysetPaging.pageSize(size);
+        ImmutableList<Staff> staffMembers = staffService.findStaffMembersAfter(after, pageSize);
+
+        model.addAttribute("staffMembers", staffMembers);
+        KeysetPaging.addPageAttributes(model, staffMembers, v -> v.idOption().orElseThrow(), pageSize);
         model.addAttribute("title", "Staff members");
 
         return "staff";
     }
+
+    @GetMapping(value = "/staff/{id}/picture")
+    public @Nullable ResponseEntity<StreamingResponseBody> findStaffPicture(
+            @PathVariable("id") int id,
+            ServletWebRequest webRequest
+    ) throws IOException {
+        // A missing picture is a 404, even if the client sends a validator matching the current data version
+        // That check does not read the picture, which is only read if it is actually sent (in a 200 response)
+        if (!staffService.hasStaffPicture(id)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (ConditionalRequests.checkNotModified(
+                webRequest,
+                dataVersionService.findDataVersion(TableGroup.STAFF),
+                PICTURE_CACHE_CONTROL
+        )) {
+            return null;
+        }
+
+        // The picture may have been removed in the meantime
+        Optional<ImmutableByteArray> pictureOption = staffService.findStaffPicture(id);
+
+        if (pictureOption.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // The bytes are written to the response as they are, without copying them first
+        ImmutableByteArray picture = pictureOption.get();
+        StreamingResponseBody body = picture::writeTo;
+
+        return ResponseEntity.ok()
+                .contentType(guessMediaType(picture))
+                .contentLength(picture.length())
+                .body(body);
+    }
+
+    private static MediaType guessMediaType(ImmutableByteArray picture) throws IOException {
+        // Looks at the "magic bytes" at the start of the picture, such as those of PNG, JPEG and GIF images
+        try (InputStream inputStream = picture.openStream()) {
+            return Optional.ofNullable(URLConnection.guessContentTypeFromStream(inputStream))
+                    .map(MediaType::parseMediaType)
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        }
+    }
 }
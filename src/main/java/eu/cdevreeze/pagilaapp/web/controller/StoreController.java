@@ -16,10 +16,17 @@
 
 package eu.cdevreeze.pagilaapp.web.controller;
 
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.Store;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
 import eu.cdevreeze.pagilaapp.service.StoreService;
+import eu.cdevreeze.pagilaapp.service.TableGroup;
+import org.jspecify.annotations.Nullable;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
 
 /**
  * Web MVC controller for stores.
@@ -31,15 +38,29 @@ public class StoreController {
 
     private final StoreService storeService;
 
-    public StoreController(StoreService storeService) {
+    private final DataVersionService dataVersionService;
+
+    public StoreController(StoreService storeService, DataVersionService dataVersionService) {
         this.storeService = storeService;
+        this.dataVersionService = dataVersionService;
     }
 
     @GetMapping(value = "/stores")
-    public String findAllStores(
-            Model model
+    public @Nullable String findStores(
+            @RequestParam(name = "after", defaultValue = "0") int after,
+            @RequestParam(name = "size", defaultValue = KeysetPaging.DEFAULT_PAGE_SIZE) int size,
+            Model model,
+            ServletWebRequest webRequest
     ) {
-        model.addAttribute("stores", storeService.findAllStores());
+        if (ConditionalRequests.checkNotModified(webRequest, dataVersionService, TableGroup.STORES)) {
+            return null;
+        }
+
+        int pageSize = KeysetPaging.pageSize(size);
+        ImmutableList<Store> stores = storeService.findStoresAfter(after, pageSize);
+
+        model.addAttribute("stores", stores);
+        KeysetPaging.addPageAttributes(model, stores, v -> v.idOption().orElseThrow(), pageSize);
         model.addAttribute("title", "Stores");
 
         return "stores";
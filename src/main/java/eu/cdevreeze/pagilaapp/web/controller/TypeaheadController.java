@@ -0,0 +1,58 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.web.controller;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.model.TypeaheadEntry;
+import eu.cdevreeze.pagilaapp.service.TypeaheadService;
+import org.springframework.stereotype.Controller;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Web MVC controller for typeahead (autocomplete) of film titles and actor names, returning JSON.
+ *
+ * @author Chris de Vreeze
+ */
+@Controller
+public class TypeaheadController {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final TypeaheadService typeaheadService;
+
+    public TypeaheadController(TypeaheadService typeaheadService) {
+        this.typeaheadService = typeaheadService;
+    }
+
+    @GetMapping(value = "/typeahead", produces = "application/json")
+    @ResponseBody
+    public ImmutableList<TypeaheadEntry> findTypeaheadEntries(
+            @RequestParam(name = "q") String prefix,
+            @RequestParam(name = "limit", defaultValue = "10") int limit
+    ) {
+        Preconditions.checkArgument(!TransactionSynchronizationManager.isActualTransactionActive());
+
+        if (prefix.isBlank()) {
+            return ImmutableList.of();
+        }
+        return typeaheadService.findTypeaheadEntries(prefix.stripLeading(), Math.clamp(limit, 1, MAX_LIMIT));
+    }
+}
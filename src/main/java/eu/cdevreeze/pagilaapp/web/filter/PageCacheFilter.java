@@ -0,0 +1,245 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.web.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import eu.cdevreeze.pagilaapp.model.DataVersion;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.TableGroup;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Servlet filter caching rendered pages as gzip-compressed byte arrays, keyed by path and query string.
+ * A cached page is served without calling the controller, without rendering, and (for clients accepting
+ * gzip content encoding) without compressing.
+ * <p>
+ * Each cached page is stored along with the data version of the group of tables feeding the page, as
+ * found before rendering the page. A cached page is only served if that data version is still current,
+ * which costs one small query per request. Otherwise, the page is rendered again and replaces the cached one.
+ * The data version is then passed to the controller as request attribute (see {@link #dataVersionAttributeName}),
+ * so it is not queried twice.
+ * <p>
+ * Only successful (status 200) HTML and JSON responses are cached. Other responses (such as redirects and
+ * "304 Not Modified" responses) pass through unchanged.
+ *
+ * @author Chris de Vreeze
+ */
+public final class PageCacheFilter extends OncePerRequestFilter {
+
+    // The response headers that are stored along with the page, and replayed when serving the cached page
+    private static final String[] REPLAYED_HEADERS = {
+            HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.ETAG,
+            HttpHeaders.LAST_MODIFIED
+    };
+
+    private static final String GZIP = "gzip";
+
+    // Quality value syntax of RFC 9110 (section 12.4.2)
+    private static final Pattern QUALITY_VALUE = Pattern.compile("0(\\.[0-9]{0,3})?|1(\\.0{0,3})?");
+
+    private record CachedPage(
+            DataVersion dataVersion,
+            ImmutableMap<String, String> headers,
+            byte[] gzippedBody
+    ) {
+
+        Optional<String> etagOption() {
+            return Optional.ofNullable(headers.get(HttpHeaders.ETAG));
+        }
+    }
+
+    private final DataVersionService dataVersionService;
+
+    private final ImmutableMap<String, TableGroup> tableGroupsByPath;
+
+    private final Cache<String, CachedPage> cache;
+
+    public PageCacheFilter(
+            DataVersionService dataVersionService,
+            ImmutableMap<String, TableGroup> tableGroupsByPath,
+            long maximumSizeInBytes
+    ) {
+        Preconditions.checkArgument(maximumSizeInBytes > 0);
+
+        this.dataVersionService = dataVersionService;
+        this.tableGroupsByPath = tableGroupsByPath;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSizeInBytes)
+                .weigher((String key, CachedPage page) -> 2 * key.length() + page.gzippedBody().length)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        @Nullable TableGroup tableGroup = tableGroupsByPath.get(path);
+
+        if (tableGroup == null || !HttpMethod.GET.matches(request.getMethod())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key = Optional.ofNullable(request.getQueryString()).map(q -> path + "?" + q).orElse(path);
+
+        // Determined before rendering, so a page rendered from newer data is at worst rendered again
+        DataVersion dataVersion = dataVersionService.findDataVersion(tableGroup);
+
+        @Nullable CachedPage cachedPage = cache.getIfPresent(key);
+
+        if (cachedPage == null || !cachedPage.dataVersion().equals(dataVersion)) {
+            request.setAttribute(dataVersionAttributeName(tableGroup), dataVersion);
+
+            ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+            filterChain.doFilter(request, responseWrapper);
+
+            boolean cacheable = responseWrapper.getStatus() == HttpServletResponse.SC_OK &&
+                    isCacheable(responseWrapper.getContentType());
+
+            if (!cacheable) {
+                responseWrapper.copyBodyToResponse();
+                return;
+            }
+
+            cachedPage = new CachedPage(
+                    dataVersion,
+                    Arrays.stream(REPLAYED_HEADERS)
+                            .filter(name -> responseWrapper.getHeader(name) != null)
+                            .collect(ImmutableMap.toImmutableMap(name -> name, responseWrapper::getHeader)),
+                    gzip(responseWrapper.getContentAsByteArray())
+            );
+            cache.put(key, cachedPage);
+        }
+
+        servePage(cachedPage, request, response);
+    }
+
+    /**
+     * Returns the name of the request attribute holding the data version of the given table group, as found by
+     * this filter before rendering the page. Controllers can use it instead of querying the data version again.
+     */
+    public static String dataVersionAttributeName(TableGroup tableGroup) {
+        return PageCacheFilter.class.getName() + ".dataVersion." + tableGroup.name();
+    }
+
+    private void servePage(
+            CachedPage page,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        page.headers().forEach(response::setHeader);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (page.etagOption().isPresent() &&
+                new ServletWebRequest(request, response).checkNotModified(page.etagOption().orElseThrow())) {
+            return;
+        }
+
+        if (acceptsGzip(request)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            response.setContentLength(page.gzippedBody().length);
+            response.getOutputStream().write(page.gzippedBody());
+        } else {
+            byte[] body = gunzip(page.gzippedBody());
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+
+    private static boolean isCacheable(@Nullable String contentType) {
+        return Optional.ofNullable(contentType)
+                .map(MediaType::parseMediaType)
+                .filter(mediaType -> mediaType.isCompatibleWith(MediaType.TEXT_HTML) ||
+                        mediaType.isCompatibleWith(MediaType.APPLICATION_JSON))
+                .isPresent();
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        // Accepts "gzip" and "*", unless excluded with quality value 0, where "gzip" takes precedence over "*"
+        Map<String, Double> qualityValuesByCoding = Collections.list(request.getHeaders(HttpHeaders.ACCEPT_ENCODING))
+                .stream()
+                .flatMap(header -> Arrays.stream(header.split(",")))
+                .map(coding -> coding.strip().split(";"))
+                .filter(parts -> !parts[0].isBlank())
+                .collect(Collectors.toMap(
+                        parts -> parts[0].strip().toLowerCase(Locale.ROOT),
+                        PageCacheFilter::qualityValue,
+                        Math::max
+                ));
+
+        return qualityValuesByCoding.getOrDefault(GZIP, qualityValuesByCoding.getOrDefault("*", 0.0)) > 0.0;
+    }
+
+    private static double qualityValue(String[] codingParts) {
+        // Lenient: an invalid quality value means "not acceptable", instead of failing the request
+        return Arrays.stream(codingParts)
+                .skip(1)
+                .map(String::strip)
+                .filter(param -> param.regionMatches(true, 0, "q=", 0, 2))
+                .findFirst()
+                .map(param -> param.substring(2).strip())
+                .map(value -> QUALITY_VALUE.matcher(value).matches() ? Double.parseDouble(value) : 0.0)
+                .orElse(1.0);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (OutputStream os = new GZIPOutputStream(bos)) {
+            os.write(bytes);
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return is.readAllBytes();
+        }
+    }
+}
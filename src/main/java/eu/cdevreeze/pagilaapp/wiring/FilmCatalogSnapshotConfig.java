@@ -0,0 +1,52 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.wiring;
+
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.FilmService;
+import eu.cdevreeze.pagilaapp.service.snapshotimpl.SnapshotFilmService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+/**
+ * Optional wiring of a SnapshotFilmService, serving film catalog reads from memory. It decorates the
+ * database-backed FilmService (JPA or jOOQ), and takes precedence over it when injecting a FilmService.
+ *
+ * @author Chris de Vreeze
+ */
+@Configuration
+@ConditionalOnBooleanProperty(name = "useFilmCatalogSnapshot")
+public class FilmCatalogSnapshotConfig {
+
+    // Note that the FilmService parameter cannot resolve to the SnapshotFilmService bean itself,
+    // because Spring only considers self-references as a fallback
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @Primary
+    public SnapshotFilmService snapshotFilmService(
+            FilmService filmService,
+            DataVersionService dataVersionService,
+            @Value("${filmCatalogSnapshotPollInterval:PT10S}") Duration pollInterval
+    ) {
+        return new SnapshotFilmService(filmService, dataVersionService, pollInterval);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.wiring;
+
+import eu.cdevreeze.pagilaapp.monitoring.JooqQueryProfiler;
+import eu.cdevreeze.pagilaapp.monitoring.JooqQueryProfilerEndpoint;
+import org.jooq.ExecuteListenerProvider;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Optional wiring of a jOOQ query profiler. Spring Boot registers ExecuteListenerProvider beans in the
+ * jOOQ Configuration (next to its own exception translating listener), so the profiler sees all queries
+ * executed through the DSLContext.
+ *
+ * @author Chris de Vreeze
+ */
+@Configuration
+@ConditionalOnBooleanProperty(name = "useJooqQueryProfiler")
+public class JooqQueryProfilerConfig {
+
+    @Bean
+    public JooqQueryProfiler jooqQueryProfiler(
+            @Value("${jooqSlowQueryThreshold:PT0.5S}") Duration slowQueryThreshold,
+            @Value("${jooqQueryProfilerMaxQueries:500}") int maxQueries
+    ) {
+        return new JooqQueryProfiler(slowQueryThreshold, maxQueries);
+    }
+
+    @Bean
+    public ExecuteListenerProvider jooqQueryProfilerListenerProvider(JooqQueryProfiler jooqQueryProfiler) {
+        return new DefaultExecuteListenerProvider(jooqQueryProfiler);
+    }
+
+    @Bean
+    public JooqQueryProfilerEndpoint jooqQueryProfilerEndpoint(
+            JooqQueryProfiler jooqQueryProfiler,
+            @Value("${jooqQueryProfilerTopQueries:20}") int topQueries
+    ) {
+        return new JooqQueryProfilerEndpoint(jooqQueryProfiler, topQueries);
+    }
+}
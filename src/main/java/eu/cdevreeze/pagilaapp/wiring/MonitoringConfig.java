@@ -0,0 +1,73 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.wiring;
+
+import com.google.common.collect.ImmutableMap;
+import eu.cdevreeze.pagilaapp.monitoring.ServiceTimingPostProcessor;
+import eu.cdevreeze.pagilaapp.monitoring.ViewRenderTimingInterceptor;
+import eu.cdevreeze.pagilaapp.service.FilmService;
+import eu.cdevreeze.pagilaapp.service.impl.DefaultFilmService;
+import eu.cdevreeze.pagilaapp.service.jooqimpl.JooqFilmService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Wiring of application metrics, on top of the metrics provided by Spring Boot Actuator (such as the
+ * Hikari connection pool gauges and the "http.server.requests" timers). The metrics are exposed through
+ * the "/actuator/prometheus" endpoint.
+ * <p>
+ * The database-backed services (JPA or jOOQ) are timed per method. Decorating services, such as the
+ * in-memory snapshots and the service result caches, are not timed, so for those only the calls that
+ * reach the database show up in the timers.
+ *
+ * @author Chris de Vreeze
+ */
+@Configuration
+public class MonitoringConfig {
+
+    // Static, so that the BeanPostProcessor can be created early, without creating this configuration first.
+    // The MeterRegistry is looked up lazily, to avoid it being created too early.
+
+    @Bean
+    public static ServiceTimingPostProcessor serviceTimingPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistryProvider
+    ) {
+        return new ServiceTimingPostProcessor(
+                meterRegistryProvider,
+                FilmService.class.getPackageName(),
+                ImmutableMap.of(
+                        DefaultFilmService.class.getPackageName(), "jpa",
+                        JooqFilmService.class.getPackageName(), "jooq"
+                )
+        );
+    }
+
+    @Bean
+    public WebMvcConfigurer viewRenderTimingConfigurer(MeterRegistry meterRegistry) {
+        return new WebMvcConfigurer() {
+
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new ViewRenderTimingInterceptor(meterRegistry));
+            }
+        };
+    }
+}
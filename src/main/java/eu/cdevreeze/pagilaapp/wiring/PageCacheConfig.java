@@ -0,0 +1,63 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.wiring;
+
+import com.google.common.collect.ImmutableMap;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.TableGroup;
+import eu.cdevreeze.pagilaapp.web.filter.PageCacheFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Optional wiring of the rendered page cache, as servlet filter for the list pages.
+ *
+ * @author Chris de Vreeze
+ */
+@Configuration
+@ConditionalOnBooleanProperty(name = "usePageCache")
+public class PageCacheConfig {
+
+    /**
+     * The cached pages, along with the groups of tables feeding them.
+     */
+    private static final ImmutableMap<String, TableGroup> TABLE_GROUPS_BY_PATH = ImmutableMap.of(
+            "/films", TableGroup.FILMS,
+            "/films/search", TableGroup.FILMS,
+            "/films/actors", TableGroup.FILMS,
+            "/customers", TableGroup.CUSTOMERS,
+            "/addresses", TableGroup.ADDRESSES,
+            "/stores", TableGroup.STORES,
+            "/staff", TableGroup.STAFF
+    );
+
+    @Bean
+    public FilterRegistrationBean<PageCacheFilter> pageCacheFilter(
+            DataVersionService dataVersionService,
+            @Value("${pageCacheMaximumSize:32MB}") DataSize maximumSize
+    ) {
+        PageCacheFilter filter = new PageCacheFilter(dataVersionService, TABLE_GROUPS_BY_PATH, maximumSize.toBytes());
+
+        FilterRegistrationBean<PageCacheFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns(TABLE_GROUPS_BY_PATH.keySet().toArray(String[]::new));
+        return registration;
+    }
+}
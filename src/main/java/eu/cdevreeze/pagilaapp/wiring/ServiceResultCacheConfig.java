@@ -0,0 +1,133 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.wiring;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.pagilaapp.service.AddressService;
+import eu.cdevreeze.pagilaapp.service.CustomerService;
+import eu.cdevreeze.pagilaapp.service.FilmService;
+import eu.cdevreeze.pagilaapp.service.StaffService;
+import eu.cdevreeze.pagilaapp.service.StoreService;
+import eu.cdevreeze.pagilaapp.service.cacheimpl.ServiceResultCaches;
+import eu.cdevreeze.pagilaapp.service.snapshotimpl.SnapshotFilmService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Optional wiring of service result caches. The database-backed services (JPA or jOOQ) are replaced by
+ * caching dynamic proxies, by a BeanPostProcessor.
+ * <p>
+ * Note that this BeanPostProcessor is not ordered, so it runs after the (ordered) BeanPostProcessor creating
+ * the transactional proxies. Hence, the caching proxies wrap the transactional proxies, and cache hits need
+ * no transaction at all.
+ *
+ * @author Chris de Vreeze
+ */
+@Configuration
+@ConditionalOnBooleanProperty(name = "useServiceResultCache")
+public class ServiceResultCacheConfig {
+
+    /**
+     * The cached service interfaces, along with the database tables their query results depend on.
+     */
+    private static final ImmutableMap<Class<?>, ImmutableSet<String>> DEPENDED_ON_TABLES = ImmutableMap.of(
+            FilmService.class,
+            ImmutableSet.of("film", "film_actor", "film_category", "actor", "category", "language"),
+            AddressService.class,
+            ImmutableSet.of("address", "city", "country"),
+            CustomerService.class,
+            ImmutableSet.of("customer", "store", "address", "city", "country"),
+            StaffService.class,
+            ImmutableSet.of("staff", "store", "address", "city", "country"),
+            StoreService.class,
+            ImmutableSet.of("store", "address", "city", "country")
+    );
+
+    /**
+     * The methods of the cached service interfaces whose results are never cached.
+     * <p>
+     * Film availability changes with every rental and return, and nothing invalidates the cache on rentals.
+     * That is also why the film pages fetch the availability separately, instead of rendering it into the page.
+     */
+    private static final ImmutableMap<Class<?>, ImmutableSet<String>> UNCACHED_METHOD_NAMES = ImmutableMap.of(
+            StoreService.class,
+            ImmutableSet.of("findFilmAvailability")
+    );
+
+    @Bean
+    public ServiceResultCaches serviceResultCaches(
+            @Value("${serviceResultCacheMaximumSize:64MB}") DataSize maximumSizePerCache,
+            @Value("${serviceResultCacheTimeToLive:PT10M}") Duration timeToLive,
+            @Value("${serviceResultCacheRefreshAfter:PT1M}") Duration refreshAfter
+    ) {
+        return new ServiceResultCaches(maximumSizePerCache.toBytes(), timeToLive, refreshAfter);
+    }
+
+    // Static, so that the BeanPostProcessor can be created early, without creating this configuration first.
+    // The ServiceResultCaches bean is looked up lazily, to avoid it being created too early.
+
+    @Bean
+    public static BeanPostProcessor serviceResultCachingPostProcessor(
+            ObjectProvider<ServiceResultCaches> serviceResultCachesProvider,
+            @Value("${useFilmCatalogSnapshot:false}") boolean useFilmCatalogSnapshot
+    ) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof SnapshotFilmService) {
+                    // Already served from memory
+                    return bean;
+                }
+                for (Map.Entry<Class<?>, ImmutableSet<String>> entry : DEPENDED_ON_TABLES.entrySet()) {
+                    Class<?> serviceInterface = entry.getKey();
+
+                    // The film catalog snapshot must see the database state, and not (possibly stale) cached results
+                    boolean skip = useFilmCatalogSnapshot && serviceInterface.equals(FilmService.class);
+
+                    if (serviceInterface.isInstance(bean) && !skip) {
+                        return decorate(serviceResultCachesProvider.getObject(), serviceInterface, bean, entry.getValue());
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static <T> T decorate(
+            ServiceResultCaches serviceResultCaches,
+            Class<T> serviceInterface,
+            Object service,
+            ImmutableSet<String> dependedOnTables
+    ) {
+        return serviceResultCaches.decorate(
+                serviceInterface,
+                serviceInterface.cast(service),
+                dependedOnTables,
+                UNCACHED_METHOD_NAMES.getOrDefault(serviceInterface, ImmutableSet.of())
+        );
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.wiring;
+
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.TypeaheadService;
+import eu.cdevreeze.pagilaapp.service.snapshotimpl.SnapshotTypeaheadService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+/**
+ * Wiring of a SnapshotTypeaheadService, serving typeahead queries from memory. It decorates the
+ * database-backed TypeaheadService (JPA or jOOQ), and takes precedence over it when injecting a TypeaheadService.
+ *
+ * @author Chris de Vreeze
+ */
+@Configuration
+public class TypeaheadConfig {
+
+    // Note that the TypeaheadService parameter cannot resolve to the SnapshotTypeaheadService bean itself,
+    // because Spring only considers self-references as a fallback
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @Primary
+    public SnapshotTypeaheadService snapshotTypeaheadService(
+            TypeaheadService typeaheadService,
+            DataVersionService dataVersionService,
+            @Value("${typeaheadPollInterval:PT10S}") Duration pollInterval
+    ) {
+        return new SnapshotTypeaheadService(typeaheadService, dataVersionService, pollInterval);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.wiring;
+
+import com.zaxxer.hikari.HikariDataSource;
+import eu.cdevreeze.pagilaapp.monitoring.VirtualThreadPinningMonitor;
+import eu.cdevreeze.pagilaapp.service.datasource.BulkheadDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wiring that only applies if virtual threads are enabled (property "spring.threads.virtual.enabled"). Spring Boot
+ * then handles requests on virtual threads instead of on the platform threads of Tomcat's thread pool, and runs
+ * asynchronous tasks (such as streaming exports) on virtual threads as well. The transactional service calls
+ * run in those virtual threads.
+ * <p>
+ * Without a bounded request thread pool, the database connection pool is the limiting resource. Hence, the
+ * DataSource is decorated with a bulkhead, sized to the connection pool. Also, pinning of virtual threads
+ * (e.g. in synchronized JDBC code) is reported.
+ *
+ * @author Chris de Vreeze
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    private static final int DEFAULT_PERMIT_COUNT = 10;
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            @Value("${virtualThreadPinningThreshold:PT0.02S}") Duration threshold
+    ) {
+        return new VirtualThreadPinningMonitor(threshold);
+    }
+
+    @Bean
+    public MeterBinder databaseBulkheadMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof BulkheadDataSource bulkhead) {
+                Gauge.builder("pagila.db.bulkhead.available", bulkhead, BulkheadDataSource::availablePermits)
+                        .description("Available database bulkhead permits")
+                        .register(registry);
+                Gauge.builder("pagila.db.bulkhead.queued", bulkhead, BulkheadDataSource::queueLength)
+                        .description("Threads waiting for a database bulkhead permit")
+                        .register(registry);
+            }
+        };
+    }
+
+    // Static, so that the BeanPostProcessor can be created early, without creating this configuration first.
+
+    @Bean
+    public static BeanPostProcessor databaseBulkheadPostProcessor(
+            @Value("${databaseBulkheadPermits:0}") int permitCount,
+            @Value("${databaseBulkheadMaxWait:PT1M}") Duration maxWait
+    ) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)) {
+                    // By default, there are as many permits as connections in the pool
+                    int permits = (permitCount > 0)
+                            ? permitCount
+                            : (bean instanceof HikariDataSource hikariDataSource)
+                            ? hikariDataSource.getMaximumPoolSize()
+                            : DEFAULT_PERMIT_COUNT;
+
+                    return new BulkheadDataSource(dataSource, permits, maxWait);
+                }
+                return bean;
+            }
+        };
+    }
+}
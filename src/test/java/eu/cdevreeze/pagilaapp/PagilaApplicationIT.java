@@ -16,26 +16,72 @@
 
 package eu.cdevreeze.pagilaapp;
 
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.pagilaapp.model.ActorName;
 import eu.cdevreeze.pagilaapp.model.Address;
+import eu.cdevreeze.pagilaapp.model.CacheRegionStatistics;
 import eu.cdevreeze.pagilaapp.model.Category;
+import eu.cdevreeze.pagilaapp.model.Customer;
+import eu.cdevreeze.pagilaapp.model.CustomerSummary;
+import eu.cdevreeze.pagilaapp.model.DataVersion;
 import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.model.FilmAvailability;
+import eu.cdevreeze.pagilaapp.model.FilmSummary;
+import eu.cdevreeze.pagilaapp.model.TypeaheadEntry;
+import eu.cdevreeze.pagilaapp.monitoring.JooqQueryProfiler;
+import eu.cdevreeze.pagilaapp.monitoring.QueryProfile;
 import eu.cdevreeze.pagilaapp.service.AddressService;
+import eu.cdevreeze.pagilaapp.service.CacheStatisticsService;
+import eu.cdevreeze.pagilaapp.service.CustomerService;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.FilmQueryStrategy;
 import eu.cdevreeze.pagilaapp.service.FilmService;
+import eu.cdevreeze.pagilaapp.service.NameMatch;
+import eu.cdevreeze.pagilaapp.service.StoreService;
+import eu.cdevreeze.pagilaapp.service.TableGroup;
+import eu.cdevreeze.pagilaapp.service.TypeaheadService;
+import eu.cdevreeze.pagilaapp.service.impl.DefaultFilmService;
+import eu.cdevreeze.pagilaapp.service.jooqimpl.JooqFilmService;
+import eu.cdevreeze.pagilaapp.service.jooqimpl.NestedCollectionStrategy;
+import jakarta.persistence.EntityManager;
+import org.jooq.DSLContext;
 import org.jspecify.annotations.NullUnmarked;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.utility.MountableFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -55,9 +101,42 @@ class PagilaApplicationIT {
     @Autowired
     private AddressService addressService;
 
+    @Autowired
+    private CustomerService customerService;
+
     @Autowired
     private FilmService filmService;
 
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private CacheStatisticsService cacheStatisticsService;
+
+    @Autowired
+    private TypeaheadService typeaheadService;
+
+    @Autowired
+    private StoreService storeService;
+
+    @Autowired
+    private JdbcClient jdbcClient;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JooqQueryProfiler jooqQueryProfiler;
+
+    @Value("${local.server.port}")
+    private int port;
+
     @ServiceConnection
     private final static PostgreSQLContainer<?> postgres =
             new PostgreSQLContainer<>("postgres:16-alpine")
@@ -90,6 +169,8 @@ class PagilaApplicationIT {
         registry.add("spring.datasource.url", postgres::getJdbcUrl);
         registry.add("spring.datasource.username", postgres::getUsername);
         registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("usePageCache", () -> "true");
+        registry.add("useJooqQueryProfiler", () -> "true");
     }
 
     @Test
@@ -144,4 +225,488 @@ class PagilaApplicationIT {
         System.out.println("Jennifer Davis films:");
         jenniferDavisFilms.forEach(System.out::println);
     }
+
+    @Test
+    void findsFilmsByActorsAndIds() {
+        ActorName jenniferDavis = new ActorName("Jennifer", "Davis");
+        ActorName penelopeGuiness = new ActorName("PENELOPE", "GUINESS");
+        ActorName unknownActor = new ActorName("No", "Body");
+
+        ImmutableListMultimap<ActorName, Film> filmsByActor =
+                filmService.findFilmsByActors(ImmutableSet.of(jenniferDavis, penelopeGuiness, unknownActor));
+
+        assertThat(filmsByActor.keySet()).containsExactly(jenniferDavis, penelopeGuiness);
+        assertThat(filmsByActor.get(jenniferDavis))
+                .isEqualTo(filmService.findFilmsByActor("Jennifer", "Davis"));
+        assertThat(filmsByActor.get(penelopeGuiness))
+                .isEqualTo(filmService.findFilmsByActor("Penelope", "Guiness"));
+
+        ImmutableMap<Integer, Film> filmsById = filmService.findFilmsByIds(ImmutableSet.of(3, 1, 2, 100_000));
+
+        assertThat(filmsById.keySet()).containsExactly(1, 2, 3);
+        assertThat(filmsById.values().asList()).isEqualTo(filmService.findFilmsAfter(0, 3));
+    }
+
+    @Test
+    void findsSameFilmsWithEachQueryStrategy() {
+        ImmutableSet<String> categories = ImmutableSet.of("travel", "Comedy", "Unknown");
+        ImmutableSet<ActorName> actorNames = ImmutableSet.of(
+                new ActorName("Jennifer", "Davis"),
+                new ActorName("PENELOPE", "GUINESS"),
+                new ActorName("No", "Body")
+        );
+
+        // The JPA service implementation checks that it runs in a transaction
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        for (boolean useJooq : List.of(false, true)) {
+            List<List<Film>> filmListsByStrategy = new ArrayList<>();
+
+            for (FilmQueryStrategy filmQueryStrategy : FilmQueryStrategy.values()) {
+                FilmService service = useJooq ?
+                        new JooqFilmService(dsl, filmQueryStrategy, NestedCollectionStrategy.BATCHED, 500) :
+                        new DefaultFilmService(entityManager, filmQueryStrategy, 500);
+
+                filmListsByStrategy.add(transactionTemplate.execute(ignored -> List.of(
+                        service.findFilmsByCategories(categories),
+                        service.findFilmsByActors(actorNames).values().asList(),
+                        service.findFilmsByCategory("no such category")
+                )).stream().flatMap(List::stream).toList());
+            }
+
+            assertThat(filmListsByStrategy.getFirst()).hasSizeGreaterThan(200);
+            assertThat(filmListsByStrategy).allMatch(films -> films.equals(filmListsByStrategy.getFirst()));
+        }
+    }
+
+    @Test
+    void findsSameFilmsWithEachNestedCollectionStrategy() {
+        ImmutableSet<String> categories = ImmutableSet.of("Travel", "Comedy");
+        ImmutableSet<ActorName> actorNames =
+                ImmutableSet.of(new ActorName("Jennifer", "Davis"), new ActorName("Penelope", "Guiness"));
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        for (FilmQueryStrategy filmQueryStrategy : FilmQueryStrategy.values()) {
+            List<List<Film>> filmListsByStrategy = new ArrayList<>();
+
+            for (NestedCollectionStrategy nestedCollectionStrategy : NestedCollectionStrategy.values()) {
+                FilmService service = new JooqFilmService(dsl, filmQueryStrategy, nestedCollectionStrategy, 500);
+
+                filmListsByStrategy.add(transactionTemplate.execute(ignored -> List.of(
+                        service.findAllFilms(),
+                        service.findFilmsAfter(100, 50),
+                        service.findFilmsByCategories(categories),
+                        service.findFilmsByActors(actorNames).values().asList(),
+                        service.findFilmsByIds(ImmutableSet.of(1, 2, 3)).values().asList()
+                )).stream().flatMap(List::stream).toList());
+            }
+
+            // Some films have no actors, so empty nested collections are compared as well
+            assertThat(filmListsByStrategy.getFirst()).anyMatch(film -> film.actors().isEmpty());
+            assertThat(filmListsByStrategy).allMatch(films -> films.equals(filmListsByStrategy.getFirst()));
+        }
+    }
+
+    @Test
+    void sharesEqualModelObjects() {
+        List<Film> films = filmService.findAllFilms();
+
+        Set<Object> actorInstances = Collections.newSetFromMap(new IdentityHashMap<>());
+        films.forEach(f -> actorInstances.addAll(f.actors()));
+        assertThat(actorInstances).hasSize(200);
+
+        List<Customer> customers = customerService.findAllCustomers();
+
+        Set<Object> storeInstances = Collections.newSetFromMap(new IdentityHashMap<>());
+        customers.forEach(c -> storeInstances.add(c.store()));
+        assertThat(storeInstances).hasSize(2);
+    }
+
+    @Test
+    void findsFilmPages() {
+        List<Film> allFilms = filmService.findAllFilms();
+
+        List<Film> pagedFilms = new ArrayList<>();
+        List<Film> page = filmService.findFilmsAfter(0, 100);
+
+        while (!page.isEmpty()) {
+            assertThat(page.size()).isLessThanOrEqualTo(100);
+            pagedFilms.addAll(page);
+            page = filmService.findFilmsAfter(page.getLast().idOption().orElseThrow(), 100);
+        }
+
+        assertThat(pagedFilms).isEqualTo(allFilms);
+    }
+
+    @Test
+    void findsSummaries() {
+        List<FilmSummary> filmSummaries = filmService.findFilmSummariesAfter(10, 50);
+
+        assertThat(filmSummaries).isEqualTo(
+                filmService.findFilmsAfter(10, 50).stream().map(FilmSummary::fromFilm).toList()
+        );
+
+        List<CustomerSummary> customerSummaries = customerService.findCustomerSummariesAfter(10, 50);
+
+        assertThat(customerSummaries).isEqualTo(
+                customerService.findCustomersAfter(10, 50).stream().map(CustomerSummary::fromCustomer).toList()
+        );
+
+        Set<Object> storeAddressInstances = Collections.newSetFromMap(new IdentityHashMap<>());
+        customerSummaries.forEach(c -> storeAddressInstances.add(c.storeAddress()));
+        assertThat(storeAddressInstances).hasSize(2);
+    }
+
+    @Test
+    void searchesFilms() {
+        List<Film> astronautFilms = filmService.searchFilms("astronaut", Optional.empty(), Optional.empty(), 10);
+
+        assertThat(astronautFilms).isNotEmpty();
+        assertThat(astronautFilms.size()).isLessThanOrEqualTo(10);
+        assertThat(astronautFilms).allMatch(f ->
+                (f.title() + " " + f.descriptionOption().orElse("")).toLowerCase().contains("astronaut")
+        );
+
+        List<Film> travelAstronautFilms =
+                filmService.searchFilms("astronaut", Optional.of("travel"), Optional.of("english"), 10);
+
+        assertThat(travelAstronautFilms).allMatch(f ->
+                f.categories().stream().anyMatch(c -> c.name().equalsIgnoreCase("travel"))
+        );
+        assertThat(travelAstronautFilms).allMatch(f -> f.language().strip().equalsIgnoreCase("english"));
+    }
+
+    @Test
+    void findsCustomersByLastName() {
+        List<Customer> allCustomers = customerService.findAllCustomers();
+
+        List<Customer> prefixMatches =
+                customerService.findCustomersByLastName("wi", NameMatch.PREFIX, OptionalInt.empty(), 0, 100);
+
+        assertThat(prefixMatches).isNotEmpty();
+        assertThat(prefixMatches).isEqualTo(
+                allCustomers.stream().filter(c -> c.lastName().startsWith("WI")).toList()
+        );
+
+        List<Customer> exactMatches =
+                customerService.findCustomersByLastName(" Williams ", NameMatch.EXACT, OptionalInt.empty(), 0, 100);
+
+        assertThat(exactMatches).isNotEmpty();
+        assertThat(exactMatches).allMatch(c -> c.lastName().equals("WILLIAMS"));
+
+        int storeId = prefixMatches.getFirst().store().idOption().orElseThrow();
+        List<Customer> storeMatches =
+                customerService.findCustomersByLastName("WI", NameMatch.PREFIX, OptionalInt.of(storeId), 0, 100);
+
+        assertThat(storeMatches).isEqualTo(
+                prefixMatches.stream().filter(c -> c.store().idOption().orElseThrow() == storeId).toList()
+        );
+
+        // Keyset pagination, like for all customers
+        List<Customer> secondPage = customerService.findCustomersByLastName(
+                "WI",
+                NameMatch.PREFIX,
+                OptionalInt.empty(),
+                prefixMatches.getFirst().idOption().orElseThrow(),
+                100
+        );
+
+        assertThat(secondPage).isEqualTo(prefixMatches.subList(1, prefixMatches.size()));
+
+        // Prefixes ending with 'Z' (such as "LOPEZ" and "GONZ") need special care in computing the range
+        List<String> zPrefixes = Stream.concat(
+                allCustomers.stream().map(Customer::lastName).filter(n -> n.endsWith("Z")),
+                Stream.of("GONZ")
+        ).distinct().toList();
+
+        assertThat(zPrefixes).contains("LOPEZ", "GONZALEZ", "MARTINEZ");
+        for (String zPrefix : zPrefixes) {
+            List<Customer> zPrefixMatches = customerService.findCustomersByLastName(
+                    zPrefix.toLowerCase(Locale.ROOT),
+                    NameMatch.PREFIX,
+                    OptionalInt.empty(),
+                    0,
+                    1000
+            );
+
+            assertThat(zPrefixMatches).isNotEmpty();
+            assertThat(zPrefixMatches).isEqualTo(
+                    allCustomers.stream().filter(c -> c.lastName().startsWith(zPrefix)).toList()
+            );
+        }
+    }
+
+    @Test
+    void findsTypeaheadEntries() {
+        List<TypeaheadEntry> guinessEntries = typeaheadService.findTypeaheadEntries("guin", 10);
+
+        assertThat(guinessEntries).isNotEmpty();
+        assertThat(guinessEntries).allMatch(e -> e.matchingSearchKey("guin").isPresent());
+        assertThat(guinessEntries).anyMatch(e ->
+                e.kind() == TypeaheadEntry.Kind.ACTOR_NAME && e.text().equals("PENELOPE GUINESS")
+        );
+
+        List<TypeaheadEntry> acEntries = typeaheadService.findTypeaheadEntries("Ac", 5);
+
+        assertThat(acEntries).hasSize(5);
+        assertThat(acEntries).allMatch(e -> e.matchingSearchKey("ac").isPresent());
+
+        List<TypeaheadEntry> filmTitleEntries =
+                typeaheadService.findAllTypeaheadEntries().stream()
+                        .filter(e -> e.kind() == TypeaheadEntry.Kind.FILM_TITLE)
+                        .toList();
+
+        assertThat(filmTitleEntries).hasSize(1000);
+    }
+
+    @Test
+    void findsFilmAvailability() {
+        ImmutableSet<Integer> filmIds = IntStream.rangeClosed(1, 50).boxed().collect(ImmutableSet.toImmutableSet());
+        List<FilmAvailability> availability = storeService.findFilmAvailability(filmIds);
+
+        assertThat(availability).isNotEmpty();
+        assertThat(availability).allMatch(v -> v.inStockCount() <= v.inventoryCount());
+
+        // Comparing with the row-at-a-time database function film_in_stock
+        for (FilmAvailability filmAvailability : availability) {
+            int expectedInStockCount = jdbcClient
+                    .sql("select count(*) from film_in_stock(?, ?)")
+                    .params(filmAvailability.filmId(), filmAvailability.storeId())
+                    .query(Integer.class)
+                    .single();
+
+            assertThat(filmAvailability.inStockCount()).isEqualTo(expectedInStockCount);
+        }
+
+        int expectedInventoryCount = jdbcClient
+                .sql("select count(*) from inventory where film_id between 1 and 50")
+                .query(Integer.class)
+                .single();
+
+        assertThat(availability.stream().mapToInt(FilmAvailability::inventoryCount).sum())
+                .isEqualTo(expectedInventoryCount);
+    }
+
+    @Test
+    void findsFilmCatalogVersion() {
+        DataVersion dataVersion = dataVersionService.findFilmCatalogVersion();
+
+        assertThat(dataVersion.lastUpdateOption()).isPresent();
+        assertThat(dataVersion.rowCount()).isEqualTo(1000L + 5462L + 2367L + 200L);
+        assertThat(dataVersionService.findFilmCatalogVersion()).isEqualTo(dataVersion);
+    }
+
+    @Test
+    void findsDataVersions() {
+        for (TableGroup tableGroup : TableGroup.values()) {
+            DataVersion dataVersion = dataVersionService.findDataVersion(tableGroup);
+
+            assertThat(dataVersion.lastUpdateOption()).isPresent();
+            assertThat(dataVersion.rowCount()).isGreaterThan(0L);
+        }
+
+        assertThat(dataVersionService.findDataVersion(TableGroup.ADDRESSES).rowCount()).isEqualTo(603L + 600L + 109L);
+    }
+
+    @Test
+    void answersConditionalGets() throws IOException, InterruptedException {
+        try (HttpClient httpClient = HttpClient.newHttpClient()) {
+            for (String path : List.of("/films", "/customers", "/customers?lastName=sm", "/addresses", "/stores", "/staff")) {
+                URI uri = URI.create(String.format("http://localhost:%d%s", port, path));
+
+                HttpResponse<String> response =
+                        httpClient.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+
+                assertThat(response.statusCode()).isEqualTo(200);
+                String etag = response.headers().firstValue("ETag").orElseThrow();
+
+                HttpResponse<String> conditionalResponse = httpClient.send(
+                        HttpRequest.newBuilder(uri).header("If-None-Match", etag).build(),
+                        HttpResponse.BodyHandlers.ofString()
+                );
+
+                assertThat(conditionalResponse.statusCode()).isEqualTo(304);
+                assertThat(conditionalResponse.body()).isEmpty();
+
+                // Served from the page cache, as pre-compressed bytes
+                HttpResponse<InputStream> gzipResponse = httpClient.send(
+                        HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip").build(),
+                        HttpResponse.BodyHandlers.ofInputStream()
+                );
+
+                assertThat(gzipResponse.statusCode()).isEqualTo(200);
+                assertThat(gzipResponse.headers().firstValue("Content-Encoding")).hasValue("gzip");
+                try (InputStream is = new GZIPInputStream(gzipResponse.body())) {
+                    assertThat(new String(is.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(response.body());
+                }
+
+                // Invalid or zero quality values make gzip unacceptable, instead of failing the request
+                for (String acceptEncoding : List.of("gzip;q=abc", "gzip;q=1.5", "gzip;q=0, *;q=1")) {
+                    HttpResponse<String> identityResponse = httpClient.send(
+                            HttpRequest.newBuilder(uri).header("Accept-Encoding", acceptEncoding).build(),
+                            HttpResponse.BodyHandlers.ofString()
+                    );
+
+                    assertThat(identityResponse.statusCode()).isEqualTo(200);
+                    assertThat(identityResponse.headers().firstValue("Content-Encoding")).isEmpty();
+                    assertThat(identityResponse.body()).isEqualTo(response.body());
+                }
+            }
+        }
+    }
+
+    @Test
+    void servesFilmAvailabilitySeparately() throws IOException, InterruptedException {
+        try (HttpClient httpClient = HttpClient.newHttpClient()) {
+            URI uri = URI.create(String.format("http://localhost:%d/films/availability?filmId=1&filmId=2", port));
+
+            HttpResponse<String> response =
+                    httpClient.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+
+            // Availability is not covered by the data version of the film pages, so it must never be cached
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.headers().firstValue("Cache-Control")).hasValue("no-store");
+            assertThat(response.headers().firstValue("ETag")).isEmpty();
+            assertThat(response.body()).contains("\"filmId\":1", "\"filmId\":2", "\"inStockCount\"");
+        }
+    }
+
+    @Test
+    void servesStaffPictures() throws IOException, InterruptedException {
+        // The test data contains no pictures, so one is added here (a PNG signature followed by a few bytes)
+        byte[] picture = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+        int staffId = jdbcClient.sql("select min(staff_id) from staff").query(Integer.class).single();
+        int staffIdWithoutPicture = jdbcClient.sql("select max(staff_id) from staff").query(Integer.class).single();
+
+        jdbcClient.sql("update staff set picture = ? where staff_id = ?").params(picture, staffId).update();
+
+        try (HttpClient httpClient = HttpClient.newHttpClient()) {
+            URI uri = URI.create(String.format("http://localhost:%d/staff/%d/picture", port, staffId));
+
+            HttpResponse<byte[]> response =
+                    httpClient.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.body()).isEqualTo(picture);
+            assertThat(response.headers().firstValue("Content-Type")).hasValue("image/png");
+            assertThat(response.headers().firstValue("Cache-Control").orElseThrow()).contains("max-age=3600");
+            String etag = response.headers().firstValue("ETag").orElseThrow();
+
+            HttpResponse<byte[]> conditionalResponse = httpClient.send(
+                    HttpRequest.newBuilder(uri).header("If-None-Match", etag).build(),
+                    HttpResponse.BodyHandlers.ofByteArray()
+            );
+
+            assertThat(conditionalResponse.statusCode()).isEqualTo(304);
+            assertThat(conditionalResponse.body()).isEmpty();
+
+            for (int id : List.of(staffIdWithoutPicture, Integer.MAX_VALUE)) {
+                URI missingPictureUri = URI.create(String.format("http://localhost:%d/staff/%d/picture", port, id));
+
+                HttpResponse<byte[]> missingPictureResponse = httpClient.send(
+                        HttpRequest.newBuilder(missingPictureUri).build(),
+                        HttpResponse.BodyHandlers.ofByteArray()
+                );
+
+                assertThat(missingPictureResponse.statusCode()).isEqualTo(404);
+
+                // The ETag is derived from the data version of all staff members, so it matches here as well
+                HttpResponse<byte[]> conditionalMissingPictureResponse = httpClient.send(
+                        HttpRequest.newBuilder(missingPictureUri).header("If-None-Match", etag).build(),
+                        HttpResponse.BodyHandlers.ofByteArray()
+                );
+
+                assertThat(conditionalMissingPictureResponse.statusCode()).isEqualTo(404);
+            }
+        } finally {
+            jdbcClient.sql("update staff set picture = null where staff_id = ?").param(staffId).update();
+        }
+    }
+
+    @Test
+    void exposesPrometheusMetrics() throws IOException, InterruptedException {
+        try (HttpClient httpClient = HttpClient.newHttpClient()) {
+            URI filmsUri = URI.create(String.format("http://localhost:%d/films?size=7", port));
+            HttpResponse<String> filmsResponse =
+                    httpClient.send(HttpRequest.newBuilder(filmsUri).build(), HttpResponse.BodyHandlers.ofString());
+
+            assertThat(filmsResponse.statusCode()).isEqualTo(200);
+
+            URI metricsUri = URI.create(String.format("http://localhost:%d/actuator/prometheus", port));
+            HttpResponse<String> metricsResponse =
+                    httpClient.send(HttpRequest.newBuilder(metricsUri).build(), HttpResponse.BodyHandlers.ofString());
+
+            assertThat(metricsResponse.statusCode()).isEqualTo(200);
+
+            List<String> serviceTimerLines = metricsResponse.body().lines()
+                    .filter(line -> line.startsWith("pagila_service_seconds_count"))
+                    .filter(line -> line.contains("implementation=\"jpa\""))
+                    .filter(line -> line.contains("service=\"FilmService\""))
+                    .toList();
+
+            assertThat(serviceTimerLines).isNotEmpty();
+            assertThat(metricsResponse.body())
+                    .contains("pagila_service_seconds{")
+                    .contains("quantile=\"0.99\"")
+                    .contains("pagila_view_render_seconds_count{exception=\"none\",view=\"films\"")
+                    .contains("hikaricp_connections_active");
+        }
+    }
+
+    @Test
+    void profilesJooqQueries() {
+        int filmCount = jdbcClient.sql("select count(*) from film where rating = 'PG'").query(Integer.class).single();
+
+        for (int i = 0; i < 3; i++) {
+            dsl.fetch("select film_id, title from film where rating = cast(? as mpaa_rating)", "PG");
+        }
+
+        QueryProfile profile = jooqQueryProfiler.findTopQueries(Integer.MAX_VALUE)
+                .stream()
+                .filter(p -> p.sql().contains("from film where rating = cast(? as mpaa_rating)"))
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(profile.calls()).isGreaterThanOrEqualTo(3);
+        assertThat(profile.rows()).isEqualTo(profile.calls() * filmCount);
+        assertThat(profile.executeMillis()).isPositive();
+        assertThat(profile.totalMillis())
+                .isGreaterThanOrEqualTo(profile.renderMillis() + profile.prepareMillis() + profile.executeMillis());
+    }
+
+    @Test
+    void streamsFilms() {
+        List<Film> allFilms = filmService.findAllFilms();
+
+        List<Film> streamedFilms = new ArrayList<>();
+        filmService.forEachFilm(streamedFilms::add);
+
+        assertThat(streamedFilms).isEqualTo(allFilms);
+    }
+
+    @Test
+    void streamsAddresses() {
+        List<Address> allAddresses = addressService.findAllAddresses();
+
+        List<Address> streamedAddresses = new ArrayList<>();
+        addressService.forEachAddress(streamedAddresses::add);
+
+        assertThat(streamedAddresses).isEqualTo(allAddresses);
+    }
+
+    @Test
+    void cachesReferenceData() {
+        addressService.findAllAddresses();
+        addressService.findAllAddresses();
+
+        List<CacheRegionStatistics> regions = cacheStatisticsService.findSecondLevelCacheStatistics();
+        Set<String> regionNames = regions.stream().map(CacheRegionStatistics::regionName).collect(Collectors.toSet());
+
+        assertThat(regionNames).contains("pagila.city", "pagila.country");
+        assertThat(regions.stream().filter(r -> r.regionName().equals("pagila.city")).findFirst().orElseThrow().hitCount())
+                .isGreaterThan(0L);
+    }
 }
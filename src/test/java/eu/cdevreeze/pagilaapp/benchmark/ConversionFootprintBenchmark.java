@@ -0,0 +1,121 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.PagilaApplication;
+import eu.cdevreeze.pagilaapp.model.Customer;
+import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.service.CustomerService;
+import eu.cdevreeze.pagilaapp.service.FilmService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jol.info.GraphLayout;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the conversion of query results to model objects, for both the JPA and jOOQ service
+ * implementations. Besides timing findAllFilms and findAllCustomers, it reports the retained heap size of
+ * their results, and how many of the referenced actors and stores are distinct instances. Without
+ * canonicalization, each film would have its own actor instances, and each customer its own store instance.
+ * <p>
+ * The benchmark runs against the database configured in application.properties. Run it with
+ * "mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ConversionFootprintBenchmark". The allocation rate
+ * is reported as well, by the JMH GC profiler.
+ *
+ * @author Chris de Vreeze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConversionFootprintBenchmark {
+
+    @Param({"false", "true"})
+    public boolean useJooq;
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private FilmService filmService;
+
+    private CustomerService customerService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Passed as command line arguments, because default properties do not override application.properties
+        applicationContext = new SpringApplicationBuilder(PagilaApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--useJooq=" + useJooq,
+                        "--useFilmCatalogSnapshot=false",
+                        "--useServiceResultCache=false",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.org.jooq.tools.LoggerListener=INFO"
+                );
+        filmService = applicationContext.getBean(FilmService.class);
+        customerService = applicationContext.getBean(CustomerService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ImmutableList<Film> films = filmService.findAllFilms();
+        ImmutableList<Customer> customers = customerService.findAllCustomers();
+
+        System.out.printf(
+                "%nfindAllFilms (useJooq=%s): %d films, retained size %d bytes, %d actor references, %d distinct actor instances%n",
+                useJooq,
+                films.size(),
+                GraphLayout.parseInstance(films).totalSize(),
+                films.stream().mapToInt(f -> f.actors().size()).sum(),
+                countDistinctInstances(films.stream().flatMap(f -> f.actors().stream()).toList())
+        );
+        System.out.printf(
+                "findAllCustomers (useJooq=%s): %d customers, retained size %d bytes, %d distinct store instances%n",
+                useJooq,
+                customers.size(),
+                GraphLayout.parseInstance(customers).totalSize(),
+                countDistinctInstances(customers.stream().map(Customer::store).toList())
+        );
+
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public ImmutableList<Film> findAllFilms() {
+        return filmService.findAllFilms();
+    }
+
+    @Benchmark
+    public ImmutableList<Customer> findAllCustomers() {
+        return customerService.findAllCustomers();
+    }
+
+    private static int countDistinctInstances(List<?> objects) {
+        Set<Object> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        instances.addAll(objects);
+        return instances.size();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.benchmark;
+
+import javax.net.SocketFactory;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Socket factory for the PostgreSQL JDBC driver, counting the bytes received from the database server.
+ * It is configured through JDBC connection property "socketFactory", and is only meant for benchmarks and tests.
+ * <p>
+ * The bytes are counted both in total and per reading thread. Since JDBC calls are blocking, the bytes read by
+ * a thread are the bytes received for the statements executed by that thread.
+ *
+ * @author Chris de Vreeze
+ */
+public class CountingSocketFactory extends SocketFactory {
+
+    private static final AtomicLong BYTES_RECEIVED = new AtomicLong();
+
+    private static final ThreadLocal<long[]> THREAD_BYTES_RECEIVED = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Returns the number of bytes received so far, over all connections created by this socket factory.
+     */
+    public static long bytesReceived() {
+        return BYTES_RECEIVED.get();
+    }
+
+    /**
+     * Returns the number of bytes received so far by the current thread, over all connections created by this
+     * socket factory.
+     */
+    public static long bytesReceivedByCurrentThread() {
+        return THREAD_BYTES_RECEIVED.get()[0];
+    }
+
+    @Override
+    public Socket createSocket() {
+        return new CountingSocket();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        Socket socket = createSocket();
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        Socket socket = createSocket();
+        socket.bind(new InetSocketAddress(localHost, localPort));
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        Socket socket = createSocket();
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        Socket socket = createSocket();
+        socket.bind(new InetSocketAddress(localAddress, localPort));
+        socket.connect(new InetSocketAddress(address, port));
+        return socket;
+    }
+
+    private static final class CountingSocket extends Socket {
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+
+                @Override
+                public int read() throws IOException {
+                    int result = super.read();
+                    if (result >= 0) {
+                        BYTES_RECEIVED.incrementAndGet();
+                        THREAD_BYTES_RECEIVED.get()[0] += 1;
+                    }
+                    return result;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int count = super.read(b, off, len);
+                    if (count > 0) {
+                        BYTES_RECEIVED.addAndGet(count);
+                        THREAD_BYTES_RECEIVED.get()[0] += count;
+                    }
+                    return count;
+                }
+            };
+        }
+    }
+}
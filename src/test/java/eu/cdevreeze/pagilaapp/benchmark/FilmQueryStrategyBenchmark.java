@@ -0,0 +1,86 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.pagilaapp.PagilaApplication;
+import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.service.FilmService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing the film query strategies (JOIN versus IDS_FIRST) for film queries filtering
+ * on categories and actors, for both the JPA and jOOQ FilmService implementations.
+ * <p>
+ * The benchmark runs against the database configured in application.properties, so the data volume
+ * is that of that database. Run it with "mvn -Pbenchmark test-compile exec:exec -Dbenchmark=FilmQueryStrategyBenchmark".
+ *
+ * @author Chris de Vreeze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FilmQueryStrategyBenchmark {
+
+    @Param({"false", "true"})
+    public boolean useJooq;
+
+    @Param({"JOIN", "IDS_FIRST"})
+    public String filmQueryStrategy;
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Passed as command line arguments, because default properties do not override application.properties
+        applicationContext = new SpringApplicationBuilder(PagilaApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--useJooq=" + useJooq,
+                        "--filmQueryStrategy=" + filmQueryStrategy,
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.org.jooq.tools.LoggerListener=INFO"
+                );
+        filmService = applicationContext.getBean(FilmService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public ImmutableList<Film> findFilmsByCategories() {
+        return filmService.findFilmsByCategories(ImmutableSet.of("Action", "Comedy", "Drama"));
+    }
+
+    @Benchmark
+    public ImmutableList<Film> findFilmsByActor() {
+        return filmService.findFilmsByActor("Penelope", "Guiness");
+    }
+}
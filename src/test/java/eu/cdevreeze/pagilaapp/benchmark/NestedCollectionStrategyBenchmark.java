@@ -0,0 +1,185 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.PagilaApplication;
+import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.service.FilmService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.MountableFile;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing the nested collection strategies of the jOOQ FilmService implementation,
+ * for method findAllFilms, at different film catalog sizes.
+ * <p>
+ * Latency is measured by JMH itself. Client CPU time and the number of bytes received from the database
+ * (counted by the {@link CountingSocketFactory}) are reported per call at the end of each trial. Allocation
+ * rates are reported by the JMH GC profiler.
+ * <p>
+ * The benchmark runs against a throwaway PostgreSQL Docker container (Testcontainers) holding the Pagila
+ * database, like the integration tests, started anew for each trial. For larger catalog sizes, copies of the
+ * original films (and their category and actor links) are inserted before the trial, so no database other
+ * than the container is ever modified. Run it with "mvn -Pbenchmark test-compile exec:exec -Dbenchmark=NestedCollectionStrategyBenchmark".
+ *
+ * @author Chris de Vreeze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class NestedCollectionStrategyBenchmark {
+
+    @Param({"MULTISET_JSONB", "ARRAY_AGG", "BATCHED"})
+    public String nestedCollectionStrategy;
+
+    @Param({"1000", "100000"})
+    public int filmCount;
+
+    private PostgreSQLContainer<?> postgres;
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private FilmService filmService;
+
+    private JdbcClient jdbcClient;
+
+    private int maxOriginalFilmId;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private long callCount;
+    private long cpuNanos;
+    private long bytesReceived;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+                .withDatabaseName("pagilaTest")
+                .withUsername("postgres")
+                .withPassword("postgres")
+                .withCopyFileToContainer(
+                        MountableFile.forClasspathResource("pagila-schema.sql"),
+                        "/docker-entrypoint-initdb.d/01-schema.sql"
+                )
+                .withCopyFileToContainer(
+                        MountableFile.forClasspathResource("pagila-data.sql"),
+                        "/docker-entrypoint-initdb.d/02-data.sql"
+                )
+                .withExposedPorts(5432);
+        postgres.start();
+
+        // Passed as command line arguments, because default properties do not override application.properties
+        applicationContext = new SpringApplicationBuilder(PagilaApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "--spring.datasource.username=" + postgres.getUsername(),
+                        "--spring.datasource.password=" + postgres.getPassword(),
+                        "--useJooq=true",
+                        "--nestedCollectionStrategy=" + nestedCollectionStrategy,
+                        "--spring.datasource.hikari.data-source-properties.socketFactory=" +
+                                CountingSocketFactory.class.getName(),
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.org.jooq.tools.LoggerListener=INFO"
+                );
+        filmService = applicationContext.getBean(FilmService.class);
+        jdbcClient = JdbcClient.create(applicationContext.getBean(DataSource.class));
+
+        maxOriginalFilmId = jdbcClient.sql("select max(film_id) from film").query(Integer.class).single();
+        int originalFilmCount = jdbcClient.sql("select count(*) from film").query(Integer.class).single();
+        int copyCount = Math.max(0, filmCount / originalFilmCount - 1);
+
+        if (copyCount > 0) {
+            copyFilms(copyCount);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf(
+                "%n%s, %d films: %.1f ms client CPU time and %d bytes received per call%n",
+                nestedCollectionStrategy,
+                filmCount,
+                cpuNanos / 1_000_000.0 / callCount,
+                bytesReceived / callCount
+        );
+
+        applicationContext.close();
+        // Discarding the container, including the inserted film copies
+        postgres.stop();
+    }
+
+    @Benchmark
+    public ImmutableList<Film> findAllFilms() {
+        long cpuStart = threadMXBean.getCurrentThreadCpuTime();
+        long bytesStart = CountingSocketFactory.bytesReceived();
+
+        ImmutableList<Film> films = filmService.findAllFilms();
+
+        cpuNanos += threadMXBean.getCurrentThreadCpuTime() - cpuStart;
+        bytesReceived += CountingSocketFactory.bytesReceived() - bytesStart;
+        callCount += 1;
+        return films;
+    }
+
+    private void copyFilms(int copyCount) {
+        // Copies get a distinct title, which is used to find the original film when copying the links
+        jdbcClient.sql("""
+                        insert into film (title, description, release_year, language_id, original_language_id,
+                            rental_duration, rental_rate, length, replacement_cost, rating, special_features)
+                        select f.title || ' ' || g.copy, f.description, f.release_year, f.language_id,
+                            f.original_language_id, f.rental_duration, f.rental_rate, f.length, f.replacement_cost,
+                            f.rating, f.special_features
+                        from film f cross join generate_series(1, :copyCount) g(copy)
+                        where f.film_id <= :maxFilmId
+                        order by g.copy, f.film_id
+                        """)
+                .param("copyCount", copyCount)
+                .param("maxFilmId", maxOriginalFilmId)
+                .update();
+
+        for (String linkTable : ImmutableList.of("film_category", "film_actor")) {
+            String linkColumn = linkTable.equals("film_category") ? "category_id" : "actor_id";
+
+            jdbcClient.sql("""
+                            insert into %1$s (film_id, %2$s)
+                            select c.film_id, l.%2$s
+                            from film f
+                            join %1$s l on l.film_id = f.film_id
+                            cross join generate_series(1, :copyCount) g(copy)
+                            join film c on c.title = f.title || ' ' || g.copy
+                            where f.film_id <= :maxFilmId
+                            """.formatted(linkTable, linkColumn))
+                    .param("copyCount", copyCount)
+                    .param("maxFilmId", maxOriginalFilmId)
+                    .update();
+        }
+    }
+}
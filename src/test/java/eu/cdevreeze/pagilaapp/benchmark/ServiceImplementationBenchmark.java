@@ -0,0 +1,282 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.pagilaapp.PagilaApplication;
+import eu.cdevreeze.pagilaapp.model.*;
+import eu.cdevreeze.pagilaapp.service.*;
+import eu.cdevreeze.pagilaapp.service.snapshotimpl.SnapshotTypeaheadService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * JMH benchmark comparing the JPA and jOOQ service implementations, method by method, for all service methods
+ * that query the database. Only the database-backed implementations are measured, so the film catalog snapshot,
+ * service result caches and page cache are off, and typeahead queries bypass the in-memory typeahead index.
+ * <p>
+ * Both throughput and latency are reported, and the allocation rate per operation is reported by the JMH GC
+ * profiler (which is on by default in the benchmark profile).
+ * <p>
+ * The benchmark runs against the database configured in application.properties, which is the Pagila database
+ * (see the README). Run it with "mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ServiceImplementationBenchmark",
+ * or select some methods with a regular expression, e.g. "-Dbenchmark=ServiceImplementationBenchmark.findAll".
+ *
+ * @author Chris de Vreeze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class ServiceImplementationBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final ImmutableSet<Integer> FILM_IDS =
+            IntStream.rangeClosed(1, PAGE_SIZE).boxed().collect(ImmutableSet.toImmutableSet());
+
+    @Param({"false", "true"})
+    public boolean useJooq;
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private FilmService filmService;
+    private CustomerService customerService;
+    private AddressService addressService;
+    private StaffService staffService;
+    private StoreService storeService;
+    private DataVersionService dataVersionService;
+    private TypeaheadService typeaheadService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Passed as command line arguments, because default properties do not override application.properties
+        applicationContext = new SpringApplicationBuilder(PagilaApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--useJooq=" + useJooq,
+                        "--useFilmCatalogSnapshot=false",
+                        "--useServiceResultCache=false",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.org.jooq.tools.LoggerListener=INFO"
+                );
+        filmService = applicationContext.getBean(FilmService.class);
+        customerService = applicationContext.getBean(CustomerService.class);
+        addressService = applicationContext.getBean(AddressService.class);
+        staffService = applicationContext.getBean(StaffService.class);
+        storeService = applicationContext.getBean(StoreService.class);
+        dataVersionService = applicationContext.getBean(DataVersionService.class);
+        // The database-backed TypeaheadService, and not the in-memory one decorating it
+        typeaheadService = applicationContext.getBeansOfType(TypeaheadService.class)
+                .values()
+                .stream()
+                .filter(service -> !(service instanceof SnapshotTypeaheadService))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    // FilmService
+
+    @Benchmark
+    public ImmutableList<Film> findAllFilms() {
+        return filmService.findAllFilms();
+    }
+
+    @Benchmark
+    public ImmutableList<Film> findFilmsAfter() {
+        return filmService.findFilmsAfter(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ImmutableList<FilmSummary> findFilmSummariesAfter() {
+        return filmService.findFilmSummariesAfter(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void forEachFilm(Blackhole blackhole) {
+        filmService.forEachFilm(blackhole::consume);
+    }
+
+    @Benchmark
+    public ImmutableList<Film> findFilmsByLanguage() {
+        return filmService.findFilmsByLanguage("English");
+    }
+
+    @Benchmark
+    public ImmutableList<Film> findFilmsByCategory() {
+        return filmService.findFilmsByCategory("Action");
+    }
+
+    @Benchmark
+    public ImmutableList<Film> findFilmsByCategories() {
+        return filmService.findFilmsByCategories(ImmutableSet.of("Action", "Comedy", "Drama"));
+    }
+
+    @Benchmark
+    public ImmutableList<Film> findFilmsByActor() {
+        return filmService.findFilmsByActor("Penelope", "Guiness");
+    }
+
+    @Benchmark
+    public ImmutableListMultimap<ActorName, Film> findFilmsByActors() {
+        return filmService.findFilmsByActors(ImmutableSet.of(
+                new ActorName("Penelope", "Guiness"),
+                new ActorName("Nick", "Wahlberg"),
+                new ActorName("Ed", "Chase")
+        ));
+    }
+
+    @Benchmark
+    public ImmutableMap<Integer, Film> findFilmsByIds() {
+        return filmService.findFilmsByIds(FILM_IDS);
+    }
+
+    @Benchmark
+    public ImmutableSet<String> findAllFilmCategories() {
+        return filmService.findAllFilmCategories();
+    }
+
+    @Benchmark
+    public ImmutableList<Film> searchFilms() {
+        return filmService.searchFilms("dinosaur", Optional.empty(), Optional.empty(), PAGE_SIZE);
+    }
+
+    // CustomerService
+
+    @Benchmark
+    public ImmutableList<Customer> findAllCustomers() {
+        return customerService.findAllCustomers();
+    }
+
+    @Benchmark
+    public ImmutableList<Customer> findCustomersAfter() {
+        return customerService.findCustomersAfter(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ImmutableList<CustomerSummary> findCustomerSummariesAfter() {
+        return customerService.findCustomerSummariesAfter(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ImmutableList<Customer> findCustomersByLastName() {
+        return customerService.findCustomersByLastName("SM", NameMatch.PREFIX, OptionalInt.empty(), 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void forEachCustomer(Blackhole blackhole) {
+        customerService.forEachCustomer(blackhole::consume);
+    }
+
+    // AddressService
+
+    @Benchmark
+    public ImmutableList<Address> findAllAddresses() {
+        return addressService.findAllAddresses();
+    }
+
+    @Benchmark
+    public ImmutableList<Address> findAddressesAfter() {
+        return addressService.findAddressesAfter(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void forEachAddress(Blackhole blackhole) {
+        addressService.forEachAddress(blackhole::consume);
+    }
+
+    // StaffService
+
+    @Benchmark
+    public ImmutableList<Staff> findAllStaffMembers() {
+        return staffService.findAllStaffMembers();
+    }
+
+    @Benchmark
+    public ImmutableList<Staff> findStaffMembersAfter() {
+        return staffService.findStaffMembersAfter(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void forEachStaffMember(Blackhole blackhole) {
+        staffService.forEachStaffMember(blackhole::consume);
+    }
+
+    // StoreService
+
+    @Benchmark
+    public ImmutableList<Store> findAllStores() {
+        return storeService.findAllStores();
+    }
+
+    @Benchmark
+    public ImmutableList<Store> findStoresAfter() {
+        return storeService.findStoresAfter(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void forEachStore(Blackhole blackhole) {
+        storeService.forEachStore(blackhole::consume);
+    }
+
+    @Benchmark
+    public ImmutableList<FilmAvailability> findFilmAvailability() {
+        return storeService.findFilmAvailability(FILM_IDS);
+    }
+
+    // DataVersionService
+
+    @Benchmark
+    public DataVersion findFilmCatalogVersion() {
+        return dataVersionService.findFilmCatalogVersion();
+    }
+
+    @Benchmark
+    public DataVersion findDataVersion() {
+        return dataVersionService.findDataVersion(TableGroup.CUSTOMERS);
+    }
+
+    // TypeaheadService
+
+    @Benchmark
+    public ImmutableList<TypeaheadEntry> findAllTypeaheadEntries() {
+        return typeaheadService.findAllTypeaheadEntries();
+    }
+
+    @Benchmark
+    public ImmutableList<TypeaheadEntry> findTypeaheadEntries() {
+        return typeaheadService.findTypeaheadEntries("pen", 10);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.benchmark;
+
+import eu.cdevreeze.pagilaapp.PagilaApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing request handling on platform threads (Tomcat's thread pool) with request handling
+ * on virtual threads (with the database bulkhead), under a load of many concurrent clients and a small
+ * connection pool.
+ * <p>
+ * Mode "sample" reports latency percentiles (including p0.99), and mode "thrpt" reports throughput.
+ * Each client request is a films page, which takes three service calls (and transactions).
+ * The benchmark runs against the database configured in application.properties. Run it with
+ * "mvn -Pbenchmark test-compile exec:exec -Dbenchmark=VirtualThreadBenchmark".
+ *
+ * @author Chris de Vreeze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(400)
+public class VirtualThreadBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private HttpClient httpClient;
+
+    private URI filmsUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Passed as command line arguments, because default properties do not override application.properties
+        applicationContext = new SpringApplicationBuilder(PagilaApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run(
+                        "--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.datasource.hikari.maximum-pool-size=10",
+                        "--usePageCache=false",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.org.jooq.tools.LoggerListener=INFO"
+                );
+
+        int port = Integer.parseInt(
+                Objects.requireNonNull(applicationContext.getEnvironment().getProperty("local.server.port"))
+        );
+        filmsUri = URI.create(String.format("http://localhost:%d/films?size=100", port));
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        httpClient.close();
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public int findFilms() throws IOException, InterruptedException {
+        HttpResponse<Void> response =
+                httpClient.send(HttpRequest.newBuilder(filmsUri).build(), HttpResponse.BodyHandlers.discarding());
+
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status code " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
@@ -0,0 +1,617 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.datagen;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Generator of synthetic Pagila data, for capacity testing. It scales up the bundled Pagila dataset (1000 films,
+ * 599 customers, 16044 rentals etc.) by a given integral scale factor, adding films, actors, categories, inventory,
+ * customers (with their addresses), rentals and payments. Existing data is kept, and only the rows needed to reach
+ * the target volumes are added, so running the generator with scale factor 10 and then 100 results in a 100x dataset.
+ * <p>
+ * The generated data is referentially consistent, and it is skewed like real rental data: film popularity, actor
+ * casting and customer activity follow Zipf-like distributions, and so do actor and customer last names. The number
+ * of categories grows with the square root of the scale factor, so categories get larger as the catalog grows.
+ * Rental dates (and therefore payment dates) are spread over the range of the "payment_p2022_*" partitions.
+ * <p>
+ * Rows are loaded through COPY, with explicit IDs, after which the ID sequences are moved past the new maximum IDs.
+ * Payments are derived from the new rentals with a single INSERT ... SELECT, which routes them to the partitions.
+ * Everything happens in one transaction, after which the touched tables are analyzed. The generator uses the same
+ * random seed by default, so the generated data is reproducible.
+ * <p>
+ * Besides being used programmatically (e.g. from tests), the generator can be run against the database configured
+ * in application.properties (see the README), with "mvn -Pdatagen test-compile exec:exec -DdataGeneratorArgs=scale=100".
+ * The arguments (all optional) are: url (default jdbc:postgresql://localhost:5432/pagila), user (default postgres),
+ * password (default postgres), scale (default 10) and seed (of the random generator, default 1).
+ *
+ * @author Chris de Vreeze
+ */
+public final class PagilaDataGenerator {
+
+    // Volumes of the bundled Pagila dataset, per unit of the scale factor
+
+    private static final int FILMS_PER_SCALE = 1000;
+    private static final int ACTORS_PER_SCALE = 200;
+    private static final int CATEGORIES_PER_SCALE = 16;
+    private static final int CUSTOMERS_PER_SCALE = 599;
+    private static final int RENTALS_PER_SCALE = 16044;
+
+    // Range of the payment partitions (payment_p2022_01 to payment_p2022_07), with an exclusive upper bound
+
+    private static final Instant FIRST_RENTAL_DATE = Instant.parse("2022-01-01T00:00:00Z");
+    private static final Instant RENTAL_DATE_UPPER_BOUND = Instant.parse("2022-08-01T00:00:00Z");
+
+    private static final double FILM_POPULARITY_EXPONENT = 0.8;
+    private static final double ACTOR_POPULARITY_EXPONENT = 0.7;
+    private static final double CATEGORY_POPULARITY_EXPONENT = 0.5;
+    private static final double CUSTOMER_ACTIVITY_EXPONENT = 0.5;
+    private static final double LAST_NAME_EXPONENT = 1.0;
+
+    private static final ImmutableList<String> GENRES = ImmutableList.of(
+            "Action", "Animation", "Children", "Classics", "Comedy", "Documentary", "Drama", "Family",
+            "Foreign", "Games", "Horror", "Music", "New", "Sci-Fi", "Sports", "Travel"
+    );
+
+    private static final ImmutableList<String> TITLE_WORDS = ImmutableList.of(
+            "ACADEMY", "ALABAMA", "ANGELS", "APOLLO", "ARMAGEDDON", "BALLROOM", "BEAST", "BIRDS", "BLADE", "BRIDE",
+            "BUTTERFLY", "CANYON", "CASPER", "CHAMBER", "CHICAGO", "CIRCUS", "CLOCKWORK", "COAST", "CONFIDENTIAL",
+            "CROW", "DANCES", "DARKNESS", "DESERT", "DINOSAUR", "DRAGON", "DREAM", "EGYPT", "FANTASY", "FIRE",
+            "FLAMINGOS", "FOREVER", "FRONTIER", "GALAXY", "GARDEN", "GHOST", "GLORY", "GOLDFINGER", "HARBOR",
+            "HEAVEN", "HOLIDAY", "HUNTER", "ISLAND", "JUNGLE", "KING", "LABYRINTH", "LEGEND", "MIDNIGHT", "MOON",
+            "MUSKETEERS", "NORTHWEST", "OCEAN", "PIRATES", "PRINCESS", "RAINBOW", "RIVER", "ROCKETEER", "SAINTS",
+            "SHADOW", "STORM", "SUNSET", "TITANIC", "TRAIN", "VOYAGE", "WARS", "WILD", "WIZARD", "ZORRO"
+    );
+
+    private static final ImmutableList<String> DESCRIPTION_ADJECTIVES = ImmutableList.of(
+            "Action-Packed", "Amazing", "Astounding", "Awe-Inspiring", "Beautiful", "Boring", "Brilliant",
+            "Emotional", "Epic", "Fanciful", "Fast-Paced", "Insightful", "Intrepid", "Lacklusture", "Stunning",
+            "Taut", "Thoughtful", "Touching", "Unbelieveable"
+    );
+
+    private static final ImmutableList<String> DESCRIPTION_GENRES = ImmutableList.of(
+            "Character Study", "Display", "Documentary", "Drama", "Epistle", "Panorama", "Reflection", "Saga",
+            "Story", "Tale", "Yarn"
+    );
+
+    private static final ImmutableList<String> DESCRIPTION_ROLES = ImmutableList.of(
+            "Astronaut", "Boat", "Car", "Cat", "Crocodile", "Database Administrator", "Dentist", "Dog", "Explorer",
+            "Feminist", "Frisbee", "Hunter", "Husband", "Lumberjack", "Mad Cow", "Mad Scientist", "Monkey",
+            "Moose", "Pastry Chef", "Pioneer", "Robot", "Secret Agent", "Shark", "Squirrel", "Student", "Teacher",
+            "Technical Writer", "Waitress", "Woman"
+    );
+
+    private static final ImmutableList<String> DESCRIPTION_VERBS = ImmutableList.of(
+            "Battle", "Build", "Chase", "Conquer", "Defeat", "Discover", "Fight", "Find", "Kill", "Meet",
+            "Outgun", "Outrace", "Overcome", "Pursue", "Reach", "Redeem", "Sink", "Succumb", "Vanquish"
+    );
+
+    private static final ImmutableList<String> DESCRIPTION_PLACES = ImmutableList.of(
+            "A Baloon", "A Jet Boat", "A MySQL Convention", "A Shark Tank", "A U-Boat", "Ancient China",
+            "Ancient India", "Australia", "Berlin", "California", "Nigeria", "Soviet Georgia", "The Canadian Rockies",
+            "The First Manned Space Station", "The Gulf of Mexico", "The Outback", "The Sahara Desert"
+    );
+
+    private static final ImmutableList<String> FIRST_NAMES = ImmutableList.of(
+            "ALAN", "ALICE", "ANNA", "ANTHONY", "BARBARA", "BETTY", "BRIAN", "CARMEN", "CHARLES", "CHRISTINA",
+            "DANIEL", "DAVID", "DEBORAH", "DONNA", "DOROTHY", "ELIZABETH", "EMILY", "ERIC", "FRANCES", "FRANK",
+            "GARY", "GEORGE", "HELEN", "JAMES", "JANET", "JASON", "JENNIFER", "JESSICA", "JOHN", "JOSEPH", "KAREN",
+            "KENNETH", "LAURA", "LINDA", "LISA", "MARGARET", "MARIA", "MARK", "MARY", "MATTHEW", "MICHAEL",
+            "NANCY", "PATRICIA", "PAUL", "RICHARD", "ROBERT", "RUTH", "SANDRA", "SARAH", "SHARON", "STEVEN",
+            "SUSAN", "THOMAS", "WILLIAM"
+    );
+
+    // Ordered from common to rare, so that the Zipf-like distribution of last names favours the first ones
+
+    private static final ImmutableList<String> LAST_NAMES = ImmutableList.of(
+            "SMITH", "JOHNSON", "WILLIAMS", "BROWN", "JONES", "GARCIA", "MILLER", "DAVIS", "RODRIGUEZ", "MARTINEZ",
+            "HERNANDEZ", "LOPEZ", "GONZALEZ", "WILSON", "ANDERSON", "THOMAS", "TAYLOR", "MOORE", "JACKSON",
+            "MARTIN", "LEE", "PEREZ", "THOMPSON", "WHITE", "HARRIS", "SANCHEZ", "CLARK", "RAMIREZ", "LEWIS",
+            "ROBINSON", "WALKER", "YOUNG", "ALLEN", "KING", "WRIGHT", "SCOTT", "TORRES", "NGUYEN", "HILL", "FLORES",
+            "GREEN", "ADAMS", "NELSON", "BAKER", "HALL", "RIVERA", "CAMPBELL", "MITCHELL", "CARTER", "ROBERTS",
+            "GOMEZ", "PHILLIPS", "EVANS", "TURNER", "DIAZ", "PARKER", "CRUZ", "EDWARDS", "COLLINS", "REYES",
+            "STEWART", "MORRIS", "MORALES", "MURPHY", "COOK", "ROGERS", "GUTIERREZ", "ORTIZ", "MORGAN", "COOPER",
+            "PETERSON", "BAILEY", "REED", "KELLY", "HOWARD", "RAMOS", "KIM", "COX", "WARD", "RICHARDSON", "WATSON",
+            "BROOKS", "CHAVEZ", "WOOD", "JAMES", "BENNETT", "GRAY", "MENDOZA", "RUIZ", "HUGHES", "PRICE", "ALVAREZ",
+            "CASTILLO", "SANDERS", "PATEL", "MYERS", "LONG", "ROSS", "FOSTER", "JIMENEZ"
+    );
+
+    private static final ImmutableList<String> STREET_NAMES = ImmutableList.of(
+            "Abu Dhabi", "Avellaneda", "Bamenda", "Boksburg", "Chandigarh", "Dallas", "Ede", "Erlangen", "Hamilton",
+            "Jinzhou", "Kabul", "Lima", "Loja", "Mandi Bahauddin", "Nagaon", "Osmaniye", "Pangkal Pinang", "Rizhao",
+            "Sivas", "Tafuna", "Valparai", "Yamuna Nagar"
+    );
+
+    private static final ImmutableList<String> STREET_SUFFIXES = ImmutableList.of(
+            "Avenue", "Boulevard", "Drive", "Lane", "Loop", "Manor", "Parkway", "Place", "Street", "Way"
+    );
+
+    private static final ImmutableList<String> DISTRICTS = ImmutableList.of(
+            "Alberta", "Buenos Aires", "California", "England", "Gujarat", "Hebei", "Istanbul", "Kanagawa",
+            "Maharashtra", "Ontario", "Punjab", "QLD", "Rio de Janeiro", "Shandong", "Texas", "West Java"
+    );
+
+    private static final ImmutableList<String> RATINGS = ImmutableList.of("G", "PG", "PG-13", "R", "NC-17");
+
+    private static final ImmutableList<String> RENTAL_RATES = ImmutableList.of("0.99", "2.99", "4.99");
+
+    private static final ImmutableList<String> SPECIAL_FEATURES =
+            ImmutableList.of("Trailers", "Commentaries", "\"Deleted Scenes\"", "\"Behind the Scenes\"");
+
+    private final int scaleFactor;
+    private final long seed;
+
+    public PagilaDataGenerator(int scaleFactor, long seed) {
+        Preconditions.checkArgument(scaleFactor >= 1);
+
+        this.scaleFactor = scaleFactor;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws SQLException, IOException {
+        ImmutableMap<String, String> arguments = Arrays.stream(args)
+                .map(arg -> arg.split("=", 2))
+                .peek(kv -> Preconditions.checkArgument(kv.length == 2, "Expected key=value, got: %s", kv[0]))
+                .collect(ImmutableMap.toImmutableMap(kv -> kv[0], kv -> kv[1]));
+
+        PagilaDataGenerator generator = new PagilaDataGenerator(
+                Integer.parseInt(arguments.getOrDefault("scale", "10")),
+                Long.parseLong(arguments.getOrDefault("seed", "1"))
+        );
+
+        try (Connection connection = DriverManager.getConnection(
+                arguments.getOrDefault("url", "jdbc:postgresql://localhost:5432/pagila"),
+                arguments.getOrDefault("user", "postgres"),
+                arguments.getOrDefault("password", "postgres")
+        )) {
+            System.out.printf("Scaling up the Pagila dataset to %dx%n", generator.scaleFactor);
+            long start = System.nanoTime();
+            ImmutableMap<String, Long> addedRowCounts = generator.generate(connection);
+            addedRowCounts.forEach((table, rowCount) -> System.out.printf("%-15s %,12d rows added%n", table, rowCount));
+            System.out.printf("Done in %s%n", Duration.ofNanos(System.nanoTime() - start).truncatedTo(ChronoUnit.MILLIS));
+        }
+    }
+
+    /**
+     * Adds synthetic data to the Pagila database behind the given connection, in one transaction, and returns
+     * the numbers of added rows per table, in load order. The connection must be a PostgreSQL JDBC connection,
+     * or wrap one.
+     */
+    public ImmutableMap<String, Long> generate(Connection connection) throws SQLException, IOException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            ImmutableMap<String, Long> addedRowCounts = generateInTransaction(connection);
+            connection.commit();
+            return addedRowCounts;
+        } catch (SQLException | IOException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private ImmutableMap<String, Long> generateInTransaction(Connection connection) throws SQLException, IOException {
+        Random random = new Random(seed);
+        ImmutableMap.Builder<String, Long> addedRowCounts = ImmutableMap.builder();
+
+        int firstCategoryId = queryInt(connection, "select coalesce(max(category_id), 0) + 1 from category");
+        int categoryCount = missingRowCount(
+                connection, "category", (int) Math.round(CATEGORIES_PER_SCALE * Math.sqrt(scaleFactor)));
+        addedRowCounts.put("category", copy(connection, "category (category_id, name)", rows -> {
+            for (int categoryId = firstCategoryId; categoryId < firstCategoryId + categoryCount; categoryId++) {
+                int index = categoryId - 1;
+                rows.row(categoryId, GENRES.get(index % GENRES.size()) + " " + (index / GENRES.size() + 1));
+            }
+        }));
+
+        ZipfSampler lastNames = new ZipfSampler(LAST_NAMES.size(), LAST_NAME_EXPONENT);
+
+        int firstActorId = queryInt(connection, "select coalesce(max(actor_id), 0) + 1 from actor");
+        int actorCount = missingRowCount(connection, "actor", ACTORS_PER_SCALE * scaleFactor);
+        addedRowCounts.put("actor", copy(connection, "actor (actor_id, first_name, last_name)", rows -> {
+            for (int actorId = firstActorId; actorId < firstActorId + actorCount; actorId++) {
+                rows.row(actorId, pick(FIRST_NAMES, random), LAST_NAMES.get(lastNames.sample(random)));
+            }
+        }));
+
+        // The fulltext column is filled by a trigger, which also fires for COPY
+        int[] languageIds = queryIds(connection, "select language_id from language order by language_id");
+        int firstFilmId = queryInt(connection, "select coalesce(max(film_id), 0) + 1 from film");
+        int filmCount = missingRowCount(connection, "film", FILMS_PER_SCALE * scaleFactor);
+        int filmIdUpperBound = firstFilmId + filmCount;
+        addedRowCounts.put("film", copy(
+                connection,
+                "film (film_id, title, description, release_year, language_id, rental_duration, rental_rate, " +
+                        "length, replacement_cost, rating, special_features)",
+                rows -> {
+                    for (int filmId = firstFilmId; filmId < filmIdUpperBound; filmId++) {
+                        rows.row(
+                                filmId,
+                                pick(TITLE_WORDS, random) + " " + pick(TITLE_WORDS, random) + " " + filmId,
+                                filmDescription(random),
+                                1980 + random.nextInt(45),
+                                // Mostly films in the first language (English)
+                                (random.nextInt(10) < 9) ? languageIds[0] : languageIds[random.nextInt(languageIds.length)],
+                                3 + random.nextInt(5),
+                                pick(RENTAL_RATES, random),
+                                46 + random.nextInt(140),
+                                (9 + random.nextInt(21)) + ".99",
+                                pick(RATINGS, random),
+                                specialFeatures(random)
+                        );
+                    }
+                }
+        ));
+
+        // Some actors play in many films, and most in a few; the number of actors per film varies from 1 to 15
+        int[] actorIds = shuffle(queryIds(connection, "select actor_id from actor"), random);
+        ZipfSampler actorPopularity = new ZipfSampler(actorIds.length, ACTOR_POPULARITY_EXPONENT);
+        addedRowCounts.put("film_actor", copy(connection, "film_actor (actor_id, film_id)", rows -> {
+            for (int filmId = firstFilmId; filmId < filmIdUpperBound; filmId++) {
+                int castSize = 1 + (int) Math.min(14, -Math.log(1.0 - random.nextDouble()) * 4.5);
+                Set<Integer> cast = new LinkedHashSet<>();
+                while (cast.size() < Math.min(castSize, actorIds.length)) {
+                    cast.add(actorIds[actorPopularity.sample(random)]);
+                }
+                for (int actorId : cast) {
+                    rows.row(actorId, filmId);
+                }
+            }
+        }));
+
+        int[] categoryIds = shuffle(queryIds(connection, "select category_id from category"), random);
+        ZipfSampler categoryPopularity = new ZipfSampler(categoryIds.length, CATEGORY_POPULARITY_EXPONENT);
+        addedRowCounts.put("film_category", copy(connection, "film_category (film_id, category_id)", rows -> {
+            for (int filmId = firstFilmId; filmId < filmIdUpperBound; filmId++) {
+                rows.row(filmId, categoryIds[categoryPopularity.sample(random)]);
+            }
+        }));
+
+        // Like in Pagila, a few films are not in stock, and the others have 2 to 8 copies spread over the stores
+        int[] storeIds = queryIds(connection, "select store_id from store order by store_id");
+        int firstInventoryId = queryInt(connection, "select coalesce(max(inventory_id), 0) + 1 from inventory");
+        addedRowCounts.put("inventory", copy(connection, "inventory (inventory_id, film_id, store_id)", rows -> {
+            int inventoryId = firstInventoryId;
+            for (int filmId = firstFilmId; filmId < filmIdUpperBound; filmId++) {
+                int copyCount = (random.nextInt(100) < 4) ? 0 : 2 + random.nextInt(7);
+                for (int i = 0; i < copyCount; i++) {
+                    rows.row(inventoryId++, filmId, storeIds[random.nextInt(storeIds.length)]);
+                }
+            }
+        }));
+
+        // Each new customer lives at a new address
+        int[] cityIds = queryIds(connection, "select city_id from city order by city_id");
+        int firstAddressId = queryInt(connection, "select coalesce(max(address_id), 0) + 1 from address");
+        int firstCustomerId = queryInt(connection, "select coalesce(max(customer_id), 0) + 1 from customer");
+        int customerCount = missingRowCount(connection, "customer", CUSTOMERS_PER_SCALE * scaleFactor);
+        addedRowCounts.put("address", copy(
+                connection,
+                "address (address_id, address, district, city_id, postal_code, phone)",
+                rows -> {
+                    for (int addressId = firstAddressId; addressId < firstAddressId + customerCount; addressId++) {
+                        rows.row(
+                                addressId,
+                                (1 + random.nextInt(1999)) + " " + pick(STREET_NAMES, random) + " " +
+                                        pick(STREET_SUFFIXES, random),
+                                pick(DISTRICTS, random),
+                                cityIds[random.nextInt(cityIds.length)],
+                                String.format("%05d", random.nextInt(100_000)),
+                                String.format("%012d", Math.floorMod(random.nextLong(), 1_000_000_000_000L))
+                        );
+                    }
+                }
+        ));
+        addedRowCounts.put("customer", copy(
+                connection,
+                "customer (customer_id, store_id, first_name, last_name, email, address_id, activebool, " +
+                        "create_date, active)",
+                rows -> {
+                    for (int i = 0; i < customerCount; i++) {
+                        String firstName = pick(FIRST_NAMES, random);
+                        String lastName = LAST_NAMES.get(lastNames.sample(random));
+                        int customerId = firstCustomerId + i;
+                        rows.row(
+                                customerId,
+                                storeIds[random.nextInt(storeIds.length)],
+                                firstName,
+                                lastName,
+                                firstName + "." + lastName + "." + customerId + "@sakilacustomer.org",
+                                firstAddressId + i,
+                                true,
+                                LocalDate.of(2021, 1, 1).plusDays(random.nextInt(365)),
+                                (random.nextInt(1000) < 975) ? 1 : 0
+                        );
+                    }
+                }
+        ));
+
+        // Rentals pick a film by popularity, one of its copies at random, and a customer by activity.
+        // Rental dates increase with the rental ID, and are unique, which satisfies the unique index on
+        // (rental_date, inventory_id, customer_id). About 1% of the rentals have not been returned yet.
+        InventoryByFilm inventoryByFilm = InventoryByFilm.load(connection);
+        ZipfSampler filmPopularity = new ZipfSampler(inventoryByFilm.filmCount(), FILM_POPULARITY_EXPONENT);
+        int[] filmIndexes = shuffle(IntStream.range(0, inventoryByFilm.filmCount()).toArray(), random);
+        int[] customerIds = shuffle(queryIds(connection, "select customer_id from customer"), random);
+        ZipfSampler customerActivity = new ZipfSampler(customerIds.length, CUSTOMER_ACTIVITY_EXPONENT);
+        int[] staffIds = queryIds(connection, "select staff_id from staff order by staff_id");
+        int firstRentalId = queryInt(connection, "select coalesce(max(rental_id), 0) + 1 from rental");
+        int rentalCount = missingRowCount(connection, "rental", RENTALS_PER_SCALE * scaleFactor);
+        long rentalIntervalMicros = (rentalCount == 0) ? 0 :
+                ChronoUnit.MICROS.between(FIRST_RENTAL_DATE, RENTAL_DATE_UPPER_BOUND) / rentalCount;
+        addedRowCounts.put("rental", copy(
+                connection,
+                "rental (rental_id, rental_date, inventory_id, customer_id, return_date, staff_id)",
+                rows -> {
+                    for (int i = 0; i < rentalCount; i++) {
+                        Instant rentalDate = FIRST_RENTAL_DATE.plus(i * rentalIntervalMicros, ChronoUnit.MICROS);
+                        int filmIndex = filmIndexes[filmPopularity.sample(random)];
+                        Instant returnDate = (random.nextInt(100) == 0) ? null :
+                                rentalDate.plus(1 + random.nextInt(10 * 24), ChronoUnit.HOURS);
+                        rows.row(
+                                firstRentalId + i,
+                                rentalDate,
+                                inventoryByFilm.randomInventoryId(filmIndex, random),
+                                customerIds[customerActivity.sample(random)],
+                                returnDate,
+                                staffIds[random.nextInt(staffIds.length)]
+                        );
+                    }
+                }
+        ));
+
+        // One payment per new rental, paid at the rental date, including a late fee of 1.00 per day overdue
+        addedRowCounts.put("payment", update(
+                connection,
+                String.format(
+                        """
+                                insert into payment (customer_id, staff_id, rental_id, amount, payment_date)
+                                select r.customer_id, r.staff_id, r.rental_id,
+                                       f.rental_rate + greatest(0, coalesce(extract(day from r.return_date - r.rental_date), 0) - f.rental_duration),
+                                       r.rental_date
+                                  from rental r
+                                  join inventory i on i.inventory_id = r.inventory_id
+                                  join film f on f.film_id = i.film_id
+                                 where r.rental_id >= %d""",
+                        firstRentalId
+                )
+        ));
+
+        for (String table : ImmutableList.of("actor", "category", "film", "inventory", "address", "customer", "rental")) {
+            queryInt(
+                    connection,
+                    String.format(
+                            "select setval('%s_%s_id_seq', (select max(%s_id) from %s))::integer",
+                            table, table, table, table
+                    )
+            );
+        }
+        for (String table : addedRowCounts.buildOrThrow().keySet()) {
+            update(connection, "analyze " + table);
+        }
+        return addedRowCounts.buildOrThrow();
+    }
+
+    private static String filmDescription(Random random) {
+        return String.format(
+                "A %s %s of a %s And a %s who must %s a %s in %s",
+                pick(DESCRIPTION_ADJECTIVES, random),
+                pick(DESCRIPTION_GENRES, random),
+                pick(DESCRIPTION_ROLES, random),
+                pick(DESCRIPTION_ROLES, random),
+                pick(DESCRIPTION_VERBS, random),
+                pick(DESCRIPTION_ROLES, random),
+                pick(DESCRIPTION_PLACES, random)
+        );
+    }
+
+    private static String specialFeatures(Random random) {
+        return SPECIAL_FEATURES.stream()
+                .filter(feature -> random.nextBoolean())
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private static <T> T pick(ImmutableList<T> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static int[] shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+        return values;
+    }
+
+    private static int missingRowCount(Connection connection, String table, int targetRowCount) throws SQLException {
+        return Math.max(0, targetRowCount - queryInt(connection, "select count(*)::integer from " + table));
+    }
+
+    private static int queryInt(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            Preconditions.checkState(resultSet.next());
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static int[] queryIds(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.setFetchSize(10_000);
+            try (ResultSet resultSet = statement.executeQuery(sql)) {
+                IntStream.Builder ids = IntStream.builder();
+                while (resultSet.next()) {
+                    ids.add(resultSet.getInt(1));
+                }
+                return ids.build().toArray();
+            }
+        }
+    }
+
+    private static long update(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            return statement.executeLargeUpdate(sql);
+        }
+    }
+
+    private static long copy(Connection connection, String tableAndColumns, RowGenerator rowGenerator)
+            throws SQLException, IOException {
+        PGCopyOutputStream outputStream = new PGCopyOutputStream(
+                connection.unwrap(PGConnection.class),
+                "COPY " + tableAndColumns + " FROM STDIN",
+                1 << 16
+        );
+        CopyRowWriter rowWriter;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 1 << 16)) {
+            rowWriter = new CopyRowWriter(writer);
+            rowGenerator.generateRows(rowWriter);
+        }
+        return rowWriter.rowCount;
+    }
+
+    @FunctionalInterface
+    private interface RowGenerator {
+
+        void generateRows(CopyRowWriter rows) throws IOException;
+    }
+
+    /**
+     * Writer of rows in the text format of COPY, with tab-separated columns and {@code \N} for nulls.
+     */
+    private static final class CopyRowWriter {
+
+        private final Writer writer;
+        private long rowCount;
+
+        private CopyRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        void row(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write('\t');
+                }
+                writer.write((values[i] == null) ? "\\N" : escape(values[i].toString()));
+            }
+            writer.write('\n');
+            rowCount++;
+        }
+
+        private static String escape(String value) {
+            if (value.chars().noneMatch(c -> c == '\\' || c == '\t' || c == '\n' || c == '\r')) {
+                return value;
+            }
+            return value.replace("\\", "\\\\")
+                    .replace("\t", "\\t")
+                    .replace("\n", "\\n")
+                    .replace("\r", "\\r");
+        }
+    }
+
+    /**
+     * Inventory IDs grouped by film (only for films in stock), in compressed form: the copies of the film at index i
+     * are inventoryIds[offsets[i]] up to (but excluding) inventoryIds[offsets[i + 1]].
+     */
+    private record InventoryByFilm(int filmCount, int[] offsets, int[] inventoryIds) {
+
+        static InventoryByFilm load(Connection connection) throws SQLException {
+            int filmCount = queryInt(connection, "select count(distinct film_id)::integer from inventory");
+            int inventoryCount = queryInt(connection, "select count(*)::integer from inventory");
+            int[] offsets = new int[filmCount + 1];
+            int[] inventoryIds = new int[inventoryCount];
+
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(10_000);
+                try (ResultSet resultSet = statement.executeQuery(
+                        "select film_id, inventory_id from inventory order by film_id, inventory_id")) {
+                    int filmIndex = -1;
+                    int previousFilmId = -1;
+                    int i = 0;
+                    while (resultSet.next()) {
+                        int filmId = resultSet.getInt(1);
+                        if (filmId != previousFilmId) {
+                            offsets[++filmIndex] = i;
+                            previousFilmId = filmId;
+                        }
+                        inventoryIds[i++] = resultSet.getInt(2);
+                    }
+                    offsets[filmCount] = i;
+                }
+            }
+            return new InventoryByFilm(filmCount, offsets, inventoryIds);
+        }
+
+        int randomInventoryId(int filmIndex, Random random) {
+            int from = offsets[filmIndex];
+            return inventoryIds[from + random.nextInt(offsets[filmIndex + 1] - from)];
+        }
+    }
+
+    /**
+     * Sampler of ranks 0 (most frequent) to n - 1, with probabilities proportional to 1 / (rank + 1)^exponent.
+     */
+    private static final class ZipfSampler {
+
+        private final double[] cumulativeWeights;
+
+        ZipfSampler(int n, double exponent) {
+            Preconditions.checkArgument(n > 0);
+            cumulativeWeights = new double[n];
+            double sum = 0;
+            for (int rank = 0; rank < n; rank++) {
+                sum += 1.0 / Math.pow(rank + 1, exponent);
+                cumulativeWeights[rank] = sum;
+            }
+        }
+
+        int sample(Random random) {
+            double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+            int index = Arrays.binarySearch(cumulativeWeights, target);
+            return Math.min((index >= 0) ? index : -index - 1, cumulativeWeights.length - 1);
+        }
+    }
+}
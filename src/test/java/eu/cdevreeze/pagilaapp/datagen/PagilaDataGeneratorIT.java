@@ -0,0 +1,145 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.datagen;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.MountableFile;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test of the {@link PagilaDataGenerator}, scaling up the bundled Pagila dataset in a PostgreSQL
+ * test Docker container. The database constraints check referential integrity, so this test checks volumes,
+ * the spread of payments over the partitions, and skew.
+ *
+ * @author Chris de Vreeze
+ */
+class PagilaDataGeneratorIT {
+
+    private static final int SCALE_FACTOR = 3;
+
+    private final static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine")
+                    .withDatabaseName("pagilaTest")
+                    .withUsername("postgres")
+                    .withPassword("postgres")
+                    .withCopyFileToContainer(
+                            MountableFile.forClasspathResource("pagila-schema.sql"),
+                            "/docker-entrypoint-initdb.d/01-schema.sql"
+                    )
+                    .withCopyFileToContainer(
+                            MountableFile.forClasspathResource("pagila-data.sql"),
+                            "/docker-entrypoint-initdb.d/02-data.sql"
+                    )
+                    .withExposedPorts(5432);
+
+    private static ImmutableMap<String, Long> addedRowCounts;
+
+    @BeforeAll
+    protected static void beforeAll() throws SQLException, IOException {
+        postgres.start();
+
+        try (Connection connection = openConnection()) {
+            addedRowCounts = new PagilaDataGenerator(SCALE_FACTOR, 1).generate(connection);
+        }
+    }
+
+    @AfterAll
+    protected static void afterAll() {
+        postgres.stop();
+    }
+
+    @Test
+    void scalesUpVolumes() throws SQLException {
+        try (Connection connection = openConnection()) {
+            assertThat(queryLong(connection, "select count(*) from film")).isEqualTo(1000L * SCALE_FACTOR);
+            assertThat(queryLong(connection, "select count(*) from actor")).isEqualTo(200L * SCALE_FACTOR);
+            assertThat(queryLong(connection, "select count(*) from customer")).isEqualTo(599L * SCALE_FACTOR);
+            assertThat(queryLong(connection, "select count(*) from rental")).isEqualTo(16044L * SCALE_FACTOR);
+            assertThat(queryLong(connection, "select count(*) from category")).isGreaterThan(16L);
+
+            assertThat(addedRowCounts.get("payment")).isEqualTo(addedRowCounts.get("rental"));
+            assertThat(addedRowCounts.get("film_category")).isEqualTo(addedRowCounts.get("film"));
+            assertThat(addedRowCounts.get("film_actor")).isGreaterThan(addedRowCounts.get("film"));
+            assertThat(addedRowCounts.get("inventory")).isGreaterThan(2 * addedRowCounts.get("film"));
+        }
+    }
+
+    @Test
+    void spreadsPaymentsOverAllPartitions() throws SQLException {
+        try (Connection connection = openConnection()) {
+            long partitionCount = queryLong(
+                    connection,
+                    "select count(distinct tableoid) from payment where rental_id > 16049"
+            );
+            assertThat(partitionCount).isEqualTo(7L);
+        }
+    }
+
+    @Test
+    void skewsFilmPopularity() throws SQLException {
+        try (Connection connection = openConnection()) {
+            long rentalsOfTopFilms = queryLong(
+                    connection,
+                    """
+                            select coalesce(sum(rental_count), 0) from (
+                                select count(*) as rental_count
+                                  from rental r
+                                  join inventory i on i.inventory_id = r.inventory_id
+                                 group by i.film_id
+                                 order by count(*) desc
+                                 limit 30
+                            ) top_films"""
+            );
+            // The top 1% of the films account for more than 10% of the rentals
+            assertThat(rentalsOfTopFilms).isGreaterThan(16044L * SCALE_FACTOR / 10);
+        }
+    }
+
+    @Test
+    void addsNothingIfTargetVolumesAreReached() throws SQLException, IOException {
+        try (Connection connection = openConnection()) {
+            ImmutableMap<String, Long> rowCounts = new PagilaDataGenerator(SCALE_FACTOR, 2).generate(connection);
+
+            assertThat(rowCounts.values()).containsOnly(0L);
+            assertThat(queryLong(connection, "select nextval('film_film_id_seq')")).isGreaterThan(1000L * SCALE_FACTOR);
+        }
+    }
+
+    private static Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
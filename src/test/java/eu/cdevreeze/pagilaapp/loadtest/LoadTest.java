@@ -0,0 +1,250 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.loadtest;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Self-contained HTTP load generator, replaying weighted {@link Scenario scenarios} against a running instance
+ * of the application (typically on localhost). It needs no network access other than to that instance.
+ * <p>
+ * The load follows an open model: scenarios start at random (Poisson) arrival times, at a given mean rate,
+ * regardless of how fast the application responds. Each scenario runs in its own virtual thread. The latency
+ * of the first request of a scenario is measured from its intended start time, so queueing in the load generator
+ * itself is not hidden ("coordinated omission"). Latencies are recorded in HdrHistograms, per endpoint (path
+ * without query string). Requests during the warmup period are not recorded.
+ * <p>
+ * Start the application first, e.g. with "mvn spring-boot:run -Dspring-boot.run.arguments=--useJooq=true", and
+ * then run the load test with "mvn -Ploadtest test-compile exec:exec -DloadTestArgs='rate=50 duration=PT2M'".
+ * The arguments (all optional) are: baseUri (default http://localhost:8080), rate (scenario arrivals per second,
+ * default 20), duration (ISO-8601, default PT1M), warmup (default PT10S), timeout (per request, default PT30S)
+ * and seed (of the random generator, default 1).
+ *
+ * @author Chris de Vreeze
+ */
+public class LoadTest {
+
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private final URI baseUri;
+    private final double rate;
+    private final Duration duration;
+    private final Duration warmup;
+    private final Duration timeout;
+    private final long seed;
+    private final ImmutableList<Scenario> scenarios;
+
+    private final ConcurrentMap<String, EndpointStatistics> statisticsByEndpoint = new ConcurrentHashMap<>();
+    private final AtomicLong maxScenariosInFlight = new AtomicLong();
+    private final AtomicLong scenariosInFlight = new AtomicLong();
+
+    public LoadTest(
+            URI baseUri,
+            double rate,
+            Duration duration,
+            Duration warmup,
+            Duration timeout,
+            long seed,
+            ImmutableList<Scenario> scenarios
+    ) {
+        Preconditions.checkArgument(rate > 0);
+        Preconditions.checkArgument(duration.isPositive());
+        Preconditions.checkArgument(!warmup.isNegative());
+        Preconditions.checkArgument(!scenarios.isEmpty());
+
+        this.baseUri = baseUri;
+        this.rate = rate;
+        this.duration = duration;
+        this.warmup = warmup;
+        this.timeout = timeout;
+        this.seed = seed;
+        this.scenarios = scenarios;
+    }
+
+    public static void main(String[] args) {
+        ImmutableMap<String, String> arguments = Arrays.stream(args)
+                .map(arg -> arg.split("=", 2))
+                .peek(kv -> Preconditions.checkArgument(kv.length == 2, "Expected key=value, got: %s", kv[0]))
+                .collect(ImmutableMap.toImmutableMap(kv -> kv[0], kv -> kv[1]));
+
+        LoadTest loadTest = new LoadTest(
+                URI.create(arguments.getOrDefault("baseUri", "http://localhost:8080")),
+                Double.parseDouble(arguments.getOrDefault("rate", "20")),
+                Duration.parse(arguments.getOrDefault("duration", "PT1M")),
+                Duration.parse(arguments.getOrDefault("warmup", "PT10S")),
+                Duration.parse(arguments.getOrDefault("timeout", "PT30S")),
+                Long.parseLong(arguments.getOrDefault("seed", "1")),
+                Scenario.defaultScenarios()
+        );
+        loadTest.run();
+        loadTest.printReport();
+    }
+
+    public void run() {
+        System.out.printf(
+                "Load test against %s: %.1f scenarios/s for %s (after a warmup of %s)%n",
+                baseUri, rate, duration, warmup
+        );
+        Random random = new Random(seed);
+        int totalWeight = scenarios.stream().mapToInt(Scenario::weight).sum();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient httpClient = HttpClient.newBuilder()
+                     .executor(executor)
+                     .connectTimeout(timeout)
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .build()) {
+            long start = System.nanoTime();
+            long measurementStart = start + warmup.toNanos();
+            long end = measurementStart + duration.toNanos();
+            long intendedStart = start;
+
+            while (intendedStart < end) {
+                Scenario scenario = pickScenario(random, totalWeight);
+                long scenarioStart = intendedStart;
+                boolean recorded = scenarioStart >= measurementStart;
+
+                long remainingNanos;
+                while ((remainingNanos = scenarioStart - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(remainingNanos);
+                }
+                executor.submit(() -> runScenario(httpClient, scenario, scenarioStart, recorded));
+
+                // Exponentially distributed inter-arrival times, so a Poisson arrival process
+                intendedStart += (long) (-Math.log(1.0 - random.nextDouble()) / rate * TimeUnit.SECONDS.toNanos(1));
+            }
+            // Wait for the running scenarios, before the HttpClient is closed
+            executor.close();
+        }
+    }
+
+    public void printReport() {
+        System.out.printf(
+                "%n%-24s %9s %7s %9s %10s %10s %10s %10s %10s%n",
+                "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "Max ms"
+        );
+        statisticsByEndpoint.entrySet()
+                .stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> printReportLine(e.getKey(), e.getValue().histogram, e.getValue().errors.sum()));
+
+        Histogram total = new Histogram(3);
+        statisticsByEndpoint.values().forEach(stats -> total.add(stats.histogram));
+        long totalErrors = statisticsByEndpoint.values().stream().mapToLong(stats -> stats.errors.sum()).sum();
+        printReportLine("(all)", total, totalErrors);
+
+        System.out.printf("%nMaximum number of scenarios in flight: %d%n", maxScenariosInFlight.get());
+    }
+
+    private void printReportLine(String endpoint, Histogram histogram, long errors) {
+        double[] percentiles = Arrays.stream(PERCENTILES)
+                .map(p -> histogram.getValueAtPercentile(p) / 1000.0)
+                .toArray();
+        System.out.printf(
+                "%-24s %9d %7d %9.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                endpoint,
+                histogram.getTotalCount(),
+                errors,
+                histogram.getTotalCount() / (double) duration.toSeconds(),
+                percentiles[0],
+                percentiles[1],
+                percentiles[2],
+                percentiles[3],
+                histogram.getMaxValue() / 1000.0
+        );
+    }
+
+    private Scenario pickScenario(Random random, int totalWeight) {
+        int r = random.nextInt(totalWeight);
+        for (Scenario scenario : scenarios) {
+            r -= scenario.weight();
+            if (r < 0) {
+                return scenario;
+            }
+        }
+        throw new IllegalStateException("No scenario picked");
+    }
+
+    private void runScenario(HttpClient httpClient, Scenario scenario, long intendedStart, boolean recorded) {
+        maxScenariosInFlight.accumulateAndGet(scenariosInFlight.incrementAndGet(), Math::max);
+        try {
+            long requestStart = intendedStart;
+            for (String path : scenario.paths()) {
+                boolean success = send(httpClient, path);
+                long requestEnd = System.nanoTime();
+
+                if (recorded) {
+                    EndpointStatistics statistics = statisticsByEndpoint.computeIfAbsent(endpoint(path), k -> new EndpointStatistics());
+                    statistics.histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(requestEnd - requestStart));
+                    if (!success) {
+                        statistics.errors.increment();
+                    }
+                }
+                requestStart = requestEnd;
+            }
+        } finally {
+            scenariosInFlight.decrementAndGet();
+        }
+    }
+
+    private boolean send(HttpClient httpClient, String path) {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(path)).timeout(timeout).GET().build();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String endpoint(String path) {
+        int queryStart = path.indexOf('?');
+        return (queryStart < 0) ? path : path.substring(0, queryStart);
+    }
+
+    private static final class EndpointStatistics {
+
+        // Latencies in microseconds, auto-resizing
+        private final Histogram histogram = new ConcurrentHistogram(3);
+        private final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.loadtest;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Load test scenario, that is, a sequence of GET requests (paths relative to the base URI, with query string)
+ * that one simulated user performs, one after the other. Scenarios are picked at random, in proportion to
+ * their weights.
+ *
+ * @author Chris de Vreeze
+ */
+public record Scenario(String name, int weight, ImmutableList<String> paths) {
+
+    public Scenario {
+        Preconditions.checkArgument(weight > 0);
+        Preconditions.checkArgument(!paths.isEmpty());
+        Preconditions.checkArgument(paths.stream().allMatch(p -> p.startsWith("/")));
+    }
+
+    /**
+     * Returns the default scenarios, covering the list pages, film search, customer lookup and typeahead. Browsing scenarios
+     * follow the keyset pagination links, like a user clicking "Next page".
+     */
+    public static ImmutableList<Scenario> defaultScenarios() {
+        return ImmutableList.of(
+                new Scenario("browseFilms", 30, ImmutableList.of("/films?size=20", "/films?after=20&size=20", "/films?after=40&size=20")),
+                new Scenario("searchFilms", 20, ImmutableList.of("/typeahead?q=ac", "/films/search?q=dinosaur+drama")),
+                new Scenario("filmsByActor", 10, ImmutableList.of("/films/actors?name=Penelope+Guiness")),
+                new Scenario("browseCustomers", 20, ImmutableList.of("/customers?size=20", "/customers?after=20&size=20")),
+                new Scenario("lookUpCustomer", 10, ImmutableList.of("/customers?lastName=sm", "/customers?lastName=smith&match=EXACT")),
+                new Scenario("browseAddresses", 10, ImmutableList.of("/addresses?size=20")),
+                new Scenario("browseStores", 5, ImmutableList.of("/stores")),
+                new Scenario("browseStaff", 5, ImmutableList.of("/staff"))
+        );
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.querybudget;
+
+import com.google.common.base.Preconditions;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Budget of a service call, in terms of the number of SQL statements issued, the number of rows fetched and
+ * the number of bytes received from the database. Typical usage:
+ * <pre>{@code
+ * List<Film> films = QueryBudget.statements(2).rows(6_500).bytes(4_000_000).verify(filmService::findAllFilms).result();
+ * }</pre>
+ * A statement budget of 1 (or a small constant) catches "N + 1" regressions, and a row budget catches
+ * Cartesian products caused by fetching multiple collections in one query.
+ *
+ * @author Chris de Vreeze
+ */
+public record QueryBudget(int maxStatements, long maxRows, long maxBytes) {
+
+    public QueryBudget {
+        Preconditions.checkArgument(maxStatements >= 0);
+        Preconditions.checkArgument(maxRows >= 0);
+        Preconditions.checkArgument(maxBytes >= 0);
+    }
+
+    public static QueryBudget statements(int maxStatements) {
+        return new QueryBudget(maxStatements, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    public QueryBudget rows(long newMaxRows) {
+        return new QueryBudget(maxStatements, newMaxRows, maxBytes);
+    }
+
+    public QueryBudget bytes(long newMaxBytes) {
+        return new QueryBudget(maxStatements, maxRows, newMaxBytes);
+    }
+
+    /**
+     * Runs the given call, and asserts that it stays within budget. Returns the recorded call, including its result.
+     */
+    public <T> StatementRecorder.RecordedCall<T> verify(Supplier<T> call) {
+        StatementRecorder.RecordedCall<T> recordedCall = StatementRecorder.record(call);
+        String statements = String.join(String.format("%n"), recordedCall.statements());
+
+        assertThat(recordedCall.statementCount())
+                .as("Number of statements (budget %d), namely:%n%s", maxStatements, statements)
+                .isLessThanOrEqualTo(maxStatements);
+        assertThat(recordedCall.rowCount())
+                .as("Number of rows fetched (budget %d), by statements:%n%s", maxRows, statements)
+                .isLessThanOrEqualTo(maxRows);
+        assertThat(recordedCall.bytesReceived())
+                .as("Number of bytes received (budget %d), by statements:%n%s", maxBytes, statements)
+                .isLessThanOrEqualTo(maxBytes);
+        return recordedCall;
+    }
+}
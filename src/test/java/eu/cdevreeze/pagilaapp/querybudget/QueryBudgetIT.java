@@ -0,0 +1,241 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.querybudget;
+
+import eu.cdevreeze.pagilaapp.benchmark.CountingSocketFactory;
+import eu.cdevreeze.pagilaapp.model.Customer;
+import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.model.FilmSummary;
+import eu.cdevreeze.pagilaapp.service.CustomerService;
+import eu.cdevreeze.pagilaapp.service.FilmService;
+import eu.cdevreeze.pagilaapp.service.NameMatch;
+import org.jspecify.annotations.NullUnmarked;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.MountableFile;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.OptionalInt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test asserting statement, row and byte budgets of service calls, for the JPA and jOOQ service
+ * implementations alike, using a PostgreSQL test Docker container. Where {@code JpaUsageTest} statically checks
+ * that fetching is lazy, this test checks at runtime that the fetch strategies cause neither "N + 1" queries
+ * nor Cartesian row explosions. Exceeding a budget fails the build, just like breaking an ArchUnit rule does.
+ * <p>
+ * The row budgets are derived from the table sizes, so they do not depend on the exact test data. Each call is
+ * made once before it is measured, so the second-level cache of reference data is warm, as in a running application.
+ * <p>
+ * In the Pagila data each film has exactly one category, which would hide a Cartesian product of the categories
+ * and actors of a film. Hence the first film is given all categories by a test fixture.
+ *
+ * @author Chris de Vreeze
+ */
+@SpringBootTest
+@Import(QueryBudgetIT.RecordingDataSourceConfig.class)
+@NullUnmarked
+class QueryBudgetIT {
+
+    private static final int PAGE_SIZE = 20;
+
+    @TestConfiguration
+    static class RecordingDataSourceConfig {
+
+        @Bean
+        static BeanPostProcessor recordingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return (bean instanceof DataSource dataSource) ? StatementRecorder.recordingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    private final static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16-alpine")
+                    .withDatabaseName("pagilaTest")
+                    .withUsername("postgres")
+                    .withPassword("postgres")
+                    .withCopyFileToContainer(
+                            MountableFile.forClasspathResource("pagila-schema.sql"),
+                            "/docker-entrypoint-initdb.d/01-schema.sql"
+                    )
+                    .withCopyFileToContainer(
+                            MountableFile.forClasspathResource("pagila-data.sql"),
+                            "/docker-entrypoint-initdb.d/02-data.sql"
+                    )
+                    .withCopyFileToContainer(
+                            MountableFile.forClasspathResource("querybudget/multi-category-film.sql"),
+                            "/docker-entrypoint-initdb.d/03-multi-category-film.sql"
+                    )
+                    .withExposedPorts(5432);
+
+    @BeforeAll
+    protected static void beforeAll() {
+        postgres.start();
+    }
+
+    @AfterAll
+    protected static void afterAll() {
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    protected static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add(
+                "spring.datasource.hikari.data-source-properties.socketFactory",
+                CountingSocketFactory.class::getName
+        );
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    @Nested
+    @TestPropertySource(properties = "useJooq=false")
+    class JpaServices extends ServiceBudgets {
+    }
+
+    @Nested
+    @TestPropertySource(properties = "useJooq=true")
+    class JooqServices extends ServiceBudgets {
+    }
+
+    abstract class ServiceBudgets {
+
+        @Autowired
+        private FilmService filmService;
+
+        @Autowired
+        private CustomerService customerService;
+
+        @Autowired
+        private JdbcClient jdbcClient;
+
+        @Test
+        void findsAllFilmsWithinBudget() {
+            filmService.findAllFilms();
+            long maxRows = count("film") + count("film_category") + count("film_actor");
+
+            List<Film> films = QueryBudget.statements(3)
+                    .rows(maxRows)
+                    .bytes(5_000_000)
+                    .verify(filmService::findAllFilms)
+                    .result();
+
+            assertThat(films).hasSize((int) count("film"));
+            // The fixture is in place, so a categories x actors explosion would have exceeded the row budget
+            assertThat(films.getFirst().categories()).hasSize((int) count("category"));
+            assertThat(films.getFirst().actors()).hasSizeGreaterThan(1);
+        }
+
+        @Test
+        void findsFilmPageWithinBudget() {
+            filmService.findFilmsAfter(0, PAGE_SIZE);
+            long maxRows = 2 * PAGE_SIZE + countLinksOfFirstFilms("film_category") + countLinksOfFirstFilms("film_actor");
+
+            List<Film> films = QueryBudget.statements(3)
+                    .rows(maxRows)
+                    .bytes(100_000)
+                    .verify(() -> filmService.findFilmsAfter(0, PAGE_SIZE))
+                    .result();
+
+            assertThat(films).hasSize(PAGE_SIZE);
+            assertThat(films.getFirst().categories()).hasSize((int) count("category"));
+        }
+
+        @Test
+        void findsFilmSummaryPageWithinBudget() {
+            filmService.findFilmsAfter(0, PAGE_SIZE);
+            filmService.findFilmSummariesAfter(0, PAGE_SIZE);
+            long filmPageBytes = StatementRecorder.record(() -> filmService.findFilmsAfter(0, PAGE_SIZE)).bytesReceived();
+
+            long maxRows = PAGE_SIZE + countLinksOfFirstFilms("film_category") + countLinksOfFirstFilms("film_actor");
+
+            StatementRecorder.RecordedCall<List<FilmSummary>> recordedCall = QueryBudget.statements(3)
+                    .rows(maxRows)
+                    .verify(() -> filmService.findFilmSummariesAfter(0, PAGE_SIZE));
+
+            assertThat(recordedCall.result()).hasSize(PAGE_SIZE);
+            // The narrow selects of the summaries must pay off
+            assertThat(recordedCall.bytesReceived()).isLessThan(filmPageBytes);
+        }
+
+        @Test
+        void findsAllCustomersWithinBudget() {
+            customerService.findAllCustomers();
+
+            // No query per customer, store or address (and no batches of cities or countries either)
+            List<Customer> customers = QueryBudget.statements(2)
+                    .rows(count("customer") + count("store"))
+                    .verify(customerService::findAllCustomers)
+                    .result();
+
+            assertThat(customers).hasSize((int) count("customer"));
+        }
+
+        @Test
+        void findsCustomersByLastNameWithinBudget() {
+            customerService.findCustomersByLastName("SM", NameMatch.PREFIX, OptionalInt.empty(), 0, PAGE_SIZE);
+            long matchCount = jdbcClient.sql("select count(*) from customer where last_name like 'SM%'")
+                    .query(Long.class)
+                    .single();
+
+            // Only the matching customers are read, and not all customers
+            List<Customer> customers = QueryBudget.statements(2)
+                    .rows(matchCount + count("store"))
+                    .verify(() -> customerService.findCustomersByLastName(
+                            "SM", NameMatch.PREFIX, OptionalInt.empty(), 0, PAGE_SIZE))
+                    .result();
+
+            assertThat(customers).isNotEmpty().allMatch(c -> c.lastName().startsWith("SM"));
+        }
+
+        private long count(String table) {
+            return jdbcClient.sql("select count(*) from " + table).query(Long.class).single();
+        }
+
+        private long countLinksOfFirstFilms(String linkTable) {
+            return jdbcClient.sql(String.format(
+                            "select count(*) from %s where film_id in (select film_id from film order by film_id limit ?)",
+                            linkTable
+                    ))
+                    .param(PAGE_SIZE)
+                    .query(Long.class)
+                    .single();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.querybudget;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.benchmark.CountingSocketFactory;
+import org.jspecify.annotations.Nullable;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Records the JDBC statements executed and the rows fetched by the current thread, at the JDBC level.
+ * Hence, it sees the statements of Hibernate and jOOQ alike. The bytes received from the database are counted
+ * by the {@link CountingSocketFactory}, if that socket factory has been configured for the PostgreSQL JDBC driver.
+ * <p>
+ * Recording only happens inside method {@link #record(Supplier)}, and only for the calling thread, so
+ * statements of background threads (e.g. pollers) do not count.
+ *
+ * @author Chris de Vreeze
+ */
+public final class StatementRecorder {
+
+    private static final ThreadLocal<@Nullable Recording> CURRENT_RECORDING = new ThreadLocal<>();
+
+    private static final Set<String> EXECUTE_METHODS =
+            Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private static final Set<String> RESULT_SET_METHODS = Set.of("executeQuery", "getResultSet", "getGeneratedKeys");
+
+    private StatementRecorder() {
+    }
+
+    /**
+     * The statements, fetched row count and received byte count of one recorded call, along with its result.
+     */
+    public record RecordedCall<T>(T result, ImmutableList<String> statements, long rowCount, long bytesReceived) {
+
+        public int statementCount() {
+            return statements.size();
+        }
+    }
+
+    /**
+     * Runs the given call, recording the statements it executes and the rows and bytes it fetches.
+     */
+    public static <T> RecordedCall<T> record(Supplier<T> call) {
+        Recording recording = new Recording();
+        @Nullable Recording previousRecording = CURRENT_RECORDING.get();
+        CURRENT_RECORDING.set(recording);
+        long bytesStart = CountingSocketFactory.bytesReceivedByCurrentThread();
+        try {
+            T result = call.get();
+            return new RecordedCall<>(
+                    result,
+                    ImmutableList.copyOf(recording.statements),
+                    recording.rowCount,
+                    CountingSocketFactory.bytesReceivedByCurrentThread() - bytesStart
+            );
+        } finally {
+            CURRENT_RECORDING.set(previousRecording);
+        }
+    }
+
+    /**
+     * Returns a DataSource decorating the given one, such that its statements and fetched rows can be recorded.
+     * It is a DelegatingDataSource, so Spring Boot can still unwrap the connection pool.
+     */
+    public static DataSource recordingDataSource(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+
+            @Override
+            public Connection getConnection() throws SQLException {
+                return proxy(Connection.class, super.getConnection(), null);
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return proxy(Connection.class, super.getConnection(username, password), null);
+            }
+        };
+    }
+
+    private static <T> T proxy(Class<T> jdbcInterface, T target, @Nullable String sql) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+            afterInvocation(target, method, args, result, sql);
+
+            // Statements created by a connection, and result sets returned by a statement, are recorded as well
+            return switch (result) {
+                case CallableStatement statement when method.getName().equals("prepareCall") ->
+                        proxy(CallableStatement.class, statement, (String) args[0]);
+                case PreparedStatement statement when method.getName().equals("prepareStatement") ->
+                        proxy(PreparedStatement.class, statement, (String) args[0]);
+                case Statement statement when method.getName().equals("createStatement") ->
+                        proxy(Statement.class, statement, null);
+                case ResultSet resultSet when RESULT_SET_METHODS.contains(method.getName()) ->
+                        proxy(ResultSet.class, resultSet, null);
+                case null, default -> result;
+            };
+        };
+        return jdbcInterface.cast(
+                Proxy.newProxyInstance(StatementRecorder.class.getClassLoader(), new Class<?>[]{jdbcInterface}, handler)
+        );
+    }
+
+    private static void afterInvocation(
+            Object target,
+            Method method,
+            @Nullable Object[] args,
+            @Nullable Object result,
+            @Nullable String sql
+    ) {
+        @Nullable Recording recording = CURRENT_RECORDING.get();
+        if (recording == null) {
+            return;
+        }
+        if (target instanceof Statement && EXECUTE_METHODS.contains(method.getName())) {
+            // Plain statements get their SQL passed to the execute method
+            String executedSql = (args != null && args.length > 0 && args[0] instanceof String s) ? s : sql;
+            recording.statements.add(String.valueOf(executedSql).strip());
+        } else if (target instanceof ResultSet && method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+            recording.rowCount += 1;
+        }
+    }
+
+    private static @Nullable Object invoke(Object target, Method method, @Nullable Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class Recording {
+
+        private final List<String> statements = new ArrayList<>();
+        private long rowCount;
+    }
+}
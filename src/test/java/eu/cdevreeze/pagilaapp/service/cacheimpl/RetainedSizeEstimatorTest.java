@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.cacheimpl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import eu.cdevreeze.pagilaapp.model.Category;
+import eu.cdevreeze.pagilaapp.model.FilmAvailability;
+import eu.cdevreeze.pagilaapp.model.ImmutableByteArray;
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractCollection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test of the cache weigher {@link RetainedSizeEstimator}.
+ *
+ * @author Chris de Vreeze
+ */
+class RetainedSizeEstimatorTest {
+
+    private final RetainedSizeEstimator estimator = new RetainedSizeEstimator();
+
+    @Test
+    void estimatesStringsAndRecords() {
+        // String object plus its byte array (compact strings)
+        assertThat(estimator.estimateSize("Travel")).isEqualTo(24 + 24);
+        assertThat(estimator.estimateSize("Documentary")).isEqualTo(24 + 32);
+
+        // Primitive record components are counted inline, as 8 bytes each
+        assertThat(estimator.estimateSize(new FilmAvailability(1, 1, 4, 2))).isEqualTo(48);
+
+        // Reference components are counted inline as 8 bytes, plus the referenced object
+        Category category = new Category(OptionalInt.of(1), "Travel");
+        assertThat(estimator.estimateSize(category)).isEqualTo(32 + 16 + 48);
+
+        assertThat(estimator.estimateSize(Optional.of("Travel"))).isEqualTo(16 + 48);
+        assertThat(estimator.estimateSize(Optional.empty())).isEqualTo(16);
+    }
+
+    @Test
+    void estimatesCollectionsAndMaps() {
+        Category category = new Category(OptionalInt.of(1), "Travel");
+        long categorySize = estimator.estimateSize(category);
+
+        // The collection object, its backing array, and the elements (without taking sharing into account)
+        assertThat(estimator.estimateSize(ImmutableList.of())).isEqualTo(16 + 16);
+        assertThat(estimator.estimateSize(ImmutableList.of(category, category, category)))
+                .isEqualTo(16 + 32 + 3 * categorySize);
+
+        ImmutableMap<Integer, Category> map = ImmutableMap.of(1, category, 2, category);
+        assertThat(estimator.estimateSize(map))
+                .isEqualTo(estimator.estimateSize(map.keySet()) + estimator.estimateSize(map.values()));
+
+        ImmutableListMultimap<Integer, Category> multimap = ImmutableListMultimap.of(1, category, 1, category);
+        assertThat(estimator.estimateSize(multimap))
+                .isEqualTo(estimator.estimateSize(multimap.keySet()) + estimator.estimateSize(multimap.values()));
+    }
+
+    @Test
+    void estimatesByteArraysByLength() {
+        assertThat(estimator.estimateSize(ImmutableByteArray.copyOf(new byte[1000]))).isEqualTo(16 + 1016);
+        assertThat(estimator.estimateSize(ImmutableByteArray.copyOf(new byte[0]))).isEqualTo(16 + 16);
+    }
+
+    @Test
+    void capsWeightAtMaximumInt() {
+        // A collection claiming to have very many (absent) elements, each taking a reference in the backing array
+        AbstractCollection<Object> hugeCollection = new AbstractCollection<>() {
+            @Override
+            public Iterator<Object> iterator() {
+                return Collections.emptyIterator();
+            }
+
+            @Override
+            public int size() {
+                return Integer.MAX_VALUE;
+            }
+        };
+
+        assertThat(estimator.estimateSize(hugeCollection)).isGreaterThan(Integer.MAX_VALUE);
+        assertThat(estimator.weigh("key", hugeCollection)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(estimator.weigh("key", "Travel")).isEqualTo(48);
+    }
+}
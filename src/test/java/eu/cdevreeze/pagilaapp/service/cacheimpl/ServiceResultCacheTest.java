@@ -0,0 +1,203 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.cacheimpl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.pagilaapp.model.CacheRegionStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Unit test of the caching dynamic proxies created by {@link ServiceResultCaches}, using a fake service
+ * that counts its invocations.
+ *
+ * @author Chris de Vreeze
+ */
+class ServiceResultCacheTest {
+
+    public interface NameService {
+
+        ImmutableList<String> findNames(String prefix, ImmutableSet<Integer> ids);
+
+        ImmutableList<String> findOtherNames(String prefix, ImmutableSet<Integer> ids);
+
+        ImmutableList<String> findVolatileNames(String prefix);
+
+        int countNames();
+
+        void forEachName(Consumer<? super String> action);
+    }
+
+    /**
+     * Fake service, returning results that reveal how often the service has been invoked.
+     */
+    private static final class CountingNameService implements NameService {
+
+        private final AtomicInteger invocationCount = new AtomicInteger();
+
+        @Override
+        public ImmutableList<String> findNames(String prefix, ImmutableSet<Integer> ids) {
+            if (prefix.isEmpty()) {
+                throw new IllegalArgumentException("Empty prefix");
+            }
+            return ImmutableList.of(prefix + invocationCount.incrementAndGet());
+        }
+
+        @Override
+        public ImmutableList<String> findOtherNames(String prefix, ImmutableSet<Integer> ids) {
+            return ImmutableList.of(prefix + invocationCount.incrementAndGet());
+        }
+
+        @Override
+        public ImmutableList<String> findVolatileNames(String prefix) {
+            return ImmutableList.of(prefix + invocationCount.incrementAndGet());
+        }
+
+        @Override
+        public int countNames() {
+            return invocationCount.incrementAndGet();
+        }
+
+        @Override
+        public void forEachName(Consumer<? super String> action) {
+            action.accept("name" + invocationCount.incrementAndGet());
+        }
+    }
+
+    @Test
+    void cachesFindMethodsByMethodAndArguments() {
+        CountingNameService service = new CountingNameService();
+        NameService proxy = decorate(service, Duration.ofMinutes(1));
+
+        ImmutableList<String> names = proxy.findNames("a", ImmutableSet.of(1, 2));
+
+        assertThat(names).containsExactly("a1");
+        // Equal arguments (sets in another order) make equal cache keys
+        assertThat(proxy.findNames(new String("a"), ImmutableSet.of(2, 1))).isSameAs(names);
+        assertThat(service.invocationCount).hasValue(1);
+
+        // Different arguments, or another method with the same arguments, make different cache keys
+        assertThat(proxy.findNames("a", ImmutableSet.of(1))).containsExactly("a2");
+        assertThat(proxy.findNames("b", ImmutableSet.of(1, 2))).containsExactly("b3");
+        assertThat(proxy.findOtherNames("a", ImmutableSet.of(1, 2))).containsExactly("a4");
+        assertThat(service.invocationCount).hasValue(4);
+    }
+
+    @Test
+    void passesThroughOtherMethods() {
+        CountingNameService service = new CountingNameService();
+        NameService proxy = decorate(service, Duration.ofMinutes(1));
+
+        // Explicitly excluded from caching
+        assertThat(proxy.findVolatileNames("a")).containsExactly("a1");
+        assertThat(proxy.findVolatileNames("a")).containsExactly("a2");
+
+        // Not returning a collection
+        assertThat(proxy.countNames()).isEqualTo(3);
+        assertThat(proxy.countNames()).isEqualTo(4);
+
+        // Not a "find" method
+        StringBuilder sb = new StringBuilder();
+        proxy.forEachName(sb::append);
+        proxy.forEachName(sb::append);
+        assertThat(sb.toString()).isEqualTo("name5name6");
+    }
+
+    @Test
+    void rethrowsExceptionsOfTheService() {
+        NameService proxy = decorate(new CountingNameService(), Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> proxy.findNames("", ImmutableSet.of()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Empty prefix");
+    }
+
+    @Test
+    void refreshesEntriesAhead() throws InterruptedException {
+        CountingNameService service = new CountingNameService();
+        NameService proxy = decorate(service, Duration.ofMillis(100));
+
+        assertThat(proxy.findNames("a", ImmutableSet.of())).containsExactly("a1");
+
+        Thread.sleep(150);
+
+        // The first read after the refresh interval still returns the old value, and triggers an asynchronous reload
+        assertThat(proxy.findNames("a", ImmutableSet.of())).containsExactly("a1");
+
+        Instant deadline = Instant.now().plusSeconds(10);
+        ImmutableList<String> names = proxy.findNames("a", ImmutableSet.of());
+        while (names.equals(ImmutableList.of("a1")) && Instant.now().isBefore(deadline)) {
+            Thread.sleep(10);
+            names = proxy.findNames("a", ImmutableSet.of());
+        }
+        assertThat(names).containsExactly("a2");
+    }
+
+    @Test
+    void invalidatesCachesDependingOnTable() {
+        ServiceResultCaches caches = new ServiceResultCaches(1_000_000, Duration.ofMinutes(10), Duration.ofMinutes(1));
+
+        CountingNameService filmNameService = new CountingNameService();
+        NameService filmNameProxy = caches.decorate(NameService.class, filmNameService, ImmutableSet.of("film"));
+        CountingNameService actorNameService = new CountingNameService();
+        NameService actorNameProxy = caches.decorate(NameService.class, actorNameService, ImmutableSet.of("actor"));
+
+        filmNameProxy.findNames("a", ImmutableSet.of());
+        actorNameProxy.findNames("a", ImmutableSet.of());
+
+        caches.invalidate("FILM");
+
+        assertThat(filmNameProxy.findNames("a", ImmutableSet.of())).containsExactly("a2");
+        assertThat(actorNameProxy.findNames("a", ImmutableSet.of())).containsExactly("a1");
+
+        assertThat(caches.statistics())
+                .extracting(CacheRegionStatistics::hitCount, CacheRegionStatistics::missCount)
+                .containsExactlyInAnyOrder(
+                        tuple(0L, 2L),
+                        tuple(1L, 1L)
+                );
+    }
+
+    @Test
+    void doesNotCacheObjectMethods() {
+        NameService proxy = decorate(new CountingNameService(), Duration.ofMinutes(1));
+
+        assertThat(proxy).isEqualTo(proxy);
+        assertThat(proxy).isNotEqualTo(decorate(new CountingNameService(), Duration.ofMinutes(1)));
+        assertThat(proxy.hashCode()).isEqualTo(System.identityHashCode(proxy));
+        assertThat(proxy.toString()).startsWith("ServiceResultCache proxy of ");
+    }
+
+    private static NameService decorate(NameService service, Duration refreshAfter) {
+        ServiceResultCaches caches = new ServiceResultCaches(1_000_000, Duration.ofMinutes(10), refreshAfter);
+        return caches.decorate(
+                NameService.class,
+                service,
+                ImmutableSet.of("name"),
+                ImmutableSet.of("findVolatileNames")
+        );
+    }
+}
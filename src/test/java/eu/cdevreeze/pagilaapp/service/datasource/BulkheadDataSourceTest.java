@@ -0,0 +1,167 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test of {@link BulkheadDataSource}, in particular of the release of permits.
+ *
+ * @author Chris de Vreeze
+ */
+class BulkheadDataSourceTest {
+
+    @Test
+    void releasesPermitOnceWhenConnectionIsClosed() throws SQLException {
+        Connection targetConnection = mock(Connection.class);
+        DataSource targetDataSource = mock(DataSource.class);
+        when(targetDataSource.getConnection()).thenReturn(targetConnection);
+
+        BulkheadDataSource bulkhead = new BulkheadDataSource(targetDataSource, 2, Duration.ofSeconds(1));
+
+        Connection connection1 = bulkhead.getConnection();
+        Connection connection2 = bulkhead.getConnection();
+        assertThat(bulkhead.availablePermits()).isZero();
+
+        connection1.close();
+        assertThat(bulkhead.availablePermits()).isEqualTo(1);
+
+        // Closing a connection more than once must not release more permits than were acquired
+        connection1.close();
+        assertThat(bulkhead.availablePermits()).isEqualTo(1);
+
+        connection2.close();
+        assertThat(bulkhead.availablePermits()).isEqualTo(2);
+
+        verify(targetConnection, times(3)).close();
+    }
+
+    @Test
+    void releasesPermitWhenClosingConnectionFails() throws SQLException {
+        Connection targetConnection = mock(Connection.class);
+        DataSource targetDataSource = mock(DataSource.class);
+        when(targetDataSource.getConnection()).thenReturn(targetConnection);
+        doThrow(new SQLException("Broken connection")).when(targetConnection).close();
+
+        BulkheadDataSource bulkhead = new BulkheadDataSource(targetDataSource, 1, Duration.ofSeconds(1));
+
+        Connection connection = bulkhead.getConnection();
+
+        assertThatThrownBy(connection::close).isInstanceOf(SQLException.class).hasMessage("Broken connection");
+        assertThat(bulkhead.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void releasesPermitWhenGettingConnectionFails() throws SQLException {
+        DataSource targetDataSource = mock(DataSource.class);
+        when(targetDataSource.getConnection()).thenThrow(new SQLException("Database down"));
+        when(targetDataSource.getConnection("user", "password")).thenThrow(new IllegalStateException("Pool closed"));
+
+        BulkheadDataSource bulkhead = new BulkheadDataSource(targetDataSource, 1, Duration.ofSeconds(1));
+
+        assertThatThrownBy(bulkhead::getConnection).isInstanceOf(SQLException.class).hasMessage("Database down");
+        assertThat(bulkhead.availablePermits()).isEqualTo(1);
+
+        assertThatThrownBy(() -> bulkhead.getConnection("user", "password"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Pool closed");
+        assertThat(bulkhead.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void timesOutWithoutPermit() throws SQLException {
+        DataSource targetDataSource = mock(DataSource.class);
+        when(targetDataSource.getConnection()).thenAnswer(ignored -> mock(Connection.class));
+
+        BulkheadDataSource bulkhead = new BulkheadDataSource(targetDataSource, 1, Duration.ofMillis(50));
+
+        Connection connection = bulkhead.getConnection();
+
+        assertThatThrownBy(bulkhead::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        assertThat(bulkhead.availablePermits()).isZero();
+        verify(targetDataSource, times(1)).getConnection();
+
+        // The failed attempt did not take a permit, so the next attempt succeeds once the connection is closed
+        connection.close();
+        bulkhead.getConnection().close();
+        assertThat(bulkhead.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void stopsWaitingWhenInterrupted() throws Exception {
+        DataSource targetDataSource = mock(DataSource.class);
+        when(targetDataSource.getConnection()).thenAnswer(ignored -> mock(Connection.class));
+
+        BulkheadDataSource bulkhead = new BulkheadDataSource(targetDataSource, 1, Duration.ofMinutes(1));
+
+        Connection connection = bulkhead.getConnection();
+
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        AtomicReference<Boolean> interruptFlag = new AtomicReference<>();
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                bulkhead.getConnection();
+            } catch (SQLException e) {
+                thrown.set(e);
+                interruptFlag.set(Thread.currentThread().isInterrupted());
+            }
+        });
+
+        while (bulkhead.queueLength() == 0) {
+            Thread.onSpinWait();
+        }
+        waiter.interrupt();
+        waiter.join(Duration.ofSeconds(10));
+
+        assertThat(thrown.get()).isInstanceOf(SQLTransientConnectionException.class);
+        assertThat(interruptFlag.get()).isTrue();
+
+        connection.close();
+        assertThat(bulkhead.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void closesTargetDataSource() throws Exception {
+        HikariDataSource connectionPool = new HikariDataSource();
+
+        try (BulkheadDataSource bulkhead = new BulkheadDataSource(connectionPool, 1, Duration.ofSeconds(1))) {
+            assertThat(bulkhead.availablePermits()).isEqualTo(1);
+        }
+
+        assertThat(connectionPool.isClosed()).isTrue();
+
+        // A target DataSource that is not AutoCloseable is left alone
+        DataSource targetDataSource = mock(DataSource.class);
+        new BulkheadDataSource(targetDataSource, 1, Duration.ofSeconds(1)).close();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.jooqimpl;
+
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.pagilaapp.entity.ActorEntity;
+import eu.cdevreeze.pagilaapp.entity.CategoryEntity;
+import eu.cdevreeze.pagilaapp.entity.FilmEntity;
+import eu.cdevreeze.pagilaapp.entity.LanguageEntity;
+import eu.cdevreeze.pagilaapp.entity.conversions.EntityConversions;
+import eu.cdevreeze.pagilaapp.jooq.enums.MpaaRating;
+import eu.cdevreeze.pagilaapp.model.Canonicalizer;
+import eu.cdevreeze.pagilaapp.model.Film;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Year;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * JMH microbenchmark of the mapping layers alone, without any database access: the conversion of JPA entities
+ * to model objects (EntityConversions) versus the conversion of jOOQ result rows to model objects
+ * (FilmRow.toModel). The input mimics the Pagila film catalog: 1000 films, each having 1 of 16 categories
+ * and 5 of 200 actors. Each operation maps the complete catalog, using one Canonicalizer, like the services do.
+ * <p>
+ * This benchmark lives in the package of the jOOQ service implementation, because the row types are
+ * package-private. Run it with "mvn -Pbenchmark test-compile exec:exec -Dbenchmark=MappingBenchmark".
+ * The allocation rate per operation is reported by the JMH GC profiler.
+ *
+ * @author Chris de Vreeze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class MappingBenchmark {
+
+    private static final int FILM_COUNT = 1000;
+    private static final int CATEGORY_COUNT = 16;
+    private static final int ACTOR_COUNT = 200;
+    private static final int ACTORS_PER_FILM = 5;
+
+    private ImmutableList<FilmEntity> filmEntities;
+
+    private ImmutableList<FilmRowWithCollections> filmRows;
+
+    private record FilmRowWithCollections(
+            JooqFilmService.FilmRow filmRow,
+            List<JooqFilmService.CategoryRow> categories,
+            List<JooqFilmService.ActorRow> actors
+    ) {
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LanguageEntity english = new LanguageEntity();
+        english.setId(1);
+        english.setRawName("English             "); // The language name column is of type character(20)
+
+        List<CategoryEntity> categoryEntities = IntStream.rangeClosed(1, CATEGORY_COUNT)
+                .mapToObj(i -> {
+                    CategoryEntity category = new CategoryEntity();
+                    category.setId(i);
+                    category.setName("Category " + i);
+                    return category;
+                })
+                .toList();
+        List<ActorEntity> actorEntities = IntStream.rangeClosed(1, ACTOR_COUNT)
+                .mapToObj(i -> {
+                    ActorEntity actor = new ActorEntity();
+                    actor.setId(i);
+                    actor.setFirstName("First" + i);
+                    actor.setLastName("Last" + i);
+                    return actor;
+                })
+                .toList();
+
+        filmEntities = IntStream.rangeClosed(1, FILM_COUNT)
+                .mapToObj(i -> {
+                    FilmEntity film = new FilmEntity();
+                    film.setId(i);
+                    film.setTitle("Film " + i);
+                    film.setDescription("A description of film " + i + ", which is about as long as in Pagila");
+                    film.setReleaseYear(Year.of(2006));
+                    film.setLanguage(english);
+                    film.setCategories(Set.of(categoryEntities.get(i % CATEGORY_COUNT)));
+                    film.setActors(actorsOfFilm(i, actorEntities));
+                    film.setRentalDuration((short) 5);
+                    film.setRentalRate(new BigDecimal("2.99"));
+                    film.setLength((short) 120);
+                    film.setReplacementCost(new BigDecimal("19.99"));
+                    film.setRating("PG");
+                    film.setSpecialFeatures(List.of("Trailers", "Deleted Scenes"));
+                    return film;
+                })
+                .collect(ImmutableList.toImmutableList());
+
+        filmRows = filmEntities.stream()
+                .map(film -> new FilmRowWithCollections(
+                        new JooqFilmService.FilmRow(
+                                film.getId(),
+                                film.getTitle(),
+                                film.getDescription(),
+                                film.getReleaseYear().getValue(),
+                                film.getLanguage().getRawName().strip(),
+                                null,
+                                film.getRentalDuration(),
+                                film.getRentalRate(),
+                                film.getLength(),
+                                film.getReplacementCost(),
+                                MpaaRating.PG,
+                                film.getSpecialFeatures().toArray(String[]::new)
+                        ),
+                        film.getCategories()
+                                .stream()
+                                .map(c -> new JooqFilmService.CategoryRow(c.getId(), c.getName()))
+                                .toList(),
+                        film.getActors()
+                                .stream()
+                                .map(a -> new JooqFilmService.ActorRow(a.getId(), a.getFirstName(), a.getLastName()))
+                                .toList()
+                ))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Benchmark
+    public ImmutableList<Film> convertFilmEntities() {
+        Canonicalizer canonicalizer = new Canonicalizer();
+        return filmEntities.stream()
+                .map(film -> EntityConversions.convertFilmEntityToModel(film, canonicalizer))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    @Benchmark
+    public ImmutableList<Film> convertFilmRows() {
+        Canonicalizer canonicalizer = new Canonicalizer();
+        return filmRows.stream()
+                .map(row -> row.filmRow().toModel(row.categories(), row.actors(), canonicalizer))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    private static Set<ActorEntity> actorsOfFilm(int filmId, List<ActorEntity> actorEntities) {
+        Set<ActorEntity> actors = new LinkedHashSet<>();
+        for (int j = 0; j < ACTORS_PER_FILM; j++) {
+            actors.add(actorEntities.get((filmId * 7 + j * 31) % ACTOR_COUNT));
+        }
+        return actors;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.snapshotimpl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Range;
+import eu.cdevreeze.pagilaapp.model.Actor;
+import eu.cdevreeze.pagilaapp.model.Category;
+import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.model.FilmFilter;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test of {@link FilmBitmapIndex}, comparing its results with those of a straightforward stream filter,
+ * on a generated film catalog resembling the Pagila film catalog.
+ *
+ * @author Chris de Vreeze
+ */
+class FilmBitmapIndexTest {
+
+    private static final List<String> CATEGORY_NAMES = List.of("Action", "Comedy", "Drama", "Horror", "Travel");
+    private static final List<String> RATINGS = List.of("G", "PG", "PG-13", "R", "NC-17");
+    private static final List<String> SPECIAL_FEATURES =
+            List.of("Trailers", "Commentaries", "Deleted Scenes", "Behind the Scenes");
+    private static final List<BigDecimal> RENTAL_RATES =
+            List.of(new BigDecimal("0.99"), new BigDecimal("2.99"), new BigDecimal("4.99"));
+
+    private static final ImmutableList<Actor> ACTORS = IntStream.rangeClosed(1, 20)
+            .mapToObj(i -> new Actor(OptionalInt.of(i), "FIRST" + i, "LAST" + i))
+            .collect(ImmutableList.toImmutableList());
+
+    private static final ImmutableSortedMap<Integer, Film> FILMS_BY_ID = generateFilms(300);
+
+    private final FilmBitmapIndex index = FilmBitmapIndex.build(FILMS_BY_ID);
+
+    @Test
+    void filtersLikeStreamFilter() {
+        FilmFilter all = FilmFilter.matchingAll();
+
+        List<FilmFilter> filters = List.of(
+                all,
+                all.withCategories(ImmutableSet.of("action")),
+                all.withCategories(ImmutableSet.of("Action", "COMEDY", "No such category")),
+                all.withLanguages(ImmutableSet.of(" english ")),
+                all.withActorNames(ImmutableSet.of("first1 last1", "FIRST2 LAST2")),
+                withRatings(all, ImmutableSet.of("pg-13", "R")),
+                withSpecialFeatures(all, ImmutableSet.of(" Trailers")),
+                withSpecialFeatures(all, ImmutableSet.of("trailers", "Deleted Scenes ")),
+                withSpecialFeatures(all, ImmutableSet.of("No such feature")),
+                withLengthRange(all, Range.atLeast(120)),
+                withLengthRange(all, Range.lessThan(60)),
+                withLengthRange(all, Range.closed(60, 90)),
+                withLengthRange(all, Range.open(60, 90)),
+                withLengthRange(all, Range.closedOpen(90, 90)),
+                withRentalRateRange(all, Range.atMost(new BigDecimal("0.99"))),
+                withRentalRateRange(all, Range.greaterThan(new BigDecimal("2.99"))),
+                withRentalRateRange(all, Range.closed(new BigDecimal("0.990"), new BigDecimal("2.99"))),
+                withRentalRateRange(all, Range.open(new BigDecimal("0.99"), new BigDecimal("2.99"))),
+                withRentalRateRange(all, Range.openClosed(new BigDecimal("2.99"), new BigDecimal("2.99"))),
+                withRentalRateRange(
+                        withLengthRange(
+                                withSpecialFeatures(
+                                        withRatings(
+                                                all.withCategories(ImmutableSet.of("Action", "Drama"))
+                                                        .withActorNames(ImmutableSet.of(
+                                                                "FIRST3 LAST3", "FIRST4 LAST4", "FIRST5 LAST5"
+                                                        )),
+                                                ImmutableSet.of("PG", "PG-13", "R")
+                                        ),
+                                        ImmutableSet.of("Trailers")
+                                ),
+                                Range.closed(50, 150)
+                        ),
+                        Range.atLeast(new BigDecimal("2.99"))
+                )
+        );
+
+        for (FilmFilter filter : filters) {
+            ImmutableList<Film> expectedFilms = FILMS_BY_ID.values()
+                    .stream()
+                    .filter(film -> matches(film, filter))
+                    .collect(ImmutableList.toImmutableList());
+
+            assertThat(index.filter(filter)).as(filter.toString()).isEqualTo(expectedFilms);
+        }
+    }
+
+    @Test
+    void findsNonTrivialResults() {
+        // Guarding against the comparison above being vacuous
+        FilmFilter filter = withSpecialFeatures(
+                FilmFilter.matchingAll().withCategories(ImmutableSet.of("travel")),
+                ImmutableSet.of(" trailers ")
+        );
+
+        assertThat(index.filter(filter)).hasSizeBetween(1, FILMS_BY_ID.size() - 1);
+        assertThat(index.filter(withLengthRange(FilmFilter.matchingAll(), Range.closedOpen(90, 90)))).isEmpty();
+        assertThat(index.filter(FilmFilter.matchingAll())).hasSize(FILMS_BY_ID.size());
+    }
+
+    /**
+     * Straightforward implementation of the FilmFilter semantics, one film at a time.
+     */
+    static boolean matches(Film film, FilmFilter filter) {
+        Set<String> filmSpecialFeatures = film.specialFeaturesOption().orElse(ImmutableSet.of());
+
+        return matchesAny(film.categoryNames(), filter.categories()) &&
+                matchesAny(ImmutableSet.of(film.language()), filter.languages()) &&
+                matchesAny(film.ratingOption().stream().collect(ImmutableSet.toImmutableSet()), filter.ratings()) &&
+                matchesAny(film.actorNames(), filter.actorNames()) &&
+                filter.specialFeatures().stream().allMatch(f -> matchesAny(filmSpecialFeatures, ImmutableSet.of(f))) &&
+                (filter.lengthRange().equals(Range.all()) ||
+                        (film.lengthOption().isPresent() && filter.lengthRange().contains(film.lengthOption().getAsInt()))) &&
+                filter.rentalRateRange().contains(film.rentalRate());
+    }
+
+    private static boolean matchesAny(Set<String> values, Set<String> filterValues) {
+        return filterValues.isEmpty() ||
+                values.stream().anyMatch(v -> filterValues.stream().anyMatch(f -> f.strip().equalsIgnoreCase(v.strip())));
+    }
+
+    private static FilmFilter withRatings(FilmFilter filter, ImmutableSet<String> ratings) {
+        return new FilmFilter(
+                filter.categories(),
+                filter.languages(),
+                ratings,
+                filter.actorNames(),
+                filter.specialFeatures(),
+                filter.lengthRange(),
+                filter.rentalRateRange()
+        );
+    }
+
+    private static FilmFilter withSpecialFeatures(FilmFilter filter, ImmutableSet<String> specialFeatures) {
+        return new FilmFilter(
+                filter.categories(),
+                filter.languages(),
+                filter.ratings(),
+                filter.actorNames(),
+                specialFeatures,
+                filter.lengthRange(),
+                filter.rentalRateRange()
+        );
+    }
+
+    private static FilmFilter withLengthRange(FilmFilter filter, Range<Integer> lengthRange) {
+        return new FilmFilter(
+                filter.categories(),
+                filter.languages(),
+                filter.ratings(),
+                filter.actorNames(),
+                filter.specialFeatures(),
+                lengthRange,
+                filter.rentalRateRange()
+        );
+    }
+
+    private static FilmFilter withRentalRateRange(FilmFilter filter, Range<BigDecimal> rentalRateRange) {
+        return new FilmFilter(
+                filter.categories(),
+                filter.languages(),
+                filter.ratings(),
+                filter.actorNames(),
+                filter.specialFeatures(),
+                filter.lengthRange(),
+                rentalRateRange
+        );
+    }
+
+    static ImmutableSortedMap<Integer, Film> generateFilms(int filmCount) {
+        Random random = new Random(42);
+
+        return IntStream.rangeClosed(1, filmCount)
+                .mapToObj(id -> new Film(
+                        OptionalInt.of(id),
+                        "FILM " + id,
+                        Optional.empty(),
+                        Optional.empty(),
+                        // The language name column is of type character(20)
+                        random.nextInt(4) == 0 ? "Japanese            " : "English             ",
+                        Optional.empty(),
+                        ImmutableSet.of(new Category(
+                                OptionalInt.of(1 + random.nextInt(CATEGORY_NAMES.size())),
+                                CATEGORY_NAMES.get(random.nextInt(CATEGORY_NAMES.size()))
+                        )),
+                        random.ints(1 + random.nextInt(5), 0, ACTORS.size())
+                                .mapToObj(ACTORS::get)
+                                .collect(ImmutableSet.toImmutableSet()),
+                        (short) 3,
+                        RENTAL_RATES.get(random.nextInt(RENTAL_RATES.size())),
+                        random.nextInt(10) == 0 ? OptionalInt.empty() : OptionalInt.of(46 + random.nextInt(140)),
+                        new BigDecimal("19.99"),
+                        random.nextInt(10) == 0 ? Optional.empty() : Optional.of(RATINGS.get(random.nextInt(RATINGS.size()))),
+                        random.nextInt(10) == 0 ?
+                                Optional.empty() :
+                                Optional.of(random.ints(random.nextInt(3), 0, SPECIAL_FEATURES.size())
+                                        .mapToObj(SPECIAL_FEATURES::get)
+                                        .collect(ImmutableSet.toImmutableSet()))
+                ))
+                .collect(ImmutableSortedMap.toImmutableSortedMap(
+                        Integer::compare,
+                        film -> film.idOption().orElseThrow(),
+                        Function.identity()
+                ));
+    }
+}
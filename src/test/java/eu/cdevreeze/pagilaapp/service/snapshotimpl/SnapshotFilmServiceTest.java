@@ -0,0 +1,146 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.service.snapshotimpl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Range;
+import eu.cdevreeze.pagilaapp.model.DataVersion;
+import eu.cdevreeze.pagilaapp.model.Film;
+import eu.cdevreeze.pagilaapp.model.FilmFilter;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.FilmService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test of the filtering of films by {@link SnapshotFilmService}, comparing its results with those of a
+ * straightforward stream filter over the films returned by the delegate FilmService.
+ *
+ * @author Chris de Vreeze
+ */
+class SnapshotFilmServiceTest {
+
+    private static final ImmutableSortedMap<Integer, Film> FILMS_BY_ID = FilmBitmapIndexTest.generateFilms(300);
+
+    private SnapshotFilmService snapshotFilmService;
+
+    @BeforeEach
+    void startSnapshotFilmService() {
+        FilmService delegate = mock(FilmService.class);
+        // The delegate need not return the films in film ID order
+        when(delegate.findAllFilms()).thenReturn(FILMS_BY_ID.descendingMap().values().asList());
+
+        DataVersionService dataVersionService = mock(DataVersionService.class);
+        when(dataVersionService.findFilmCatalogVersion())
+                .thenReturn(new DataVersion(Optional.of(Instant.parse("2025-01-01T00:00:00Z")), 1));
+
+        snapshotFilmService = new SnapshotFilmService(delegate, dataVersionService, Duration.ofMinutes(10));
+        snapshotFilmService.start();
+    }
+
+    @AfterEach
+    void closeSnapshotFilmService() {
+        snapshotFilmService.close();
+    }
+
+    @Test
+    void filtersFilmsLikeStreamFilter() {
+        FilmFilter all = FilmFilter.matchingAll();
+
+        List<FilmFilter> filters = List.of(
+                all,
+                new FilmFilter(
+                        ImmutableSet.of("Comedy", "travel"),
+                        ImmutableSet.of(),
+                        ImmutableSet.of("G", "nc-17"),
+                        ImmutableSet.of(),
+                        ImmutableSet.of("Commentaries"),
+                        Range.all(),
+                        Range.all()
+                ),
+                new FilmFilter(
+                        ImmutableSet.of("Horror"),
+                        ImmutableSet.of("Japanese"),
+                        ImmutableSet.of(),
+                        ImmutableSet.of("FIRST7 LAST7", "first8 last8"),
+                        ImmutableSet.of(),
+                        Range.closedOpen(60, 120),
+                        Range.lessThan(new BigDecimal("4.99"))
+                ),
+                new FilmFilter(
+                        ImmutableSet.of(),
+                        ImmutableSet.of(),
+                        ImmutableSet.of(),
+                        ImmutableSet.of(),
+                        ImmutableSet.of(" Behind the Scenes "),
+                        Range.greaterThan(150),
+                        Range.closed(new BigDecimal("4.99"), new BigDecimal("4.99"))
+                ),
+                new FilmFilter(
+                        ImmutableSet.of("Drama"),
+                        ImmutableSet.of(),
+                        ImmutableSet.of(),
+                        ImmutableSet.of(),
+                        ImmutableSet.of(),
+                        Range.closedOpen(100, 100),
+                        Range.all()
+                )
+        );
+
+        for (FilmFilter filter : filters) {
+            ImmutableList<Film> expectedFilms = FILMS_BY_ID.values()
+                    .stream()
+                    .filter(film -> FilmBitmapIndexTest.matches(film, filter))
+                    .collect(ImmutableList.toImmutableList());
+
+            assertThat(snapshotFilmService.filterFilms(filter)).as(filter.toString()).isEqualTo(expectedFilms);
+        }
+    }
+
+    @Test
+    void findsFilmsByLanguageAndActorIgnoringCaseAndPadding() {
+        ImmutableList<Film> expectedFilmsByLanguage = FILMS_BY_ID.values()
+                .stream()
+                .filter(film -> film.language().strip().equals("Japanese"))
+                .collect(ImmutableList.toImmutableList());
+
+        assertThat(expectedFilmsByLanguage).isNotEmpty();
+        assertThat(snapshotFilmService.findFilmsByLanguage("Japanese")).isEqualTo(expectedFilmsByLanguage);
+        assertThat(snapshotFilmService.findFilmsByLanguage("JAPANESE  ")).isEqualTo(expectedFilmsByLanguage);
+
+        ImmutableList<Film> expectedFilmsByActor = FILMS_BY_ID.values()
+                .stream()
+                .filter(film -> film.actorNames().contains("FIRST9 LAST9"))
+                .collect(ImmutableList.toImmutableList());
+
+        assertThat(expectedFilmsByActor).isNotEmpty();
+        assertThat(snapshotFilmService.findFilmsByActor("First9", "Last9")).isEqualTo(expectedFilmsByActor);
+    }
+}
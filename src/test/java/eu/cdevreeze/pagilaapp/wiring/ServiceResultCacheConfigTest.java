@@ -0,0 +1,116 @@
+/*
+ * Copyright 2025-2025 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.pagilaapp.wiring;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.pagilaapp.model.FilmAvailability;
+import eu.cdevreeze.pagilaapp.model.Store;
+import eu.cdevreeze.pagilaapp.service.DataVersionService;
+import eu.cdevreeze.pagilaapp.service.FilmService;
+import eu.cdevreeze.pagilaapp.service.StoreService;
+import eu.cdevreeze.pagilaapp.service.cacheimpl.ServiceResultCaches;
+import eu.cdevreeze.pagilaapp.service.snapshotimpl.SnapshotFilmService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test of the BeanPostProcessor that decorates the database-backed services with service result caches.
+ *
+ * @author Chris de Vreeze
+ */
+class ServiceResultCacheConfigTest {
+
+    @Test
+    void decoratesDatabaseBackedServices() {
+        BeanPostProcessor postProcessor = createPostProcessor(false);
+
+        FilmService filmService = mock(FilmService.class);
+        StoreService storeService = mock(StoreService.class);
+        Object otherBean = "not a service";
+
+        assertThat(postProcessor.postProcessAfterInitialization(filmService, "filmService"))
+                .isInstanceOf(FilmService.class)
+                .matches(bean -> Proxy.isProxyClass(bean.getClass()));
+        assertThat(postProcessor.postProcessAfterInitialization(storeService, "storeService"))
+                .isInstanceOf(StoreService.class)
+                .matches(bean -> Proxy.isProxyClass(bean.getClass()));
+        assertThat(postProcessor.postProcessAfterInitialization(otherBean, "otherBean")).isSameAs(otherBean);
+    }
+
+    @Test
+    void doesNotDecorateFilmServicesBackingOrBeingSnapshot() {
+        BeanPostProcessor postProcessor = createPostProcessor(true);
+
+        FilmService filmService = mock(FilmService.class);
+        SnapshotFilmService snapshotFilmService =
+                new SnapshotFilmService(filmService, mock(DataVersionService.class), Duration.ofMinutes(1));
+        StoreService storeService = mock(StoreService.class);
+
+        assertThat(postProcessor.postProcessAfterInitialization(filmService, "filmService"))
+                .isSameAs(filmService);
+        assertThat(postProcessor.postProcessAfterInitialization(snapshotFilmService, "snapshotFilmService"))
+                .isSameAs(snapshotFilmService);
+        assertThat(postProcessor.postProcessAfterInitialization(storeService, "storeService"))
+                .isNotSameAs(storeService);
+    }
+
+    @Test
+    void doesNotCacheFilmAvailability() {
+        BeanPostProcessor postProcessor = createPostProcessor(false);
+
+        StoreService storeService = mock(StoreService.class);
+        ImmutableList<Store> stores = ImmutableList.of();
+        ImmutableList<FilmAvailability> availability = ImmutableList.of(new FilmAvailability(1, 1, 4, 2));
+        when(storeService.findAllStores()).thenReturn(stores);
+        when(storeService.findFilmAvailability(ImmutableSet.of(1))).thenReturn(availability);
+
+        StoreService cachingStoreService =
+                (StoreService) postProcessor.postProcessAfterInitialization(storeService, "storeService");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(cachingStoreService.findAllStores()).isSameAs(stores);
+            assertThat(cachingStoreService.findFilmAvailability(ImmutableSet.of(1))).isSameAs(availability);
+        }
+
+        verify(storeService, times(1)).findAllStores();
+        verify(storeService, times(3)).findFilmAvailability(ImmutableSet.of(1));
+    }
+
+    private static BeanPostProcessor createPostProcessor(boolean useFilmCatalogSnapshot) {
+        ServiceResultCaches serviceResultCaches =
+                new ServiceResultCaches(1_000_000, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        StaticListableBeanFactory beanFactory =
+                new StaticListableBeanFactory(Map.of("serviceResultCaches", serviceResultCaches));
+
+        return ServiceResultCacheConfig.serviceResultCachingPostProcessor(
+                beanFactory.getBeanProvider(ServiceResultCaches.class),
+                useFilmCatalogSnapshot
+        );
+    }
+}
@@ -0,0 +1,26 @@
+--
+-- Copyright 2025-2025 Chris de Vreeze
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Test fixture for QueryBudgetIT. In the Pagila data each film has exactly one category, so joining a film with
+-- both its categories and its actors would not multiply any rows. Here the first film (which has several actors)
+-- gets all categories, so that a categories x actors Cartesian product would exceed the row budgets.
+
+insert into public.film_category (film_id, category_id)
+select 1, c.category_id
+from public.category c
+where not exists (
+    select 1 from public.film_category fc where fc.film_id = 1 and fc.category_id = c.category_id
+);